@@ -9,18 +9,28 @@ import android.view.ViewGroup;
 
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
+import androidx.annotation.WorkerThread;
+import androidx.recyclerview.widget.DiffUtil;
 import androidx.recyclerview.widget.RecyclerView;
 
 import org.apache.commons.lang3.ArrayUtils;
 
 import java.lang.ref.WeakReference;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 import de.danoeh.antennapod.R;
 import de.danoeh.antennapod.activity.MainActivity;
+import de.danoeh.antennapod.core.feed.util.ImageResourceUtils;
+import de.danoeh.antennapod.core.storage.DownloadRequester;
 import de.danoeh.antennapod.model.feed.FeedItem;
 import de.danoeh.antennapod.core.util.FeedItemUtil;
+import de.danoeh.antennapod.model.feed.FeedMedia;
 import de.danoeh.antennapod.fragment.ItemPagerFragment;
 import de.danoeh.antennapod.menuhandler.FeedItemMenuHandler;
 import de.danoeh.antennapod.view.viewholder.EpisodeItemViewHolder;
@@ -33,6 +43,8 @@ public class EpisodeItemListAdapter extends SelectableAdapter<EpisodeItemViewHol
 
     private final WeakReference<MainActivity> mainActivityRef;
     private List<FeedItem> episodes = new ArrayList<>();
+    private final Map<Long, Integer> boundContentHashes = new HashMap<>();
+    private ItemListSnapshot displayedSnapshot; // null if the items were changed since it was created
     private FeedItem longPressedItem;
     int longPressedPosition = 0; // used to init actionMode
 
@@ -40,13 +52,128 @@ public class EpisodeItemListAdapter extends SelectableAdapter<EpisodeItemViewHol
         super(mainActivity);
         this.mainActivityRef = new WeakReference<>(mainActivity);
         setHasStableIds(true);
+        registerAdapterDataObserver(new RecyclerView.AdapterDataObserver() {
+            @Override
+            public void onChanged() {
+                displayedSnapshot = null;
+            }
+
+            @Override
+            public void onItemRangeChanged(int positionStart, int itemCount) {
+                displayedSnapshot = null;
+            }
+
+            @Override
+            public void onItemRangeInserted(int positionStart, int itemCount) {
+                displayedSnapshot = null;
+            }
+
+            @Override
+            public void onItemRangeRemoved(int positionStart, int itemCount) {
+                displayedSnapshot = null;
+            }
+
+            @Override
+            public void onItemRangeMoved(int fromPosition, int toPosition, int itemCount) {
+                displayedSnapshot = null;
+            }
+        });
     }
 
     public void updateItems(List<FeedItem> items) {
         episodes = items;
+        boundContentHashes.clear();
         notifyDataSetChanged();
     }
 
+    /**
+     * Replaces the items and only binds the items that changed.
+     * If the displayed items were changed while the update was calculated, all items are bound again.
+     */
+    public void updateItems(@NonNull Update update) {
+        if (update.oldSnapshot != displayedSnapshot) {
+            updateItems(update.items);
+            return;
+        }
+        episodes = update.items;
+        Set<Long> ids = new HashSet<>();
+        for (FeedItem item : episodes) {
+            ids.add(item.getId());
+        }
+        boundContentHashes.keySet().retainAll(ids);
+        update.diff.dispatchUpdatesTo(this);
+    }
+
+    /**
+     * Returns the ids of the displayed items and the content hashes they had when they were bound.
+     * The items themselves are not hashed again, because they can be changed in place
+     * (for example when they are marked as played) without the list being bound again.
+     * Loading new items and comparing them with the displayed items can then be done on a
+     * background thread, see {@link #calculateUpdate}.
+     */
+    @NonNull
+    public ItemListSnapshot getDisplayedSnapshot() {
+        if (displayedSnapshot == null) {
+            long[] ids = new long[episodes.size()];
+            int[] hashes = new int[episodes.size()];
+            for (int i = 0; i < episodes.size(); i++) {
+                ids[i] = episodes.get(i).getId();
+                Integer hash = boundContentHashes.get(ids[i]);
+                // Items that were never bound have no view to update, so any hash works
+                hashes[i] = hash != null ? hash : 0;
+            }
+            displayedSnapshot = new ItemListSnapshot(ids, hashes);
+        }
+        return displayedSnapshot;
+    }
+
+    /**
+     * Compares newly loaded items with the displayed items.
+     *
+     * @param displayedSnapshot Result of {@link #getDisplayedSnapshot()}
+     * @param detectMoves       Whether items can be moved, see {@link ItemListSnapshot#calculateDiff}
+     */
+    @NonNull
+    @WorkerThread
+    public static Update calculateUpdate(@NonNull ItemListSnapshot displayedSnapshot,
+                                         @NonNull List<FeedItem> newItems, boolean detectMoves) {
+        ItemListSnapshot newSnapshot = createSnapshot(newItems);
+        return new Update(newItems, displayedSnapshot, displayedSnapshot.calculateDiff(newSnapshot, detectMoves));
+    }
+
+    private static ItemListSnapshot createSnapshot(List<FeedItem> items) {
+        long[] ids = new long[items.size()];
+        int[] hashes = new int[items.size()];
+        for (int i = 0; i < items.size(); i++) {
+            ids[i] = items.get(i).getId();
+            hashes[i] = getContentHash(items.get(i));
+        }
+        return new ItemListSnapshot(ids, hashes);
+    }
+
+    /**
+     * Hash of the values that {@link EpisodeItemViewHolder#bind(FeedItem)} displays.
+     */
+    private static int getContentHash(FeedItem item) {
+        FeedMedia media = item.getMedia();
+        return Arrays.hashCode(new Object[] {
+                item.getFeed() != null ? item.getFeed().getTitle() : null,
+                item.getTitle(),
+                item.getPubDate(),
+                item.getPlayState(),
+                item.isTagged(FeedItem.TAG_FAVORITE),
+                item.isTagged(FeedItem.TAG_QUEUE),
+                ImageResourceUtils.getEpisodeListImageLocation(item),
+                media != null ? media.getMediaType() : null,
+                media != null ? media.getDuration() : 0,
+                media != null ? media.getPosition() : 0,
+                media != null ? media.getSize() : 0,
+                media != null && media.isDownloaded(),
+                media != null && DownloadRequester.getInstance().isDownloadingFile(media),
+                media != null && FeedItemUtil.isCurrentlyPlaying(media)
+        });
+    }
+
     @Override
     public final int getItemViewType(int position) {
         return R.id.view_type_episode_item;
@@ -68,6 +195,7 @@ public class EpisodeItemListAdapter extends SelectableAdapter<EpisodeItemViewHol
 
         FeedItem item = episodes.get(pos);
         holder.bind(item);
+        boundContentHashes.put(item.getId(), getContentHash(item));
 
         holder.itemView.setOnClickListener(v -> {
             MainActivity activity = mainActivityRef.get();
@@ -76,20 +204,20 @@ public class EpisodeItemListAdapter extends SelectableAdapter<EpisodeItemViewHol
                 int position = ArrayUtils.indexOf(ids, item.getId());
                 activity.loadChildFragment(ItemPagerFragment.newInstance(ids, position));
             } else {
-                toggleSelection(pos);
+                toggleSelection(holder.getBindingAdapterPosition());
             }
         });
         holder.itemView.setOnCreateContextMenuListener(this);
         holder.itemView.setOnLongClickListener(v -> {
             longPressedItem = item;
-            longPressedPosition = pos;
+            longPressedPosition = holder.getBindingAdapterPosition();
             return false;
         });
 
         if (inActionMode()) {
             holder.secondaryActionButton.setVisibility(View.GONE);
             holder.selectCheckBox.setOnClickListener(v -> {
-                toggleSelection(pos);
+                toggleSelection(holder.getBindingAdapterPosition());
             });
             holder.selectCheckBox.setChecked(isSelected(pos));
             holder.selectCheckBox.setVisibility(View.VISIBLE);
@@ -131,7 +259,7 @@ public class EpisodeItemListAdapter extends SelectableAdapter<EpisodeItemViewHol
      * @param position Position of the item that has changed
      */
     public void notifyItemChangedCompat(int position) {
-        notifyItemChanged(position, "foo");
+        notifyItemChanged(position, ItemListSnapshot.PAYLOAD_CHANGED);
     }
 
     @Nullable
@@ -194,4 +322,23 @@ public class EpisodeItemListAdapter extends SelectableAdapter<EpisodeItemViewHol
         return items;
     }
 
+    /**
+     * Newly loaded items and their differences to the displayed items.
+     */
+    public static class Update {
+        private final List<FeedItem> items;
+        private final ItemListSnapshot oldSnapshot;
+        private final DiffUtil.DiffResult diff;
+
+        private Update(List<FeedItem> items, ItemListSnapshot oldSnapshot, DiffUtil.DiffResult diff) {
+            this.items = items;
+            this.oldSnapshot = oldSnapshot;
+            this.diff = diff;
+        }
+
+        @NonNull
+        public List<FeedItem> getItems() {
+            return items;
+        }
+    }
 }
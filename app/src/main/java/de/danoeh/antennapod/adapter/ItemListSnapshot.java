@@ -0,0 +1,74 @@
+package de.danoeh.antennapod.adapter;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.WorkerThread;
+import androidx.recyclerview.widget.DiffUtil;
+
+/**
+ * Ids and content hashes of the items in a list. Comparing two snapshots tells which items were
+ * inserted, removed, moved or changed, so that only those need to be bound again.
+ * The snapshot does not reference the items, so it can be compared on a background thread
+ * while the items are modified on the main thread.
+ */
+public class ItemListSnapshot {
+    /**
+     * Payload for changed items. See {@link EpisodeItemListAdapter#notifyItemChangedCompat(int)}.
+     */
+    static final Object PAYLOAD_CHANGED = "changed";
+
+    private final long[] ids;
+    private final int[] contentHashes;
+
+    /**
+     * @param ids           Stable ids of the items
+     * @param contentHashes Hash of everything that is displayed for the item
+     */
+    public ItemListSnapshot(@NonNull long[] ids, @NonNull int[] contentHashes) {
+        if (ids.length != contentHashes.length) {
+            throw new IllegalArgumentException("Number of ids and hashes does not match");
+        }
+        this.ids = ids;
+        this.contentHashes = contentHashes;
+    }
+
+    public int size() {
+        return ids.length;
+    }
+
+    /**
+     * Calculates the changes that turn this list into the new list.
+     *
+     * @param detectMoves Whether to look for moved items. This is slower, so it should only be
+     *                    used for lists that are sorted manually.
+     */
+    @NonNull
+    @WorkerThread
+    public DiffUtil.DiffResult calculateDiff(@NonNull ItemListSnapshot newList, boolean detectMoves) {
+        return DiffUtil.calculateDiff(new DiffUtil.Callback() {
+            @Override
+            public int getOldListSize() {
+                return ids.length;
+            }
+
+            @Override
+            public int getNewListSize() {
+                return newList.ids.length;
+            }
+
+            @Override
+            public boolean areItemsTheSame(int oldItemPosition, int newItemPosition) {
+                return ids[oldItemPosition] == newList.ids[newItemPosition];
+            }
+
+            @Override
+            public boolean areContentsTheSame(int oldItemPosition, int newItemPosition) {
+                return contentHashes[oldItemPosition] == newList.contentHashes[newItemPosition];
+            }
+
+            @Override
+            public Object getChangePayload(int oldItemPosition, int newItemPosition) {
+                return PAYLOAD_CHANGED;
+            }
+        }, detectMoves);
+    }
+}
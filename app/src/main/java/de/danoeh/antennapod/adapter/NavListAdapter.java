@@ -15,6 +15,8 @@ import android.widget.ImageView;
 import android.widget.RelativeLayout;
 import android.widget.TextView;
 import androidx.appcompat.app.AlertDialog;
+import androidx.recyclerview.widget.DiffUtil;
+import androidx.recyclerview.widget.ListUpdateCallback;
 import androidx.recyclerview.widget.RecyclerView;
 import com.bumptech.glide.Glide;
 import com.bumptech.glide.request.RequestOptions;
@@ -126,6 +128,60 @@ public class NavListAdapter extends RecyclerView.Adapter<NavListAdapter.Holder>
         }
     }
 
+    /**
+     * Snapshot of the flat list of subscriptions, used to find out which of them changed.
+     */
+    @NonNull
+    public static ItemListSnapshot createSnapshot(@NonNull List<NavDrawerData.DrawerItem> items) {
+        long[] ids = new long[items.size()];
+        int[] hashes = new int[items.size()];
+        for (int i = 0; i < items.size(); i++) {
+            NavDrawerData.DrawerItem item = items.get(i);
+            ids[i] = item.id;
+            hashes[i] = Arrays.hashCode(new Object[] {
+                    item.type,
+                    item.getTitle(),
+                    item.getCounter(),
+                    item.getLayer(),
+                    item.type == NavDrawerData.DrawerItem.Type.FOLDER
+                            ? ((NavDrawerData.FolderDrawerItem) item).isOpen
+                            : ((NavDrawerData.FeedDrawerItem) item).feed.getImageUrl()
+            });
+        }
+        return new ItemListSnapshot(ids, hashes);
+    }
+
+    /**
+     * Binds the navigation items again, but only the subscriptions that changed.
+     *
+     * @param diff Changes to the subscriptions, calculated with {@link #createSnapshot}
+     */
+    public void notifySubscriptionsChanged(@NonNull DiffUtil.DiffResult diff) {
+        final int offset = getSubscriptionOffset();
+        notifyItemRangeChanged(0, offset, ItemListSnapshot.PAYLOAD_CHANGED); // Counters
+        diff.dispatchUpdatesTo(new ListUpdateCallback() {
+            @Override
+            public void onInserted(int position, int count) {
+                notifyItemRangeInserted(offset + position, count);
+            }
+
+            @Override
+            public void onRemoved(int position, int count) {
+                notifyItemRangeRemoved(offset + position, count);
+            }
+
+            @Override
+            public void onMoved(int fromPosition, int toPosition) {
+                notifyItemMoved(offset + fromPosition, offset + toPosition);
+            }
+
+            @Override
+            public void onChanged(int position, int count, Object payload) {
+                notifyItemRangeChanged(offset + position, count, payload);
+            }
+        });
+    }
+
     public List<String> getFragmentTags() {
         return Collections.unmodifiableList(fragmentTags);
     }
@@ -206,8 +262,17 @@ public class NavListAdapter extends RecyclerView.Adapter<NavListAdapter.Holder>
                     ? R.attr.drawer_activated_color : android.R.attr.windowBackground, typedValue, true);
             holder.itemView.setBackgroundResource(typedValue.resourceId);
 
-            holder.itemView.setOnClickListener(v -> itemAccess.onItemClick(position));
-            holder.itemView.setOnLongClickListener(v -> itemAccess.onItemLongClick(position));
+            // Items can move without being bound again, so the position is only looked up on click
+            holder.itemView.setOnClickListener(v -> {
+                int pos = holder.getBindingAdapterPosition();
+                if (pos != RecyclerView.NO_POSITION) {
+                    itemAccess.onItemClick(pos);
+                }
+            });
+            holder.itemView.setOnLongClickListener(v -> {
+                int pos = holder.getBindingAdapterPosition();
+                return pos != RecyclerView.NO_POSITION && itemAccess.onItemLongClick(pos);
+            });
         }
     }
 
@@ -13,6 +13,7 @@ import de.danoeh.antennapod.R;
 import de.danoeh.antennapod.model.feed.FeedItem;
 import de.danoeh.antennapod.model.feed.FeedItemFilter;
 import de.danoeh.antennapod.core.storage.DBReader;
+import de.danoeh.antennapod.core.storage.FeedItemPageToken;
 import de.danoeh.antennapod.dialog.FilterDialog;
 import org.apache.commons.lang3.StringUtils;
 
@@ -104,12 +105,13 @@ public class AllEpisodesFragment extends EpisodesListFragment {
     @NonNull
     @Override
     protected List<FeedItem> loadData() {
-        return DBReader.getRecentlyPublishedEpisodes(0, page * EPISODES_PER_PAGE, feedItemFilter);
+        return DBReader.getRecentlyPublishedEpisodes(FeedItemPageToken.FIRST_PAGE,
+                page * EPISODES_PER_PAGE, feedItemFilter);
     }
 
     @NonNull
     @Override
-    protected List<FeedItem> loadMoreData() {
-        return DBReader.getRecentlyPublishedEpisodes((page - 1) * EPISODES_PER_PAGE, EPISODES_PER_PAGE, feedItemFilter);
+    protected List<FeedItem> loadMoreData(FeedItemPageToken after) {
+        return DBReader.getRecentlyPublishedEpisodes(after, EPISODES_PER_PAGE, feedItemFilter);
     }
 }
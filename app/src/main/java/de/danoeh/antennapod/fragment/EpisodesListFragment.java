@@ -21,6 +21,7 @@ import android.widget.TextView;
 import android.widget.Toast;
 
 import de.danoeh.antennapod.adapter.EpisodeItemListAdapter;
+import de.danoeh.antennapod.adapter.ItemListSnapshot;
 import de.danoeh.antennapod.core.event.FeedListUpdateEvent;
 import de.danoeh.antennapod.core.event.PlaybackPositionEvent;
 import de.danoeh.antennapod.core.event.PlayerStatusEvent;
@@ -44,6 +45,7 @@ import de.danoeh.antennapod.model.feed.FeedItem;
 import de.danoeh.antennapod.core.service.download.DownloadService;
 import de.danoeh.antennapod.core.storage.DBWriter;
 import de.danoeh.antennapod.core.storage.DownloadRequester;
+import de.danoeh.antennapod.core.storage.FeedItemPageToken;
 import de.danoeh.antennapod.core.util.FeedItemUtil;
 import de.danoeh.antennapod.core.util.download.AutoUpdateManager;
 import de.danoeh.antennapod.menuhandler.FeedItemMenuHandler;
@@ -64,6 +66,7 @@ public abstract class EpisodesListFragment extends Fragment {
     protected int page = 1;
     protected boolean isLoadingMore = false;
     protected boolean hasMoreItems = true;
+    private EpisodeItemListAdapter.Update pendingUpdate;
 
     EpisodeItemListRecyclerView recyclerView;
     EpisodeItemListAdapter listAdapter;
@@ -246,7 +249,8 @@ public abstract class EpisodesListFragment extends Fragment {
         }
         isLoadingMore = true;
         loadingMoreView.setVisibility(View.VISIBLE);
-        disposable = Observable.fromCallable(this::loadMoreData)
+        FeedItemPageToken after = FeedItemPageToken.after(episodes);
+        disposable = Observable.fromCallable(() -> loadMoreData(after))
                 .subscribeOn(Schedulers.io())
                 .observeOn(AndroidSchedulers.mainThread())
                 .subscribe(data -> {
@@ -267,9 +271,12 @@ public abstract class EpisodesListFragment extends Fragment {
         boolean restoreScrollPosition = listAdapter.getItemCount() == 0;
         if (episodes.size() == 0) {
             createRecycleAdapter(recyclerView, emptyView);
+        } else if (pendingUpdate != null && pendingUpdate.getItems() == episodes) {
+            listAdapter.updateItems(pendingUpdate);
         } else {
             listAdapter.updateItems(episodes);
         }
+        pendingUpdate = null;
         if (restoreScrollPosition) {
             recyclerView.restoreScrollPosition(getPrefName());
         }
@@ -367,13 +374,16 @@ public abstract class EpisodesListFragment extends Fragment {
         if (disposable != null) {
             disposable.dispose();
         }
-        disposable = Observable.fromCallable(this::loadData)
+        ItemListSnapshot displayedSnapshot = listAdapter.getDisplayedSnapshot();
+        disposable = Observable.fromCallable(() ->
+                        EpisodeItemListAdapter.calculateUpdate(displayedSnapshot, loadData(), false))
                 .subscribeOn(Schedulers.io())
                 .observeOn(AndroidSchedulers.mainThread())
-                .subscribe(data -> {
+                .subscribe(update -> {
                     progLoading.setVisibility(View.GONE);
                     hasMoreItems = true;
-                    episodes = data;
+                    episodes = update.getItems();
+                    pendingUpdate = update;
                     onFragmentLoaded(episodes);
                     ((PagedToolbarFragment) getParentFragment()).invalidateOptionsMenuIfActive(this);
                 }, error -> Log.e(TAG, Log.getStackTraceString(error)));
@@ -383,13 +393,14 @@ public abstract class EpisodesListFragment extends Fragment {
     protected abstract List<FeedItem> loadData();
 
     /**
-     * Load a new page of data as defined by {@link #page} and {@link #EPISODES_PER_PAGE}.
+     * Load the page of data that starts after the given page token, with {@link #EPISODES_PER_PAGE} items.
      * If the number of items returned is less than {@link #EPISODES_PER_PAGE},
      * it will be assumed that the underlying data is exhausted
      * and this method will not be called again.
      *
+     * @param after The page token of the items that are already displayed
      * @return The items from the next page of data
      */
     @NonNull
-    protected abstract List<FeedItem> loadMoreData();
+    protected abstract List<FeedItem> loadMoreData(FeedItemPageToken after);
 }
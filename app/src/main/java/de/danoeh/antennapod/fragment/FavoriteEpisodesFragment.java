@@ -14,6 +14,7 @@ import android.view.ViewGroup;
 import de.danoeh.antennapod.activity.MainActivity;
 import de.danoeh.antennapod.view.viewholder.EpisodeItemViewHolder;
 import org.greenrobot.eventbus.Subscribe;
+import org.greenrobot.eventbus.ThreadMode;
 
 import java.util.List;
 
@@ -22,6 +23,7 @@ import de.danoeh.antennapod.core.event.FavoritesEvent;
 import de.danoeh.antennapod.model.feed.FeedItem;
 import de.danoeh.antennapod.core.storage.DBReader;
 import de.danoeh.antennapod.core.storage.DBWriter;
+import de.danoeh.antennapod.core.storage.FeedItemPageToken;
 
 /**
  * Like 'EpisodesFragment' except that it only shows favorite episodes and
@@ -37,7 +39,7 @@ public class FavoriteEpisodesFragment extends EpisodesListFragment {
         return PREF_NAME;
     }
 
-    @Subscribe
+    @Subscribe(threadMode = ThreadMode.MAIN)
     public void onEvent(FavoritesEvent event) {
         Log.d(TAG, String.format("onEvent() called with: event = [%s]", event));
         loadItems();
@@ -94,12 +96,12 @@ public class FavoriteEpisodesFragment extends EpisodesListFragment {
     @NonNull
     @Override
     protected List<FeedItem> loadData() {
-        return DBReader.getFavoriteItemsList(0, page * EPISODES_PER_PAGE);
+        return DBReader.getFavoriteItemsList(FeedItemPageToken.FIRST_PAGE, page * EPISODES_PER_PAGE);
     }
 
     @NonNull
     @Override
-    protected List<FeedItem> loadMoreData() {
-        return DBReader.getFavoriteItemsList((page - 1) * EPISODES_PER_PAGE, EPISODES_PER_PAGE);
+    protected List<FeedItem> loadMoreData(FeedItemPageToken after) {
+        return DBReader.getFavoriteItemsList(after, EPISODES_PER_PAGE);
     }
 }
@@ -20,12 +20,14 @@ import androidx.annotation.VisibleForTesting;
 import androidx.appcompat.app.AlertDialog;
 import androidx.core.util.Pair;
 import androidx.fragment.app.Fragment;
+import androidx.recyclerview.widget.DiffUtil;
 import androidx.recyclerview.widget.LinearLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
 import com.google.android.material.bottomsheet.BottomSheetBehavior;
 import de.danoeh.antennapod.R;
 import de.danoeh.antennapod.activity.MainActivity;
 import de.danoeh.antennapod.activity.PreferenceActivity;
+import de.danoeh.antennapod.adapter.ItemListSnapshot;
 import de.danoeh.antennapod.adapter.NavListAdapter;
 import de.danoeh.antennapod.core.dialog.ConfirmationDialog;
 import de.danoeh.antennapod.core.event.FeedListUpdateEvent;
@@ -49,6 +51,7 @@ import org.greenrobot.eventbus.Subscribe;
 import org.greenrobot.eventbus.ThreadMode;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
@@ -374,18 +377,33 @@ public class NavDrawerFragment extends Fragment implements SharedPreferences.OnS
     };
 
     private void loadData() {
+        final List<NavDrawerData.DrawerItem> displayedItems = flatItemList;
+        final boolean showSubscriptionList = navAdapter.showSubscriptionList;
+        final int subscriptionOffset = navAdapter.getSubscriptionOffset();
         disposable = Observable.fromCallable(
                 () -> {
                     NavDrawerData data = DBReader.getNavDrawerData();
-                    return new Pair<>(data, makeFlatDrawerData(data.items, 0));
+                    List<NavDrawerData.DrawerItem> items = makeFlatDrawerData(data.items, 0);
+                    ItemListSnapshot displayedSnapshot = NavListAdapter.createSnapshot(
+                            displayedItems != null ? displayedItems : Collections.emptyList());
+                    DiffUtil.DiffResult diff = displayedSnapshot.calculateDiff(
+                            NavListAdapter.createSnapshot(items), false);
+                    return new Pair<>(data, new Pair<>(items, diff));
                 })
                 .subscribeOn(Schedulers.io())
                 .observeOn(AndroidSchedulers.mainThread())
                 .subscribe(
                         result -> {
+                            boolean subscriptionsUnchanged = flatItemList == displayedItems
+                                    && showSubscriptionList && navAdapter.showSubscriptionList
+                                    && subscriptionOffset == navAdapter.getSubscriptionOffset();
                             navDrawerData = result.first;
-                            flatItemList = result.second;
-                            navAdapter.notifyDataSetChanged();
+                            flatItemList = result.second.first;
+                            if (subscriptionsUnchanged) {
+                                navAdapter.notifySubscriptionsChanged(result.second.second);
+                            } else {
+                                navAdapter.notifyDataSetChanged();
+                            }
                             progressBar.setVisibility(View.GONE); // Stays hidden once there is something in the list
                         }, error -> {
                             Log.e(TAG, Log.getStackTraceString(error));
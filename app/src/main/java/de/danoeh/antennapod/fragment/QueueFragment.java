@@ -29,6 +29,7 @@ import com.leinardi.android.speeddial.SpeedDialView;
 import de.danoeh.antennapod.R;
 import de.danoeh.antennapod.activity.MainActivity;
 import de.danoeh.antennapod.adapter.EpisodeItemListAdapter;
+import de.danoeh.antennapod.adapter.ItemListSnapshot;
 import de.danoeh.antennapod.adapter.QueueRecyclerAdapter;
 import de.danoeh.antennapod.core.dialog.ConfirmationDialog;
 import de.danoeh.antennapod.core.event.DownloadEvent;
@@ -500,6 +501,10 @@ public class QueueFragment extends Fragment implements Toolbar.OnMenuItemClickLi
     }
 
     private void onFragmentLoaded(final boolean restoreScrollPosition) {
+        onFragmentLoaded(restoreScrollPosition, null);
+    }
+
+    private void onFragmentLoaded(final boolean restoreScrollPosition, EpisodeItemListAdapter.Update update) {
         if (queue != null && queue.size() > 0) {
             if (recyclerAdapter == null) {
                 MainActivity activity = (MainActivity) getActivity();
@@ -508,7 +513,11 @@ public class QueueFragment extends Fragment implements Toolbar.OnMenuItemClickLi
                 recyclerView.setAdapter(recyclerAdapter);
                 emptyView.updateAdapter(recyclerAdapter);
             }
-            recyclerAdapter.updateItems(queue);
+            if (update != null && update.getItems() == queue) {
+                recyclerAdapter.updateItems(update);
+            } else {
+                recyclerAdapter.updateItems(queue);
+            }
         } else {
             recyclerAdapter = null;
             emptyView.updateAdapter(null);
@@ -556,16 +565,16 @@ public class QueueFragment extends Fragment implements Toolbar.OnMenuItemClickLi
             emptyView.hide();
             progLoading.setVisibility(View.VISIBLE);
         }
-        disposable = Observable.fromCallable(DBReader::getQueue)
+        ItemListSnapshot displayedSnapshot = recyclerAdapter != null
+                ? recyclerAdapter.getDisplayedSnapshot() : new ItemListSnapshot(new long[0], new int[0]);
+        disposable = Observable.fromCallable(() ->
+                        EpisodeItemListAdapter.calculateUpdate(displayedSnapshot, DBReader.getQueue(), true))
                 .subscribeOn(Schedulers.io())
                 .observeOn(AndroidSchedulers.mainThread())
-                .subscribe(items -> {
+                .subscribe(update -> {
                     progLoading.setVisibility(View.GONE);
-                    queue = items;
-                    onFragmentLoaded(restoreScrollPosition);
-                    if (recyclerAdapter != null) {
-                        recyclerAdapter.notifyDataSetChanged();
-                    }
+                    queue = update.getItems();
+                    onFragmentLoaded(restoreScrollPosition, update);
                 }, error -> Log.e(TAG, Log.getStackTraceString(error)));
     }
 
@@ -57,7 +57,8 @@ public class GpodderPreferencesFragment extends PreferenceFragmentCompat {
             updateLastGpodnetSyncReport(SyncService.isLastSyncSuccessful(getContext()),
                     SyncService.getLastSyncAttempt(getContext()));
         } else {
-            ((PreferenceActivity) getActivity()).getSupportActionBar().setSubtitle(event.getMessageResId());
+            ((PreferenceActivity) getActivity()).getSupportActionBar()
+                    .setSubtitle(getString(event.getMessageResId(), event.getFormatArgs()));
         }
     }
 
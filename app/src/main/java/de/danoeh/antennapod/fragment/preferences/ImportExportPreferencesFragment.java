@@ -28,6 +28,7 @@ import de.danoeh.antennapod.core.export.html.HtmlWriter;
 import de.danoeh.antennapod.core.export.opml.OpmlWriter;
 import de.danoeh.antennapod.core.preferences.UserPreferences;
 import de.danoeh.antennapod.core.storage.DatabaseExporter;
+import de.danoeh.antennapod.core.storage.QueryProfiler;
 import io.reactivex.Completable;
 import io.reactivex.Observable;
 import io.reactivex.android.schedulers.AndroidSchedulers;
@@ -49,6 +50,7 @@ public class ImportExportPreferencesFragment extends PreferenceFragmentCompat {
     private static final String PREF_DATABASE_IMPORT = "prefDatabaseImport";
     private static final String PREF_DATABASE_EXPORT = "prefDatabaseExport";
     private static final String PREF_FAVORITE_EXPORT = "prefFavoritesExport";
+    private static final String PREF_DATABASE_PROFILE_EXPORT = "prefDatabaseProfileExport";
     private static final String DEFAULT_OPML_OUTPUT_NAME = "antennapod-feeds-%s.opml";
     private static final String CONTENT_TYPE_OPML = "text/x-opml";
     private static final String DEFAULT_HTML_OUTPUT_NAME = "antennapod-feeds-%s.html";
@@ -60,7 +62,9 @@ public class ImportExportPreferencesFragment extends PreferenceFragmentCompat {
     private static final int REQUEST_CODE_RESTORE_DATABASE = 4;
     private static final int REQUEST_CODE_BACKUP_DATABASE = 5;
     private static final int REQUEST_CODE_CHOOSE_FAVORITES_EXPORT_PATH = 6;
+    private static final int REQUEST_CODE_EXPORT_DATABASE_PROFILE = 7;
     private static final String DATABASE_EXPORT_FILENAME = "AntennaPodBackup-%s.db";
+    private static final String DATABASE_PROFILE_EXPORT_FILENAME = "AntennaPodQueryReport-%s.txt";
     private Disposable disposable;
     private ProgressDialog progressDialog;
 
@@ -133,6 +137,16 @@ public class ImportExportPreferencesFragment extends PreferenceFragmentCompat {
                             REQUEST_CODE_CHOOSE_FAVORITES_EXPORT_PATH, new FavoritesWriter());
                     return true;
                 });
+        findPreference(UserPreferences.PREF_DATABASE_PROFILING).setOnPreferenceChangeListener(
+                (preference, newValue) -> {
+                    QueryProfiler.setEnabled((Boolean) newValue);
+                    return true;
+                });
+        findPreference(PREF_DATABASE_PROFILE_EXPORT).setOnPreferenceClickListener(
+                preference -> {
+                    exportDatabaseProfile();
+                    return true;
+                });
     }
 
     private void exportWithWriter(ExportWriter exportWriter, final Uri uri) {
@@ -181,6 +195,32 @@ public class ImportExportPreferencesFragment extends PreferenceFragmentCompat {
         }
     }
 
+    private void exportDatabaseProfile() {
+        if (Build.VERSION.SDK_INT >= 19) {
+            Intent intent = new Intent(Intent.ACTION_CREATE_DOCUMENT)
+                    .addCategory(Intent.CATEGORY_OPENABLE)
+                    .setType("text/plain")
+                    .putExtra(Intent.EXTRA_TITLE, dateStampFilename(DATABASE_PROFILE_EXPORT_FILENAME));
+
+            startActivityForResult(intent, REQUEST_CODE_EXPORT_DATABASE_PROFILE);
+        } else {
+            File sd = Environment.getExternalStorageDirectory();
+            File report = new File(sd, dateStampFilename(DATABASE_PROFILE_EXPORT_FILENAME));
+            progressDialog.show();
+            disposable = Completable.fromAction(() -> {
+                try (FileOutputStream outputStream = new FileOutputStream(report)) {
+                    DatabaseExporter.exportQueryReportToStream(outputStream);
+                }
+            })
+                    .subscribeOn(Schedulers.io())
+                    .observeOn(AndroidSchedulers.mainThread())
+                    .subscribe(() -> {
+                        Snackbar.make(getView(), R.string.export_success_title, Snackbar.LENGTH_LONG).show();
+                        progressDialog.dismiss();
+                    }, this::showExportErrorDialog);
+        }
+    }
+
     private void importDatabase() {
         // setup the alert builder
         AlertDialog.Builder builder = new AlertDialog.Builder(getActivity());
@@ -281,6 +321,15 @@ public class ImportExportPreferencesFragment extends PreferenceFragmentCompat {
                         Snackbar.make(getView(), R.string.export_success_title, Snackbar.LENGTH_LONG).show();
                         progressDialog.dismiss();
                     }, this::showExportErrorDialog);
+        } else if (requestCode == REQUEST_CODE_EXPORT_DATABASE_PROFILE) {
+            progressDialog.show();
+            disposable = Completable.fromAction(() -> DatabaseExporter.exportQueryReportToDocument(uri, getContext()))
+                    .subscribeOn(Schedulers.io())
+                    .observeOn(AndroidSchedulers.mainThread())
+                    .subscribe(() -> {
+                        Snackbar.make(getView(), R.string.export_success_title, Snackbar.LENGTH_LONG).show();
+                        progressDialog.dismiss();
+                    }, this::showExportErrorDialog);
         } else if (requestCode == REQUEST_CODE_CHOOSE_OPML_IMPORT_PATH) {
             Intent intent = new Intent(getContext(), OpmlImportActivity.class);
             intent.setData(uri);
@@ -0,0 +1,84 @@
+package de.danoeh.antennapod.adapter;
+
+import androidx.recyclerview.widget.ListUpdateCallback;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Test class for {@link ItemListSnapshot}.
+ */
+public class ItemListSnapshotTest {
+
+    @Test
+    public void testUnchangedList() {
+        ItemListSnapshot oldList = new ItemListSnapshot(new long[] {1, 2, 3}, new int[] {10, 20, 30});
+        ItemListSnapshot newList = new ItemListSnapshot(new long[] {1, 2, 3}, new int[] {10, 20, 30});
+        assertTrue(dispatch(oldList, newList, false).isEmpty());
+    }
+
+    @Test
+    public void testChangedItem() {
+        ItemListSnapshot oldList = new ItemListSnapshot(new long[] {1, 2, 3}, new int[] {10, 20, 30});
+        ItemListSnapshot newList = new ItemListSnapshot(new long[] {1, 2, 3}, new int[] {10, 21, 30});
+        List<String> operations = dispatch(oldList, newList, false);
+        assertEquals(1, operations.size());
+        assertEquals("changed 1 1 " + ItemListSnapshot.PAYLOAD_CHANGED, operations.get(0));
+    }
+
+    @Test
+    public void testInsertedAndRemovedItems() {
+        ItemListSnapshot oldList = new ItemListSnapshot(new long[] {1, 2, 3}, new int[] {10, 20, 30});
+        ItemListSnapshot newList = new ItemListSnapshot(new long[] {0, 1, 3}, new int[] {0, 10, 30});
+        List<String> operations = dispatch(oldList, newList, false);
+        assertEquals(2, operations.size());
+        assertTrue(operations.contains("removed 1 1"));
+        assertTrue(operations.contains("inserted 0 1"));
+    }
+
+    @Test
+    public void testMovedItem() {
+        ItemListSnapshot oldList = new ItemListSnapshot(new long[] {1, 2, 3}, new int[] {10, 20, 30});
+        ItemListSnapshot newList = new ItemListSnapshot(new long[] {3, 1, 2}, new int[] {30, 10, 20});
+        List<String> operations = dispatch(oldList, newList, true);
+        assertEquals(1, operations.size());
+        assertEquals("moved 2 0", operations.get(0));
+
+        assertEquals(2, dispatch(oldList, newList, false).size()); // removed and inserted
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testSizeMismatch() {
+        new ItemListSnapshot(new long[] {1, 2}, new int[] {10});
+    }
+
+    private static List<String> dispatch(ItemListSnapshot oldList, ItemListSnapshot newList, boolean detectMoves) {
+        List<String> operations = new ArrayList<>();
+        oldList.calculateDiff(newList, detectMoves).dispatchUpdatesTo(new ListUpdateCallback() {
+            @Override
+            public void onInserted(int position, int count) {
+                operations.add("inserted " + position + " " + count);
+            }
+
+            @Override
+            public void onRemoved(int position, int count) {
+                operations.add("removed " + position + " " + count);
+            }
+
+            @Override
+            public void onMoved(int fromPosition, int toPosition) {
+                operations.add("moved " + fromPosition + " " + toPosition);
+            }
+
+            @Override
+            public void onChanged(int position, int count, Object payload) {
+                operations.add("changed " + position + " " + count + " " + payload);
+            }
+        });
+        return operations;
+    }
+}
@@ -2,12 +2,21 @@ package de.danoeh.antennapod.core.event;
 
 public class SyncServiceEvent {
     private final int messageResId;
+    private final Object[] formatArgs;
 
-    public SyncServiceEvent(int messageResId) {
+    public SyncServiceEvent(int messageResId, Object... formatArgs) {
         this.messageResId = messageResId;
+        this.formatArgs = formatArgs;
     }
 
     public int getMessageResId() {
         return messageResId;
     }
+
+    /**
+     * Arguments for the placeholders of the message.
+     */
+    public Object[] getFormatArgs() {
+        return formatArgs;
+    }
 }
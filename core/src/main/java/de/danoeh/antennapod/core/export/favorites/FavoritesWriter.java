@@ -18,6 +18,7 @@ import de.danoeh.antennapod.core.export.ExportWriter;
 import de.danoeh.antennapod.model.feed.Feed;
 import de.danoeh.antennapod.model.feed.FeedItem;
 import de.danoeh.antennapod.core.storage.DBReader;
+import de.danoeh.antennapod.core.storage.FeedItemPageToken;
 
 /** Writes saved favorites to file. */
 public class FavoritesWriter implements ExportWriter {
@@ -67,14 +68,11 @@ public class FavoritesWriter implements ExportWriter {
     }
 
     private List<FeedItem> getFavorites() {
-        int page = 0;
-
         List<FeedItem> favoritesList = new ArrayList<>();
         List<FeedItem> favoritesPage;
         do {
-            favoritesPage = DBReader.getFavoriteItemsList(page * PAGE_LIMIT, PAGE_LIMIT);
+            favoritesPage = DBReader.getFavoriteItemsList(FeedItemPageToken.after(favoritesList), PAGE_LIMIT);
             favoritesList.addAll(favoritesPage);
-            ++page;
         } while (!favoritesPage.isEmpty() && favoritesPage.size() == PAGE_LIMIT);
 
         // sort in descending order
@@ -5,6 +5,7 @@ import android.content.Context;
 import android.media.MediaMetadataRetriever;
 import android.net.Uri;
 import android.text.TextUtils;
+import android.util.Log;
 
 import androidx.annotation.NonNull;
 import androidx.documentfile.provider.DocumentFile;
@@ -15,12 +16,18 @@ import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import de.danoeh.antennapod.core.R;
 import de.danoeh.antennapod.core.service.download.DownloadStatus;
@@ -36,9 +43,15 @@ import de.danoeh.antennapod.model.feed.FeedPreferences;
 import de.danoeh.antennapod.model.playback.MediaType;
 
 public class LocalFeedUpdater {
+    private static final String TAG = "LocalFeedUpdater";
 
     static final String[] PREFERRED_FEED_IMAGE_FILENAMES = { "folder.jpg", "Folder.jpg", "folder.png", "Folder.png" };
 
+    /**
+     * Maximum number of files whose metadata is read at the same time.
+     */
+    private static final int MAX_PARALLEL_METADATA_READS = 4;
+
     public static void updateFeed(Feed feed, Context context) {
         try {
             tryUpdateFeed(feed, context);
@@ -95,13 +108,32 @@ public class LocalFeedUpdater {
             }
         }
 
-        // add new files to feed and update item data
+        // add new files to feed and update item data of changed files
         List<FeedItem> newItems = feed.getItems();
+        Map<String, FeedItem> itemsByFileName = new HashMap<>();
+        for (FeedItem item : newItems) {
+            if (item.getMedia() != null) {
+                itemsByFileName.put(item.getLink(), item);
+            }
+        }
+        Map<String, String> oldFingerprints = DBReader.getLocalFileFingerprints(feed.getId());
+        Map<String, String> fingerprints = new HashMap<>();
+        List<DocumentFile> changedFiles = new ArrayList<>();
         for (DocumentFile f : mediaFiles) {
-            FeedItem oldItem = feedContainsFile(feed, f.getName());
-            FeedItem newItem = createFeedItem(feed, f, context);
+            String uri = f.getUri().toString();
+            String fingerprint = f.length() + " " + f.lastModified();
+            fingerprints.put(uri, fingerprint);
+            if (!itemsByFileName.containsKey(f.getName()) || !fingerprint.equals(oldFingerprints.get(uri))) {
+                changedFiles.add(f);
+            }
+        }
+        Log.d(TAG, "Reading metadata of " + changedFiles.size() + " of " + mediaFiles.size() + " files");
+        List<FeedItem> changedItems = createFeedItems(feed, changedFiles, context);
+        for (FeedItem newItem : changedItems) {
+            FeedItem oldItem = itemsByFileName.get(newItem.getLink());
             if (oldItem == null) {
                 newItems.add(newItem);
+                itemsByFileName.put(newItem.getLink(), newItem);
             } else {
                 oldItem.updateFromOther(newItem);
             }
@@ -127,7 +159,14 @@ public class LocalFeedUpdater {
         // only delete items if the folder contains at least one element to avoid accidentally
         // deleting played state or position in case the folder is temporarily unavailable.
         boolean removeUnlistedItems = (newItems.size() >= 1);
-        DBTasks.updateFeed(context, feed, removeUnlistedItems);
+        Feed savedFeed = DBTasks.updateFeed(context, feed, removeUnlistedItems);
+        if (savedFeed != null) {
+            try {
+                DBWriter.setLocalFileFingerprints(savedFeed.getId(), fingerprints).get();
+            } catch (InterruptedException | ExecutionException e) {
+                throw new IOException("Unable to store file fingerprints: " + e.getMessage(), e);
+            }
+        }
     }
 
     /**
@@ -165,14 +204,32 @@ public class LocalFeedUpdater {
                 + resourceEntryName;
     }
 
-    private static FeedItem feedContainsFile(Feed feed, String filename) {
-        List<FeedItem> items = feed.getItems();
-        for (FeedItem i : items) {
-            if (i.getMedia() != null && i.getLink().equals(filename)) {
-                return i;
+    /**
+     * Creates the items of the files, reading the metadata of several files in parallel.
+     */
+    private static List<FeedItem> createFeedItems(Feed feed, List<DocumentFile> files, Context context)
+            throws IOException {
+        if (files.isEmpty()) {
+            return Collections.emptyList();
+        }
+        int numThreads = Math.min(files.size(),
+                Math.min(MAX_PARALLEL_METADATA_READS, Runtime.getRuntime().availableProcessors()));
+        ExecutorService executor = Executors.newFixedThreadPool(numThreads);
+        try {
+            List<Future<FeedItem>> futures = new ArrayList<>(files.size());
+            for (DocumentFile file : files) {
+                futures.add(executor.submit(() -> createFeedItem(feed, file, context)));
+            }
+            List<FeedItem> items = new ArrayList<>(files.size());
+            for (Future<FeedItem> future : futures) {
+                items.add(future.get());
             }
+            return items;
+        } catch (InterruptedException | ExecutionException e) {
+            throw new IOException("Unable to read metadata: " + e.getMessage(), e);
+        } finally {
+            executor.shutdownNow();
         }
-        return null;
     }
 
     private static FeedItem createFeedItem(Feed feed, DocumentFile file, Context context) {
@@ -196,6 +253,15 @@ public class LocalFeedUpdater {
 
     private static void loadMetadata(FeedItem item, DocumentFile file, Context context) {
         MediaMetadataRetriever mediaMetadataRetriever = new MediaMetadataRetriever();
+        try {
+            loadMetadata(item, mediaMetadataRetriever, file, context);
+        } finally {
+            mediaMetadataRetriever.release();
+        }
+    }
+
+    private static void loadMetadata(FeedItem item, MediaMetadataRetriever mediaMetadataRetriever,
+                                     DocumentFile file, Context context) {
         mediaMetadataRetriever.setDataSource(context, file.getUri());
 
         String dateStr = mediaMetadataRetriever.extractMetadata(MediaMetadataRetriever.METADATA_KEY_DATE);
@@ -11,6 +11,8 @@ import com.bumptech.glide.load.DataSource;
 import com.bumptech.glide.load.data.DataFetcher;
 
 import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 
@@ -20,39 +22,84 @@ class AudioCoverFetcher implements DataFetcher<InputStream> {
     private static final String TAG = "AudioCoverFetcher";
 
     private final String path;
+    private final long lastModified;
     private final Context context;
+    private final EmbeddedCoverCache cache;
+    private InputStream stream;
+    private volatile boolean cancelled = false;
 
-    public AudioCoverFetcher(String path, Context context) {
+    public AudioCoverFetcher(String path, long lastModified, Context context, EmbeddedCoverCache cache) {
         this.path = path;
+        this.lastModified = lastModified;
         this.context = context;
+        this.cache = cache;
     }
 
     @Override
     public void loadData(@NonNull Priority priority, @NonNull DataCallback<? super InputStream> callback) {
+        try {
+            File cachedCover = cache.get(path, lastModified);
+            stream = cachedCover != null ? new FileInputStream(cachedCover) : extractCover();
+            if (cancelled) {
+                callback.onLoadFailed(new IOException("Cancelled"));
+            } else if (stream != null) {
+                callback.onDataReady(stream);
+            } else {
+                callback.onLoadFailed(new IOException("Loading embedded cover did not work"));
+            }
+        } catch (IOException e) {
+            callback.onLoadFailed(e);
+        }
+    }
+
+    /**
+     * Reads the embedded picture from the media file and stores it in the cache.
+     *
+     * @return the cover, or null if the file has no embedded picture or loading was cancelled
+     */
+    private InputStream extractCover() throws IOException {
+        if (cancelled) {
+            return null;
+        }
         MediaMetadataRetriever retriever = new MediaMetadataRetriever();
+        byte[] picture;
         try {
             if (path.startsWith(ContentResolver.SCHEME_CONTENT)) {
                 retriever.setDataSource(context, Uri.parse(path));
             } else {
                 retriever.setDataSource(path);
             }
-            byte[] picture = retriever.getEmbeddedPicture();
-            if (picture != null) {
-                callback.onDataReady(new ByteArrayInputStream(picture));
-                return;
+            if (cancelled) {
+                return null;
             }
+            picture = retriever.getEmbeddedPicture();
         } finally {
             retriever.release();
         }
-        callback.onLoadFailed(new IOException("Loading embedded cover did not work"));
+        if (picture == null || cancelled) {
+            return null;
+        }
+        File cachedCover = cache.put(path, lastModified, picture);
+        if (cachedCover == null) {
+            // Could not write to the cache, use the original picture
+            return new ByteArrayInputStream(picture);
+        }
+        return new FileInputStream(cachedCover);
     }
 
     @Override public void cleanup() {
-        // nothing to clean up
+        if (stream != null) {
+            try {
+                stream.close();
+            } catch (IOException e) {
+                // ignore
+            }
+        }
     }
 
     @Override public void cancel() {
-        // cannot cancel
+        // MediaMetadataRetriever can not be interrupted, but the remaining steps are skipped
+        cancelled = true;
     }
 
     @NonNull
@@ -0,0 +1,146 @@
+package de.danoeh.antennapod.core.glide;
+
+import android.content.ContentResolver;
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.net.Uri;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.documentfile.provider.DocumentFile;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+
+/**
+ * Stores downscaled copies of the cover images that are embedded in media files. Extracting the
+ * cover with MediaMetadataRetriever is slow, so it is only done once per file. Entries are keyed
+ * by the path and modification time of the media file, so a changed file gets a new entry.
+ */
+class EmbeddedCoverCache {
+    private static final String TAG = "EmbeddedCoverCache";
+    private static final String DIRECTORY = "embedded_covers";
+    private static final int MAX_SIZE_PX = 1024;
+    private static final int JPEG_QUALITY = 90;
+    private static final long MAX_CACHE_SIZE_BYTES = 20 * 1024 * 1024;
+
+    private final File directory;
+
+    EmbeddedCoverCache(@NonNull Context context) {
+        directory = new File(context.getCacheDir(), DIRECTORY);
+    }
+
+    /**
+     * Returns the modification time of a media file given as path or content URI, or 0 if unknown.
+     */
+    static long getLastModified(@NonNull Context context, @NonNull String path) {
+        if (path.startsWith(ContentResolver.SCHEME_CONTENT)) {
+            DocumentFile file = DocumentFile.fromSingleUri(context, Uri.parse(path));
+            return file != null ? file.lastModified() : 0;
+        }
+        return new File(path).lastModified();
+    }
+
+    /**
+     * Returns the cached cover of the media file, or null if it is not cached.
+     */
+    @Nullable
+    File get(@NonNull String path, long lastModified) {
+        File file = getFile(path, lastModified);
+        return file.exists() ? file : null;
+    }
+
+    /**
+     * Downscales the embedded picture if it is larger than needed and stores it.
+     *
+     * @return the cached cover, or null if it could not be stored
+     */
+    @Nullable
+    File put(@NonNull String path, long lastModified, @NonNull byte[] picture) {
+        if (!directory.exists() && !directory.mkdirs()) {
+            return null;
+        }
+        File file = getFile(path, lastModified);
+        File tempFile = new File(directory, file.getName() + ".tmp");
+        try (OutputStream out = new FileOutputStream(tempFile)) {
+            BitmapFactory.Options options = new BitmapFactory.Options();
+            options.inJustDecodeBounds = true;
+            BitmapFactory.decodeByteArray(picture, 0, picture.length, options);
+            if (options.outWidth <= MAX_SIZE_PX && options.outHeight <= MAX_SIZE_PX) {
+                out.write(picture);
+            } else {
+                options.inJustDecodeBounds = false;
+                options.inSampleSize = 1;
+                while (Math.max(options.outWidth, options.outHeight) / (options.inSampleSize * 2) >= MAX_SIZE_PX) {
+                    options.inSampleSize *= 2;
+                }
+                Bitmap bitmap = BitmapFactory.decodeByteArray(picture, 0, picture.length, options);
+                if (bitmap == null) {
+                    throw new IOException("Unable to decode picture");
+                }
+                bitmap.compress(Bitmap.CompressFormat.JPEG, JPEG_QUALITY, out);
+                bitmap.recycle();
+            }
+        } catch (IOException e) {
+            Log.e(TAG, "Unable to store cover: " + e.getMessage());
+            tempFile.delete();
+            return null;
+        }
+        if (!tempFile.renameTo(file)) {
+            tempFile.delete();
+            return null;
+        }
+        trim();
+        return file;
+    }
+
+    /**
+     * Deletes the least recently written covers if the cache is too large.
+     */
+    private void trim() {
+        File[] files = directory.listFiles();
+        if (files == null) {
+            return;
+        }
+        long size = 0;
+        for (File file : files) {
+            size += file.length();
+        }
+        if (size <= MAX_CACHE_SIZE_BYTES) {
+            return;
+        }
+        Arrays.sort(files, (f1, f2) -> Long.compare(f1.lastModified(), f2.lastModified()));
+        for (int i = 0; i < files.length && size > MAX_CACHE_SIZE_BYTES; i++) {
+            long length = files[i].length();
+            if (files[i].delete()) {
+                size -= length;
+            }
+        }
+    }
+
+    private File getFile(@NonNull String path, long lastModified) {
+        return new File(directory, sha1(path + "\n" + lastModified) + ".img");
+    }
+
+    private static String sha1(String input) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-1");
+            byte[] hash = digest.digest(input.getBytes(Charset.forName("UTF-8")));
+            StringBuilder sb = new StringBuilder();
+            for (byte b : hash) {
+                sb.append(Integer.toHexString((b & 0xFF) | 0x100).substring(1, 3));
+            }
+            return sb.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new AssertionError(e);
+        }
+    }
+}
@@ -37,17 +37,21 @@ class MetadataRetrieverLoader implements ModelLoader<String, InputStream> {
     }
 
     private final Context context;
+    private final EmbeddedCoverCache cache;
 
     private MetadataRetrieverLoader(Context context) {
         this.context = context;
+        this.cache = new EmbeddedCoverCache(context);
     }
 
     @Nullable
     @Override
     public LoadData<InputStream> buildLoadData(@NonNull String model,
                                                int width, int height, @NonNull Options options) {
-        return new LoadData<>(new ObjectKey(model),
-                new AudioCoverFetcher(model.replace(FeedMedia.FILENAME_PREFIX_EMBEDDED_COVER, ""), context));
+        String path = model.replace(FeedMedia.FILENAME_PREFIX_EMBEDDED_COVER, "");
+        long lastModified = EmbeddedCoverCache.getLastModified(context, path);
+        return new LoadData<>(new ObjectKey(model + "/" + lastModified),
+                new AudioCoverFetcher(path, lastModified, context, cache));
     }
 
     @Override
@@ -119,6 +119,7 @@ public class UserPreferences {
     public static final String PREF_IMAGE_CACHE_SIZE = "prefImageCacheSize";
     public static final String PREF_DELETE_REMOVES_FROM_QUEUE = "prefDeleteRemovesFromQueue";
     public static final String PREF_USAGE_COUNTING_DATE = "prefUsageCounting";
+    public static final String PREF_DATABASE_PROFILING = "prefDatabaseProfiling";
 
     // Mediaplayer
     public static final String PREF_MEDIA_PLAYER = "prefMediaPlayer";
@@ -1015,6 +1016,13 @@ public class UserPreferences {
         return prefs.getBoolean(PREF_CAST_ENABLED, false);
     }
 
+    /**
+     * Whether database queries are measured, see {@link de.danoeh.antennapod.core.storage.QueryProfiler}.
+     */
+    public static boolean isDatabaseProfilingEnabled() {
+        return prefs.getBoolean(PREF_DATABASE_PROFILING, false);
+    }
+
     public enum VideoBackgroundBehavior {
         STOP, PICTURE_IN_PICTURE, CONTINUE_PLAYING
     }
@@ -5,6 +5,8 @@ import android.webkit.URLUtil;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 
+import de.danoeh.antennapod.model.feed.Feed;
+
 public class DefaultDownloaderFactory implements DownloaderFactory {
     private static final String TAG = "DefaultDwnldrFactory";
 
@@ -15,6 +17,9 @@ public class DefaultDownloaderFactory implements DownloaderFactory {
             Log.e(TAG, "Could not find appropriate downloader for " + request.getSource());
             return null;
         }
+        if (request.getFeedfileType() == Feed.FEEDFILETYPE_FEED) {
+            return new HttpDownloader(request, true);
+        }
         return new HttpDownloader(request);
     }
 }
\ No newline at end of file
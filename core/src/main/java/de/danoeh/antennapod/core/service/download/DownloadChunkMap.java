@@ -0,0 +1,156 @@
+package de.danoeh.antennapod.core.service.download;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+
+/**
+ * Remembers which byte ranges of a segmented download were already written to the destination file,
+ * so that an interrupted download can continue with the missing ranges only.
+ * Can be used by multiple download threads at the same time.
+ */
+public class DownloadChunkMap {
+    private static final int HEADER_SIZE = 8 + 4;
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private final long length;
+    private final int chunkSize;
+    private final byte[] bitmap;
+    @Nullable
+    private final String validator;
+
+    public DownloadChunkMap(long length, int chunkSize) {
+        this(length, chunkSize, (String) null);
+    }
+
+    /**
+     * @param validator Strong ETag or Last-Modified date of the remote file, used to check that the file
+     *                  has not changed when the download is resumed.
+     */
+    public DownloadChunkMap(long length, int chunkSize, @Nullable String validator) {
+        if (length <= 0 || chunkSize <= 0) {
+            throw new IllegalArgumentException("length and chunk size must be positive");
+        }
+        this.length = length;
+        this.chunkSize = chunkSize;
+        this.bitmap = new byte[(getChunkCount() + 7) / 8];
+        this.validator = validator;
+    }
+
+    private DownloadChunkMap(long length, int chunkSize, byte[] bitmap, @Nullable String validator) {
+        this.length = length;
+        this.chunkSize = chunkSize;
+        this.bitmap = bitmap;
+        this.validator = validator;
+    }
+
+    /**
+     * Restores a chunk map from {@link #toByteArray()}.
+     *
+     * @return the chunk map, or null if the data is not a valid chunk map
+     */
+    @Nullable
+    public static DownloadChunkMap fromByteArray(@Nullable byte[] data) {
+        if (data == null || data.length < HEADER_SIZE) {
+            return null;
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(data);
+        long length = buffer.getLong();
+        int chunkSize = buffer.getInt();
+        if (length <= 0 || chunkSize <= 0) {
+            return null;
+        }
+        long chunkCount = (length + chunkSize - 1) / chunkSize;
+        long bitmapSize = (chunkCount + 7) / 8;
+        if (buffer.remaining() < bitmapSize) {
+            return null;
+        }
+        byte[] bitmap = new byte[(int) bitmapSize];
+        buffer.get(bitmap);
+
+        String validator = null;
+        if (buffer.remaining() > 0) {
+            if (buffer.remaining() < 4 || buffer.getInt() != buffer.remaining()) {
+                return null;
+            }
+            byte[] validatorBytes = new byte[buffer.remaining()];
+            buffer.get(validatorBytes);
+            validator = new String(validatorBytes, UTF_8);
+        }
+        return new DownloadChunkMap(length, chunkSize, bitmap, validator);
+    }
+
+    @NonNull
+    public synchronized byte[] toByteArray() {
+        byte[] validatorBytes = validator != null ? validator.getBytes(UTF_8) : null;
+        int size = HEADER_SIZE + bitmap.length + (validatorBytes != null ? 4 + validatorBytes.length : 0);
+        ByteBuffer buffer = ByteBuffer.allocate(size);
+        buffer.putLong(length);
+        buffer.putInt(chunkSize);
+        buffer.put(bitmap);
+        if (validatorBytes != null) {
+            buffer.putInt(validatorBytes.length);
+            buffer.put(validatorBytes);
+        }
+        return buffer.array();
+    }
+
+    @Nullable
+    public String getValidator() {
+        return validator;
+    }
+
+    /**
+     * Size of the complete file.
+     */
+    public long getLength() {
+        return length;
+    }
+
+    public int getChunkCount() {
+        return (int) ((length + chunkSize - 1) / chunkSize);
+    }
+
+    public long getChunkStart(int chunk) {
+        return (long) chunk * chunkSize;
+    }
+
+    /**
+     * Position of the last byte of the chunk (inclusive, as in a range header).
+     */
+    public long getChunkEnd(int chunk) {
+        return Math.min(getChunkStart(chunk) + chunkSize, length) - 1;
+    }
+
+    public synchronized boolean isDone(int chunk) {
+        return (bitmap[chunk >> 3] & (1 << (chunk & 7))) != 0;
+    }
+
+    public synchronized void setDone(int chunk) {
+        bitmap[chunk >> 3] |= 1 << (chunk & 7);
+    }
+
+    public synchronized boolean isComplete() {
+        for (int i = 0; i < getChunkCount(); i++) {
+            if (!isDone(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Number of bytes that were already downloaded.
+     */
+    public synchronized long getBytesDone() {
+        long done = 0;
+        for (int i = 0; i < getChunkCount(); i++) {
+            if (isDone(i)) {
+                done += getChunkEnd(i) - getChunkStart(i) + 1;
+            }
+        }
+        return done;
+    }
+}
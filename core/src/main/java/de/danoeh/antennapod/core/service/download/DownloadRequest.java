@@ -19,6 +19,8 @@ public class DownloadRequest implements Parcelable {
     private String username;
     private String password;
     private String lastModified;
+    private String etag;
+    private String contentDigest;
     private final boolean deleteOnFailure;
     private final long feedfileId;
     private final int feedfileType;
@@ -30,6 +32,8 @@ public class DownloadRequest implements Parcelable {
     private int statusMsg;
     private boolean mediaEnqueued;
     private boolean initiatedByUser;
+    @Nullable
+    private DownloadChunkMap chunkMap;
 
     public DownloadRequest(@NonNull String destination, @NonNull String source, @NonNull String title, long feedfileId,
                            int feedfileType, String username, String password, boolean deleteOnFailure,
@@ -48,6 +52,9 @@ public class DownloadRequest implements Parcelable {
         this(in.readString(), in.readString(), in.readString(), in.readLong(), in.readInt(), in.readString(),
              in.readByte() > 0, nullIfEmpty(in.readString()), nullIfEmpty(in.readString()), in.readByte() > 0,
              in.readBundle(), in.readByte() > 0);
+        this.etag = nullIfEmpty(in.readString());
+        this.contentDigest = nullIfEmpty(in.readString());
+        this.chunkMap = DownloadChunkMap.fromByteArray(in.createByteArray());
     }
 
     private DownloadRequest(String destination, String source, String title, long feedfileId, int feedfileType,
@@ -91,6 +98,9 @@ public class DownloadRequest implements Parcelable {
         dest.writeByte((mediaEnqueued) ? (byte) 1 : 0);
         dest.writeBundle(arguments);
         dest.writeByte(initiatedByUser ? (byte) 1 : 0);
+        dest.writeString(nonNullString(etag));
+        dest.writeString(nonNullString(contentDigest));
+        dest.writeByteArray(chunkMap != null ? chunkMap.toByteArray() : null);
     }
 
     private static String nonNullString(String str) {
@@ -121,6 +131,8 @@ public class DownloadRequest implements Parcelable {
 
         if (lastModified != null ? !lastModified.equals(that.lastModified) : that.lastModified != null)
             return false;
+        if (etag != null ? !etag.equals(that.etag) : that.etag != null)
+            return false;
         if (deleteOnFailure != that.deleteOnFailure) return false;
         if (feedfileId != that.feedfileId) return false;
         if (feedfileType != that.feedfileType) return false;
@@ -149,6 +161,7 @@ public class DownloadRequest implements Parcelable {
         result = 31 * result + (username != null ? username.hashCode() : 0);
         result = 31 * result + (password != null ? password.hashCode() : 0);
         result = 31 * result + (lastModified != null ? lastModified.hashCode() : 0);
+        result = 31 * result + (etag != null ? etag.hashCode() : 0);
         result = 31 * result + (deleteOnFailure ? 1 : 0);
         result = 31 * result + (int) (feedfileId ^ (feedfileId >>> 32));
         result = 31 * result + feedfileType;
@@ -235,6 +248,40 @@ public class DownloadRequest implements Parcelable {
         return lastModified;
     }
 
+    public DownloadRequest setEtag(@Nullable String etag) {
+        this.etag = etag;
+        return this;
+    }
+
+    @Nullable
+    public String getEtag() {
+        return etag;
+    }
+
+    /**
+     * Sets the digest of the downloaded document.
+     */
+    public void setContentDigest(@Nullable String contentDigest) {
+        this.contentDigest = contentDigest;
+    }
+
+    @Nullable
+    public String getContentDigest() {
+        return contentDigest;
+    }
+
+    /**
+     * Sets the ranges of a segmented download that were already written to the destination.
+     */
+    public void setChunkMap(@Nullable DownloadChunkMap chunkMap) {
+        this.chunkMap = chunkMap;
+    }
+
+    @Nullable
+    public DownloadChunkMap getChunkMap() {
+        return chunkMap;
+    }
+
     public boolean isDeleteOnFailure() {
         return deleteOnFailure;
     }
@@ -277,16 +277,21 @@ public class DownloadService extends Service {
 
         if (type == Feed.FEEDFILETYPE_FEED) {
             Log.d(TAG, "Handling completed Feed Download");
-            FeedSyncTask task = new FeedSyncTask(DownloadService.this, request);
+            FeedSyncTask task = new FeedSyncTask(DownloadService.this, request, downloader.getFeedParserTask());
             boolean success = task.run();
 
             if (success) {
-                // we create a 'successful' download log if the feed's last refresh failed
-                List<DownloadStatus> log = DBReader.getFeedDownloadLog(request.getFeedfileId());
-                if (log.size() > 0 && !log.get(0).isSuccessful()) {
+                // we create a 'successful' download log if the feed's last refresh failed.
+                // Skipped updates are always logged, so that they can be counted.
+                if (task.getDownloadStatus().getReason() == DownloadError.SUCCESS_UNCHANGED) {
                     saveDownloadStatus(task.getDownloadStatus());
+                } else {
+                    List<DownloadStatus> log = DBReader.getFeedDownloadLog(request.getFeedfileId());
+                    if (log.size() > 0 && !log.get(0).isSuccessful()) {
+                        saveDownloadStatus(task.getDownloadStatus());
+                    }
                 }
-                if (request.getFeedfileId() != 0 && !request.isInitiatedByUser()) {
+                if (task.getSavedFeed() != null && request.getFeedfileId() != 0 && !request.isInitiatedByUser()) {
                     // Was stored in the database before and not initiated manually
                     newEpisodesNotification.showIfNeeded(DownloadService.this, task.getSavedFeed());
                 }
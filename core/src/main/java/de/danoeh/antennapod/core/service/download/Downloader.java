@@ -3,11 +3,13 @@ package de.danoeh.antennapod.core.service.download;
 import android.content.Context;
 import android.net.wifi.WifiManager;
 import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
 
 import java.util.concurrent.Callable;
 
 import de.danoeh.antennapod.core.ClientConfig;
 import de.danoeh.antennapod.core.R;
+import de.danoeh.antennapod.core.service.download.handler.FeedParserTask;
 
 /**
  * Downloads files
@@ -23,6 +25,8 @@ public abstract class Downloader implements Callable<Downloader> {
     final DownloadRequest request;
     @NonNull
     final DownloadStatus result;
+    @Nullable
+    FeedParserTask feedParserTask;
 
     Downloader(@NonNull DownloadRequest request) {
         super();
@@ -67,6 +71,15 @@ public abstract class Downloader implements Callable<Downloader> {
         return result;
     }
 
+    /**
+     * Returns the parser that already read the feed during the download,
+     * or null if the feed was written to the request's destination file.
+     */
+    @Nullable
+    public FeedParserTask getFeedParserTask() {
+        return feedParserTask;
+    }
+
     public boolean isFinished() {
         return finished;
     }
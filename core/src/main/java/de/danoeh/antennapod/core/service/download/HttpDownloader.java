@@ -1,28 +1,49 @@
 package de.danoeh.antennapod.core.service.download;
 
 import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
 import android.text.TextUtils;
 import android.util.Log;
 
 import okhttp3.CacheControl;
+import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.IOUtils;
 
 import java.io.BufferedInputStream;
+import java.io.EOFException;
 import java.io.File;
+import java.io.FilterInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InterruptedIOException;
 import java.io.RandomAccessFile;
 import java.io.UnsupportedEncodingException;
 import java.net.HttpURLConnection;
 import java.net.SocketTimeoutException;
 import java.net.URI;
 import java.net.UnknownHostException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Date;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 import de.danoeh.antennapod.core.R;
+import de.danoeh.antennapod.core.preferences.UserPreferences;
+import de.danoeh.antennapod.core.service.download.handler.FeedParserTask;
+import de.danoeh.antennapod.model.feed.Feed;
 import de.danoeh.antennapod.model.feed.FeedMedia;
 import de.danoeh.antennapod.core.util.DateUtils;
 import de.danoeh.antennapod.core.util.DownloadError;
@@ -41,14 +62,37 @@ public class HttpDownloader extends Downloader {
     private static final int BUFFER_SIZE = 8 * 1024;
     private static final String REGEX_PATTERN_IP_ADDRESS = "([0-9]{1,3}[\\.]){3}[0-9]{1,3}";
 
+    /**
+     * Media files of at least this size are downloaded in segments if the server supports ranges.
+     */
+    private static final long SEGMENTED_MIN_SIZE = 8 * 1024 * 1024;
+    private static final int SEGMENTED_CONNECTIONS = 4;
+    private static final int SEGMENT_MIN_CHUNK_SIZE = 1024 * 1024;
+    private static final int SEGMENT_MAX_CHUNKS = 1024;
+    private static final String CHUNK_MAP_SUFFIX = ".chunks";
+
+    private static ThreadPoolExecutor segmentExecutor;
+
+    private final boolean parseFeedStream;
+    private boolean singleStream = false;
+
     public HttpDownloader(@NonNull DownloadRequest request) {
+        this(request, false);
+    }
+
+    /**
+     * @param parseFeedStream Parse the feed while it is downloaded instead of writing it to the
+     *                        destination file. The result is available with {@link #getFeedParserTask()}.
+     */
+    public HttpDownloader(@NonNull DownloadRequest request, boolean parseFeedStream) {
         super(request);
+        this.parseFeedStream = parseFeedStream;
     }
 
     @Override
     protected void download() {
         File destination = new File(request.getDestination());
-        final boolean fileExists = destination.exists();
+        boolean fileExists = destination.exists();
 
         if (request.isDeleteOnFailure() && fileExists) {
             Log.w(TAG, "File already exists");
@@ -56,6 +100,22 @@ public class HttpDownloader extends Downloader {
             return;
         }
 
+        DownloadChunkMap chunkMap = request.getChunkMap();
+        boolean segmented = chunkMap != null || getChunkMapFile(destination).exists();
+        if (chunkMap == null && segmented) {
+            chunkMap = readChunkMap(destination);
+        }
+        if (segmented && (chunkMap == null || chunkMap.getValidator() == null || !fileExists
+                || destination.length() != chunkMap.getLength())) {
+            // The file is preallocated, so without a matching chunk map nothing of it can be used.
+            // Without a validator, it is unknown whether the remote file is still the same.
+            Log.d(TAG, "Partial segmented download does not match its chunk map, starting over");
+            deleteChunkMap(destination);
+            fileExists = fileExists && !destination.delete();
+            chunkMap = null;
+        }
+        request.setChunkMap(chunkMap);
+
         OkHttpClient httpClient = AntennapodHttpClient.getHttpClient();
         RandomAccessFile out = null;
         InputStream connection;
@@ -74,24 +134,36 @@ public class HttpDownloader extends Downloader {
                 httpReq.cacheControl(new CacheControl.Builder().noCache().build()); // noStore breaks CDNs
             }
 
+            String etag = request.getEtag();
             if (!TextUtils.isEmpty(request.getLastModified())) {
                 String lastModified = request.getLastModified();
                 Date lastModifiedDate = DateUtils.parse(lastModified);
                 if (lastModifiedDate != null) {
-                    long threeDaysAgo = System.currentTimeMillis() - 1000 * 60 * 60 * 24 * 3;
-                    if (lastModifiedDate.getTime() > threeDaysAgo) {
-                        Log.d(TAG, "addHeader(\"If-Modified-Since\", \"" + lastModified + "\")");
-                        httpReq.addHeader("If-Modified-Since", lastModified);
-                    }
-                } else {
-                    Log.d(TAG, "addHeader(\"If-None-Match\", \"" + lastModified + "\")");
-                    httpReq.addHeader("If-None-Match", lastModified);
+                    Log.d(TAG, "addHeader(\"If-Modified-Since\", \"" + lastModified + "\")");
+                    httpReq.addHeader("If-Modified-Since", lastModified);
+                } else if (TextUtils.isEmpty(etag)) {
+                    // Older versions stored the ETag instead of the date
+                    etag = lastModified;
                 }
             }
+            if (!TextUtils.isEmpty(etag)) {
+                Log.d(TAG, "addHeader(\"If-None-Match\", \"" + etag + "\")");
+                httpReq.addHeader("If-None-Match", etag);
+            }
 
 
+            if (chunkMap != null) {
+                Log.d(TAG, "Resuming segmented download at " + chunkMap.getBytesDone() + " bytes");
+                try {
+                    downloadSegments(httpClient, httpReq.build(), destination, null);
+                } catch (RangeRequestFailedException e) {
+                    downloadSingleStream(e);
+                }
+                return;
+            }
+
             // add range header if necessary
-            if (fileExists && destination.length() > 0) {
+            if (!parseFeedStream && fileExists && destination.length() > 0) {
                 request.setSoFar(destination.length());
                 httpReq.addHeader("Range", "bytes=" + request.getSoFar() + "-");
                 Log.d(TAG, "Adding range header: " + request.getSoFar());
@@ -174,6 +246,25 @@ public class HttpDownloader extends Downloader {
                 }
             }
 
+            if (parseFeedStream) {
+                parseFeed(response, responseBody);
+                return;
+            }
+
+            if (!singleStream && request.getFeedfileType() == FeedMedia.FEEDFILETYPE_FEEDMEDIA && !isGzip
+                    && response.code() == HttpURLConnection.HTTP_OK
+                    && "bytes".equalsIgnoreCase(response.header("Accept-Ranges"))
+                    && getValidator(response) != null
+                    && responseBody.contentLength() >= SEGMENTED_MIN_SIZE) {
+                try {
+                    downloadSegments(httpClient, httpReq.build(), destination, response);
+                } catch (RangeRequestFailedException e) {
+                    IOUtils.closeQuietly(responseBody);
+                    downloadSingleStream(e);
+                }
+                return;
+            }
+
             connection = new BufferedInputStream(responseBody.byteStream());
 
             String contentRangeHeader = (fileExists) ? response.header("Content-Range") : null;
@@ -214,10 +305,18 @@ public class HttpDownloader extends Downloader {
                 return;
             }
 
+            MessageDigest digest = null;
+            if (request.getFeedfileType() == Feed.FEEDFILETYPE_FEED && request.getSoFar() == 0) {
+                digest = createContentDigest();
+            }
+
             Log.d(TAG, "Starting download");
             try {
                 while (!cancelled && (count = connection.read(buffer)) != -1) {
                     out.write(buffer, 0, count);
+                    if (digest != null) {
+                        digest.update(buffer, 0, count);
+                    }
                     request.setSoFar(request.getSoFar() + count);
                     int progressPercent = (int) (100.0 * request.getSoFar() / request.getSize());
                     request.setProgressPercent(progressPercent);
@@ -239,12 +338,10 @@ public class HttpDownloader extends Downloader {
                     onFail(DownloadError.ERROR_IO_ERROR, "Download completed, but nothing was read");
                     return;
                 }
-                String lastModified = response.header("Last-Modified");
-                if (lastModified != null) {
-                    request.setLastModified(lastModified);
-                } else {
-                    request.setLastModified(response.header("ETag"));
+                if (digest != null) {
+                    request.setContentDigest(ByteString.of(digest.digest()).hex());
                 }
+                setLastModified(response);
                 onSuccess();
             }
 
@@ -286,6 +383,200 @@ public class HttpDownloader extends Downloader {
         }
     }
 
+    /**
+     * Downloads the complete file again with a single connection, after the chunk map and the
+     * partial file were deleted because the server did not answer a range request as expected.
+     */
+    private void downloadSingleStream(RangeRequestFailedException cause) {
+        Log.d(TAG, "Segmented download failed, downloading the complete file: " + cause.getMessage());
+        singleStream = true;
+        request.setSoFar(0);
+        request.setProgressPercent(0);
+        download();
+    }
+
+    /**
+     * Parses the feed while it is read from the response. Network errors are thrown
+     * like in a normal download, parser errors are reported by the parser task.
+     */
+    private void parseFeed(Response response, ResponseBody responseBody) throws IOException {
+        request.setStatusMsg(R.string.download_running);
+        request.setSoFar(0);
+        request.setSize(responseBody.contentLength());
+        if (request.getSize() < 0) {
+            request.setSize(DownloadStatus.SIZE_UNKNOWN);
+        }
+
+        ProgressInputStream in = new ProgressInputStream(responseBody.byteStream(), createContentDigest());
+        FeedParserTask task = new FeedParserTask(request, in);
+        task.call();
+        if (cancelled) {
+            onCancelled();
+            return;
+        }
+        if (in.error != null) {
+            throw in.error;
+        }
+        // The parser might stop before the end of the document, the digest needs all of it
+        IOUtils.skip(in, Long.MAX_VALUE);
+        request.setContentDigest(ByteString.of(in.digest.digest()).hex());
+        setLastModified(response);
+        feedParserTask = task;
+        onSuccess();
+    }
+
+    /**
+     * Downloads the missing chunks of the request's chunk map with multiple connections.
+     * The chunk map is stored next to the destination before the file is preallocated and after every
+     * chunk, so that a later download request can resume even if the process is killed.
+     *
+     * @param firstResponse Response to a request without range header. It is used for the first chunk
+     *                      and determines the chunk map. Null to resume with the request's chunk map.
+     */
+    private void downloadSegments(OkHttpClient httpClient, Request baseRequest, File destination,
+                                  @Nullable Response firstResponse) throws IOException {
+        ResponseBody firstBody = firstResponse != null ? firstResponse.body() : null;
+        DownloadChunkMap chunkMap = request.getChunkMap();
+        if (chunkMap == null) {
+            long length = firstBody.contentLength();
+            int chunkSize = (int) Math.max(SEGMENT_MIN_CHUNK_SIZE,
+                    (length + SEGMENT_MAX_CHUNKS - 1) / SEGMENT_MAX_CHUNKS);
+            chunkMap = new DownloadChunkMap(length, chunkSize, getValidator(firstResponse));
+            request.setChunkMap(chunkMap);
+            writeChunkMap(destination, chunkMap);
+        }
+        request.setStatusMsg(R.string.download_running);
+        request.setSize(chunkMap.getLength());
+        request.setSoFar(chunkMap.getBytesDone());
+
+        long freeSpace = StorageUtils.getFreeSpaceAvailable();
+        if (chunkMap.getLength() - request.getSoFar() > freeSpace) {
+            onFail(DownloadError.ERROR_NOT_ENOUGH_SPACE, null);
+            return;
+        }
+
+        Log.d(TAG, "Starting segmented download of " + chunkMap.getChunkCount() + " chunks");
+        IOException error;
+        try (RandomAccessFile out = new RandomAccessFile(destination, "rw")) {
+            if (firstResponse != null) {
+                out.setLength(0);
+            }
+            out.setLength(chunkMap.getLength());
+            SegmentedDownload download = new SegmentedDownload(httpClient, baseRequest, out.getChannel(),
+                    chunkMap, destination);
+            error = download.run(firstBody);
+        }
+
+        if (cancelled) {
+            onCancelled();
+        } else if (error instanceof RangeRequestFailedException) {
+            // The chunks that are already written might belong to an old version of the file
+            deleteChunkMap(destination);
+            request.setChunkMap(null);
+            if (!destination.delete()) {
+                Log.w(TAG, "Unable to delete " + destination.getName());
+            }
+            throw error;
+        } else if (error != null) {
+            throw error;
+        } else if (!chunkMap.isComplete()) {
+            onFail(DownloadError.ERROR_IO_ERROR, "Segmented download completed, but chunks are missing");
+        } else {
+            deleteChunkMap(destination);
+            request.setChunkMap(null);
+            onSuccess();
+        }
+    }
+
+    /**
+     * Strong validator of the response for If-Range requests. Weak ETags can not be used for ranges.
+     */
+    @Nullable
+    private static String getValidator(Response response) {
+        String etag = response.header("ETag");
+        if (!TextUtils.isEmpty(etag) && !etag.startsWith("W/")) {
+            return etag;
+        }
+        String lastModified = response.header("Last-Modified");
+        return TextUtils.isEmpty(lastModified) ? null : lastModified;
+    }
+
+    /**
+     * Connections of segmented downloads in addition to the downloading thread. The pool is limited to
+     * the number of parallel downloads, so that the number of threads does not grow with the number of
+     * downloads. Chunks that are queued are picked up by the downloading thread meanwhile.
+     */
+    private static synchronized ExecutorService getSegmentExecutor() {
+        int size = UserPreferences.getParallelDownloads() * (SEGMENTED_CONNECTIONS - 1);
+        if (segmentExecutor == null) {
+            segmentExecutor = new ThreadPoolExecutor(size, size, 30, TimeUnit.SECONDS,
+                    new LinkedBlockingQueue<>(), r -> {
+                        Thread t = new Thread(r, "DownloadSegmentThread");
+                        t.setPriority(Thread.MIN_PRIORITY);
+                        return t;
+                    });
+            segmentExecutor.allowCoreThreadTimeOut(true);
+        } else if (size > segmentExecutor.getMaximumPoolSize()) {
+            segmentExecutor.setMaximumPoolSize(size);
+            segmentExecutor.setCorePoolSize(size);
+        } else if (size < segmentExecutor.getMaximumPoolSize()) {
+            segmentExecutor.setCorePoolSize(size);
+            segmentExecutor.setMaximumPoolSize(size);
+        }
+        return segmentExecutor;
+    }
+
+    private static File getChunkMapFile(File destination) {
+        return new File(destination.getPath() + CHUNK_MAP_SUFFIX);
+    }
+
+    @Nullable
+    private static DownloadChunkMap readChunkMap(File destination) {
+        File file = getChunkMapFile(destination);
+        if (!file.exists()) {
+            return null;
+        }
+        try {
+            return DownloadChunkMap.fromByteArray(FileUtils.readFileToByteArray(file));
+        } catch (IOException e) {
+            Log.e(TAG, "Unable to read chunk map", e);
+            return null;
+        }
+    }
+
+    /**
+     * Stores the chunk map next to the destination, so that a later download request can resume.
+     * The map is written to a temporary file first, so that it is never left half written.
+     */
+    private static void writeChunkMap(File destination, DownloadChunkMap chunkMap) throws IOException {
+        File file = getChunkMapFile(destination);
+        File tempFile = new File(file.getPath() + ".tmp");
+        FileUtils.writeByteArrayToFile(tempFile, chunkMap.toByteArray());
+        if (!tempFile.renameTo(file)) {
+            throw new IOException("Unable to replace chunk map " + file.getName());
+        }
+    }
+
+    private static void deleteChunkMap(File destination) {
+        File file = getChunkMapFile(destination);
+        if (file.exists() && !file.delete()) {
+            Log.w(TAG, "Unable to delete chunk map " + file.getName());
+        }
+    }
+
+    private void setLastModified(Response response) {
+        request.setLastModified(response.header("Last-Modified"));
+        request.setEtag(response.header("ETag"));
+    }
+
+    private static MessageDigest createContentDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-1");
+        } catch (NoSuchAlgorithmException e) {
+            throw new AssertionError(e);
+        }
+    }
+
     private void onSuccess() {
         Log.d(TAG, "Download was successful");
         result.setSuccessful();
@@ -312,6 +603,8 @@ public class HttpDownloader extends Downloader {
     private void cleanup() {
         if (request.getDestination() != null) {
             File dest = new File(request.getDestination());
+            deleteChunkMap(dest);
+            request.setChunkMap(null);
             if (dest.exists()) {
                 boolean rc = dest.delete();
                 Log.d(TAG, "Deleted file " + dest.getName() + "; Result: "
@@ -332,4 +625,208 @@ public class HttpDownloader extends Downloader {
             throw new AssertionError(e);
         }
     }
+
+    /**
+     * Updates the download progress while the parser reads the response. Stops reading when the
+     * download is cancelled and remembers network errors, so that they are not reported as parser errors.
+     */
+    private class ProgressInputStream extends FilterInputStream {
+        private final MessageDigest digest;
+        private IOException error;
+
+        ProgressInputStream(InputStream in, MessageDigest digest) {
+            super(in);
+            this.digest = digest;
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] b = new byte[1];
+            int count = read(b, 0, 1);
+            return count == -1 ? -1 : b[0] & 0xff;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (cancelled) {
+                throw new IOException("Download was cancelled");
+            }
+            int count;
+            try {
+                count = super.read(b, off, len);
+            } catch (IOException e) {
+                error = e;
+                throw e;
+            }
+            if (count > 0) {
+                digest.update(b, off, count);
+                request.setSoFar(request.getSoFar() + count);
+                int progressPercent = (int) (100.0 * request.getSoFar() / request.getSize());
+                request.setProgressPercent(progressPercent);
+            }
+            return count;
+        }
+    }
+
+    /**
+     * Thrown if the server does not answer a range request with the requested range, for example
+     * because the file has changed since the chunk map was created or the server ignores ranges.
+     */
+    private static class RangeRequestFailedException extends IOException {
+        RangeRequestFailedException(String message) {
+            super(message);
+        }
+    }
+
+    /**
+     * Downloads the missing chunks of a file in parallel. Every connection takes the next
+     * missing chunk until all chunks are written or one of the connections fails.
+     */
+    private class SegmentedDownload {
+        private final OkHttpClient httpClient;
+        private final Request baseRequest;
+        private final FileChannel channel;
+        private final DownloadChunkMap chunkMap;
+        private final File destination;
+        private final AtomicInteger nextChunk = new AtomicInteger();
+        private int[] missingChunks;
+        private volatile boolean failed = false;
+        private IOException error;
+
+        SegmentedDownload(OkHttpClient httpClient, Request baseRequest, FileChannel channel,
+                          DownloadChunkMap chunkMap, File destination) {
+            this.httpClient = httpClient;
+            this.baseRequest = baseRequest;
+            this.channel = channel;
+            this.chunkMap = chunkMap;
+            this.destination = destination;
+        }
+
+        /**
+         * @return the first error of a connection, or null if no connection failed
+         */
+        @Nullable
+        IOException run(@Nullable ResponseBody firstResponse) {
+            int first = firstResponse != null ? 1 : 0;
+            List<Integer> missing = new ArrayList<>();
+            for (int i = first; i < chunkMap.getChunkCount(); i++) {
+                if (!chunkMap.isDone(i)) {
+                    missing.add(i);
+                }
+            }
+            missingChunks = new int[missing.size()];
+            for (int i = 0; i < missingChunks.length; i++) {
+                missingChunks[i] = missing.get(i);
+            }
+
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 1; i < Math.min(SEGMENTED_CONNECTIONS, missingChunks.length + first); i++) {
+                futures.add(getSegmentExecutor().submit(this::downloadChunks));
+            }
+
+            if (firstResponse != null) {
+                // The response to the initial request already delivers the first chunk
+                try (InputStream in = firstResponse.byteStream()) {
+                    write(in, 0, chunkMap.getChunkEnd(0) + 1);
+                    setDone(0);
+                } catch (IOException e) {
+                    fail(e);
+                }
+            }
+            downloadChunks();
+            for (Future<?> future : futures) {
+                try {
+                    future.get();
+                } catch (ExecutionException e) {
+                    fail(new IOException(e.getCause()));
+                } catch (InterruptedException e) {
+                    fail(new InterruptedIOException("Segmented download was interrupted"));
+                }
+            }
+            return error;
+        }
+
+        /**
+         * Stops all connections. Only the first error is reported, the others are caused by stopping.
+         */
+        private synchronized void fail(IOException e) {
+            if (error == null) {
+                error = e;
+            }
+            failed = true;
+        }
+
+        private void downloadChunks() {
+            int index;
+            while (!cancelled && !failed && (index = nextChunk.getAndIncrement()) < missingChunks.length) {
+                try {
+                    downloadChunk(missingChunks[index]);
+                } catch (IOException e) {
+                    fail(e);
+                }
+            }
+        }
+
+        /**
+         * Marks the chunk as written and stores the chunk map. If the map can not be stored, the chunk
+         * is downloaded again when the download is resumed.
+         */
+        private synchronized void setDone(int chunk) {
+            chunkMap.setDone(chunk);
+            try {
+                writeChunkMap(destination, chunkMap);
+            } catch (IOException e) {
+                Log.e(TAG, "Unable to write chunk map", e);
+            }
+        }
+
+        private void downloadChunk(int chunk) throws IOException {
+            long start = chunkMap.getChunkStart(chunk);
+            long end = chunkMap.getChunkEnd(chunk);
+            Request.Builder rangeRequest = baseRequest.newBuilder()
+                    .header("Range", "bytes=" + start + "-" + end);
+            if (chunkMap.getValidator() != null) {
+                // Makes the server send the complete file instead of the range if the file has changed
+                rangeRequest.header("If-Range", chunkMap.getValidator());
+            }
+            try (Response response = httpClient.newCall(rangeRequest.build()).execute()) {
+                ResponseBody body = response.body();
+                if (response.code() != HttpURLConnection.HTTP_PARTIAL || body == null) {
+                    throw new RangeRequestFailedException("Server did not return the requested range, response code "
+                            + response.code());
+                }
+                String contentRange = response.header("Content-Range");
+                String expectedRange = "bytes " + start + "-" + end + "/";
+                if (contentRange == null || !(contentRange.equals(expectedRange + chunkMap.getLength())
+                        || contentRange.equals(expectedRange + "*"))) {
+                    throw new IOException("Unexpected content range " + contentRange + " for chunk " + chunk);
+                }
+                write(body.byteStream(), start, end - start + 1);
+            }
+            setDone(chunk);
+        }
+
+        private void write(InputStream in, long position, long count) throws IOException {
+            byte[] buffer = new byte[BUFFER_SIZE];
+            long remaining = count;
+            while (remaining > 0) {
+                if (cancelled || failed) {
+                    throw new IOException("Segmented download was stopped");
+                }
+                int read = in.read(buffer, 0, (int) Math.min(buffer.length, remaining));
+                if (read == -1) {
+                    throw new EOFException("Range ended " + remaining + " bytes early");
+                }
+                ByteBuffer data = ByteBuffer.wrap(buffer, 0, read);
+                while (data.hasRemaining()) {
+                    position += channel.write(data, position);
+                }
+                remaining -= read;
+                synchronized (request) {
+                    request.setSoFar(request.getSoFar() + read);
+                    request.setProgressPercent((int) (100.0 * request.getSoFar() / request.getSize()));
+                }
+            }
+        }
+    }
 }
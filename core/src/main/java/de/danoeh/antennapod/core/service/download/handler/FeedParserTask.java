@@ -1,6 +1,7 @@
 package de.danoeh.antennapod.core.service.download.handler;
 
 import android.util.Log;
+import androidx.annotation.Nullable;
 import de.danoeh.antennapod.model.feed.Feed;
 import de.danoeh.antennapod.model.feed.FeedItem;
 import de.danoeh.antennapod.model.feed.FeedPreferences;
@@ -18,16 +19,32 @@ import org.xml.sax.SAXException;
 import javax.xml.parsers.ParserConfigurationException;
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
 import java.util.concurrent.Callable;
 
 public class FeedParserTask implements Callable<FeedHandlerResult> {
     private static final String TAG = "FeedParserTask";
     private final DownloadRequest request;
+    @Nullable
+    private final InputStream stream;
     private DownloadStatus downloadStatus;
+    private FeedHandlerResult result;
     private boolean successful = true;
 
+    /**
+     * Parses the feed from the request's destination file.
+     */
     public FeedParserTask(DownloadRequest request) {
+        this(request, null);
+    }
+
+    /**
+     * Parses the feed while it is read from the given stream.
+     * The request's destination is only written to if the stream does not contain XML.
+     */
+    public FeedParserTask(DownloadRequest request, @Nullable InputStream stream) {
         this.request = request;
+        this.stream = stream;
     }
 
     @Override
@@ -44,9 +61,12 @@ public class FeedParserTask implements Callable<FeedHandlerResult> {
         String reasonDetailed = null;
         FeedHandler feedHandler = new FeedHandler();
 
-        FeedHandlerResult result = null;
         try {
-            result = feedHandler.parseFeed(feed);
+            if (stream != null) {
+                result = feedHandler.parseFeed(feed, stream);
+            } else {
+                result = feedHandler.parseFeed(feed);
+            }
             Log.d(TAG, feed.getTitle() + " parsed");
             checkFeedData(feed);
         } catch (SAXException | IOException | ParserConfigurationException e) {
@@ -83,10 +103,19 @@ public class FeedParserTask implements Callable<FeedHandlerResult> {
         } else {
             downloadStatus = new DownloadStatus(feed, feed.getTitle(), reason, successful,
                                                 reasonDetailed, request.isInitiatedByUser());
+            result = null;
             return null;
         }
     }
 
+    /**
+     * The result of {@link #call()}, or null if parsing failed.
+     */
+    @Nullable
+    public FeedHandlerResult getResult() {
+        return result;
+    }
+
     public boolean isSuccessful() {
         return successful;
     }
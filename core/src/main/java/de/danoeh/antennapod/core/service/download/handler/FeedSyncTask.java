@@ -2,36 +2,71 @@ package de.danoeh.antennapod.core.service.download.handler;
 
 import android.content.Context;
 import android.util.Log;
+import android.text.TextUtils;
+import androidx.annotation.Nullable;
 
 import de.danoeh.antennapod.model.feed.Feed;
 import de.danoeh.antennapod.core.service.download.DownloadRequest;
 import de.danoeh.antennapod.core.service.download.DownloadStatus;
 import de.danoeh.antennapod.core.storage.DBTasks;
+import de.danoeh.antennapod.core.storage.DBWriter;
 import de.danoeh.antennapod.core.storage.DownloadRequestException;
 import de.danoeh.antennapod.core.storage.DownloadRequester;
 import de.danoeh.antennapod.core.syndication.handler.FeedHandlerResult;
+import de.danoeh.antennapod.core.util.DownloadError;
+
+import java.io.File;
 
 public class FeedSyncTask {
     private static final String TAG = "FeedParserTask";
     private final DownloadRequest request;
     private final Context context;
+    @Nullable
+    private final FeedParserTask parsedFeed;
     private DownloadStatus downloadStatus;
     private Feed savedFeed;
 
     public FeedSyncTask(Context context, DownloadRequest request) {
+        this(context, request, null);
+    }
+
+    /**
+     * @param parsedFeed Parser that already read the feed while it was downloaded,
+     *                   or null to parse the request's destination file.
+     */
+    public FeedSyncTask(Context context, DownloadRequest request, @Nullable FeedParserTask parsedFeed) {
         this.request = request;
         this.context = context;
+        this.parsedFeed = parsedFeed;
     }
 
     public boolean run() {
-        FeedParserTask task = new FeedParserTask(request);
-        FeedHandlerResult result = task.call();
+        if (isUnchanged()) {
+            Log.d(TAG, "Feed " + request.getSource() + " has not changed since the last refresh, skipping update");
+            if (parsedFeed == null) {
+                new File(request.getDestination()).delete();
+            }
+            DBWriter.setFeedUnchanged(request.getFeedfileId(), request.getLastModified(), request.getEtag());
+            downloadStatus = new DownloadStatus(request, DownloadError.SUCCESS_UNCHANGED, true, false, null);
+            return true;
+        }
+
+        FeedParserTask task = parsedFeed;
+        FeedHandlerResult result;
+        if (task != null) {
+            result = task.getResult();
+        } else {
+            task = new FeedParserTask(request);
+            result = task.call();
+        }
         downloadStatus = task.getDownloadStatus();
 
         if (!task.isSuccessful()) {
             return false;
         }
 
+        result.feed.setEtag(request.getEtag());
+        result.feed.setContentDigest(request.getContentDigest());
         savedFeed = DBTasks.updateFeed(context, result.feed, false);
         // If loadAllPages=true, check if another page is available and queue it for download
         final boolean loadAllPages = request.getArguments().getBoolean(DownloadRequester.REQUEST_ARG_LOAD_ALL_PAGES);
@@ -47,10 +82,24 @@ public class FeedSyncTask {
         return true;
     }
 
+    /**
+     * Checks if the downloaded document is the same that was parsed at the last refresh.
+     * Feeds that are downloaded with a stream were already parsed, but merging them can still be skipped.
+     */
+    private boolean isUnchanged() {
+        String previousDigest = request.getArguments().getString(DownloadRequester.REQUEST_ARG_CONTENT_DIGEST);
+        return request.getFeedfileId() != 0 && !TextUtils.isEmpty(previousDigest)
+                && previousDigest.equals(request.getContentDigest());
+    }
+
     public DownloadStatus getDownloadStatus() {
         return downloadStatus;
     }
 
+    /**
+     * The updated feed, or null if the feed has not changed.
+     */
+    @Nullable
     public Feed getSavedFeed() {
         return savedFeed;
     }
@@ -45,6 +45,7 @@ import com.bumptech.glide.Glide;
 import com.bumptech.glide.request.RequestOptions;
 import com.bumptech.glide.request.target.Target;
 
+import java.io.File;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
@@ -80,10 +81,12 @@ import de.danoeh.antennapod.core.util.NetworkUtils;
 import de.danoeh.antennapod.core.util.gui.NotificationUtils;
 import de.danoeh.antennapod.model.playback.Playable;
 import de.danoeh.antennapod.core.util.playback.PlayableUtils;
+import de.danoeh.antennapod.core.util.playback.PlaybackPositionJournal;
 import de.danoeh.antennapod.core.util.playback.PlaybackServiceStarter;
 import de.danoeh.antennapod.core.widget.WidgetUpdater;
 import de.danoeh.antennapod.ui.appstartintent.MainActivityStarter;
 import de.danoeh.antennapod.ui.appstartintent.VideoPlayerActivityStarter;
+import io.reactivex.Completable;
 import io.reactivex.Observable;
 import io.reactivex.Single;
 import io.reactivex.android.schedulers.AndroidSchedulers;
@@ -103,6 +106,7 @@ public class PlaybackService extends MediaBrowserServiceCompat {
      * Logging tag
      */
     private static final String TAG = "PlaybackService";
+    private static final String POSITION_JOURNAL_FILE = "playback_position.journal";
 
     /**
      * Parcelable of type Playable.
@@ -213,6 +217,15 @@ public class PlaybackService extends MediaBrowserServiceCompat {
     private PlaybackServiceStateManager stateManager;
     private Disposable positionEventTimer;
     private PlaybackServiceNotificationBuilder notificationBuilder;
+    private PlaybackPositionJournal positionJournal;
+    /**
+     * Writes the positions of the journal to the database. Media must only be loaded after it has completed.
+     */
+    private Completable positionRecovery;
+    /**
+     * Is true if the journal contains a position that was not written to the database yet.
+     */
+    private volatile boolean positionJournalled = false;
 
     private String autoSkippedFeedMediaId = null;
 
@@ -288,6 +301,11 @@ public class PlaybackService extends MediaBrowserServiceCompat {
         registerReceiver(pausePlayCurrentEpisodeReceiver, new IntentFilter(ACTION_PAUSE_PLAY_CURRENT_EPISODE));
         EventBus.getDefault().register(this);
         taskManager = new PlaybackServiceTaskManager(this, taskManagerCallback);
+        positionJournal = new PlaybackPositionJournal(new File(getFilesDir(), POSITION_JOURNAL_FILE));
+        positionRecovery = Completable.fromAction(() -> PlayableUtils.recoverJournalledPositions(positionJournal))
+                .subscribeOn(Schedulers.io())
+                .cache();
+        positionRecovery.subscribe(() -> { }, error -> Log.e(TAG, Log.getStackTraceString(error)));
 
         flavorHelper = new PlaybackServiceFlavorHelper(PlaybackService.this, flavorHelperCallback);
         PreferenceManager.getDefaultSharedPreferences(this)
@@ -348,6 +366,9 @@ public class PlaybackService extends MediaBrowserServiceCompat {
         currentMediaType = MediaType.UNKNOWN;
 
         cancelPositionObserver();
+        if (positionJournalled) {
+            saveCurrentPosition(true, null, PlaybackServiceMediaPlayer.INVALID_TIME);
+        }
         PreferenceManager.getDefaultSharedPreferences(this).unregisterOnSharedPreferenceChangeListener(prefListener);
         if (mediaSession != null) {
             mediaSession.release();
@@ -527,6 +548,7 @@ public class PlaybackService extends MediaBrowserServiceCompat {
 
                 Observable.fromCallable(
                         () -> {
+                            awaitPositionRecovery();
                             if (playable instanceof FeedMedia) {
                                 return DBReader.getFeedMedia(((FeedMedia) playable).getId());
                             } else {
@@ -722,7 +744,10 @@ public class PlaybackService extends MediaBrowserServiceCompat {
     }
 
     private void startPlayingFromPreferences() {
-        Observable.fromCallable(() -> PlayableUtils.createInstanceFromPreferences(getApplicationContext()))
+        Observable.fromCallable(() -> {
+            awaitPositionRecovery();
+            return PlayableUtils.createInstanceFromPreferences(getApplicationContext());
+        })
                 .subscribeOn(Schedulers.io())
                 .observeOn(AndroidSchedulers.mainThread())
                 .subscribe(
@@ -771,7 +796,7 @@ public class PlaybackService extends MediaBrowserServiceCompat {
     private final PlaybackServiceTaskManager.PSTMCallback taskManagerCallback = new PlaybackServiceTaskManager.PSTMCallback() {
         @Override
         public void positionSaverTick() {
-            saveCurrentPosition(true, null, PlaybackServiceMediaPlayer.INVALID_TIME);
+            journalCurrentPosition();
         }
 
         @Override
@@ -1441,7 +1466,33 @@ public class PlaybackService extends MediaBrowserServiceCompat {
         }
         if (position != INVALID_TIME && duration != INVALID_TIME && playable != null) {
             Log.d(TAG, "Saving current position to " + position);
-            PlayableUtils.saveCurrentPosition(playable, position, System.currentTimeMillis());
+            PlayableUtils.saveCurrentPosition(positionJournal, playable, position, System.currentTimeMillis());
+            positionJournalled = false;
+        }
+    }
+
+    /**
+     * Waits until the positions of the journal were written to the database, so that media is not loaded
+     * with an outdated position. Only blocks right after the service was created.
+     */
+    private void awaitPositionRecovery() {
+        try {
+            positionRecovery.blockingAwait();
+        } catch (RuntimeException e) {
+            Log.e(TAG, "Could not recover positions from the journal", e);
+        }
+    }
+
+    /**
+     * Records the current position of the media player in the journal. This is much cheaper than
+     * {@link #saveCurrentPosition(boolean, Playable, int)}, which is only called when playback stops.
+     */
+    private synchronized void journalCurrentPosition() {
+        int position = getCurrentPosition();
+        Playable playable = mediaPlayer.getPlayable();
+        if (position != INVALID_TIME && getDuration() != INVALID_TIME && playable != null) {
+            PlayableUtils.journalCurrentPosition(positionJournal, playable, position, System.currentTimeMillis());
+            positionJournalled = true;
         }
     }
 
@@ -1851,6 +1902,7 @@ public class PlaybackService extends MediaBrowserServiceCompat {
         @Override
         public void onPlayFromMediaId(String mediaId, Bundle extras) {
             Log.d(TAG, "onPlayFromMediaId: mediaId: " + mediaId + " extras: " + extras.toString());
+            awaitPositionRecovery();
             FeedMedia p = DBReader.getFeedMedia(Long.parseLong(mediaId));
             if (p != null) {
                 mediaPlayer.playMediaObject(p, !p.localFileAvailable(), true, true);
@@ -1862,6 +1914,7 @@ public class PlaybackService extends MediaBrowserServiceCompat {
         public void onPlayFromSearch(String query, Bundle extras) {
             Log.d(TAG, "onPlayFromSearch  query=" + query + " extras=" + extras.toString());
 
+            awaitPositionRecovery();
             List<FeedItem> results = FeedSearcher.searchFeedItems(getBaseContext(), query, 0);
             if (results.size() > 0 && results.get(0).getMedia() != null) {
                 FeedMedia media = results.get(0).getMedia();
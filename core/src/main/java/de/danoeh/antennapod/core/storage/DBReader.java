@@ -4,16 +4,19 @@ import android.database.Cursor;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 import androidx.collection.ArrayMap;
+import androidx.core.util.Pair;
 import android.text.TextUtils;
 import android.util.Log;
 
-import java.io.File;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import de.danoeh.antennapod.model.feed.Chapter;
 import de.danoeh.antennapod.model.feed.Feed;
@@ -30,6 +33,7 @@ import de.danoeh.antennapod.core.storage.mapper.FeedItemCursorMapper;
 import de.danoeh.antennapod.core.storage.mapper.FeedMediaCursorMapper;
 import de.danoeh.antennapod.core.storage.mapper.FeedPreferencesCursorMapper;
 import de.danoeh.antennapod.core.util.LongIntMap;
+import de.danoeh.antennapod.core.util.LongHashSet;
 import de.danoeh.antennapod.core.util.LongList;
 import de.danoeh.antennapod.core.util.comparator.DownloadStatusComparator;
 import de.danoeh.antennapod.core.util.comparator.FeedItemPubdateComparator;
@@ -120,8 +124,16 @@ public final class DBReader {
     }
 
     private static void loadTagsOfFeedItemList(List<FeedItem> items) {
-        LongList favoriteIds = getFavoriteIDList();
-        LongList queueIds = getQueueIDList();
+        PodDBAdapter adapter = PodDBAdapter.getInstance();
+        adapter.open();
+        LongHashSet favoriteIds;
+        LongHashSet queueIds;
+        try {
+            favoriteIds = FeedItemTagCache.getInstance().getFavoriteIds(adapter);
+            queueIds = FeedItemTagCache.getInstance().getQueueIds(adapter);
+        } finally {
+            adapter.close();
+        }
 
         for (FeedItem item : items) {
             if (favoriteIds.contains(item.getId())) {
@@ -339,6 +351,29 @@ public final class DBReader {
         }
     }
 
+    /**
+     * Loads a page of FeedItems that are considered new.
+     * Excludes items from feeds that do not have keep updated enabled.
+     *
+     * @param after The page token of the previous page, see {@link FeedItemPageToken#after(List)}.
+     * @param limit The maximum number of episodes that should be loaded.
+     * @return A list of FeedItems that are considered new.
+     */
+    @NonNull
+    public static List<FeedItem> getNewItemsList(@NonNull FeedItemPageToken after, int limit) {
+        Log.d(TAG, "getNewItemsList() called with: limit=" + limit);
+
+        PodDBAdapter adapter = PodDBAdapter.getInstance();
+        adapter.open();
+        try (Cursor cursor = adapter.getNewItemsCursor(after, limit)) {
+            List<FeedItem> items = extractItemlistFromCursor(adapter, cursor);
+            loadAdditionalFeedItemListData(items);
+            return items;
+        } finally {
+            adapter.close();
+        }
+    }
+
     /**
      * Loads a list of favorite items.
      *
@@ -360,17 +395,23 @@ public final class DBReader {
         }
     }
 
-    private static LongList getFavoriteIDList() {
-        Log.d(TAG, "getFavoriteIDList() called");
+    /**
+     * Loads a page of favorite items.
+     *
+     * @param after The page token of the previous page, see {@link FeedItemPageToken#after(List)}.
+     * @param limit The maximum number of episodes that should be loaded.
+     * @return A list of FeedItems that are marked as favorite.
+     */
+    @NonNull
+    public static List<FeedItem> getFavoriteItemsList(@NonNull FeedItemPageToken after, int limit) {
+        Log.d(TAG, "getFavoriteItemsList() called with: limit=" + limit);
 
         PodDBAdapter adapter = PodDBAdapter.getInstance();
         adapter.open();
-        try (Cursor cursor = adapter.getFavoritesCursor(0, Integer.MAX_VALUE)) {
-            LongList favoriteIDs = new LongList(cursor.getCount());
-            while (cursor.moveToNext()) {
-                favoriteIDs.add(cursor.getLong(0));
-            }
-            return favoriteIDs;
+        try (Cursor cursor = adapter.getFavoritesCursor(after, limit)) {
+            List<FeedItem> items = extractItemlistFromCursor(adapter, cursor);
+            loadAdditionalFeedItemListData(items);
+            return items;
         } finally {
             adapter.close();
         }
@@ -398,6 +439,29 @@ public final class DBReader {
         }
     }
 
+    /**
+     * Loads a page of a filtered list of FeedItems sorted by pubDate in descending order.
+     *
+     * @param after The page token of the previous page, see {@link FeedItemPageToken#after(List)}.
+     * @param limit The maximum number of episodes that should be loaded.
+     * @param filter The filter describing which episodes to filter out.
+     */
+    @NonNull
+    public static List<FeedItem> getRecentlyPublishedEpisodes(@NonNull FeedItemPageToken after, int limit,
+                                                              FeedItemFilter filter) {
+        Log.d(TAG, "getRecentlyPublishedEpisodes() called with: limit=" + limit);
+
+        PodDBAdapter adapter = PodDBAdapter.getInstance();
+        adapter.open();
+        try (Cursor cursor = adapter.getRecentlyPublishedItemsCursor(after, limit, filter)) {
+            List<FeedItem> items = extractItemlistFromCursor(adapter, cursor);
+            loadAdditionalFeedItemListData(items);
+            return items;
+        } finally {
+            adapter.close();
+        }
+    }
+
     /**
      * Loads the playback history from the database. A FeedItem is in the playback history if playback of the correpsonding episode
      * has been completed at least once.
@@ -484,6 +548,26 @@ public final class DBReader {
         }
     }
 
+    /**
+     * Loads the fingerprints of the files of a local folder feed that were read during the last refresh.
+     *
+     * @return Fingerprints by file URI
+     */
+    @NonNull
+    public static Map<String, String> getLocalFileFingerprints(long feedId) {
+        PodDBAdapter adapter = PodDBAdapter.getInstance();
+        adapter.open();
+        try (Cursor cursor = adapter.getLocalFilesCursor(feedId)) {
+            Map<String, String> fingerprints = new HashMap<>(cursor.getCount());
+            while (cursor.moveToNext()) {
+                fingerprints.put(cursor.getString(0), cursor.getString(1));
+            }
+            return fingerprints;
+        } finally {
+            adapter.close();
+        }
+    }
+
     /**
      * Loads a specific Feed from the database.
      *
@@ -587,6 +671,55 @@ public final class DBReader {
         }
     }
 
+    /**
+     * Loads the items with the given podcast and episode URLs. Instead of one query per item,
+     * this runs one query for every few hundred pairs of URLs.
+     *
+     * @param urls Pairs of podcast URL and episode URL
+     * @return the items that were found, by podcast URL and episode URL
+     */
+    @NonNull
+    public static Map<Pair<String, String>, FeedItem> getFeedItemsByUrl(Collection<Pair<String, String>> urls) {
+        Log.d(TAG, "getFeedItemsByUrl() called with " + urls.size() + " urls");
+        Set<Pair<String, String>> wanted = new HashSet<>(urls);
+        List<Pair<String, String>> pairs = new ArrayList<>(wanted);
+
+        Map<Pair<String, String>, FeedItem> result = new HashMap<>();
+        PodDBAdapter adapter = PodDBAdapter.getInstance();
+        adapter.open();
+        try {
+            for (int i = 0; i < pairs.size(); i += PodDBAdapter.IN_OPERATOR_MAXIMUM) {
+                // Both URL lists of a chunk are bounded by the chunk size
+                Set<String> podcastUrls = new HashSet<>();
+                Set<String> episodeUrls = new HashSet<>();
+                for (Pair<String, String> url : pairs.subList(i,
+                        Math.min(pairs.size(), i + PodDBAdapter.IN_OPERATOR_MAXIMUM))) {
+                    podcastUrls.add(url.first);
+                    episodeUrls.add(url.second);
+                }
+                try (Cursor cursor = adapter.getFeedItemCursorByUrls(podcastUrls, episodeUrls)) {
+                    int indexMediaId = cursor.getColumnIndexOrThrow(PodDBAdapter.SELECT_KEY_MEDIA_ID);
+                    int indexFeedUrl = cursor.getColumnIndexOrThrow(PodDBAdapter.SELECT_KEY_FEED_DOWNLOAD_URL);
+                    while (cursor.moveToNext()) {
+                        FeedItem item = FeedItemCursorMapper.convert(cursor);
+                        if (cursor.isNull(indexMediaId)) {
+                            continue;
+                        }
+                        FeedMedia media = FeedMediaCursorMapper.convert(cursor);
+                        item.setMedia(media);
+                        Pair<String, String> key = new Pair<>(cursor.getString(indexFeedUrl), media.getDownload_url());
+                        if (wanted.contains(key) && !result.containsKey(key)) {
+                            result.put(key, item);
+                        }
+                    }
+                }
+            }
+        } finally {
+            adapter.close();
+        }
+        return result;
+    }
+
     /**
      * Returns credentials based on image URL
      *
@@ -697,6 +830,36 @@ public final class DBReader {
         }
     }
 
+    /**
+     * Loads the chapters that were cached after reading them from the media file of a FeedMedia.
+     *
+     * @param fingerprint Describes the current media file
+     * @return The cached chapters (an empty list if the media file does not contain any), or null if
+     *         nothing is cached for this fingerprint and the media file needs to be read
+     */
+    @Nullable
+    public static List<Chapter> loadChaptersOfMediaFile(long mediaId, @NonNull String fingerprint) {
+        PodDBAdapter adapter = PodDBAdapter.getInstance();
+        adapter.open();
+        try {
+            if (!fingerprint.equals(adapter.getMediaChaptersFingerprint(mediaId))) {
+                return null;
+            }
+            List<Chapter> chapters = new ArrayList<>();
+            try (Cursor cursor = adapter.getMediaChaptersCursor(mediaId)) {
+                while (cursor.moveToNext()) {
+                    Chapter chapter = ChapterCursorMapper.convert(cursor);
+                    // The id belongs to the cache, saving the chapters must not overwrite SimpleChapters rows
+                    chapter.setId(0);
+                    chapters.add(chapter);
+                }
+            }
+            return chapters;
+        } finally {
+            adapter.close();
+        }
+    }
+
     /**
      * Returns the number of downloaded episodes.
      *
@@ -756,52 +919,30 @@ public final class DBReader {
         adapter.open();
 
         List<StatisticsItem> feedTime = new ArrayList<>();
-
-        List<Feed> feeds = getFeedList();
-        for (Feed feed : feeds) {
-            long feedPlayedTimeCountAll = 0;
-            long feedPlayedTime = 0;
-            long feedTotalTime = 0;
-            long episodes = 0;
-            long episodesStarted = 0;
-            long episodesStartedIncludingMarked = 0;
-            long totalDownloadSize = 0;
-            long episodesDownloadCount = 0;
-            List<FeedItem> items = getFeed(feed.getId()).getItems();
-            for (FeedItem item : items) {
-                FeedMedia media = item.getMedia();
-                if (media == null) {
-                    continue;
-                }
-
-                feedPlayedTime += media.getPlayedDuration() / 1000;
-
-                if (item.isPlayed()) {
-                    feedPlayedTimeCountAll += media.getDuration() / 1000;
-                } else {
-                    feedPlayedTimeCountAll += media.getPosition() / 1000;
-                }
-
-                if (media.getPlaybackCompletionDate() != null || media.getPlayedDuration() > 0) {
-                    episodesStarted++;
-                }
-
-                if (item.isPlayed() || media.getPosition() != 0) {
-                    episodesStartedIncludingMarked++;
-                }
-
-                feedTotalTime += media.getDuration() / 1000;
-
-                if (media.isDownloaded()) {
-                    totalDownloadSize += new File(media.getFile_url()).length();
-                    episodesDownloadCount++;
-                }
-
-                episodes++;
+        try (Cursor cursor = adapter.getPlaybackStatisticsCursor()) {
+            int indexTime = cursor.getColumnIndexOrThrow(PodDBAdapter.SELECT_KEY_STATS_TIME);
+            int indexTimePlayed = cursor.getColumnIndexOrThrow(PodDBAdapter.SELECT_KEY_STATS_TIME_PLAYED);
+            int indexTimePlayedCountAll = cursor.getColumnIndexOrThrow(
+                    PodDBAdapter.SELECT_KEY_STATS_TIME_PLAYED_COUNT_ALL);
+            int indexEpisodes = cursor.getColumnIndexOrThrow(PodDBAdapter.SELECT_KEY_STATS_EPISODES);
+            int indexEpisodesStarted = cursor.getColumnIndexOrThrow(PodDBAdapter.SELECT_KEY_STATS_EPISODES_STARTED);
+            int indexEpisodesStartedIncludingMarked = cursor.getColumnIndexOrThrow(
+                    PodDBAdapter.SELECT_KEY_STATS_EPISODES_STARTED_INCLUDING_MARKED);
+            int indexDownloadSize = cursor.getColumnIndexOrThrow(PodDBAdapter.SELECT_KEY_STATS_DOWNLOAD_SIZE);
+            int indexEpisodesDownloaded = cursor.getColumnIndexOrThrow(
+                    PodDBAdapter.SELECT_KEY_STATS_EPISODES_DOWNLOADED);
+            while (cursor.moveToNext()) {
+                Feed feed = extractFeedFromCursorRow(cursor);
+                feedTime.add(new StatisticsItem(feed,
+                        cursor.getLong(indexTime),
+                        cursor.getLong(indexTimePlayed),
+                        cursor.getLong(indexTimePlayedCountAll),
+                        cursor.getLong(indexEpisodes),
+                        cursor.getLong(indexEpisodesStarted),
+                        cursor.getLong(indexEpisodesStartedIncludingMarked),
+                        cursor.getLong(indexDownloadSize),
+                        cursor.getLong(indexEpisodesDownloaded)));
             }
-            feedTime.add(new StatisticsItem(
-                    feed, feedTotalTime, feedPlayedTime, feedPlayedTimeCountAll, episodes,
-                    episodesStarted, episodesStartedIncludingMarked, totalDownloadSize, episodesDownloadCount));
         }
 
         adapter.close();
@@ -4,7 +4,6 @@ import android.content.Context;
 import android.content.SharedPreferences;
 import android.database.Cursor;
 import android.os.Looper;
-import android.text.TextUtils;
 import android.util.Log;
 
 import androidx.annotation.VisibleForTesting;
@@ -28,7 +27,6 @@ import org.greenrobot.eventbus.EventBus;
 
 import java.util.ArrayList;
 import java.util.Collections;
-import java.util.Date;
 import java.util.Iterator;
 import java.util.List;
 import java.util.ListIterator;
@@ -333,43 +331,6 @@ public final class DBTasks {
         return null;
     }
 
-    /**
-     * Get a FeedItem by its identifying value or download_url.
-     * For de-duplicating items that are not stored yet, see also FeedHandler.dedupItems
-     */
-    private static FeedItem searchFeedItemByIdentifyingValue(Feed feed, FeedItem searchItem) {
-        for (FeedItem item : feed.getItems()) {
-            if (TextUtils.equals(item.getIdentifyingValue(), searchItem.getIdentifyingValue())) {
-                return item;
-            }
-        }
-        // Did not find item with same ID. Try to guess duplicates based on other metadata.
-        for (FeedItem item : feed.getItems()) {
-            if (item.getMedia() == null || TextUtils.isEmpty(item.getMedia().getStreamUrl())) {
-                continue;
-            }
-
-            boolean isDuplicate = false;
-            if (TextUtils.equals(item.getMedia().getStreamUrl(), searchItem.getMedia().getStreamUrl())) {
-                Log.d(TAG, "Removing duplicate episode stream url " + item.getMedia().getStreamUrl());
-                isDuplicate = true;
-            } else if (TextUtils.equals(item.getTitle(), searchItem.getTitle())
-                    && item.getPubDate().equals(searchItem.getPubDate())) {
-                Log.d(TAG, "Removing duplicate episode title + pubDate " + item.getTitle() + " " + item.getPubDate());
-                isDuplicate = true;
-            }
-            if (isDuplicate) {
-                DBWriter.addDownloadStatus(new DownloadStatus(feed,
-                        searchItem.getTitle(), DownloadError.ERROR_PARSER_EXCEPTION, false,
-                        "The podcast host changed the ID of an existing episode instead of just "
-                                + "updating the episode itself. AntennaPod attempted to repair it.", false));
-                item.setItemIdentifier(searchItem.getItemIdentifier());
-                return item;
-            }
-        }
-        return null;
-    }
-
     /**
      * Adds new Feeds to the database or updates the old versions if they already exists. If another Feed with the same
      * identifying value already exists, this method will add new FeedItems from the new Feed to the existing Feed.
@@ -426,58 +387,19 @@ public final class DBTasks {
                 savedFeed.getPreferences().updateFromOther(newFeed.getPreferences());
             }
 
-            // get the most recent date now, before we start changing the list
-            FeedItem priorMostRecent = savedFeed.getMostRecentItem();
-            Date priorMostRecentDate = null;
-            if (priorMostRecent != null) {
-                priorMostRecentDate = priorMostRecent.getPubDate();
-            }
-
-            // Look for new or updated Items
-            for (int idx = 0; idx < newFeed.getItems().size(); idx++) {
-                final FeedItem item = newFeed.getItems().get(idx);
-                FeedItem oldItem = searchFeedItemByIdentifyingValue(savedFeed, item);
-                if (oldItem == null) {
-                    // item is new
-                    item.setFeed(savedFeed);
-
-                    if (idx >= savedFeed.getItems().size()) {
-                        savedFeed.getItems().add(item);
-                    } else {
-                        savedFeed.getItems().add(idx, item);
-                    }
-
-                    // only mark the item new if it was published after or at the same time
-                    // as the most recent item
-                    // (if the most recent date is null then we can assume there are no items
-                    // and this is the first, hence 'new')
-                    // New items that do not have a pubDate set are always marked as new
-                    if (item.getPubDate() == null || priorMostRecentDate == null
-                            || priorMostRecentDate.before(item.getPubDate())
-                            || priorMostRecentDate.equals(item.getPubDate())) {
-                        Log.d(TAG, "Marking item published on " + item.getPubDate()
-                                + " new, prior most recent date = " + priorMostRecentDate);
-                        item.setNew();
-                    }
-                } else {
-                    oldItem.updateFromOther(item);
-                }
-            }
-
-            // identify items to be removed
-            if (removeUnlistedItems) {
-                Iterator<FeedItem> it = savedFeed.getItems().iterator();
-                while (it.hasNext()) {
-                    FeedItem feedItem = it.next();
-                    if (searchFeedItemByIdentifyingValue(newFeed, feedItem) == null) {
-                        unlistedItems.add(feedItem);
-                        it.remove();
-                    }
-                }
+            FeedItemMerger.Diff diff = FeedItemMerger.merge(savedFeed, newFeed, removeUnlistedItems);
+            for (FeedItem duplicate : diff.repairedDuplicates) {
+                DBWriter.addDownloadStatus(new DownloadStatus(savedFeed,
+                        duplicate.getTitle(), DownloadError.ERROR_PARSER_EXCEPTION, false,
+                        "The podcast host changed the ID of an existing episode instead of just "
+                                + "updating the episode itself. AntennaPod attempted to repair it.", false));
             }
+            unlistedItems.addAll(diff.removed);
 
             // update attributes
             savedFeed.setLastUpdate(newFeed.getLastUpdate());
+            savedFeed.setEtag(newFeed.getEtag());
+            savedFeed.setContentDigest(newFeed.getContentDigest());
             savedFeed.setType(newFeed.getType());
             savedFeed.setLastUpdateFailed(false);
 
@@ -6,6 +6,8 @@ import android.database.sqlite.SQLiteDatabase;
 import android.media.MediaMetadataRetriever;
 import android.util.Log;
 
+import java.io.File;
+
 import de.danoeh.antennapod.model.feed.FeedItem;
 
 import static de.danoeh.antennapod.model.feed.FeedPreferences.SPEED_USE_GLOBAL;
@@ -322,6 +324,57 @@ class DBUpgrader {
             db.execSQL("ALTER TABLE " + PodDBAdapter.TABLE_NAME_FEEDS
                     + " ADD COLUMN " + PodDBAdapter.KEY_FEED_TAGS + " TEXT;");
         }
+        if (oldVersion < 2040000) {
+            PodDBAdapter.createSearchIndex(db);
+        }
+        if (oldVersion < 2040001) {
+            // Statistics read the download size from the database instead of the file system
+            Cursor cursor = db.query(PodDBAdapter.TABLE_NAME_FEED_MEDIA,
+                    new String[]{PodDBAdapter.KEY_ID, PodDBAdapter.KEY_FILE_URL},
+                    PodDBAdapter.KEY_DOWNLOADED + " > 0", null, null, null, null);
+            while (cursor.moveToNext()) {
+                String fileUrl = cursor.getString(1);
+                long size = fileUrl != null ? new File(fileUrl).length() : 0;
+                if (size <= 0) {
+                    continue; // Local feeds store content URIs, their size is already known
+                }
+                ContentValues values = new ContentValues();
+                values.put(PodDBAdapter.KEY_SIZE, size);
+                db.update(PodDBAdapter.TABLE_NAME_FEED_MEDIA, values, PodDBAdapter.KEY_ID + " = ?",
+                        new String[]{String.valueOf(cursor.getLong(0))});
+            }
+            cursor.close();
+        }
+        if (oldVersion < 2040002) {
+            db.execSQL("ALTER TABLE " + PodDBAdapter.TABLE_NAME_FEEDS
+                    + " ADD COLUMN " + PodDBAdapter.KEY_ETAG + " TEXT;");
+            db.execSQL("ALTER TABLE " + PodDBAdapter.TABLE_NAME_FEEDS
+                    + " ADD COLUMN " + PodDBAdapter.KEY_CONTENT_DIGEST + " TEXT;");
+        }
+        if (oldVersion < 2040003) {
+            db.execSQL(PodDBAdapter.CREATE_TABLE_SYNC_OUTBOX);
+            db.execSQL(PodDBAdapter.CREATE_INDEX_SYNC_OUTBOX_SYNC_KEY);
+        }
+        if (oldVersion < 2040004) {
+            db.execSQL("ALTER TABLE " + PodDBAdapter.TABLE_NAME_FEED_MEDIA
+                    + " ADD COLUMN " + PodDBAdapter.KEY_CHAPTERS_FINGERPRINT + " TEXT;");
+            db.execSQL(PodDBAdapter.CREATE_TABLE_MEDIA_CHAPTERS);
+            db.execSQL(PodDBAdapter.CREATE_INDEX_MEDIA_CHAPTERS_MEDIA);
+        }
+        if (oldVersion < 2040005) {
+            db.execSQL(PodDBAdapter.CREATE_TABLE_LOCAL_FILES);
+            db.execSQL(PodDBAdapter.CREATE_INDEX_LOCAL_FILES_FEED);
+        }
+        if (oldVersion < 2040006) {
+            // The index on feed and state also covers lookups by feed
+            db.execSQL("DROP INDEX IF EXISTS " + PodDBAdapter.TABLE_NAME_FEED_ITEMS + "_" + PodDBAdapter.KEY_FEED);
+            db.execSQL(PodDBAdapter.CREATE_INDEX_FEEDITEMS_FEED_READ);
+            db.execSQL(PodDBAdapter.CREATE_INDEX_FEEDS_DOWNLOAD_URL);
+            db.execSQL(PodDBAdapter.CREATE_INDEX_FEEDMEDIA_DOWNLOAD_URL);
+            db.execSQL(PodDBAdapter.CREATE_INDEX_FEEDMEDIA_DOWNLOADED);
+            db.execSQL(PodDBAdapter.CREATE_INDEX_FEEDMEDIA_PLAYBACK_COMPLETION_DATE);
+            db.execSQL(PodDBAdapter.CREATE_INDEX_FAVORITES_FEEDITEM);
+        }
     }
 
 }
@@ -0,0 +1,201 @@
+package de.danoeh.antennapod.core.storage;
+
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import org.greenrobot.eventbus.EventBus;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import de.danoeh.antennapod.core.event.FeedItemEvent;
+import de.danoeh.antennapod.core.event.UnreadItemsUpdateEvent;
+import de.danoeh.antennapod.model.feed.FeedItem;
+
+/**
+ * Runs the database writes of {@link DBWriter} on a single thread. Small writes that are enqueued
+ * while the previous task is still running are collected in a batch. A batch is written in a single
+ * transaction, keeps only the last write to each row and posts its events once.
+ * Tasks that are submitted normally close the current batch, so the order of the writes is kept.
+ */
+final class DBWriteQueue {
+    private static final String TAG = "DBWriteQueue";
+
+    private final ExecutorService executor;
+    private final AtomicInteger queueDepth = new AtomicInteger();
+    private Batch openBatch;
+    private volatile int lastBatchSize = 0;
+    private volatile int largestBatchSize = 0;
+
+    DBWriteQueue() {
+        executor = Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r);
+            t.setName("DatabaseExecutor");
+            t.setPriority(Thread.MIN_PRIORITY);
+            return t;
+        });
+    }
+
+    /**
+     * Runs the task after all tasks and batches that were submitted before.
+     */
+    synchronized Future<?> submit(@NonNull Runnable task) {
+        openBatch = null;
+        queueDepth.incrementAndGet();
+        return executor.submit(() -> {
+            try {
+                task.run();
+            } finally {
+                queueDepth.decrementAndGet();
+            }
+        });
+    }
+
+    /**
+     * Adds the write to the batch that is waiting to be written, or starts a new batch.
+     *
+     * @return a future that completes when the batch was written
+     */
+    synchronized Future<?> enqueue(@NonNull Write write) {
+        if (openBatch == null) {
+            openBatch = new Batch();
+            queueDepth.incrementAndGet();
+            executor.execute(openBatch.task);
+        }
+        openBatch.add(write);
+        return openBatch.task;
+    }
+
+    private synchronized List<Write> close(Batch batch) {
+        if (openBatch == batch) {
+            openBatch = null;
+        }
+        return new ArrayList<>(batch.writes.values());
+    }
+
+    /**
+     * Number of submitted tasks and batches that are not finished yet.
+     */
+    int getQueueDepth() {
+        return queueDepth.get();
+    }
+
+    /**
+     * Number of writes in the batch that was written last.
+     */
+    int getLastBatchSize() {
+        return lastBatchSize;
+    }
+
+    int getLargestBatchSize() {
+        return largestBatchSize;
+    }
+
+    void awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        executor.awaitTermination(timeout, unit);
+    }
+
+    private class Batch {
+        private final LinkedHashMap<String, Write> writes = new LinkedHashMap<>();
+        private final FutureTask<Void> task = new FutureTask<>(this::run, null);
+
+        /**
+         * Replaces an earlier write of the same key. The write is moved to the end,
+         * so that it still overwrites the writes that were enqueued in between.
+         */
+        void add(Write write) {
+            Write previous = writes.remove(write.key);
+            if (previous != null) {
+                write.unreadItemsChanged |= previous.unreadItemsChanged;
+            }
+            writes.put(write.key, write);
+        }
+
+        private void run() {
+            try {
+                List<Write> batch = close(this);
+                PodDBAdapter adapter = PodDBAdapter.getInstance();
+                adapter.open();
+                try {
+                    adapter.runInTransaction(() -> {
+                        for (Write write : batch) {
+                            write.action.run(adapter);
+                        }
+                    });
+                } finally {
+                    adapter.close();
+                }
+
+                lastBatchSize = batch.size();
+                largestBatchSize = Math.max(largestBatchSize, batch.size());
+                Log.d(TAG, "Wrote batch of " + batch.size() + " writes");
+                postEvents(batch);
+            } finally {
+                queueDepth.decrementAndGet();
+            }
+        }
+
+        private void postEvents(List<Write> batch) {
+            boolean unreadItemsChanged = false;
+            List<FeedItem> updatedItems = new ArrayList<>();
+            for (Write write : batch) {
+                unreadItemsChanged |= write.unreadItemsChanged;
+                if (write.updatedItem != null) {
+                    updatedItems.add(write.updatedItem);
+                }
+            }
+            if (!updatedItems.isEmpty()) {
+                EventBus.getDefault().post(FeedItemEvent.updated(updatedItems));
+            }
+            if (unreadItemsChanged) {
+                EventBus.getDefault().post(new UnreadItemsUpdateEvent());
+            }
+        }
+    }
+
+    interface Action {
+        void run(PodDBAdapter adapter);
+    }
+
+    /**
+     * A write that can be combined with other writes. Writes with the same key must write the
+     * same columns of the same row, so that only the last one of them needs to be executed.
+     */
+    static class Write {
+        private final String key;
+        private final Action action;
+        private boolean unreadItemsChanged = false;
+        @Nullable
+        private FeedItem updatedItem;
+
+        Write(@NonNull String key, @NonNull Action action) {
+            this.key = key;
+            this.action = action;
+        }
+
+        /**
+         * Posts an {@link UnreadItemsUpdateEvent} after the batch was written.
+         */
+        Write notifyUnreadItemsChanged() {
+            unreadItemsChanged = true;
+            return this;
+        }
+
+        /**
+         * Includes the item in the {@link FeedItemEvent} of the batch.
+         */
+        Write notifyItemUpdated(@NonNull FeedItem item) {
+            updatedItem = item;
+            return this;
+        }
+    }
+}
@@ -17,9 +17,8 @@ import java.util.Collections;
 import java.util.Date;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
 import java.util.Set;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 
@@ -32,6 +31,7 @@ import de.danoeh.antennapod.core.event.MessageEvent;
 import de.danoeh.antennapod.core.event.PlaybackHistoryEvent;
 import de.danoeh.antennapod.core.event.QueueEvent;
 import de.danoeh.antennapod.core.event.UnreadItemsUpdateEvent;
+import de.danoeh.antennapod.model.feed.Chapter;
 import de.danoeh.antennapod.model.feed.Feed;
 import de.danoeh.antennapod.core.feed.FeedEvent;
 import de.danoeh.antennapod.model.feed.FeedItem;
@@ -43,6 +43,7 @@ import de.danoeh.antennapod.core.preferences.UserPreferences;
 import de.danoeh.antennapod.core.service.download.DownloadStatus;
 import de.danoeh.antennapod.core.service.playback.PlaybackService;
 import de.danoeh.antennapod.core.util.FeedItemPermutors;
+import de.danoeh.antennapod.core.util.FeedItemUtil;
 import de.danoeh.antennapod.core.util.IntentUtils;
 import de.danoeh.antennapod.core.util.LongList;
 import de.danoeh.antennapod.core.util.Permutor;
@@ -52,7 +53,8 @@ import de.danoeh.antennapod.core.util.playback.PlayableUtils;
 
 /**
  * Provides methods for writing data to AntennaPod's database.
- * In general, DBWriter-methods will be executed on an internal ExecutorService.
+ * In general, DBWriter-methods will be executed on an internal ExecutorService. Frequent small writes
+ * (played state, playback position, single items) are combined into batches, see {@link DBWriteQueue}.
  * Some methods return a Future-object which the caller can use for waiting for the method's completion. The returned Future's
  * will NOT contain any results.
  */
@@ -60,18 +62,27 @@ public class DBWriter {
 
     private static final String TAG = "DBWriter";
 
-    private static final ExecutorService dbExec;
+    private static final DBWriteQueue dbExec = new DBWriteQueue();
 
-    static {
-        dbExec = Executors.newSingleThreadExecutor(r -> {
-            Thread t = new Thread(r);
-            t.setName("DatabaseExecutor");
-            t.setPriority(Thread.MIN_PRIORITY);
-            return t;
-        });
+    private DBWriter() {
     }
 
-    private DBWriter() {
+    /**
+     * Number of write tasks that are waiting or running.
+     */
+    public static int getWriteQueueDepth() {
+        return dbExec.getQueueDepth();
+    }
+
+    /**
+     * Number of writes that were combined into the last write batch.
+     */
+    public static int getLastWriteBatchSize() {
+        return dbExec.getLastBatchSize();
+    }
+
+    public static int getLargestWriteBatchSize() {
+        return dbExec.getLargestBatchSize();
     }
 
     /**
@@ -213,7 +224,7 @@ public class DBWriter {
         PodDBAdapter adapter = PodDBAdapter.getInstance();
         adapter.open();
         if (!removedFromQueue.isEmpty()) {
-            adapter.setQueue(queue);
+            adapter.removeQueueItems(FeedItemUtil.getIds(removedFromQueue));
         }
         adapter.removeFeedItems(items);
         adapter.close();
@@ -318,7 +329,7 @@ public class DBWriter {
                     item = DBReader.getFeedItem(itemId);
                     if (item != null) {
                         queue.add(index, item);
-                        adapter.setQueue(queue);
+                        adapter.setQueuePositions(queue, index, 1);
                         item.addTag(FeedItem.TAG_QUEUE);
                         EventBus.getDefault().post(QueueEvent.added(item, index));
                         EventBus.getDefault().post(FeedItemEvent.updated(item));
@@ -392,6 +403,7 @@ public class DBWriter {
                     new ItemEnqueuePositionCalculator(UserPreferences.getEnqueueLocation());
             Playable currentlyPlaying = PlayableUtils.createInstanceFromPreferences(context);
             int insertPosition = positionCalculator.calcPosition(queue, currentlyPlaying);
+            final int firstInsertPosition = insertPosition;
             for (long itemId : itemIds) {
                 if (!itemListContains(queue, itemId)) {
                     final FeedItem item = DBReader.getFeedItem(itemId);
@@ -410,8 +422,11 @@ public class DBWriter {
                 }
             }
             if (queueModified) {
-                applySortOrder(queue, events);
-                adapter.setQueue(queue);
+                if (applySortOrder(queue, events)) {
+                    adapter.setQueue(queue);
+                } else {
+                    adapter.setQueuePositions(queue, firstInsertPosition, insertPosition - firstInsertPosition);
+                }
                 for (QueueEvent event : events) {
                     EventBus.getDefault().post(event);
                 }
@@ -433,18 +448,19 @@ public class DBWriter {
      *
      * @param queue  The queue to be sorted.
      * @param events Replaces the events by a single SORT event if the list has to be sorted automatically.
+     * @return true if the queue was sorted
      */
-    private static void applySortOrder(List<FeedItem> queue, List<QueueEvent> events) {
+    private static boolean applySortOrder(List<FeedItem> queue, List<QueueEvent> events) {
         if (!UserPreferences.isQueueKeepSorted()) {
             // queue is not in keep sorted mode, there's nothing to do
-            return;
+            return false;
         }
 
         // Sort queue by configured sort order
         SortOrder sortOrder = UserPreferences.getQueueKeepSortedOrder();
         if (sortOrder == SortOrder.RANDOM) {
             // do not shuffle the list on every change
-            return;
+            return false;
         }
         Permutor<FeedItem> permutor = FeedItemPermutors.getPermutor(sortOrder);
         permutor.reorder(queue);
@@ -452,6 +468,7 @@ public class DBWriter {
         // Replace ADDED events by a single SORTED event
         events.clear();
         events.add(QueueEvent.sorted(queue));
+        return true;
     }
 
     /**
@@ -499,6 +516,7 @@ public class DBWriter {
             boolean queueModified = false;
             List<QueueEvent> events = new ArrayList<>();
             List<FeedItem> updatedItems = new ArrayList<>();
+            LongList removedIds = new LongList();
             for (long itemId : itemIds) {
                 int position = indexInItemList(queue, itemId);
                 if (position >= 0) {
@@ -509,6 +527,7 @@ public class DBWriter {
                         continue;
                     }
                     queue.remove(position);
+                    removedIds.add(itemId);
                     item.removeTag(FeedItem.TAG_QUEUE);
                     events.add(QueueEvent.removed(item));
                     updatedItems.add(item);
@@ -518,7 +537,7 @@ public class DBWriter {
                 }
             }
             if (queueModified) {
-                adapter.setQueue(queue);
+                adapter.removeQueueItems(removedIds.toArray());
                 for (QueueEvent event : events) {
                     EventBus.getDefault().post(event);
                 }
@@ -639,7 +658,7 @@ public class DBWriter {
                 final FeedItem item = queue.remove(from);
                 queue.add(to, item);
 
-                adapter.setQueue(queue);
+                adapter.setQueuePositions(queue, to, 1);
                 if (broadcastUpdate) {
                     EventBus.getDefault().post(QueueEvent.moved(item, to));
                 }
@@ -672,15 +691,18 @@ public class DBWriter {
      */
     public static Future<?> markItemPlayed(final int played, final boolean broadcastUpdate,
                                            final long... itemIds) {
-        return dbExec.submit(() -> {
-            final PodDBAdapter adapter = PodDBAdapter.getInstance();
-            adapter.open();
-            adapter.setFeedItemRead(played, itemIds);
-            adapter.close();
+        if (itemIds.length == 0) {
+            return dbExec.submit(() -> { });
+        }
+        Future<?> future = null;
+        for (long itemId : itemIds) {
+            DBWriteQueue.Write write = itemReadWrite(itemId, played);
             if (broadcastUpdate) {
-                EventBus.getDefault().post(new UnreadItemsUpdateEvent());
+                write.notifyUnreadItemsChanged();
             }
-        });
+            future = dbExec.enqueue(write);
+        }
+        return future;
     }
 
 
@@ -703,15 +725,15 @@ public class DBWriter {
                                             final int played,
                                             final long mediaId,
                                             final boolean resetMediaPosition) {
-        return dbExec.submit(() -> {
-            final PodDBAdapter adapter = PodDBAdapter.getInstance();
-            adapter.open();
-            adapter.setFeedItemRead(played, itemId, mediaId,
-                    resetMediaPosition);
-            adapter.close();
+        if (resetMediaPosition) {
+            dbExec.enqueue(new DBWriteQueue.Write("position:" + mediaId,
+                    adapter -> adapter.setFeedMediaPosition(mediaId, 0)));
+        }
+        return dbExec.enqueue(itemReadWrite(itemId, played).notifyUnreadItemsChanged());
+    }
 
-            EventBus.getDefault().post(new UnreadItemsUpdateEvent());
-        });
+    private static DBWriteQueue.Write itemReadWrite(long itemId, int played) {
+        return new DBWriteQueue.Write("read:" + itemId, adapter -> adapter.setFeedItemRead(played, itemId));
     }
 
     /**
@@ -824,18 +846,34 @@ public class DBWriter {
         });
     }
 
+    /**
+     * Caches the chapters that were read from the media file of a FeedMedia object.
+     *
+     * @param fingerprint Describes the media file that the chapters were read from
+     * @param chapters    The chapters, or an empty list if the media file does not contain any
+     */
+    public static Future<?> setChaptersOfMediaFile(final long mediaId, @NonNull final String fingerprint,
+                                                   @NonNull final List<Chapter> chapters) {
+        return dbExec.enqueue(new DBWriteQueue.Write("mediaChapters:" + mediaId,
+                adapter -> adapter.setMediaChapters(mediaId, fingerprint, chapters)));
+    }
+
     /**
      * Saves the 'position', 'duration' and 'last played time' attributes of a FeedMedia object
      *
      * @param media The FeedMedia object.
      */
     public static Future<?> setFeedMediaPlaybackInformation(final FeedMedia media) {
-        return dbExec.submit(() -> {
-            PodDBAdapter adapter = PodDBAdapter.getInstance();
-            adapter.open();
-            adapter.setFeedMediaPlaybackInformation(media);
-            adapter.close();
-        });
+        if (media.getId() == 0) {
+            return dbExec.submit(() -> {
+                PodDBAdapter adapter = PodDBAdapter.getInstance();
+                adapter.open();
+                adapter.setFeedMediaPlaybackInformation(media);
+                adapter.close();
+            });
+        }
+        return dbExec.enqueue(new DBWriteQueue.Write("playback:" + media.getId(),
+                adapter -> adapter.setFeedMediaPlaybackInformation(media)));
     }
 
     /**
@@ -845,13 +883,17 @@ public class DBWriter {
      * @param item The FeedItem object.
      */
     public static Future<?> setFeedItem(final FeedItem item) {
-        return dbExec.submit(() -> {
-            PodDBAdapter adapter = PodDBAdapter.getInstance();
-            adapter.open();
-            adapter.setSingleFeedItem(item);
-            adapter.close();
-            EventBus.getDefault().post(FeedItemEvent.updated(item));
-        });
+        if (item.getId() == 0) {
+            return dbExec.submit(() -> {
+                PodDBAdapter adapter = PodDBAdapter.getInstance();
+                adapter.open();
+                adapter.setSingleFeedItem(item);
+                adapter.close();
+                EventBus.getDefault().post(FeedItemEvent.updated(item));
+            });
+        }
+        return dbExec.enqueue(new DBWriteQueue.Write("item:" + item.getId(),
+                adapter -> adapter.setSingleFeedItem(item)).notifyItemUpdated(item));
     }
 
     /**
@@ -912,6 +954,30 @@ public class DBWriter {
         });
     }
 
+    /**
+     * Stores the fingerprints of the files of a local folder feed.
+     *
+     * @param fingerprints Fingerprints by file URI
+     */
+    public static Future<?> setLocalFileFingerprints(final long feedId,
+                                                     @NonNull final Map<String, String> fingerprints) {
+        return dbExec.enqueue(new DBWriteQueue.Write("localFiles:" + feedId,
+                adapter -> adapter.setLocalFiles(feedId, fingerprints)));
+    }
+
+    /**
+     * Records a refresh that downloaded the same feed document as the previous one.
+     */
+    public static Future<?> setFeedUnchanged(final long feedId, final String lastModified, final String etag) {
+        return dbExec.submit(() -> {
+            PodDBAdapter adapter = PodDBAdapter.getInstance();
+            adapter.open();
+            adapter.setFeedUnchanged(feedId, lastModified, etag);
+            adapter.close();
+            EventBus.getDefault().post(new FeedListUpdateEvent(feedId));
+        });
+    }
+
     public static Future<?> setFeedCustomTitle(Feed feed) {
         return dbExec.submit(() -> {
             PodDBAdapter adapter = PodDBAdapter.getInstance();
@@ -16,7 +16,11 @@ import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
 import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
 
 public class DatabaseExporter {
     private static final String TAG = "DatabaseExporter";
@@ -76,6 +80,27 @@ public class DatabaseExporter {
         }
     }
 
+    /**
+     * Writes the report of the {@link QueryProfiler} to the given document.
+     */
+    public static void exportQueryReportToDocument(Uri uri, Context context) throws IOException {
+        try (OutputStream outputStream = context.getContentResolver().openOutputStream(uri, "w")) {
+            if (outputStream == null) {
+                throw new IOException("Unable to open " + uri);
+            }
+            exportQueryReportToStream(outputStream);
+        } catch (IOException e) {
+            Log.e(TAG, Log.getStackTraceString(e));
+            throw e;
+        }
+    }
+
+    public static void exportQueryReportToStream(OutputStream outputStream) throws IOException {
+        Writer writer = new OutputStreamWriter(outputStream, Charset.forName("UTF-8"));
+        QueryProfiler.writeReport(writer);
+        writer.flush();
+    }
+
     public static void importBackup(Uri inputUri, Context context) throws IOException {
         InputStream inputStream = null;
         try {
@@ -57,6 +57,11 @@ public class DownloadRequester implements DownloadStateProvider {
      */
     public static final String REQUEST_ARG_LOAD_ALL_PAGES = "loadAllPages";
 
+    /**
+     * Digest of the feed document that was parsed the last time. The download is not parsed again if it is unchanged.
+     */
+    public static final String REQUEST_ARG_CONTENT_DIGEST = "contentDigest";
+
     private static DownloadRequester downloader;
 
     private final Map<String, DownloadRequest> downloads;
@@ -212,16 +217,23 @@ public class DownloadRequester implements DownloadStateProvider {
             }
             String username = (feed.getPreferences() != null) ? feed.getPreferences().getUsername() : null;
             String password = (feed.getPreferences() != null) ? feed.getPreferences().getPassword() : null;
-            String lastModified = feed.isPaged() || force ? null : feed.getLastUpdate();
+            boolean conditional = !feed.isPaged() && !force;
+            String lastModified = conditional ? feed.getLastUpdate() : null;
 
             Bundle args = new Bundle();
             args.putInt(REQUEST_ARG_PAGE_NR, feed.getPageNr());
             args.putBoolean(REQUEST_ARG_LOAD_ALL_PAGES, loadAllPages);
+            if (conditional) {
+                args.putString(REQUEST_ARG_CONTENT_DIGEST, feed.getContentDigest());
+            }
 
             DownloadRequest request = createRequest(feed, null, new File(getFeedfilePath(), getFeedfileName(feed)),
                     true, username, password, lastModified, true, args, initiatedByUser
             );
             if (request != null) {
+                if (conditional) {
+                    request.setEtag(feed.getEtag());
+                }
                 requests.add(request);
             }
         }
@@ -0,0 +1,346 @@
+package de.danoeh.antennapod.core.storage;
+
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
+import android.util.Log;
+import android.util.SparseArray;
+
+import java.io.Closeable;
+import java.util.Date;
+
+import de.danoeh.antennapod.model.feed.FeedFile;
+import de.danoeh.antennapod.model.feed.FeedItem;
+import de.danoeh.antennapod.model.feed.FeedMedia;
+
+import static de.danoeh.antennapod.core.storage.PodDBAdapter.KEY_AUTO_DOWNLOAD;
+import static de.danoeh.antennapod.core.storage.PodDBAdapter.KEY_DESCRIPTION;
+import static de.danoeh.antennapod.core.storage.PodDBAdapter.KEY_DOWNLOADED;
+import static de.danoeh.antennapod.core.storage.PodDBAdapter.KEY_DOWNLOAD_URL;
+import static de.danoeh.antennapod.core.storage.PodDBAdapter.KEY_DURATION;
+import static de.danoeh.antennapod.core.storage.PodDBAdapter.KEY_FEED;
+import static de.danoeh.antennapod.core.storage.PodDBAdapter.KEY_FEEDITEM;
+import static de.danoeh.antennapod.core.storage.PodDBAdapter.KEY_FILE_URL;
+import static de.danoeh.antennapod.core.storage.PodDBAdapter.KEY_HAS_CHAPTERS;
+import static de.danoeh.antennapod.core.storage.PodDBAdapter.KEY_HAS_EMBEDDED_PICTURE;
+import static de.danoeh.antennapod.core.storage.PodDBAdapter.KEY_ID;
+import static de.danoeh.antennapod.core.storage.PodDBAdapter.KEY_IMAGE_URL;
+import static de.danoeh.antennapod.core.storage.PodDBAdapter.KEY_ITEM_IDENTIFIER;
+import static de.danoeh.antennapod.core.storage.PodDBAdapter.KEY_LAST_PLAYED_TIME;
+import static de.danoeh.antennapod.core.storage.PodDBAdapter.KEY_LINK;
+import static de.danoeh.antennapod.core.storage.PodDBAdapter.KEY_MIME_TYPE;
+import static de.danoeh.antennapod.core.storage.PodDBAdapter.KEY_PAYMENT_LINK;
+import static de.danoeh.antennapod.core.storage.PodDBAdapter.KEY_PLAYBACK_COMPLETION_DATE;
+import static de.danoeh.antennapod.core.storage.PodDBAdapter.KEY_POSITION;
+import static de.danoeh.antennapod.core.storage.PodDBAdapter.KEY_PUBDATE;
+import static de.danoeh.antennapod.core.storage.PodDBAdapter.KEY_READ;
+import static de.danoeh.antennapod.core.storage.PodDBAdapter.KEY_SIZE;
+import static de.danoeh.antennapod.core.storage.PodDBAdapter.KEY_TITLE;
+import static de.danoeh.antennapod.core.storage.PodDBAdapter.TABLE_NAME_FEED_ITEMS;
+import static de.danoeh.antennapod.core.storage.PodDBAdapter.TABLE_NAME_FEED_MEDIA;
+
+/**
+ * Writes feed items and their media with compiled statements. New rows are inserted,
+ * existing rows only get the columns updated that were changed since they were loaded.
+ * Must be used within a transaction and closed afterwards.
+ */
+class FeedItemChangeWriter implements Closeable {
+    private static final String TAG = "FeedItemChangeWriter";
+
+    /**
+     * Columns that are updated if the field is dirty. The description is written separately.
+     */
+    private static final int[] ITEM_FIELDS = {
+            FeedItem.FIELD_TITLE, FeedItem.FIELD_LINK, FeedItem.FIELD_PUB_DATE, FeedItem.FIELD_PAYMENT_LINK,
+            FeedItem.FIELD_FEED, FeedItem.FIELD_STATE, FeedItem.FIELD_CHAPTERS, FeedItem.FIELD_ITEM_IDENTIFIER,
+            FeedItem.FIELD_AUTO_DOWNLOAD, FeedItem.FIELD_IMAGE_URL
+    };
+    private static final String[] ITEM_COLUMNS = {
+            KEY_TITLE, KEY_LINK, KEY_PUBDATE, KEY_PAYMENT_LINK,
+            KEY_FEED, KEY_READ, KEY_HAS_CHAPTERS, KEY_ITEM_IDENTIFIER,
+            KEY_AUTO_DOWNLOAD, KEY_IMAGE_URL
+    };
+    private static final int[] MEDIA_FIELDS = {
+            FeedMedia.FIELD_DURATION, FeedMedia.FIELD_POSITION, FeedMedia.FIELD_SIZE, FeedMedia.FIELD_MIME_TYPE,
+            FeedFile.FIELD_DOWNLOAD_URL, FeedFile.FIELD_DOWNLOADED, FeedFile.FIELD_FILE_URL,
+            FeedMedia.FIELD_HAS_EMBEDDED_PICTURE, FeedMedia.FIELD_LAST_PLAYED_TIME,
+            FeedMedia.FIELD_PLAYBACK_COMPLETION_DATE
+    };
+    private static final String[] MEDIA_COLUMNS = {
+            KEY_DURATION, KEY_POSITION, KEY_SIZE, KEY_MIME_TYPE,
+            KEY_DOWNLOAD_URL, KEY_DOWNLOADED, KEY_FILE_URL,
+            KEY_HAS_EMBEDDED_PICTURE, KEY_LAST_PLAYED_TIME,
+            KEY_PLAYBACK_COMPLETION_DATE
+    };
+
+    private final SQLiteDatabase db;
+    private SQLiteStatement insertItem;
+    private SQLiteStatement insertMedia;
+    private SQLiteStatement updateDescription;
+    private final SparseArray<SQLiteStatement> updateItem = new SparseArray<>();
+    private final SparseArray<SQLiteStatement> updateMedia = new SparseArray<>();
+
+    FeedItemChangeWriter(SQLiteDatabase db) {
+        this.db = db;
+    }
+
+    /**
+     * Inserts or updates the item and its media. The item's feed must already be stored.
+     * Chapters are not written.
+     */
+    void write(FeedItem item) {
+        if (item.getId() == 0) {
+            if (item.getPubDate() == null) {
+                Log.e(TAG, "Newly saved item has no pubDate. Using current date as pubDate");
+                item.setPubDate(new Date());
+            }
+            insert(item);
+        } else {
+            update(item);
+        }
+        if (item.getMedia() != null) {
+            write(item.getMedia());
+        }
+    }
+
+    private void insert(FeedItem item) {
+        if (insertItem == null) {
+            insertItem = db.compileStatement(insertSql(TABLE_NAME_FEED_ITEMS, ITEM_COLUMNS, KEY_DESCRIPTION));
+        }
+        insertItem.clearBindings();
+        for (int i = 0; i < ITEM_FIELDS.length; i++) {
+            bind(insertItem, i + 1, item, ITEM_FIELDS[i]);
+        }
+        bindString(insertItem, ITEM_FIELDS.length + 1, item.getDescription());
+        item.setId(executeInsert(insertItem, "insertFeedItem"));
+    }
+
+    private void update(FeedItem item) {
+        int dirtyFields = item.getDirtyFields();
+        int mask = 0;
+        for (int field : ITEM_FIELDS) {
+            mask |= dirtyFields & field;
+        }
+        if (mask != 0) {
+            SQLiteStatement statement = updateItem.get(mask);
+            if (statement == null) {
+                statement = db.compileStatement(updateSql(TABLE_NAME_FEED_ITEMS, ITEM_COLUMNS, ITEM_FIELDS, mask));
+                updateItem.put(mask, statement);
+            }
+            statement.clearBindings();
+            int index = 1;
+            for (int field : ITEM_FIELDS) {
+                if ((mask & field) != 0) {
+                    bind(statement, index++, item, field);
+                }
+            }
+            statement.bindLong(index, item.getId());
+            executeUpdateDelete(statement, "updateFeedItem");
+        }
+        if (item.isDirty(FeedItem.FIELD_DESCRIPTION) && item.getDescription() != null) {
+            // The description is not loaded with the item, so an unchanged one is also marked as dirty.
+            // Let the database compare it to avoid rewriting the unchanged text.
+            if (updateDescription == null) {
+                updateDescription = db.compileStatement("UPDATE " + TABLE_NAME_FEED_ITEMS
+                        + " SET " + KEY_DESCRIPTION + "=?1 WHERE " + KEY_ID + "=?2 AND " + KEY_DESCRIPTION + " IS NOT ?1");
+            }
+            updateDescription.clearBindings();
+            updateDescription.bindString(1, item.getDescription());
+            updateDescription.bindLong(2, item.getId());
+            executeUpdateDelete(updateDescription, "updateFeedItemDescription");
+        }
+    }
+
+    private void write(FeedMedia media) {
+        if (media.getId() == 0) {
+            if (insertMedia == null) {
+                insertMedia = db.compileStatement(insertSql(TABLE_NAME_FEED_MEDIA, MEDIA_COLUMNS, KEY_FEEDITEM));
+            }
+            insertMedia.clearBindings();
+            for (int i = 0; i < MEDIA_FIELDS.length; i++) {
+                bind(insertMedia, i + 1, media, MEDIA_FIELDS[i]);
+            }
+            insertMedia.bindLong(MEDIA_FIELDS.length + 1, media.getItem().getId());
+            media.setId(executeInsert(insertMedia, "insertFeedMedia"));
+            return;
+        }
+
+        int dirtyFields = media.getDirtyFields();
+        int mask = 0;
+        for (int field : MEDIA_FIELDS) {
+            mask |= dirtyFields & field;
+        }
+        if (mask == 0) {
+            return;
+        }
+        SQLiteStatement statement = updateMedia.get(mask);
+        if (statement == null) {
+            statement = db.compileStatement(updateSql(TABLE_NAME_FEED_MEDIA, MEDIA_COLUMNS, MEDIA_FIELDS, mask));
+            updateMedia.put(mask, statement);
+        }
+        statement.clearBindings();
+        int index = 1;
+        for (int field : MEDIA_FIELDS) {
+            if ((mask & field) != 0) {
+                bind(statement, index++, media, field);
+            }
+        }
+        statement.bindLong(index, media.getId());
+        executeUpdateDelete(statement, "updateFeedMedia");
+    }
+
+    /**
+     * Executes the statement and records it in the {@link QueryProfiler} under the given name.
+     */
+    private long executeInsert(SQLiteStatement statement, String site) {
+        if (!QueryProfiler.isEnabled()) {
+            return statement.executeInsert();
+        }
+        long start = System.nanoTime();
+        long id = statement.executeInsert();
+        QueryProfiler.record(db, site, null, null, System.nanoTime() - start, id != -1 ? 1 : 0);
+        return id;
+    }
+
+    private void executeUpdateDelete(SQLiteStatement statement, String site) {
+        if (!QueryProfiler.isEnabled()) {
+            statement.executeUpdateDelete();
+            return;
+        }
+        long start = System.nanoTime();
+        int rows = statement.executeUpdateDelete();
+        QueryProfiler.record(db, site, null, null, System.nanoTime() - start, rows);
+    }
+
+    private static void bind(SQLiteStatement statement, int index, FeedItem item, int field) {
+        switch (field) {
+            case FeedItem.FIELD_TITLE:
+                bindString(statement, index, item.getTitle());
+                break;
+            case FeedItem.FIELD_LINK:
+                bindString(statement, index, item.getLink());
+                break;
+            case FeedItem.FIELD_PUB_DATE:
+                statement.bindLong(index, item.getPubDate().getTime());
+                break;
+            case FeedItem.FIELD_PAYMENT_LINK:
+                bindString(statement, index, item.getPaymentLink());
+                break;
+            case FeedItem.FIELD_FEED:
+                statement.bindLong(index, item.getFeed().getId());
+                break;
+            case FeedItem.FIELD_STATE:
+                statement.bindLong(index, item.getPlayState());
+                break;
+            case FeedItem.FIELD_CHAPTERS:
+                bindBoolean(statement, index, item.getChapters() != null || item.hasChapters());
+                break;
+            case FeedItem.FIELD_ITEM_IDENTIFIER:
+                bindString(statement, index, item.getItemIdentifier());
+                break;
+            case FeedItem.FIELD_AUTO_DOWNLOAD:
+                bindBoolean(statement, index, item.getAutoDownload());
+                break;
+            case FeedItem.FIELD_IMAGE_URL:
+                bindString(statement, index, item.getImageUrl());
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown field " + field);
+        }
+    }
+
+    private static void bind(SQLiteStatement statement, int index, FeedMedia media, int field) {
+        switch (field) {
+            case FeedMedia.FIELD_DURATION:
+                statement.bindLong(index, media.getDuration());
+                break;
+            case FeedMedia.FIELD_POSITION:
+                statement.bindLong(index, media.getPosition());
+                break;
+            case FeedMedia.FIELD_SIZE:
+                statement.bindLong(index, media.getSize());
+                break;
+            case FeedMedia.FIELD_MIME_TYPE:
+                bindString(statement, index, media.getMime_type());
+                break;
+            case FeedFile.FIELD_DOWNLOAD_URL:
+                bindString(statement, index, media.getDownload_url());
+                break;
+            case FeedFile.FIELD_DOWNLOADED:
+                bindBoolean(statement, index, media.isDownloaded());
+                break;
+            case FeedFile.FIELD_FILE_URL:
+                bindString(statement, index, media.getFile_url());
+                break;
+            case FeedMedia.FIELD_HAS_EMBEDDED_PICTURE:
+                bindBoolean(statement, index, media.hasEmbeddedPicture());
+                break;
+            case FeedMedia.FIELD_LAST_PLAYED_TIME:
+                statement.bindLong(index, media.getLastPlayedTime());
+                break;
+            case FeedMedia.FIELD_PLAYBACK_COMPLETION_DATE:
+                Date completionDate = media.getPlaybackCompletionDate();
+                statement.bindLong(index, completionDate != null ? completionDate.getTime() : 0);
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown field " + field);
+        }
+    }
+
+    private static void bindString(SQLiteStatement statement, int index, String value) {
+        if (value != null) {
+            statement.bindString(index, value);
+        } else {
+            statement.bindNull(index);
+        }
+    }
+
+    private static void bindBoolean(SQLiteStatement statement, int index, boolean value) {
+        statement.bindLong(index, value ? 1 : 0);
+    }
+
+    private static String insertSql(String table, String[] columns, String lastColumn) {
+        StringBuilder sql = new StringBuilder("INSERT INTO ").append(table).append(" (");
+        StringBuilder values = new StringBuilder(" VALUES (");
+        for (String column : columns) {
+            sql.append(column).append(", ");
+            values.append("?, ");
+        }
+        sql.append(lastColumn).append(")");
+        values.append("?)");
+        return sql.append(values).toString();
+    }
+
+    private static String updateSql(String table, String[] columns, int[] fields, int mask) {
+        StringBuilder sql = new StringBuilder("UPDATE ").append(table).append(" SET ");
+        boolean first = true;
+        for (int i = 0; i < fields.length; i++) {
+            if ((mask & fields[i]) != 0) {
+                if (!first) {
+                    sql.append(", ");
+                }
+                sql.append(columns[i]).append("=?");
+                first = false;
+            }
+        }
+        return sql.append(" WHERE ").append(KEY_ID).append("=?").toString();
+    }
+
+    @Override
+    public void close() {
+        closeStatement(insertItem);
+        closeStatement(insertMedia);
+        closeStatement(updateDescription);
+        for (int i = 0; i < updateItem.size(); i++) {
+            closeStatement(updateItem.valueAt(i));
+        }
+        for (int i = 0; i < updateMedia.size(); i++) {
+            closeStatement(updateMedia.valueAt(i));
+        }
+    }
+
+    private static void closeStatement(SQLiteStatement statement) {
+        if (statement != null) {
+            statement.close();
+        }
+    }
+}
@@ -0,0 +1,272 @@
+package de.danoeh.antennapod.core.storage;
+
+import android.text.TextUtils;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import de.danoeh.antennapod.model.feed.Feed;
+import de.danoeh.antennapod.model.feed.FeedItem;
+
+/**
+ * Merges the items of a freshly downloaded feed into the items of the feed that is stored in the database.
+ * The items of both feeds are indexed once by identifying value, stream url and title + pubDate,
+ * so a merge runs in linear time in the number of items.
+ *
+ * @see DBTasks#updateFeed
+ */
+class FeedItemMerger {
+    private static final String TAG = "FeedItemMerger";
+
+    private FeedItemMerger() {
+    }
+
+    /**
+     * Result of a merge. All lists contain the items of the saved feed, except for
+     * {@link #repairedDuplicates}, which contains the items whose identifying value
+     * did not match but were recognized as duplicates by their metadata.
+     */
+    static class Diff {
+        final List<FeedItem> inserted = new ArrayList<>();
+        final List<FeedItem> updated = new ArrayList<>();
+        final List<FeedItem> removed = new ArrayList<>();
+        final List<FeedItem> repairedDuplicates = new ArrayList<>();
+    }
+
+    /**
+     * Adds new items of newFeed to savedFeed and updates the existing ones.
+     * The items of newFeed are expected to be sorted by pubDate, most recent first.
+     *
+     * @param removeUnlistedItems Remove items from savedFeed that are not contained in newFeed.
+     */
+    @NonNull
+    static Diff merge(@NonNull Feed savedFeed, @NonNull Feed newFeed, boolean removeUnlistedItems) {
+        Diff diff = new Diff();
+        List<FeedItem> savedItems = savedFeed.getItems();
+
+        // get the most recent date now, before we start changing the list
+        FeedItem priorMostRecent = savedFeed.getMostRecentItem();
+        Date priorMostRecentDate = null;
+        if (priorMostRecent != null) {
+            priorMostRecentDate = priorMostRecent.getPubDate();
+        }
+
+        // Look for new or updated Items. New items are placed at their index in the new feed
+        // (or appended if the list is shorter), which is applied to the list in one pass below.
+        ItemIndex savedIndex = new ItemIndex(savedItems);
+        List<FeedItem> newItems = newFeed.getItems();
+        List<FeedItem> insertedAtIndex = new ArrayList<>();
+        List<Integer> insertionIndices = new ArrayList<>();
+        List<FeedItem> appended = new ArrayList<>();
+        for (int idx = 0; idx < newItems.size(); idx++) {
+            final FeedItem item = newItems.get(idx);
+            FeedItem oldItem = savedIndex.find(item, diff);
+            if (oldItem == null) {
+                // item is new
+                item.setFeed(savedFeed);
+
+                if (idx >= savedItems.size() + insertedAtIndex.size()) {
+                    appended.add(item);
+                } else {
+                    insertedAtIndex.add(item);
+                    insertionIndices.add(idx);
+                }
+                savedIndex.add(item);
+                diff.inserted.add(item);
+
+                // only mark the item new if it was published after or at the same time
+                // as the most recent item
+                // (if the most recent date is null then we can assume there are no items
+                // and this is the first, hence 'new')
+                // New items that do not have a pubDate set are always marked as new
+                if (item.getPubDate() == null || priorMostRecentDate == null
+                        || priorMostRecentDate.before(item.getPubDate())
+                        || priorMostRecentDate.equals(item.getPubDate())) {
+                    Log.d(TAG, "Marking item published on " + item.getPubDate()
+                            + " new, prior most recent date = " + priorMostRecentDate);
+                    item.setNew();
+                }
+            } else {
+                oldItem.updateFromOther(item);
+                // Identifying value, title or media might have changed
+                savedIndex.update(oldItem);
+                diff.updated.add(oldItem);
+            }
+        }
+
+        // An item inserted at an index stays there, because later insertions have larger indices.
+        // The remaining positions keep the saved items in their previous order.
+        List<FeedItem> mergedItems = new ArrayList<>(savedItems.size() + diff.inserted.size());
+        int nextSaved = 0;
+        int nextInserted = 0;
+        while (nextSaved < savedItems.size() || nextInserted < insertedAtIndex.size()) {
+            if (nextInserted < insertedAtIndex.size()
+                    && (insertionIndices.get(nextInserted) == mergedItems.size() || nextSaved >= savedItems.size())) {
+                mergedItems.add(insertedAtIndex.get(nextInserted++));
+            } else {
+                mergedItems.add(savedItems.get(nextSaved++));
+            }
+        }
+        mergedItems.addAll(appended);
+
+        // identify items to be removed
+        if (removeUnlistedItems) {
+            ItemIndex newIndex = new ItemIndex(newItems);
+            List<FeedItem> keptItems = new ArrayList<>(mergedItems.size());
+            for (FeedItem feedItem : mergedItems) {
+                if (newIndex.find(feedItem, diff) == null) {
+                    diff.removed.add(feedItem);
+                } else {
+                    keptItems.add(feedItem);
+                }
+            }
+            mergedItems = keptItems;
+        }
+        savedItems.clear();
+        savedItems.addAll(mergedItems);
+        return diff;
+    }
+
+    /**
+     * Hash index over a list of items. If multiple items share a key, the item that was added first wins,
+     * which matches the result of a linear search over the list.
+     */
+    private static class ItemIndex {
+        private final Map<String, Entry> byIdentifyingValue;
+        private final Map<String, Entry> byStreamUrl;
+        private final Map<String, Entry> byTitleAndPubDate;
+        private final Map<FeedItem, Entry> entries;
+        private int nextOrder = 0;
+
+        ItemIndex(List<FeedItem> items) {
+            int capacity = Math.max(16, items.size() * 2);
+            byIdentifyingValue = new HashMap<>(capacity);
+            byStreamUrl = new HashMap<>(capacity);
+            byTitleAndPubDate = new HashMap<>(capacity);
+            entries = new IdentityHashMap<>(capacity);
+            for (FeedItem item : items) {
+                add(item);
+            }
+        }
+
+        void add(FeedItem item) {
+            Entry entry = new Entry(item, nextOrder++);
+            entries.put(item, entry);
+            putKeys(entry);
+        }
+
+        /**
+         * Updates the keys of an item that is already indexed, after its metadata changed.
+         */
+        void update(FeedItem item) {
+            Entry entry = entries.get(item);
+            if (entry == null) {
+                add(item);
+                return;
+            }
+            removeKey(byIdentifyingValue, entry.identifyingValue, entry);
+            removeKey(byStreamUrl, entry.streamUrl, entry);
+            removeKey(byTitleAndPubDate, entry.titleAndPubDate, entry);
+            putKeys(entry);
+        }
+
+        private void putKeys(Entry entry) {
+            FeedItem item = entry.item;
+            entry.identifyingValue = item.getIdentifyingValue();
+            entry.streamUrl = null;
+            entry.titleAndPubDate = null;
+            putKey(byIdentifyingValue, entry.identifyingValue, entry);
+            String streamUrl = streamUrlOf(item);
+            if (TextUtils.isEmpty(streamUrl)) {
+                // Only items with media are considered for the duplicate heuristic
+                return;
+            }
+            entry.streamUrl = streamUrl;
+            entry.titleAndPubDate = titleAndPubDateOf(item);
+            putKey(byStreamUrl, entry.streamUrl, entry);
+            putKey(byTitleAndPubDate, entry.titleAndPubDate, entry);
+        }
+
+        private static void putKey(Map<String, Entry> map, @Nullable String key, Entry entry) {
+            if (key == null) {
+                return;
+            }
+            Entry existing = map.get(key);
+            if (existing == null || existing.order > entry.order) {
+                map.put(key, entry);
+            }
+        }
+
+        private static void removeKey(Map<String, Entry> map, @Nullable String key, Entry entry) {
+            if (key != null && map.get(key) == entry) {
+                map.remove(key);
+            }
+        }
+
+        /**
+         * Get an item by its identifying value or, if that fails, guess duplicates based on other metadata.
+         * For de-duplicating items that are not stored yet, see also FeedHandler.dedupItems
+         */
+        @Nullable
+        FeedItem find(FeedItem searchItem, Diff diff) {
+            Entry entry = byIdentifyingValue.get(searchItem.getIdentifyingValue());
+            if (entry != null) {
+                return entry.item;
+            }
+
+            // Did not find item with same ID. Try to guess duplicates based on other metadata.
+            String streamUrl = streamUrlOf(searchItem);
+            Entry byUrl = streamUrl != null ? byStreamUrl.get(streamUrl) : null;
+            String titleAndPubDate = titleAndPubDateOf(searchItem);
+            Entry byTitle = titleAndPubDate != null ? byTitleAndPubDate.get(titleAndPubDate) : null;
+            if (byUrl != null && (byTitle == null || byUrl.order <= byTitle.order)) {
+                Log.d(TAG, "Removing duplicate episode stream url " + streamUrl);
+                entry = byUrl;
+            } else if (byTitle != null) {
+                Log.d(TAG, "Removing duplicate episode title + pubDate " + titleAndPubDate);
+                entry = byTitle;
+            } else {
+                return null;
+            }
+            entry.item.setItemIdentifier(searchItem.getItemIdentifier());
+            update(entry.item);
+            diff.repairedDuplicates.add(searchItem);
+            return entry.item;
+        }
+
+        @Nullable
+        private static String streamUrlOf(FeedItem item) {
+            return item.getMedia() != null ? item.getMedia().getStreamUrl() : null;
+        }
+
+        @Nullable
+        private static String titleAndPubDateOf(FeedItem item) {
+            Date pubDate = item.getPubDate();
+            if (item.getTitle() == null || pubDate == null) {
+                return null;
+            }
+            return item.getTitle() + '\u0000' + pubDate.getTime();
+        }
+    }
+
+    private static class Entry {
+        final FeedItem item;
+        final int order;
+        String identifyingValue;
+        String streamUrl;
+        String titleAndPubDate;
+
+        Entry(FeedItem item, int order) {
+            this.item = item;
+            this.order = order;
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package de.danoeh.antennapod.core.storage;
+
+import androidx.annotation.NonNull;
+
+import java.util.List;
+
+import de.danoeh.antennapod.model.feed.FeedItem;
+
+/**
+ * Position in a list of episodes that is sorted by publication date in descending order.
+ * A page starts after the episode the token was created from, so loading the next page does not
+ * depend on how many pages were loaded before, unlike paging with an offset.
+ */
+public class FeedItemPageToken {
+    public static final FeedItemPageToken FIRST_PAGE = new FeedItemPageToken(Long.MAX_VALUE, Long.MAX_VALUE);
+
+    final long pubDate;
+    final long id;
+
+    private FeedItemPageToken(long pubDate, long id) {
+        this.pubDate = pubDate;
+        this.id = id;
+    }
+
+    /**
+     * Returns the token of the page that starts after the given item.
+     */
+    @NonNull
+    public static FeedItemPageToken after(@NonNull FeedItem item) {
+        long pubDate = item.getPubDate() != null ? item.getPubDate().getTime() : 0;
+        return new FeedItemPageToken(pubDate, item.getId());
+    }
+
+    /**
+     * Returns the token of the page that follows the given items,
+     * or {@link #FIRST_PAGE} if no items were loaded yet.
+     */
+    @NonNull
+    public static FeedItemPageToken after(@NonNull List<FeedItem> items) {
+        return items.isEmpty() ? FIRST_PAGE : after(items.get(items.size() - 1));
+    }
+
+    boolean isFirstPage() {
+        return this == FIRST_PAGE;
+    }
+}
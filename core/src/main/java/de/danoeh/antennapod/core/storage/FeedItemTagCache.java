@@ -0,0 +1,99 @@
+package de.danoeh.antennapod.core.storage;
+
+import android.database.Cursor;
+
+import androidx.annotation.NonNull;
+
+import de.danoeh.antennapod.core.util.LongHashSet;
+
+/**
+ * Snapshot of the IDs of the items in the queue and in the favorites. Used for tagging
+ * lists of items without querying both tables every time a list is loaded.
+ * The snapshots are dropped by {@link PodDBAdapter} whenever a write to the queue or favorites table
+ * is committed.
+ * Returned sets are shared and must not be modified.
+ */
+final class FeedItemTagCache {
+    private static FeedItemTagCache instance;
+
+    private LongHashSet queueIds;
+    private LongHashSet favoriteIds;
+    private int queueGeneration = 0;
+    private int favoritesGeneration = 0;
+
+    private FeedItemTagCache() {
+    }
+
+    static synchronized FeedItemTagCache getInstance() {
+        if (instance == null) {
+            instance = new FeedItemTagCache();
+        }
+        return instance;
+    }
+
+    @NonNull
+    LongHashSet getQueueIds(PodDBAdapter adapter) {
+        int generation;
+        synchronized (this) {
+            if (queueIds != null) {
+                return queueIds;
+            }
+            generation = queueGeneration;
+        }
+        LongHashSet ids;
+        try (Cursor cursor = adapter.getQueueIDCursor()) {
+            ids = readIds(cursor);
+        }
+        synchronized (this) {
+            // Do not store the snapshot if the queue was changed while loading it
+            if (generation == queueGeneration) {
+                queueIds = ids;
+            }
+        }
+        return ids;
+    }
+
+    @NonNull
+    LongHashSet getFavoriteIds(PodDBAdapter adapter) {
+        int generation;
+        synchronized (this) {
+            if (favoriteIds != null) {
+                return favoriteIds;
+            }
+            generation = favoritesGeneration;
+        }
+        LongHashSet ids;
+        try (Cursor cursor = adapter.getFavoriteIDCursor()) {
+            ids = readIds(cursor);
+        }
+        synchronized (this) {
+            if (generation == favoritesGeneration) {
+                favoriteIds = ids;
+            }
+        }
+        return ids;
+    }
+
+    private static LongHashSet readIds(Cursor cursor) {
+        LongHashSet ids = new LongHashSet(cursor.getCount());
+        while (cursor.moveToNext()) {
+            ids.add(cursor.getLong(0));
+        }
+        return ids;
+    }
+
+    synchronized void invalidate() {
+        invalidateQueue();
+        invalidateFavorites();
+    }
+
+    synchronized void invalidateQueue() {
+        queueIds = null;
+        queueGeneration++;
+    }
+
+    synchronized void invalidateFavorites() {
+        favoriteIds = null;
+        favoritesGeneration++;
+    }
+}
@@ -10,6 +10,7 @@ import android.database.SQLException;
 import android.database.sqlite.SQLiteDatabase;
 import android.database.sqlite.SQLiteDatabase.CursorFactory;
 import android.database.sqlite.SQLiteOpenHelper;
+import android.database.sqlite.SQLiteQueryBuilder;
 import android.text.TextUtils;
 import android.util.Log;
 
@@ -23,8 +24,12 @@ import org.apache.commons.io.FileUtils;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
@@ -53,12 +58,21 @@ public class PodDBAdapter {
 
     private static final String TAG = "PodDBAdapter";
     public static final String DATABASE_NAME = "Antennapod.db";
-    public static final int VERSION = 2030000;
+    public static final int VERSION = 2040006;
 
     /**
      * Maximum number of arguments for IN-operator.
      */
-    private static final int IN_OPERATOR_MAXIMUM = 800;
+    static final int IN_OPERATOR_MAXIMUM = 800;
+
+    /**
+     * Distance between the ordering keys (the id column) of neighbouring queue items.
+     */
+    static final long QUEUE_KEY_GAP = 1 << 16;
+
+    // Flags for invalidateTags
+    private static final int TAGS_QUEUE = 1;
+    private static final int TAGS_FAVORITES = 2;
 
     // Key-constants
     public static final String KEY_ID = "id";
@@ -118,6 +132,12 @@ public class PodDBAdapter {
     public static final String KEY_FEED_SKIP_ENDING = "feed_skip_ending";
     public static final String KEY_FEED_TAGS = "tags";
     public static final String KEY_EPISODE_NOTIFICATION = "episode_notification";
+    public static final String KEY_ETAG = "etag";
+    public static final String KEY_CONTENT_DIGEST = "content_digest";
+    public static final String KEY_SYNC_KEY = "sync_key";
+    public static final String KEY_PAYLOAD = "payload";
+    public static final String KEY_CHAPTERS_FINGERPRINT = "chapters_fingerprint";
+    public static final String KEY_FINGERPRINT = "fingerprint";
 
     // Table names
     public static final String TABLE_NAME_FEEDS = "Feeds";
@@ -128,6 +148,11 @@ public class PodDBAdapter {
     public static final String TABLE_NAME_QUEUE = "Queue";
     public static final String TABLE_NAME_SIMPLECHAPTERS = "SimpleChapters";
     public static final String TABLE_NAME_FAVORITES = "Favorites";
+    public static final String TABLE_NAME_FEED_ITEMS_SEARCH = "FeedItemsSearch";
+    public static final String TABLE_NAME_FEEDS_SEARCH = "FeedsSearch";
+    public static final String TABLE_NAME_SYNC_OUTBOX = "SyncOutbox";
+    public static final String TABLE_NAME_MEDIA_CHAPTERS = "MediaChapters";
+    public static final String TABLE_NAME_LOCAL_FILES = "LocalFiles";
 
     // SQL Statements for creating new tables
     private static final String TABLE_PRIMARY_KEY = KEY_ID
@@ -157,7 +182,9 @@ public class PodDBAdapter {
             + KEY_FEED_TAGS + " TEXT,"
             + KEY_FEED_SKIP_INTRO + " INTEGER DEFAULT 0,"
             + KEY_FEED_SKIP_ENDING + " INTEGER DEFAULT 0,"
-            + KEY_EPISODE_NOTIFICATION + " INTEGER DEFAULT 0)";
+            + KEY_EPISODE_NOTIFICATION + " INTEGER DEFAULT 0,"
+            + KEY_ETAG + " TEXT,"
+            + KEY_CONTENT_DIGEST + " TEXT)";
 
     private static final String CREATE_TABLE_FEED_ITEMS = "CREATE TABLE "
             + TABLE_NAME_FEED_ITEMS + " (" + TABLE_PRIMARY_KEY
@@ -178,7 +205,8 @@ public class PodDBAdapter {
             + KEY_FEEDITEM + " INTEGER,"
             + KEY_PLAYED_DURATION + " INTEGER,"
             + KEY_HAS_EMBEDDED_PICTURE + " INTEGER,"
-            + KEY_LAST_PLAYED_TIME + " INTEGER" + ")";
+            + KEY_LAST_PLAYED_TIME + " INTEGER,"
+            + KEY_CHAPTERS_FINGERPRINT + " TEXT" + ")";
 
     private static final String CREATE_TABLE_DOWNLOAD_LOG = "CREATE TABLE "
             + TABLE_NAME_DOWNLOAD_LOG + " (" + TABLE_PRIMARY_KEY + KEY_FEEDFILE
@@ -196,11 +224,23 @@ public class PodDBAdapter {
             + " TEXT," + KEY_START + " INTEGER," + KEY_FEEDITEM + " INTEGER,"
             + KEY_LINK + " TEXT," + KEY_IMAGE_URL + " TEXT," + KEY_CHAPTER_TYPE + " INTEGER)";
 
+    // Chapters that were read from the media file. KEY_CHAPTERS_FINGERPRINT of the FeedMedia row
+    // describes the file or URL that they were read from.
+    static final String CREATE_TABLE_MEDIA_CHAPTERS = "CREATE TABLE "
+            + TABLE_NAME_MEDIA_CHAPTERS + " (" + TABLE_PRIMARY_KEY + KEY_TITLE
+            + " TEXT," + KEY_START + " INTEGER," + KEY_MEDIA + " INTEGER,"
+            + KEY_LINK + " TEXT," + KEY_IMAGE_URL + " TEXT," + KEY_CHAPTER_TYPE + " INTEGER)";
+
     // SQL Statements for creating indexes
     static final String CREATE_INDEX_FEEDITEMS_FEED = "CREATE INDEX "
             + TABLE_NAME_FEED_ITEMS + "_" + KEY_FEED + " ON " + TABLE_NAME_FEED_ITEMS + " ("
             + KEY_FEED + ")";
 
+    // Also covers the counter queries, which filter by feed and state
+    static final String CREATE_INDEX_FEEDITEMS_FEED_READ = "CREATE INDEX "
+            + TABLE_NAME_FEED_ITEMS + "_" + KEY_FEED + "_" + KEY_READ + " ON " + TABLE_NAME_FEED_ITEMS + " ("
+            + KEY_FEED + ", " + KEY_READ + ")";
+
     static final String CREATE_INDEX_FEEDITEMS_PUBDATE = "CREATE INDEX "
             + TABLE_NAME_FEED_ITEMS + "_" + KEY_PUBDATE + " ON " + TABLE_NAME_FEED_ITEMS + " ("
             + KEY_PUBDATE + ")";
@@ -217,14 +257,67 @@ public class PodDBAdapter {
             + TABLE_NAME_FEED_MEDIA + "_" + KEY_FEEDITEM + " ON " + TABLE_NAME_FEED_MEDIA + " ("
             + KEY_FEEDITEM + ")";
 
+    // Used by the episode actions of the synchronization, which look up episodes by feed and media URL
+    static final String CREATE_INDEX_FEEDS_DOWNLOAD_URL = "CREATE INDEX "
+            + TABLE_NAME_FEEDS + "_" + KEY_DOWNLOAD_URL + " ON " + TABLE_NAME_FEEDS + " ("
+            + KEY_DOWNLOAD_URL + ")";
+
+    static final String CREATE_INDEX_FEEDMEDIA_DOWNLOAD_URL = "CREATE INDEX "
+            + TABLE_NAME_FEED_MEDIA + "_" + KEY_DOWNLOAD_URL + " ON " + TABLE_NAME_FEED_MEDIA + " ("
+            + KEY_DOWNLOAD_URL + ")";
+
+    // Plain indexes instead of partial ones, which need SQLite 3.8.0 (API 21)
+    static final String CREATE_INDEX_FEEDMEDIA_DOWNLOADED = "CREATE INDEX "
+            + TABLE_NAME_FEED_MEDIA + "_" + KEY_DOWNLOADED + " ON " + TABLE_NAME_FEED_MEDIA + " ("
+            + KEY_DOWNLOADED + ", " + KEY_FEEDITEM + ")";
+
+    static final String CREATE_INDEX_FEEDMEDIA_PLAYBACK_COMPLETION_DATE = "CREATE INDEX "
+            + TABLE_NAME_FEED_MEDIA + "_" + KEY_PLAYBACK_COMPLETION_DATE + " ON " + TABLE_NAME_FEED_MEDIA + " ("
+            + KEY_PLAYBACK_COMPLETION_DATE + ")";
+
     static final String CREATE_INDEX_SIMPLECHAPTERS_FEEDITEM = "CREATE INDEX "
             + TABLE_NAME_SIMPLECHAPTERS + "_" + KEY_FEEDITEM + " ON " + TABLE_NAME_SIMPLECHAPTERS + " ("
             + KEY_FEEDITEM + ")";
 
+    // Files of local folder feeds that were already read, so unchanged files can be skipped when refreshing
+    static final String CREATE_TABLE_LOCAL_FILES = "CREATE TABLE "
+            + TABLE_NAME_LOCAL_FILES + " (" + TABLE_PRIMARY_KEY + KEY_FEED + " INTEGER,"
+            + KEY_DOWNLOAD_URL + " TEXT," + KEY_FINGERPRINT + " TEXT)";
+
+    static final String CREATE_INDEX_LOCAL_FILES_FEED = "CREATE INDEX "
+            + TABLE_NAME_LOCAL_FILES + "_" + KEY_FEED + " ON " + TABLE_NAME_LOCAL_FILES + " ("
+            + KEY_FEED + ")";
+
+    static final String CREATE_INDEX_MEDIA_CHAPTERS_MEDIA = "CREATE INDEX "
+            + TABLE_NAME_MEDIA_CHAPTERS + "_" + KEY_MEDIA + " ON " + TABLE_NAME_MEDIA_CHAPTERS + " ("
+            + KEY_MEDIA + ")";
+
+    // Full-text search index. The FTS tables only store the index, the content is read from the
+    // FeedItems and Feeds tables. The triggers keep the index in sync with the content tables.
+    static final String CREATE_TABLE_FEED_ITEMS_SEARCH = "CREATE VIRTUAL TABLE "
+            + TABLE_NAME_FEED_ITEMS_SEARCH + " USING fts4(content=\"" + TABLE_NAME_FEED_ITEMS + "\", "
+            + KEY_TITLE + ", " + KEY_DESCRIPTION + ")";
+
+    static final String CREATE_TABLE_FEEDS_SEARCH = "CREATE VIRTUAL TABLE "
+            + TABLE_NAME_FEEDS_SEARCH + " USING fts4(content=\"" + TABLE_NAME_FEEDS + "\", "
+            + KEY_TITLE + ", " + KEY_CUSTOM_TITLE + ", " + KEY_AUTHOR + ", " + KEY_DESCRIPTION + ")";
+
     static final String CREATE_TABLE_FAVORITES = "CREATE TABLE "
             + TABLE_NAME_FAVORITES + "(" + KEY_ID + " INTEGER PRIMARY KEY,"
             + KEY_FEEDITEM + " INTEGER," + KEY_FEED + " INTEGER)";
 
+    static final String CREATE_INDEX_FAVORITES_FEEDITEM = "CREATE INDEX "
+            + TABLE_NAME_FAVORITES + "_" + KEY_FEEDITEM + " ON " + TABLE_NAME_FAVORITES + " ("
+            + KEY_FEEDITEM + ")";
+
+    static final String CREATE_TABLE_SYNC_OUTBOX = "CREATE TABLE "
+            + TABLE_NAME_SYNC_OUTBOX + " (" + TABLE_PRIMARY_KEY + KEY_TYPE + " INTEGER,"
+            + KEY_SYNC_KEY + " TEXT," + KEY_PAYLOAD + " TEXT)";
+
+    static final String CREATE_INDEX_SYNC_OUTBOX_SYNC_KEY = "CREATE INDEX "
+            + TABLE_NAME_SYNC_OUTBOX + "_" + KEY_SYNC_KEY + " ON " + TABLE_NAME_SYNC_OUTBOX + " ("
+            + KEY_SYNC_KEY + ")";
+
     /**
      * Select all columns from the feed-table
      */
@@ -261,7 +354,9 @@ public class PodDBAdapter {
             TABLE_NAME_FEEDS + "." + KEY_FEED_TAGS,
             TABLE_NAME_FEEDS + "." + KEY_FEED_SKIP_INTRO,
             TABLE_NAME_FEEDS + "." + KEY_FEED_SKIP_ENDING,
-            TABLE_NAME_FEEDS + "." + KEY_EPISODE_NOTIFICATION
+            TABLE_NAME_FEEDS + "." + KEY_EPISODE_NOTIFICATION,
+            TABLE_NAME_FEEDS + "." + KEY_ETAG,
+            TABLE_NAME_FEEDS + "." + KEY_CONTENT_DIGEST
     };
 
     /**
@@ -274,11 +369,15 @@ public class PodDBAdapter {
             TABLE_NAME_DOWNLOAD_LOG,
             TABLE_NAME_QUEUE,
             TABLE_NAME_SIMPLECHAPTERS,
-            TABLE_NAME_FAVORITES
+            TABLE_NAME_FAVORITES,
+            TABLE_NAME_SYNC_OUTBOX,
+            TABLE_NAME_MEDIA_CHAPTERS,
+            TABLE_NAME_LOCAL_FILES
     };
 
     public static final String SELECT_KEY_ITEM_ID = "item_id";
     public static final String SELECT_KEY_MEDIA_ID = "media_id";
+    public static final String SELECT_KEY_FEED_DOWNLOAD_URL = "feed_download_url";
 
     private static final String KEYS_FEED_ITEM_WITHOUT_DESCRIPTION =
             TABLE_NAME_FEED_ITEMS + "." + KEY_ID + " AS " + SELECT_KEY_ITEM_ID + ", "
@@ -317,16 +416,38 @@ public class PodDBAdapter {
                     + TABLE_NAME_FEED_ITEMS + "." + KEY_DESCRIPTION
             + " FROM " + TABLE_NAME_FEED_ITEMS
             + JOIN_FEED_ITEM_AND_MEDIA;
+    /**
+     * Sort order of episode lists. The id makes the order unique for episodes that were published at the same time.
+     */
+    private static final String ORDER_BY_PUBDATE_DESC = TABLE_NAME_FEED_ITEMS + "." + KEY_PUBDATE + " DESC, "
+            + TABLE_NAME_FEED_ITEMS + "." + KEY_ID + " DESC";
+
     private static final String SELECT_FEED_ITEMS_AND_MEDIA =
             "SELECT " + KEYS_FEED_ITEM_WITHOUT_DESCRIPTION + ", " + KEYS_FEED_MEDIA
             + " FROM " + TABLE_NAME_FEED_ITEMS
             + JOIN_FEED_ITEM_AND_MEDIA;
 
+    /**
+     * Methods that execute statements for the QueryProfiler, skipped when looking for the caller.
+     */
+    private static final Set<String> PROFILED_METHODS = new HashSet<>(Arrays.asList("callSite", "rawQuery",
+            "query", "insert", "insertWithOnConflict", "update", "delete", "execSQL"));
+
     private static Context context;
     private static PodDBAdapter instance;
 
     private final SQLiteDatabase db;
     private final PodDBHelper dbHelper;
+    /**
+     * Snapshots of {@link FeedItemTagCache} that are dropped when the transaction of the thread ends.
+     * Dropping them earlier would let concurrent readers cache the state before the commit.
+     */
+    private final ThreadLocal<Integer> pendingTagInvalidations = new ThreadLocal<Integer>() {
+        @Override
+        protected Integer initialValue() {
+            return 0;
+        }
+    };
 
     public static void init(Context context) {
         PodDBAdapter.context = context.getApplicationContext();
@@ -365,6 +486,125 @@ public class PodDBAdapter {
         // do nothing
     }
 
+    /*
+     * The following methods execute statements on the database and record them in the QueryProfiler if
+     * profiling is enabled. Queries are executed eagerly in that case, so their duration can be measured.
+     */
+
+    private Cursor rawQuery(String sql, String[] selectionArgs) {
+        if (!QueryProfiler.isEnabled()) {
+            return db.rawQuery(sql, selectionArgs);
+        }
+        long start = System.nanoTime();
+        Cursor cursor = db.rawQuery(sql, selectionArgs);
+        int rows = cursor.getCount();
+        QueryProfiler.record(db, callSite(), sql, selectionArgs, System.nanoTime() - start, rows);
+        return cursor;
+    }
+
+    private Cursor query(String table, String[] columns, String selection, String[] selectionArgs,
+                         String groupBy, String having, String orderBy) {
+        return query(table, columns, selection, selectionArgs, groupBy, having, orderBy, null);
+    }
+
+    private Cursor query(String table, String[] columns, String selection, String[] selectionArgs,
+                         String groupBy, String having, String orderBy, String limit) {
+        if (!QueryProfiler.isEnabled()) {
+            return db.query(table, columns, selection, selectionArgs, groupBy, having, orderBy, limit);
+        }
+        long start = System.nanoTime();
+        Cursor cursor = db.query(table, columns, selection, selectionArgs, groupBy, having, orderBy, limit);
+        int rows = cursor.getCount();
+        String sql = SQLiteQueryBuilder.buildQueryString(false, table, columns, selection,
+                groupBy, having, orderBy, limit);
+        QueryProfiler.record(db, callSite(), sql, selectionArgs, System.nanoTime() - start, rows);
+        return cursor;
+    }
+
+    private long insert(String table, String nullColumnHack, ContentValues values) {
+        if (!QueryProfiler.isEnabled()) {
+            return db.insert(table, nullColumnHack, values);
+        }
+        long start = System.nanoTime();
+        long id = db.insert(table, nullColumnHack, values);
+        QueryProfiler.record(db, callSite(), null, null, System.nanoTime() - start, id != -1 ? 1 : 0);
+        return id;
+    }
+
+    private long insertWithOnConflict(String table, String nullColumnHack, ContentValues values,
+                                      int conflictAlgorithm) {
+        if (!QueryProfiler.isEnabled()) {
+            return db.insertWithOnConflict(table, nullColumnHack, values, conflictAlgorithm);
+        }
+        long start = System.nanoTime();
+        long id = db.insertWithOnConflict(table, nullColumnHack, values, conflictAlgorithm);
+        QueryProfiler.record(db, callSite(), null, null, System.nanoTime() - start, id != -1 ? 1 : 0);
+        return id;
+    }
+
+    private int update(String table, ContentValues values, String whereClause, String[] whereArgs) {
+        if (!QueryProfiler.isEnabled()) {
+            return db.update(table, values, whereClause, whereArgs);
+        }
+        long start = System.nanoTime();
+        int rows = db.update(table, values, whereClause, whereArgs);
+        QueryProfiler.record(db, callSite(), getWhereQuery(table, whereClause), whereArgs,
+                System.nanoTime() - start, rows);
+        return rows;
+    }
+
+    private int delete(String table, String whereClause, String[] whereArgs) {
+        if (!QueryProfiler.isEnabled()) {
+            return db.delete(table, whereClause, whereArgs);
+        }
+        long start = System.nanoTime();
+        int rows = db.delete(table, whereClause, whereArgs);
+        QueryProfiler.record(db, callSite(), getWhereQuery(table, whereClause), whereArgs,
+                System.nanoTime() - start, rows);
+        return rows;
+    }
+
+    private void execSQL(String sql) {
+        execSQL(db, sql);
+    }
+
+    /**
+     * Profiled execSQL for the static methods that create the database.
+     */
+    private static void execSQL(SQLiteDatabase db, String sql) {
+        if (!QueryProfiler.isEnabled()) {
+            db.execSQL(sql);
+            return;
+        }
+        long start = System.nanoTime();
+        db.execSQL(sql);
+        QueryProfiler.record(db, callSite(), null, null, System.nanoTime() - start, -1);
+    }
+
+    /**
+     * Returns a query that looks up the rows an update or delete statement changes, so that its plan
+     * can be explained. Null if the statement changes all rows.
+     */
+    @Nullable
+    private static String getWhereQuery(String table, String whereClause) {
+        if (TextUtils.isEmpty(whereClause)) {
+            return null;
+        }
+        return "SELECT rowid FROM " + table + " WHERE " + whereClause;
+    }
+
+    /**
+     * Returns the name of the adapter method that called one of the methods above.
+     */
+    private static String callSite() {
+        for (StackTraceElement element : new Throwable().getStackTrace()) {
+            if (!PROFILED_METHODS.contains(element.getMethodName())) {
+                return element.getMethodName();
+            }
+        }
+        return "unknown";
+    }
+
     /**
      * <p>Resets all database connections to ensure new database connections for
      * the next test case. Call method only for unit tests.</p>
@@ -386,8 +626,9 @@ public class PodDBAdapter {
         adapter.open();
         try {
             for (String tableName : ALL_TABLES) {
-                adapter.db.delete(tableName, "1", null);
+                adapter.delete(tableName, "1", null);
             }
+            adapter.invalidateTags(TAGS_QUEUE | TAGS_FAVORITES);
             return true;
         } finally {
             adapter.close();
@@ -413,6 +654,8 @@ public class PodDBAdapter {
         values.put(KEY_DOWNLOAD_URL, feed.getDownload_url());
         values.put(KEY_DOWNLOADED, feed.isDownloaded());
         values.put(KEY_LASTUPDATE, feed.getLastUpdate());
+        values.put(KEY_ETAG, feed.getEtag());
+        values.put(KEY_CONTENT_DIGEST, feed.getContentDigest());
         values.put(KEY_TYPE, feed.getType());
         values.put(KEY_FEED_IDENTIFIER, feed.getFeedIdentifier());
 
@@ -428,10 +671,10 @@ public class PodDBAdapter {
         if (feed.getId() == 0) {
             // Create new entry
             Log.d(this.toString(), "Inserting new Feed into db");
-            feed.setId(db.insert(TABLE_NAME_FEEDS, null, values));
+            feed.setId(insert(TABLE_NAME_FEEDS, null, values));
         } else {
             Log.d(this.toString(), "Updating existing Feed in db");
-            db.update(TABLE_NAME_FEEDS, values, KEY_ID + "=?",
+            update(TABLE_NAME_FEEDS, values, KEY_ID + "=?",
                     new String[]{String.valueOf(feed.getId())});
         }
         return feed.getId();
@@ -455,7 +698,7 @@ public class PodDBAdapter {
         values.put(KEY_FEED_SKIP_INTRO, prefs.getFeedSkipIntro());
         values.put(KEY_FEED_SKIP_ENDING, prefs.getFeedSkipEnding());
         values.put(KEY_EPISODE_NOTIFICATION, prefs.getShowEpisodeNotification());
-        db.update(TABLE_NAME_FEEDS, values, KEY_ID + "=?", new String[]{String.valueOf(prefs.getFeedID())});
+        update(TABLE_NAME_FEEDS, values, KEY_ID + "=?", new String[]{String.valueOf(prefs.getFeedID())});
     }
 
     public void setFeedItemFilter(long feedId, Set<String> filterValues) {
@@ -464,13 +707,13 @@ public class PodDBAdapter {
                 "setFeedItemFilter() called with: feedId = [%d], filterValues = [%s]", feedId, valuesList));
         ContentValues values = new ContentValues();
         values.put(KEY_HIDE, valuesList);
-        db.update(TABLE_NAME_FEEDS, values, KEY_ID + "=?", new String[]{String.valueOf(feedId)});
+        update(TABLE_NAME_FEEDS, values, KEY_ID + "=?", new String[]{String.valueOf(feedId)});
     }
 
     public void setFeedItemSortOrder(long feedId, @Nullable SortOrder sortOrder) {
         ContentValues values = new ContentValues();
         values.put(KEY_SORT_ORDER, toCodeString(sortOrder));
-        db.update(TABLE_NAME_FEEDS, values, KEY_ID + "=?", new String[]{String.valueOf(feedId)});
+        update(TABLE_NAME_FEEDS, values, KEY_ID + "=?", new String[]{String.valueOf(feedId)});
     }
 
     /**
@@ -499,11 +742,12 @@ public class PodDBAdapter {
             values.put(KEY_FEEDITEM, media.getItem().getId());
         }
         if (media.getId() == 0) {
-            media.setId(db.insert(TABLE_NAME_FEED_MEDIA, null, values));
+            media.setId(insert(TABLE_NAME_FEED_MEDIA, null, values));
         } else {
-            db.update(TABLE_NAME_FEED_MEDIA, values, KEY_ID + "=?",
+            update(TABLE_NAME_FEED_MEDIA, values, KEY_ID + "=?",
                     new String[]{String.valueOf(media.getId())});
         }
+        media.clearDirtyFields();
         return media.getId();
     }
 
@@ -514,7 +758,7 @@ public class PodDBAdapter {
             values.put(KEY_DURATION, media.getDuration());
             values.put(KEY_PLAYED_DURATION, media.getPlayedDuration());
             values.put(KEY_LAST_PLAYED_TIME, media.getLastPlayedTime());
-            db.update(TABLE_NAME_FEED_MEDIA, values, KEY_ID + "=?",
+            update(TABLE_NAME_FEED_MEDIA, values, KEY_ID + "=?",
                     new String[]{String.valueOf(media.getId())});
         } else {
             Log.e(TAG, "setFeedMediaPlaybackInformation: ID of media was 0");
@@ -526,7 +770,7 @@ public class PodDBAdapter {
             ContentValues values = new ContentValues();
             values.put(KEY_PLAYBACK_COMPLETION_DATE, media.getPlaybackCompletionDate().getTime());
             values.put(KEY_PLAYED_DURATION, media.getPlayedDuration());
-            db.update(TABLE_NAME_FEED_MEDIA, values, KEY_ID + "=?",
+            update(TABLE_NAME_FEED_MEDIA, values, KEY_ID + "=?",
                     new String[]{String.valueOf(media.getId())});
         } else {
             Log.e(TAG, "setFeedMediaPlaybackCompletionDate: ID of media was 0");
@@ -538,27 +782,32 @@ public class PodDBAdapter {
             db.beginTransactionNonExclusive();
             ContentValues values = new ContentValues();
             values.put(KEY_PLAYED_DURATION, 0);
-            db.update(TABLE_NAME_FEED_MEDIA, values, null, new String[0]);
+            update(TABLE_NAME_FEED_MEDIA, values, null, new String[0]);
             db.setTransactionSuccessful();
         } catch (SQLException e) {
             Log.e(TAG, Log.getStackTraceString(e));
         } finally {
-            db.endTransaction();
+            endTransaction();
         }
     }
 
     /**
      * Insert all FeedItems of a feed and the feed object itself in a single
-     * transaction
+     * transaction. Items that were loaded from the database are only updated
+     * if they were changed since then, see {@link FeedItem#getDirtyFields()}.
      */
     public void setCompleteFeed(Feed... feeds) {
+        FeedItemChangeWriter itemWriter = new FeedItemChangeWriter(db);
         try {
             db.beginTransactionNonExclusive();
             for (Feed feed : feeds) {
                 setFeed(feed);
                 if (feed.getItems() != null) {
                     for (FeedItem item : feed.getItems()) {
-                        setFeedItem(item, false);
+                        itemWriter.write(item);
+                        if (item.getChapters() != null && item.isDirty(FeedItem.FIELD_CHAPTERS)) {
+                            setChapters(item);
+                        }
                     }
                 }
                 if (feed.getPreferences() != null) {
@@ -566,10 +815,25 @@ public class PodDBAdapter {
                 }
             }
             db.setTransactionSuccessful();
+            for (Feed feed : feeds) {
+                if (feed.getItems() != null) {
+                    for (FeedItem item : feed.getItems()) {
+                        clearDirtyFields(item);
+                    }
+                }
+            }
         } catch (SQLException e) {
             Log.e(TAG, Log.getStackTraceString(e));
         } finally {
-            db.endTransaction();
+            endTransaction();
+            itemWriter.close();
+        }
+    }
+
+    private static void clearDirtyFields(FeedItem item) {
+        item.clearDirtyFields();
+        if (item.getMedia() != null) {
+            item.getMedia().clearDirtyFields();
         }
     }
 
@@ -579,7 +843,7 @@ public class PodDBAdapter {
     public void setFeedDownloadUrl(String original, String updated) {
         ContentValues values = new ContentValues();
         values.put(KEY_DOWNLOAD_URL, updated);
-        db.update(TABLE_NAME_FEEDS, values, KEY_DOWNLOAD_URL + "=?", new String[]{original});
+        update(TABLE_NAME_FEEDS, values, KEY_DOWNLOAD_URL + "=?", new String[]{original});
     }
 
     public void setFeedItemlist(List<FeedItem> items) {
@@ -592,7 +856,7 @@ public class PodDBAdapter {
         } catch (SQLException e) {
             Log.e(TAG, Log.getStackTraceString(e));
         } finally {
-            db.endTransaction();
+            endTransaction();
         }
     }
 
@@ -605,7 +869,7 @@ public class PodDBAdapter {
         } catch (SQLException e) {
             Log.e(TAG, Log.getStackTraceString(e));
         } finally {
-            db.endTransaction();
+            endTransaction();
         }
         return result;
     }
@@ -649,9 +913,9 @@ public class PodDBAdapter {
         values.put(KEY_IMAGE_URL, item.getImageUrl());
 
         if (item.getId() == 0) {
-            item.setId(db.insert(TABLE_NAME_FEED_ITEMS, null, values));
+            item.setId(insert(TABLE_NAME_FEED_ITEMS, null, values));
         } else {
-            db.update(TABLE_NAME_FEED_ITEMS, values, KEY_ID + "=?",
+            update(TABLE_NAME_FEED_ITEMS, values, KEY_ID + "=?",
                     new String[]{String.valueOf(item.getId())});
         }
         if (item.getMedia() != null) {
@@ -660,29 +924,58 @@ public class PodDBAdapter {
         if (item.getChapters() != null) {
             setChapters(item);
         }
+        item.clearDirtyFields();
         return item.getId();
     }
 
-    public void setFeedItemRead(int played, long itemId, long mediaId,
-                                boolean resetMediaPosition) {
+    public void setFeedMediaPosition(long mediaId, int position) {
+        ContentValues values = new ContentValues();
+        values.put(KEY_POSITION, position);
+        update(TABLE_NAME_FEED_MEDIA, values, KEY_ID + "=?", new String[]{String.valueOf(mediaId)});
+    }
+
+    /**
+     * Runs the given writes in a single transaction.
+     */
+    void runInTransaction(Runnable writes) {
         try {
             db.beginTransactionNonExclusive();
-            ContentValues values = new ContentValues();
-
-            values.put(KEY_READ, played);
-            db.update(TABLE_NAME_FEED_ITEMS, values, KEY_ID + "=?", new String[]{String.valueOf(itemId)});
-
-            if (resetMediaPosition) {
-                values.clear();
-                values.put(KEY_POSITION, 0);
-                db.update(TABLE_NAME_FEED_MEDIA, values, KEY_ID + "=?", new String[]{String.valueOf(mediaId)});
-            }
-
+            writes.run();
             db.setTransactionSuccessful();
         } catch (SQLException e) {
             Log.e(TAG, Log.getStackTraceString(e));
         } finally {
-            db.endTransaction();
+            endTransaction();
+        }
+    }
+
+    private void endTransaction() {
+        db.endTransaction();
+        int tags = pendingTagInvalidations.get();
+        if (tags != 0 && !db.inTransaction()) {
+            pendingTagInvalidations.set(0);
+            invalidateTagsNow(tags);
+        }
+    }
+
+    /**
+     * Drops the cached queue or favorites IDs after a write to their table. Inside a transaction,
+     * this is delayed until the outermost transaction has ended.
+     */
+    private void invalidateTags(int tags) {
+        if (db.inTransaction()) {
+            pendingTagInvalidations.set(pendingTagInvalidations.get() | tags);
+        } else {
+            invalidateTagsNow(tags);
+        }
+    }
+
+    private static void invalidateTagsNow(int tags) {
+        if ((tags & TAGS_QUEUE) != 0) {
+            FeedItemTagCache.getInstance().invalidateQueue();
+        }
+        if ((tags & TAGS_FAVORITES) != 0) {
+            FeedItemTagCache.getInstance().invalidateFavorites();
         }
     }
 
@@ -699,13 +992,13 @@ public class PodDBAdapter {
             for (long id : itemIds) {
                 values.clear();
                 values.put(KEY_READ, read);
-                db.update(TABLE_NAME_FEED_ITEMS, values, KEY_ID + "=?", new String[]{String.valueOf(id)});
+                update(TABLE_NAME_FEED_ITEMS, values, KEY_ID + "=?", new String[]{String.valueOf(id)});
             }
             db.setTransactionSuccessful();
         } catch (SQLException e) {
             Log.e(TAG, Log.getStackTraceString(e));
         } finally {
-            db.endTransaction();
+            endTransaction();
         }
     }
 
@@ -719,9 +1012,9 @@ public class PodDBAdapter {
             values.put(KEY_IMAGE_URL, chapter.getImageUrl());
             values.put(KEY_CHAPTER_TYPE, chapter.getChapterType());
             if (chapter.getId() == 0) {
-                chapter.setId(db.insert(TABLE_NAME_SIMPLECHAPTERS, null, values));
+                chapter.setId(insert(TABLE_NAME_SIMPLECHAPTERS, null, values));
             } else {
-                db.update(TABLE_NAME_SIMPLECHAPTERS, values, KEY_ID + "=?",
+                update(TABLE_NAME_SIMPLECHAPTERS, values, KEY_ID + "=?",
                         new String[]{String.valueOf(chapter.getId())});
             }
         }
@@ -731,13 +1024,25 @@ public class PodDBAdapter {
         final String sql = "UPDATE " + TABLE_NAME_FEEDS
                 + " SET " + KEY_LAST_UPDATE_FAILED + "=" + (failed ? "1" : "0")
                 + " WHERE " + KEY_ID + "=" + feedId;
-        db.execSQL(sql);
+        execSQL(sql);
+    }
+
+    /**
+     * Stores the cache validators of a refresh that downloaded the same document
+     * as the previous one, and marks the refresh as successful.
+     */
+    public void setFeedUnchanged(long feedId, String lastModified, String etag) {
+        ContentValues values = new ContentValues();
+        values.put(KEY_LASTUPDATE, lastModified);
+        values.put(KEY_ETAG, etag);
+        values.put(KEY_LAST_UPDATE_FAILED, 0);
+        update(TABLE_NAME_FEEDS, values, KEY_ID + "=?", new String[]{String.valueOf(feedId)});
     }
 
     void setFeedCustomTitle(long feedId, String customTitle) {
         ContentValues values = new ContentValues();
         values.put(KEY_CUSTOM_TITLE, customTitle);
-        db.update(TABLE_NAME_FEEDS, values, KEY_ID + "=?", new String[]{String.valueOf(feedId)});
+        update(TABLE_NAME_FEEDS, values, KEY_ID + "=?", new String[]{String.valueOf(feedId)});
     }
 
     /**
@@ -753,9 +1058,9 @@ public class PodDBAdapter {
         values.put(KEY_REASON_DETAILED, status.getReasonDetailed());
         values.put(KEY_DOWNLOADSTATUS_TITLE, status.getTitle());
         if (status.getId() == 0) {
-            status.setId(db.insert(TABLE_NAME_DOWNLOAD_LOG, null, values));
+            status.setId(insert(TABLE_NAME_DOWNLOAD_LOG, null, values));
         } else {
-            db.update(TABLE_NAME_DOWNLOAD_LOG, values, KEY_ID + "=?",
+            update(TABLE_NAME_DOWNLOAD_LOG, values, KEY_ID + "=?",
                     new String[]{String.valueOf(status.getId())});
         }
         return status.getId();
@@ -764,7 +1069,7 @@ public class PodDBAdapter {
     public void setFeedItemAutoDownload(FeedItem feedItem, long autoDownload) {
         ContentValues values = new ContentValues();
         values.put(KEY_AUTO_DOWNLOAD, autoDownload);
-        db.update(TABLE_NAME_FEED_ITEMS, values, KEY_ID + "=?",
+        update(TABLE_NAME_FEED_ITEMS, values, KEY_ID + "=?",
                 new String[]{String.valueOf(feedItem.getId())});
     }
 
@@ -772,19 +1077,20 @@ public class PodDBAdapter {
         ContentValues values = new ContentValues();
         try {
             db.beginTransactionNonExclusive();
-            db.delete(TABLE_NAME_FAVORITES, null, null);
+            delete(TABLE_NAME_FAVORITES, null, null);
             for (int i = 0; i < favorites.size(); i++) {
                 FeedItem item = favorites.get(i);
                 values.put(KEY_ID, i);
                 values.put(KEY_FEEDITEM, item.getId());
                 values.put(KEY_FEED, item.getFeed().getId());
-                db.insertWithOnConflict(TABLE_NAME_FAVORITES, null, values, SQLiteDatabase.CONFLICT_REPLACE);
+                insertWithOnConflict(TABLE_NAME_FAVORITES, null, values, SQLiteDatabase.CONFLICT_REPLACE);
             }
             db.setTransactionSuccessful();
         } catch (SQLException e) {
             Log.e(TAG, Log.getStackTraceString(e));
         } finally {
-            db.endTransaction();
+            endTransaction();
+            invalidateTags(TAGS_FAVORITES);
         }
     }
 
@@ -800,7 +1106,8 @@ public class PodDBAdapter {
         ContentValues values = new ContentValues();
         values.put(KEY_FEEDITEM, item.getId());
         values.put(KEY_FEED, item.getFeedId());
-        db.insert(TABLE_NAME_FAVORITES, null, values);
+        insert(TABLE_NAME_FAVORITES, null, values);
+        invalidateTags(TAGS_FAVORITES);
     }
 
     public void removeFavoriteItem(FeedItem item) {
@@ -808,53 +1115,183 @@ public class PodDBAdapter {
                 TABLE_NAME_FAVORITES,
                 KEY_FEEDITEM, item.getId(),
                 KEY_FEED, item.getFeedId());
-        db.execSQL(deleteClause);
+        execSQL(deleteClause);
+        invalidateTags(TAGS_FAVORITES);
     }
 
     private boolean isItemInFavorites(FeedItem item) {
         String query = String.format(Locale.US, "SELECT %s from %s WHERE %s=%d",
                 KEY_ID, TABLE_NAME_FAVORITES, KEY_FEEDITEM, item.getId());
-        Cursor c = db.rawQuery(query, null);
+        Cursor c = rawQuery(query, null);
         int count = c.getCount();
         c.close();
         return count > 0;
     }
 
+    /**
+     * Writes the complete queue. The ordering keys of neighbouring items get a distance of
+     * {@link #QUEUE_KEY_GAP}, so that later changes can use the keys in between.
+     */
     public void setQueue(List<FeedItem> queue) {
         ContentValues values = new ContentValues();
         try {
             db.beginTransactionNonExclusive();
-            db.delete(TABLE_NAME_QUEUE, null, null);
+            delete(TABLE_NAME_QUEUE, null, null);
             for (int i = 0; i < queue.size(); i++) {
                 FeedItem item = queue.get(i);
-                values.put(KEY_ID, i);
+                values.put(KEY_ID, (i + 1) * QUEUE_KEY_GAP);
                 values.put(KEY_FEEDITEM, item.getId());
                 values.put(KEY_FEED, item.getFeed().getId());
-                db.insertWithOnConflict(TABLE_NAME_QUEUE, null, values, SQLiteDatabase.CONFLICT_REPLACE);
+                insertWithOnConflict(TABLE_NAME_QUEUE, null, values, SQLiteDatabase.CONFLICT_REPLACE);
+            }
+            db.setTransactionSuccessful();
+        } catch (SQLException e) {
+            Log.e(TAG, Log.getStackTraceString(e));
+        } finally {
+            endTransaction();
+            invalidateTags(TAGS_QUEUE);
+        }
+    }
+
+    /**
+     * Writes the queue position of the items {@code queue[from, from + count)}, which are already at
+     * their new position in the list. Only the rows of these items are written. If there are not enough
+     * free ordering keys between their neighbours, the complete queue is written with new keys.
+     */
+    public void setQueuePositions(List<FeedItem> queue, int from, int count) {
+        try {
+            db.beginTransactionNonExclusive();
+            long lower = from > 0 ? getQueueKey(queue.get(from - 1).getId()) : 0;
+            long upper;
+            if (from + count < queue.size()) {
+                upper = getQueueKey(queue.get(from + count).getId());
+            } else {
+                upper = lower + (count + 1) * QUEUE_KEY_GAP;
+            }
+            long step = (upper - lower) / (count + 1);
+            boolean written = lower >= 0 && upper >= 0 && step > 0;
+            ContentValues values = new ContentValues();
+            for (int i = 0; i < count && written; i++) {
+                FeedItem item = queue.get(from + i);
+                delete(TABLE_NAME_QUEUE, KEY_FEEDITEM + "=?", new String[]{String.valueOf(item.getId())});
+                values.put(KEY_ID, lower + step * (i + 1));
+                values.put(KEY_FEEDITEM, item.getId());
+                values.put(KEY_FEED, item.getFeed().getId());
+                written = insert(TABLE_NAME_QUEUE, null, values) != -1;
+            }
+            if (!written) {
+                Log.d(TAG, "No free queue keys between the neighbours, rewriting the queue");
+                setQueue(queue);
             }
             db.setTransactionSuccessful();
         } catch (SQLException e) {
             Log.e(TAG, Log.getStackTraceString(e));
         } finally {
-            db.endTransaction();
+            endTransaction();
+            invalidateTags(TAGS_QUEUE);
+        }
+    }
+
+    /**
+     * @return the ordering key of the item in the queue, or -1 if the item is not in the queue
+     */
+    private long getQueueKey(long itemId) {
+        try (Cursor cursor = query(TABLE_NAME_QUEUE, new String[]{KEY_ID}, KEY_FEEDITEM + "=?",
+                new String[]{String.valueOf(itemId)}, null, null, null)) {
+            return cursor.moveToFirst() ? cursor.getLong(0) : -1;
+        }
+    }
+
+    public void removeQueueItems(long... itemIds) {
+        try {
+            db.beginTransactionNonExclusive();
+            for (long itemId : itemIds) {
+                delete(TABLE_NAME_QUEUE, KEY_FEEDITEM + "=?", new String[]{String.valueOf(itemId)});
+            }
+            db.setTransactionSuccessful();
+        } catch (SQLException e) {
+            Log.e(TAG, Log.getStackTraceString(e));
+        } finally {
+            endTransaction();
+            invalidateTags(TAGS_QUEUE);
         }
     }
 
     public void clearQueue() {
-        db.delete(TABLE_NAME_QUEUE, null, null);
+        delete(TABLE_NAME_QUEUE, null, null);
+        invalidateTags(TAGS_QUEUE);
+    }
+
+    /**
+     * Appends an entry to the sync outbox. Earlier entries with the same key are superseded
+     * by the new entry and are removed.
+     *
+     * @param key Key of the entry, or null if the entry does not supersede other entries
+     * @return the id of the new entry
+     */
+    public long insertSyncOutboxEntry(int type, @Nullable String key, String payload) {
+        ContentValues values = new ContentValues();
+        values.put(KEY_TYPE, type);
+        values.put(KEY_SYNC_KEY, key);
+        values.put(KEY_PAYLOAD, payload);
+        long id = 0;
+        try {
+            db.beginTransactionNonExclusive();
+            if (key != null) {
+                delete(TABLE_NAME_SYNC_OUTBOX, KEY_SYNC_KEY + "=?", new String[]{key});
+            }
+            id = insert(TABLE_NAME_SYNC_OUTBOX, null, values);
+            db.setTransactionSuccessful();
+        } catch (SQLException e) {
+            Log.e(TAG, Log.getStackTraceString(e));
+        } finally {
+            endTransaction();
+        }
+        return id;
+    }
+
+    /**
+     * Returns the id and payload of the oldest outbox entries of the given type.
+     *
+     * @param afterId Only return entries with a larger id, so that the outbox can be read page by page
+     */
+    public Cursor getSyncOutboxCursor(int type, long afterId, int limit) {
+        return query(TABLE_NAME_SYNC_OUTBOX, new String[]{KEY_ID, KEY_PAYLOAD},
+                KEY_TYPE + "=? AND " + KEY_ID + ">?", new String[]{String.valueOf(type), String.valueOf(afterId)},
+                null, null, KEY_ID + " ASC", String.valueOf(limit));
+    }
+
+    public void removeSyncOutboxEntries(long... ids) {
+        try {
+            db.beginTransactionNonExclusive();
+            for (long id : ids) {
+                delete(TABLE_NAME_SYNC_OUTBOX, KEY_ID + "=?", new String[]{String.valueOf(id)});
+            }
+            db.setTransactionSuccessful();
+        } catch (SQLException e) {
+            Log.e(TAG, Log.getStackTraceString(e));
+        } finally {
+            endTransaction();
+        }
+    }
+
+    public void clearSyncOutbox() {
+        delete(TABLE_NAME_SYNC_OUTBOX, null, null);
     }
 
     private void removeFeedMedia(FeedMedia media) {
         // delete download log entries for feed media
-        db.delete(TABLE_NAME_DOWNLOAD_LOG, KEY_FEEDFILE + "=? AND " + KEY_FEEDFILETYPE + "=?",
+        delete(TABLE_NAME_DOWNLOAD_LOG, KEY_FEEDFILE + "=? AND " + KEY_FEEDFILETYPE + "=?",
                 new String[]{String.valueOf(media.getId()), String.valueOf(FeedMedia.FEEDFILETYPE_FEEDMEDIA)});
 
-        db.delete(TABLE_NAME_FEED_MEDIA, KEY_ID + "=?",
+        delete(TABLE_NAME_MEDIA_CHAPTERS, KEY_MEDIA + "=?",
+                new String[]{String.valueOf(media.getId())});
+        delete(TABLE_NAME_FEED_MEDIA, KEY_ID + "=?",
                 new String[]{String.valueOf(media.getId())});
     }
 
     private void removeChaptersOfItem(FeedItem item) {
-        db.delete(TABLE_NAME_SIMPLECHAPTERS, KEY_FEEDITEM + "=?",
+        delete(TABLE_NAME_SIMPLECHAPTERS, KEY_FEEDITEM + "=?",
                 new String[]{String.valueOf(item.getId())});
     }
 
@@ -868,7 +1305,7 @@ public class PodDBAdapter {
         if (item.hasChapters() || item.getChapters() != null) {
             removeChaptersOfItem(item);
         }
-        db.delete(TABLE_NAME_FEED_ITEMS, KEY_ID + "=?",
+        delete(TABLE_NAME_FEED_ITEMS, KEY_ID + "=?",
                 new String[]{String.valueOf(item.getId())});
     }
 
@@ -885,7 +1322,7 @@ public class PodDBAdapter {
         } catch (SQLException e) {
             Log.e(TAG, Log.getStackTraceString(e));
         } finally {
-            db.endTransaction();
+            endTransaction();
         }
     }
 
@@ -901,27 +1338,28 @@ public class PodDBAdapter {
                 }
             }
             // delete download log entries for feed
-            db.delete(TABLE_NAME_DOWNLOAD_LOG, KEY_FEEDFILE + "=? AND " + KEY_FEEDFILETYPE + "=?",
+            delete(TABLE_NAME_DOWNLOAD_LOG, KEY_FEEDFILE + "=? AND " + KEY_FEEDFILETYPE + "=?",
                     new String[]{String.valueOf(feed.getId()), String.valueOf(Feed.FEEDFILETYPE_FEED)});
+            delete(TABLE_NAME_LOCAL_FILES, KEY_FEED + "=?", new String[]{String.valueOf(feed.getId())});
 
-            db.delete(TABLE_NAME_FEEDS, KEY_ID + "=?",
+            delete(TABLE_NAME_FEEDS, KEY_ID + "=?",
                     new String[]{String.valueOf(feed.getId())});
             db.setTransactionSuccessful();
         } catch (SQLException e) {
             Log.e(TAG, Log.getStackTraceString(e));
         } finally {
-            db.endTransaction();
+            endTransaction();
         }
     }
 
     public void clearPlaybackHistory() {
         ContentValues values = new ContentValues();
         values.put(KEY_PLAYBACK_COMPLETION_DATE, 0);
-        db.update(TABLE_NAME_FEED_MEDIA, values, null, null);
+        update(TABLE_NAME_FEED_MEDIA, values, null, null);
     }
 
     public void clearDownloadLog() {
-        db.delete(TABLE_NAME_DOWNLOAD_LOG, null, null);
+        delete(TABLE_NAME_DOWNLOAD_LOG, null, null);
     }
 
     /**
@@ -930,12 +1368,12 @@ public class PodDBAdapter {
      * @return The cursor of the query
      */
     public final Cursor getAllFeedsCursor() {
-        return db.query(TABLE_NAME_FEEDS, FEED_SEL_STD, null, null, null, null,
+        return query(TABLE_NAME_FEEDS, FEED_SEL_STD, null, null, null, null,
                 KEY_TITLE + " COLLATE NOCASE ASC");
     }
 
     public final Cursor getFeedCursorDownloadUrls() {
-        return db.query(TABLE_NAME_FEEDS, new String[]{KEY_ID, KEY_DOWNLOAD_URL}, null, null, null, null, null);
+        return query(TABLE_NAME_FEEDS, new String[]{KEY_ID, KEY_DOWNLOAD_URL}, null, null, null, null, null);
     }
 
     /**
@@ -950,7 +1388,7 @@ public class PodDBAdapter {
         final String query = SELECT_FEED_ITEMS_AND_MEDIA
                 + " WHERE " + TABLE_NAME_FEED_ITEMS + "." + KEY_FEED + "=" + feed.getId()
                 + whereClauseAnd;
-        return db.rawQuery(query, null);
+        return rawQuery(query, null);
     }
 
     /**
@@ -960,25 +1398,102 @@ public class PodDBAdapter {
         final String query = "SELECT " + KEY_DESCRIPTION
                 + " FROM " + TABLE_NAME_FEED_ITEMS
                 + " WHERE " + KEY_ID + "=" + item.getId();
-        return db.rawQuery(query, null);
+        return rawQuery(query, null);
     }
 
     public final Cursor getSimpleChaptersOfFeedItemCursor(final FeedItem item) {
-        return db.query(TABLE_NAME_SIMPLECHAPTERS, null, KEY_FEEDITEM
+        return query(TABLE_NAME_SIMPLECHAPTERS, null, KEY_FEEDITEM
                         + "=?", new String[]{String.valueOf(item.getId())}, null,
                 null, null
         );
     }
 
+    /**
+     * Returns the fingerprint of the media file that the cached chapters of a FeedMedia were read from,
+     * or null if no chapters are cached.
+     */
+    @Nullable
+    public final String getMediaChaptersFingerprint(final long mediaId) {
+        try (Cursor cursor = query(TABLE_NAME_FEED_MEDIA, new String[]{KEY_CHAPTERS_FINGERPRINT},
+                KEY_ID + "=?", new String[]{String.valueOf(mediaId)}, null, null, null)) {
+            return cursor.moveToFirst() ? cursor.getString(0) : null;
+        }
+    }
+
+    public final Cursor getMediaChaptersCursor(final long mediaId) {
+        return query(TABLE_NAME_MEDIA_CHAPTERS, null, KEY_MEDIA + "=?",
+                new String[]{String.valueOf(mediaId)}, null, null, KEY_START + " ASC");
+    }
+
+    /**
+     * Replaces the cached chapters of a FeedMedia with chapters that were read from its media file.
+     *
+     * @param fingerprint Describes the media file, so that the cache can be invalidated when it changes
+     * @param chapters    The chapters, or an empty list if the media file does not contain any
+     */
+    public void setMediaChapters(long mediaId, @NonNull String fingerprint, @NonNull List<Chapter> chapters) {
+        try {
+            db.beginTransactionNonExclusive();
+            delete(TABLE_NAME_MEDIA_CHAPTERS, KEY_MEDIA + "=?", new String[]{String.valueOf(mediaId)});
+            for (Chapter chapter : chapters) {
+                ContentValues values = new ContentValues();
+                values.put(KEY_TITLE, chapter.getTitle());
+                values.put(KEY_START, chapter.getStart());
+                values.put(KEY_MEDIA, mediaId);
+                values.put(KEY_LINK, chapter.getLink());
+                values.put(KEY_IMAGE_URL, chapter.getImageUrl());
+                values.put(KEY_CHAPTER_TYPE, chapter.getChapterType());
+                insert(TABLE_NAME_MEDIA_CHAPTERS, null, values);
+            }
+            ContentValues values = new ContentValues();
+            values.put(KEY_CHAPTERS_FINGERPRINT, fingerprint);
+            update(TABLE_NAME_FEED_MEDIA, values, KEY_ID + "=?", new String[]{String.valueOf(mediaId)});
+            db.setTransactionSuccessful();
+        } catch (SQLException e) {
+            Log.e(TAG, Log.getStackTraceString(e));
+        } finally {
+            endTransaction();
+        }
+    }
+
+    public final Cursor getLocalFilesCursor(final long feedId) {
+        return query(TABLE_NAME_LOCAL_FILES, new String[]{KEY_DOWNLOAD_URL, KEY_FINGERPRINT},
+                KEY_FEED + "=?", new String[]{String.valueOf(feedId)}, null, null, null);
+    }
+
+    /**
+     * Replaces the fingerprints of the files of a local folder feed.
+     *
+     * @param fingerprints Fingerprints by file URI
+     */
+    public void setLocalFiles(long feedId, @NonNull Map<String, String> fingerprints) {
+        try {
+            db.beginTransactionNonExclusive();
+            delete(TABLE_NAME_LOCAL_FILES, KEY_FEED + "=?", new String[]{String.valueOf(feedId)});
+            ContentValues values = new ContentValues();
+            for (Map.Entry<String, String> entry : fingerprints.entrySet()) {
+                values.put(KEY_FEED, feedId);
+                values.put(KEY_DOWNLOAD_URL, entry.getKey());
+                values.put(KEY_FINGERPRINT, entry.getValue());
+                insert(TABLE_NAME_LOCAL_FILES, null, values);
+            }
+            db.setTransactionSuccessful();
+        } catch (SQLException e) {
+            Log.e(TAG, Log.getStackTraceString(e));
+        } finally {
+            endTransaction();
+        }
+    }
+
     public final Cursor getDownloadLog(final int feedFileType, final long feedFileId) {
         final String query = "SELECT * FROM " + TABLE_NAME_DOWNLOAD_LOG +
                 " WHERE " + KEY_FEEDFILE + "=" + feedFileId + " AND " + KEY_FEEDFILETYPE + "=" + feedFileType
                 + " ORDER BY " + KEY_ID + " DESC";
-        return db.rawQuery(query, null);
+        return rawQuery(query, null);
     }
 
     public final Cursor getDownloadLogCursor(final int limit) {
-        return db.query(TABLE_NAME_DOWNLOAD_LOG, null, null, null, null,
+        return query(TABLE_NAME_DOWNLOAD_LOG, null, null, null, null,
                 null, KEY_COMPLETION_DATE + " DESC LIMIT " + limit);
     }
 
@@ -992,20 +1507,34 @@ public class PodDBAdapter {
                 + " INNER JOIN " + TABLE_NAME_QUEUE
                 + " ON " + SELECT_KEY_ITEM_ID + " = " + TABLE_NAME_QUEUE + "." + KEY_FEEDITEM
                 + " ORDER BY " + TABLE_NAME_QUEUE + "." + KEY_ID;
-        return db.rawQuery(query, null);
+        return rawQuery(query, null);
     }
 
     public Cursor getQueueIDCursor() {
-        return db.query(TABLE_NAME_QUEUE, new String[]{KEY_FEEDITEM}, null, null, null, null, KEY_ID + " ASC", null);
+        return query(TABLE_NAME_QUEUE, new String[]{KEY_FEEDITEM}, null, null, null, null, KEY_ID + " ASC", null);
+    }
+
+    public Cursor getFavoriteIDCursor() {
+        return query(TABLE_NAME_FAVORITES, new String[]{KEY_FEEDITEM}, null, null, null, null, null, null);
     }
 
     public final Cursor getFavoritesCursor(int offset, int limit) {
         final String query = SELECT_FEED_ITEMS_AND_MEDIA
                 + " INNER JOIN " + TABLE_NAME_FAVORITES
                 + " ON " + SELECT_KEY_ITEM_ID + " = " + TABLE_NAME_FAVORITES + "." + KEY_FEEDITEM
-                + " ORDER BY " + TABLE_NAME_FEED_ITEMS + "." + KEY_PUBDATE + " DESC"
+                + " ORDER BY " + ORDER_BY_PUBDATE_DESC
                 + " LIMIT " + offset + ", " + limit;
-        return db.rawQuery(query, null);
+        return rawQuery(query, null);
+    }
+
+    public final Cursor getFavoritesCursor(@NonNull FeedItemPageToken after, int limit) {
+        final String query = SELECT_FEED_ITEMS_AND_MEDIA
+                + " INNER JOIN " + TABLE_NAME_FAVORITES
+                + " ON " + SELECT_KEY_ITEM_ID + " = " + TABLE_NAME_FAVORITES + "." + KEY_FEEDITEM
+                + (after.isFirstPage() ? "" : " WHERE " + getPageCondition(after))
+                + " ORDER BY " + ORDER_BY_PUBDATE_DESC
+                + " LIMIT " + limit;
+        return rawQuery(query, null);
     }
 
     public void setFeedItems(int state) {
@@ -1029,7 +1558,7 @@ public class PodDBAdapter {
             sql += feedId > 0 ? " AND " : " WHERE ";
             sql += KEY_READ + "=" + oldState;
         }
-        db.execSQL(sql);
+        execSQL(sql);
     }
 
     /**
@@ -1043,29 +1572,75 @@ public class PodDBAdapter {
                 + " ON " + TABLE_NAME_FEED_ITEMS + "." + KEY_FEED + "=" + TABLE_NAME_FEEDS + "." + KEY_ID
                 + " WHERE " + TABLE_NAME_FEED_ITEMS + "." + KEY_READ + "=" + FeedItem.NEW
                     + " AND " + TABLE_NAME_FEEDS + "." + KEY_KEEP_UPDATED + " > 0"
-                + " ORDER BY " + TABLE_NAME_FEED_ITEMS + "." + KEY_PUBDATE + " DESC"
+                + " ORDER BY " + ORDER_BY_PUBDATE_DESC
                 + " LIMIT " + offset + ", " + limit;
-        return db.rawQuery(query, null);
+        return rawQuery(query, null);
+    }
+
+    /**
+     * Returns a page of the feed items that are considered new, starting after the given page token.
+     *
+     * @see #getNewItemsCursor(int, int)
+     */
+    public final Cursor getNewItemsCursor(@NonNull FeedItemPageToken after, int limit) {
+        final String query = SELECT_FEED_ITEMS_AND_MEDIA
+                + " INNER JOIN " + TABLE_NAME_FEEDS
+                + " ON " + TABLE_NAME_FEED_ITEMS + "." + KEY_FEED + "=" + TABLE_NAME_FEEDS + "." + KEY_ID
+                + " WHERE " + TABLE_NAME_FEED_ITEMS + "." + KEY_READ + "=" + FeedItem.NEW
+                    + " AND " + TABLE_NAME_FEEDS + "." + KEY_KEEP_UPDATED + " > 0"
+                    + (after.isFirstPage() ? "" : " AND " + getPageCondition(after))
+                + " ORDER BY " + ORDER_BY_PUBDATE_DESC
+                + " LIMIT " + limit;
+        return rawQuery(query, null);
     }
 
     public final Cursor getRecentlyPublishedItemsCursor(int offset, int limit, FeedItemFilter filter) {
         String filterQuery = FeedItemFilterQuery.generateFrom(filter);
         String whereClause = "".equals(filterQuery) ? "" : " WHERE " + filterQuery;
         final String query = SELECT_FEED_ITEMS_AND_MEDIA + whereClause
-                + " ORDER BY " + KEY_PUBDATE + " DESC LIMIT " + offset + ", " + limit;
-        return db.rawQuery(query, null);
+                + " ORDER BY " + ORDER_BY_PUBDATE_DESC + " LIMIT " + offset + ", " + limit;
+        return rawQuery(query, null);
+    }
+
+    public final Cursor getRecentlyPublishedItemsCursor(@NonNull FeedItemPageToken after, int limit,
+                                                        FeedItemFilter filter) {
+        String filterQuery = FeedItemFilterQuery.generateFrom(filter);
+        String whereClause = "";
+        if (!after.isFirstPage()) {
+            whereClause = " WHERE " + getPageCondition(after);
+            if (!"".equals(filterQuery)) {
+                whereClause += " AND (" + filterQuery + ")";
+            }
+        } else if (!"".equals(filterQuery)) {
+            whereClause = " WHERE " + filterQuery;
+        }
+        final String query = SELECT_FEED_ITEMS_AND_MEDIA + whereClause
+                + " ORDER BY " + ORDER_BY_PUBDATE_DESC + " LIMIT " + limit;
+        return rawQuery(query, null);
+    }
+
+    /**
+     * Selects the items that come after the page token when sorting by {@link #ORDER_BY_PUBDATE_DESC}.
+     * The id is stored in every index, so the index on the publication date is enough to jump
+     * directly to the start of the page instead of skipping all items of the previous pages.
+     */
+    private static String getPageCondition(@NonNull FeedItemPageToken after) {
+        String pubDate = TABLE_NAME_FEED_ITEMS + "." + KEY_PUBDATE;
+        String id = TABLE_NAME_FEED_ITEMS + "." + KEY_ID;
+        return "(" + pubDate + " < " + after.pubDate
+                + " OR (" + pubDate + " = " + after.pubDate + " AND " + id + " < " + after.id + "))";
     }
 
     public Cursor getDownloadedItemsCursor() {
         final String query = SELECT_FEED_ITEMS_AND_MEDIA
                 + "WHERE " + TABLE_NAME_FEED_MEDIA + "." + KEY_DOWNLOADED + " > 0";
-        return db.rawQuery(query, null);
+        return rawQuery(query, null);
     }
 
     public Cursor getPlayedItemsCursor() {
         final String query = SELECT_FEED_ITEMS_AND_MEDIA
                 + "WHERE " + TABLE_NAME_FEED_ITEMS + "." + KEY_READ + "=" + FeedItem.PLAYED;
-        return db.rawQuery(query, null);
+        return rawQuery(query, null);
     }
 
     /**
@@ -1081,7 +1656,7 @@ public class PodDBAdapter {
             throw new IllegalArgumentException("Limit must be >= 0");
         }
 
-        return db.query(TABLE_NAME_FEED_MEDIA, null,
+        return query(TABLE_NAME_FEED_MEDIA, null,
                 KEY_PLAYBACK_COMPLETION_DATE + " > 0", null, null,
                 null, String.format(Locale.US, "%s DESC LIMIT %d", KEY_PLAYBACK_COMPLETION_DATE, limit));
     }
@@ -1089,11 +1664,11 @@ public class PodDBAdapter {
     public final Cursor getSingleFeedMediaCursor(long id) {
         final String query = "SELECT " + KEYS_FEED_MEDIA + " FROM " + TABLE_NAME_FEED_MEDIA
                 + " WHERE " + KEY_ID + "=" + id;
-        return db.rawQuery(query, null);
+        return rawQuery(query, null);
     }
 
     public final Cursor getFeedCursor(final long id) {
-        return db.query(TABLE_NAME_FEEDS, FEED_SEL_STD, KEY_ID + "=" + id, null,
+        return query(TABLE_NAME_FEEDS, FEED_SEL_STD, KEY_ID + "=" + id, null,
                 null, null, null);
     }
 
@@ -1107,7 +1682,7 @@ public class PodDBAdapter {
         }
         final String query = SELECT_FEED_ITEMS_AND_MEDIA
                 + " WHERE " + SELECT_KEY_ITEM_ID + " IN (" + TextUtils.join(",", ids) + ")";
-        return db.rawQuery(query, null);
+        return rawQuery(query, null);
     }
 
     public final Cursor getFeedItemCursor(final String podcastUrl, final String episodeUrl) {
@@ -1119,7 +1694,40 @@ public class PodDBAdapter {
                 + " WHERE " + TABLE_NAME_FEED_MEDIA + "." + KEY_DOWNLOAD_URL + "=" + escapedEpisodeUrl
                 + " AND " + TABLE_NAME_FEEDS + "." + KEY_DOWNLOAD_URL + "=" + escapedPodcastUrl;
         Log.d(TAG, "SQL: " + query);
-        return db.rawQuery(query, null);
+        return rawQuery(query, null);
+    }
+
+    /**
+     * Selects the items whose media has one of the given download URLs and whose feed has one of
+     * the given download URLs. The download URL of the feed is returned in
+     * {@link #SELECT_KEY_FEED_DOWNLOAD_URL}, so that the caller can match the pairs.
+     * Neither list may be larger than {@link #IN_OPERATOR_MAXIMUM}.
+     */
+    public final Cursor getFeedItemCursorByUrls(final Collection<String> podcastUrls,
+                                                final Collection<String> episodeUrls) {
+        if (podcastUrls.size() > IN_OPERATOR_MAXIMUM || episodeUrls.size() > IN_OPERATOR_MAXIMUM) {
+            throw new IllegalArgumentException("number of URLs must not be larger than " + IN_OPERATOR_MAXIMUM);
+        }
+        final String query = "SELECT " + KEYS_FEED_ITEM_WITHOUT_DESCRIPTION + ", " + KEYS_FEED_MEDIA + ", "
+                + TABLE_NAME_FEEDS + "." + KEY_DOWNLOAD_URL + " AS " + SELECT_KEY_FEED_DOWNLOAD_URL
+                + " FROM " + TABLE_NAME_FEED_ITEMS
+                + JOIN_FEED_ITEM_AND_MEDIA
+                + " INNER JOIN " + TABLE_NAME_FEEDS
+                + " ON " + TABLE_NAME_FEED_ITEMS + "." + KEY_FEED + "=" + TABLE_NAME_FEEDS + "." + KEY_ID
+                + " WHERE " + TABLE_NAME_FEEDS + "." + KEY_DOWNLOAD_URL + " IN (" + escapedList(podcastUrls) + ")"
+                + " AND " + TABLE_NAME_FEED_MEDIA + "." + KEY_DOWNLOAD_URL + " IN (" + escapedList(episodeUrls) + ")";
+        return rawQuery(query, null);
+    }
+
+    private static String escapedList(Collection<String> values) {
+        StringBuilder builder = new StringBuilder();
+        for (String value : values) {
+            if (builder.length() > 0) {
+                builder.append(',');
+            }
+            builder.append(DatabaseUtils.sqlEscapeString(value));
+        }
+        return builder.toString();
     }
 
     public Cursor getImageAuthenticationCursor(final String imageUrl) {
@@ -1131,12 +1739,12 @@ public class PodDBAdapter {
                 + " WHERE " + TABLE_NAME_FEED_ITEMS + "." + KEY_IMAGE_URL + "=" + downloadUrl
                 + " UNION SELECT " + KEY_USERNAME + "," + KEY_PASSWORD + " FROM " + TABLE_NAME_FEEDS
                 + " WHERE " + TABLE_NAME_FEEDS + "." + KEY_IMAGE_URL + "=" + downloadUrl;
-        return db.rawQuery(query, null);
+        return rawQuery(query, null);
     }
 
     public int getQueueSize() {
         final String query = String.format("SELECT COUNT(%s) FROM %s", KEY_ID, TABLE_NAME_QUEUE);
-        Cursor c = db.rawQuery(query, null);
+        Cursor c = rawQuery(query, null);
         int result = 0;
         if (c.moveToFirst()) {
             result = c.getInt(0);
@@ -1155,7 +1763,7 @@ public class PodDBAdapter {
                         + " AND " + TABLE_NAME_FEEDS + "." + KEY_KEEP_UPDATED + " > 0"
         };
         final String query = String.format("SELECT COUNT(%s) FROM %s INNER JOIN %s ON %s WHERE %s", args);
-        Cursor c = db.rawQuery(query, null);
+        Cursor c = rawQuery(query, null);
         int result = 0;
         if (c.moveToFirst()) {
             result = c.getInt(0);
@@ -1216,7 +1824,7 @@ public class PodDBAdapter {
                 + " WHERE " + limitFeeds + " "
                 + whereRead + " GROUP BY " + KEY_FEED;
 
-        Cursor c = db.rawQuery(query, null);
+        Cursor c = rawQuery(query, null);
         LongIntMap result = new LongIntMap(c.getCount());
         if (c.moveToFirst()) {
             do {
@@ -1240,7 +1848,7 @@ public class PodDBAdapter {
                 + " FROM " + TABLE_NAME_FEED_ITEMS
                 + " GROUP BY " + KEY_FEED;
 
-        Cursor c = db.rawQuery(query, null);
+        Cursor c = rawQuery(query, null);
         Map<Long, Long> result = new HashMap<>();
         if (c.moveToFirst()) {
             do {
@@ -1257,7 +1865,7 @@ public class PodDBAdapter {
         final String query = "SELECT COUNT(DISTINCT " + KEY_ID + ") AS count FROM " + TABLE_NAME_FEED_MEDIA +
                 " WHERE " + KEY_DOWNLOADED + " > 0";
 
-        Cursor c = db.rawQuery(query, null);
+        Cursor c = rawQuery(query, null);
         int result = 0;
         if (c.moveToFirst()) {
             result = c.getInt(0);
@@ -1267,30 +1875,98 @@ public class PodDBAdapter {
     }
 
     /**
-     * Uses DatabaseUtils to escape a search query and removes ' at the
-     * beginning and the end of the string returned by the escape method.
+     * Converts a user search query to a full-text search query that matches all words as prefixes.
+     * The words are split like the default FTS tokenizer does, which treats all non-ASCII characters
+     * as parts of words. The operator keywords are written in lower case, so that they are searched
+     * as words. The index ignores the case of ASCII letters.
+     *
+     * @param column Restricts the search to a single column, or null to search all columns.
+     * @return The FTS query, or null if the user query does not contain any words.
      */
-    private String[] prepareSearchQuery(String query) {
-        String[] queryWords = query.split("\\s+");
-        for (int i = 0; i < queryWords.length; ++i) {
-            StringBuilder builder = new StringBuilder();
-            DatabaseUtils.appendEscapedSQLString(builder, queryWords[i]);
-            builder.deleteCharAt(0);
-            builder.deleteCharAt(builder.length() - 1);
-            queryWords[i] = builder.toString();
+    @Nullable
+    static String prepareSearchQuery(String query, @Nullable String column) {
+        String[] queryWords = query.split("[\\x00-\\x2f\\x3a-\\x40\\x5b-\\x60\\x7b-\\x7f]+");
+        StringBuilder builder = new StringBuilder();
+        for (String word : queryWords) {
+            if (word.isEmpty()) {
+                continue;
+            }
+            if (builder.length() > 0) {
+                builder.append(' ');
+            }
+            if (column != null) {
+                builder.append(column).append(':');
+            }
+            if (word.matches("AND|OR|NOT|NEAR")) {
+                word = word.toLowerCase(Locale.US);
+            }
+            builder.append(word).append('*');
         }
+        return builder.length() > 0 ? builder.toString() : null;
+    }
 
-        return queryWords;
+    /**
+     * Returns true if the query contains text in a script that does not separate words by spaces,
+     * like Chinese, Japanese or Thai. The FTS tokenizer stores whole sentences of such text as a single
+     * word, so a search for a word in the middle can only be answered by a substring search.
+     */
+    static boolean needsSubstringSearch(String query) {
+        for (int i = 0; i < query.length(); i++) {
+            Character.UnicodeBlock block = Character.UnicodeBlock.of(query.charAt(i));
+            if (block == Character.UnicodeBlock.CJK_UNIFIED_IDEOGRAPHS
+                    || block == Character.UnicodeBlock.CJK_UNIFIED_IDEOGRAPHS_EXTENSION_A
+                    || block == Character.UnicodeBlock.CJK_COMPATIBILITY_IDEOGRAPHS
+                    || block == Character.UnicodeBlock.HIRAGANA
+                    || block == Character.UnicodeBlock.KATAKANA
+                    || block == Character.UnicodeBlock.THAI
+                    || block == Character.UnicodeBlock.LAO
+                    || block == Character.UnicodeBlock.KHMER
+                    || block == Character.UnicodeBlock.MYANMAR
+                    || block == Character.UnicodeBlock.TIBETAN) {
+                return true;
+            }
+        }
+        return false;
     }
 
     /**
-     * Searches for the given query in various values of all items or the items
-     * of a specified feed.
+     * Builds a selection that matches all words of the query as substrings of at least one of the columns.
+     * The arguments for the placeholders are appended to args.
+     */
+    private static String prepareLikeSelection(String[] queryWords, List<String> args, String... columns) {
+        StringBuilder builder = new StringBuilder("(");
+        for (int i = 0; i < queryWords.length; i++) {
+            if (i > 0) {
+                builder.append(" AND ");
+            }
+            builder.append('(');
+            String pattern = "%" + queryWords[i].replace("\\", "\\\\")
+                    .replace("%", "\\%").replace("_", "\\_") + "%";
+            for (int j = 0; j < columns.length; j++) {
+                if (j > 0) {
+                    builder.append(" OR ");
+                }
+                builder.append(columns[j]).append(" LIKE ? ESCAPE '\\'");
+                args.add(pattern);
+            }
+            builder.append(')');
+        }
+        return builder.append(')').toString();
+    }
+
+    /**
+     * Searches for the given query in the title and description of all items or the items
+     * of a specified feed. Items with matches in the title are ranked first.
+     * The FTS index matches the beginnings of words. Queries in scripts without spaces between words
+     * are searched as substrings instead, see {@link #needsSubstringSearch}.
      *
      * @return A cursor with all search results in SEL_FI_EXTRA selection.
      */
     public Cursor searchItems(long feedID, String searchQuery) {
-        String[] queryWords = prepareSearchQuery(searchQuery);
+        String matchQuery = prepareSearchQuery(searchQuery, null);
+        if (matchQuery == null) {
+            return rawQuery(SELECT_FEED_ITEMS_AND_MEDIA_WITH_DESCRIPTION + " WHERE 0", null);
+        }
 
         String queryFeedId;
         if (feedID != 0) {
@@ -1301,59 +1977,102 @@ public class PodDBAdapter {
             queryFeedId = "1 = 1";
         }
 
-        String queryStart = SELECT_FEED_ITEMS_AND_MEDIA_WITH_DESCRIPTION
-                + " WHERE " + queryFeedId + " AND (";
-        StringBuilder sb = new StringBuilder(queryStart);
-
-        for (int i = 0; i < queryWords.length; i++) {
-            sb
-                    .append("(")
-                    .append(KEY_DESCRIPTION + " LIKE '%").append(queryWords[i])
-                    .append("%' OR ")
-                    .append(KEY_TITLE).append(" LIKE '%").append(queryWords[i])
-                    .append("%') ");
-
-            if (i != queryWords.length - 1) {
-                sb.append("AND ");
-            }
+        if (needsSubstringSearch(searchQuery)) {
+            String[] queryWords = searchQuery.trim().split("\\s+");
+            List<String> args = new ArrayList<>();
+            String selection = prepareLikeSelection(queryWords, args,
+                    TABLE_NAME_FEED_ITEMS + "." + KEY_TITLE, TABLE_NAME_FEED_ITEMS + "." + KEY_DESCRIPTION);
+            String titleSelection = prepareLikeSelection(queryWords, args, TABLE_NAME_FEED_ITEMS + "." + KEY_TITLE);
+            final String query = SELECT_FEED_ITEMS_AND_MEDIA_WITH_DESCRIPTION
+                    + " WHERE " + queryFeedId + " AND " + selection
+                    + " ORDER BY " + titleSelection + " DESC, " + KEY_PUBDATE + " DESC LIMIT 300";
+            return rawQuery(query, args.toArray(new String[0]));
         }
 
-        sb.append(") ORDER BY " + KEY_PUBDATE + " DESC LIMIT 300");
-
-        return db.rawQuery(sb.toString(), null);
+        String titleMatchQuery = prepareSearchQuery(searchQuery, KEY_TITLE);
+        final String query = SELECT_FEED_ITEMS_AND_MEDIA_WITH_DESCRIPTION
+                + " WHERE " + queryFeedId
+                + " AND " + TABLE_NAME_FEED_ITEMS + "." + KEY_ID + " IN (SELECT docid FROM "
+                + TABLE_NAME_FEED_ITEMS_SEARCH + " WHERE " + TABLE_NAME_FEED_ITEMS_SEARCH + " MATCH ?)"
+                + " ORDER BY " + TABLE_NAME_FEED_ITEMS + "." + KEY_ID + " IN (SELECT docid FROM "
+                + TABLE_NAME_FEED_ITEMS_SEARCH + " WHERE " + TABLE_NAME_FEED_ITEMS_SEARCH + " MATCH ?) DESC, "
+                + KEY_PUBDATE + " DESC LIMIT 300";
+        return rawQuery(query, new String[]{matchQuery, titleMatchQuery});
     }
 
     /**
      * Searches for the given query in various values of all feeds.
+     * Feeds with matches in the title are ranked first. Like {@link #searchItems}, only queries
+     * in scripts without spaces between words are searched as substrings.
      *
      * @return A cursor with all search results in SEL_FI_EXTRA selection.
      */
     public Cursor searchFeeds(String searchQuery) {
-        String[] queryWords = prepareSearchQuery(searchQuery);
-
-        String queryStart = "SELECT * FROM " + TABLE_NAME_FEEDS + " WHERE ";
-        StringBuilder sb = new StringBuilder(queryStart);
+        String matchQuery = prepareSearchQuery(searchQuery, null);
+        if (matchQuery == null) {
+            return rawQuery("SELECT * FROM " + TABLE_NAME_FEEDS + " WHERE 0", null);
+        }
 
-        for (int i = 0; i < queryWords.length; i++) {
-            sb
-                    .append("(")
-                    .append(KEY_TITLE).append(" LIKE '%").append(queryWords[i])
-                    .append("%' OR ")
-                    .append(KEY_CUSTOM_TITLE).append(" LIKE '%").append(queryWords[i])
-                    .append("%' OR ")
-                    .append(KEY_AUTHOR).append(" LIKE '%").append(queryWords[i])
-                    .append("%' OR ")
-                    .append(KEY_DESCRIPTION).append(" LIKE '%").append(queryWords[i])
-                    .append("%') ");
-
-            if (i != queryWords.length - 1) {
-                sb.append("AND ");
-            }
+        if (needsSubstringSearch(searchQuery)) {
+            String[] queryWords = searchQuery.trim().split("\\s+");
+            List<String> args = new ArrayList<>();
+            String selection = prepareLikeSelection(queryWords, args,
+                    KEY_TITLE, KEY_CUSTOM_TITLE, KEY_AUTHOR, KEY_DESCRIPTION);
+            String titleSelection = prepareLikeSelection(queryWords, args, KEY_TITLE);
+            final String query = "SELECT * FROM " + TABLE_NAME_FEEDS + " WHERE " + selection
+                    + " ORDER BY " + titleSelection + " DESC, " + KEY_TITLE + " ASC LIMIT 300";
+            return rawQuery(query, args.toArray(new String[0]));
         }
 
-        sb.append("ORDER BY " + KEY_TITLE + " ASC LIMIT 300");
+        String titleMatchQuery = prepareSearchQuery(searchQuery, KEY_TITLE);
+        final String query = "SELECT * FROM " + TABLE_NAME_FEEDS
+                + " WHERE " + KEY_ID + " IN (SELECT docid FROM "
+                + TABLE_NAME_FEEDS_SEARCH + " WHERE " + TABLE_NAME_FEEDS_SEARCH + " MATCH ?)"
+                + " ORDER BY " + KEY_ID + " IN (SELECT docid FROM "
+                + TABLE_NAME_FEEDS_SEARCH + " WHERE " + TABLE_NAME_FEEDS_SEARCH + " MATCH ?) DESC, "
+                + KEY_TITLE + " ASC LIMIT 300";
+        return rawQuery(query, new String[]{matchQuery, titleMatchQuery});
+    }
+
+    /**
+     * Creates the full-text search tables, the triggers that keep them up to date
+     * and fills them with the existing content.
+     */
+    static void createSearchIndex(SQLiteDatabase db) {
+        execSQL(db, CREATE_TABLE_FEED_ITEMS_SEARCH);
+        createSearchTriggers(db, TABLE_NAME_FEED_ITEMS, TABLE_NAME_FEED_ITEMS_SEARCH,
+                KEY_TITLE, KEY_DESCRIPTION);
+        execSQL(db, "INSERT INTO " + TABLE_NAME_FEED_ITEMS_SEARCH + "(" + TABLE_NAME_FEED_ITEMS_SEARCH
+                + ") VALUES('rebuild')");
+
+        execSQL(db, CREATE_TABLE_FEEDS_SEARCH);
+        createSearchTriggers(db, TABLE_NAME_FEEDS, TABLE_NAME_FEEDS_SEARCH,
+                KEY_TITLE, KEY_CUSTOM_TITLE, KEY_AUTHOR, KEY_DESCRIPTION);
+        execSQL(db, "INSERT INTO " + TABLE_NAME_FEEDS_SEARCH + "(" + TABLE_NAME_FEEDS_SEARCH
+                + ") VALUES('rebuild')");
+    }
+
+    /**
+     * Triggers for external content FTS tables, see https://www.sqlite.org/fts3.html#_external_content_fts4_tables_
+     * Updates of columns that are not indexed do not touch the index.
+     */
+    private static void createSearchTriggers(SQLiteDatabase db, String contentTable,
+                                             String searchTable, String... columns) {
+        String columnList = TextUtils.join(", ", columns);
+        StringBuilder newValues = new StringBuilder();
+        for (String column : columns) {
+            newValues.append(", new.").append(column);
+        }
+        String deleteOld = " BEGIN DELETE FROM " + searchTable + " WHERE docid = old." + KEY_ID + "; END";
+        String insertNew = " BEGIN INSERT INTO " + searchTable + "(docid, " + columnList + ")"
+                + " VALUES(new." + KEY_ID + newValues + "); END";
 
-        return db.rawQuery(sb.toString(), null);
+        execSQL(db, "CREATE TRIGGER " + searchTable + "_before_update BEFORE UPDATE OF " + columnList
+                + " ON " + contentTable + deleteOld);
+        execSQL(db, "CREATE TRIGGER " + searchTable + "_before_delete BEFORE DELETE ON " + contentTable + deleteOld);
+        execSQL(db, "CREATE TRIGGER " + searchTable + "_after_update AFTER UPDATE OF " + columnList
+                + " ON " + contentTable + insertNew);
+        execSQL(db, "CREATE TRIGGER " + searchTable + "_after_insert AFTER INSERT ON " + contentTable + insertNew);
     }
 
     /**
@@ -1371,7 +2090,50 @@ public class PodDBAdapter {
             " ON Feeds.id = feed ORDER BY Feeds.title COLLATE NOCASE ASC;";
 
     public Cursor getFeedStatisticsCursor() {
-        return db.rawQuery(FEED_STATISTICS_QUERY, null);
+        return rawQuery(FEED_STATISTICS_QUERY, null);
+    }
+
+    public static final String SELECT_KEY_STATS_TIME = "stats_time";
+    public static final String SELECT_KEY_STATS_TIME_PLAYED = "stats_time_played";
+    public static final String SELECT_KEY_STATS_TIME_PLAYED_COUNT_ALL = "stats_time_played_count_all";
+    public static final String SELECT_KEY_STATS_EPISODES = "stats_episodes";
+    public static final String SELECT_KEY_STATS_EPISODES_STARTED = "stats_episodes_started";
+    public static final String SELECT_KEY_STATS_EPISODES_STARTED_INCLUDING_MARKED =
+            "stats_episodes_started_including_marked";
+    public static final String SELECT_KEY_STATS_DOWNLOAD_SIZE = "stats_download_size";
+    public static final String SELECT_KEY_STATS_EPISODES_DOWNLOADED = "stats_episodes_downloaded";
+
+    /**
+     * Select all feeds with the playback and download statistics of their episodes. Times are in seconds.
+     * Episodes without media are not counted. The result is sorted by the title of the feed.
+     */
+    private static final String PLAYBACK_STATISTICS_QUERY = "SELECT " + TextUtils.join(", ", FEED_SEL_STD) + ", "
+            + SELECT_KEY_STATS_TIME + ", " + SELECT_KEY_STATS_TIME_PLAYED + ", "
+            + SELECT_KEY_STATS_TIME_PLAYED_COUNT_ALL + ", " + SELECT_KEY_STATS_EPISODES + ", "
+            + SELECT_KEY_STATS_EPISODES_STARTED + ", " + SELECT_KEY_STATS_EPISODES_STARTED_INCLUDING_MARKED + ", "
+            + SELECT_KEY_STATS_DOWNLOAD_SIZE + ", " + SELECT_KEY_STATS_EPISODES_DOWNLOADED
+            + " FROM " + TABLE_NAME_FEEDS + " LEFT JOIN "
+            + "(SELECT " + KEY_FEED + ","
+            + " SUM(" + KEY_DURATION + " / 1000) AS " + SELECT_KEY_STATS_TIME + ","
+            + " SUM(" + KEY_PLAYED_DURATION + " / 1000) AS " + SELECT_KEY_STATS_TIME_PLAYED + ","
+            + " SUM(CASE WHEN " + KEY_READ + " = " + FeedItem.PLAYED + " THEN " + KEY_DURATION + " / 1000"
+            + " ELSE " + KEY_POSITION + " / 1000 END) AS " + SELECT_KEY_STATS_TIME_PLAYED_COUNT_ALL + ","
+            + " COUNT(*) AS " + SELECT_KEY_STATS_EPISODES + ","
+            + " COUNT(CASE WHEN " + KEY_PLAYBACK_COMPLETION_DATE + " > 0 OR " + KEY_PLAYED_DURATION + " > 0"
+            + " THEN 1 END) AS " + SELECT_KEY_STATS_EPISODES_STARTED + ","
+            + " COUNT(CASE WHEN " + KEY_READ + " = " + FeedItem.PLAYED + " OR " + KEY_POSITION + " != 0"
+            + " THEN 1 END) AS " + SELECT_KEY_STATS_EPISODES_STARTED_INCLUDING_MARKED + ","
+            + " SUM(CASE WHEN " + KEY_DOWNLOADED + " > 0 THEN " + KEY_SIZE + " ELSE 0 END)"
+            + " AS " + SELECT_KEY_STATS_DOWNLOAD_SIZE + ","
+            + " COUNT(CASE WHEN " + KEY_DOWNLOADED + " > 0 THEN 1 END) AS " + SELECT_KEY_STATS_EPISODES_DOWNLOADED
+            + " FROM " + TABLE_NAME_FEED_ITEMS + " INNER JOIN " + TABLE_NAME_FEED_MEDIA + " ON "
+            + TABLE_NAME_FEED_ITEMS + "." + KEY_ID + " = " + TABLE_NAME_FEED_MEDIA + "." + KEY_FEEDITEM
+            + " GROUP BY " + KEY_FEED + ")"
+            + " ON " + TABLE_NAME_FEEDS + "." + KEY_ID + " = " + KEY_FEED
+            + " ORDER BY " + TABLE_NAME_FEEDS + "." + KEY_TITLE + " COLLATE NOCASE ASC";
+
+    public Cursor getPlaybackStatisticsCursor() {
+        return rawQuery(PLAYBACK_STATISTICS_QUERY, null);
     }
 
     /**
@@ -1380,7 +2142,7 @@ public class PodDBAdapter {
      */
     @VisibleForTesting(otherwise = VisibleForTesting.NONE)
     public void insertTestData(@NonNull String table, @NonNull ContentValues values) {
-        db.insert(table, null, values);
+        insert(table, null, values);
     }
 
     /**
@@ -1429,13 +2191,26 @@ public class PodDBAdapter {
             db.execSQL(CREATE_TABLE_QUEUE);
             db.execSQL(CREATE_TABLE_SIMPLECHAPTERS);
             db.execSQL(CREATE_TABLE_FAVORITES);
+            db.execSQL(CREATE_TABLE_SYNC_OUTBOX);
+            db.execSQL(CREATE_TABLE_MEDIA_CHAPTERS);
+            db.execSQL(CREATE_TABLE_LOCAL_FILES);
 
-            db.execSQL(CREATE_INDEX_FEEDITEMS_FEED);
+            db.execSQL(CREATE_INDEX_FEEDITEMS_FEED_READ);
             db.execSQL(CREATE_INDEX_FEEDITEMS_PUBDATE);
             db.execSQL(CREATE_INDEX_FEEDITEMS_READ);
             db.execSQL(CREATE_INDEX_FEEDMEDIA_FEEDITEM);
             db.execSQL(CREATE_INDEX_QUEUE_FEEDITEM);
             db.execSQL(CREATE_INDEX_SIMPLECHAPTERS_FEEDITEM);
+            db.execSQL(CREATE_INDEX_SYNC_OUTBOX_SYNC_KEY);
+            db.execSQL(CREATE_INDEX_MEDIA_CHAPTERS_MEDIA);
+            db.execSQL(CREATE_INDEX_LOCAL_FILES_FEED);
+            db.execSQL(CREATE_INDEX_FEEDS_DOWNLOAD_URL);
+            db.execSQL(CREATE_INDEX_FEEDMEDIA_DOWNLOAD_URL);
+            db.execSQL(CREATE_INDEX_FEEDMEDIA_DOWNLOADED);
+            db.execSQL(CREATE_INDEX_FEEDMEDIA_PLAYBACK_COMPLETION_DATE);
+            db.execSQL(CREATE_INDEX_FAVORITES_FEEDITEM);
+
+            createSearchIndex(db);
         }
 
         @Override
@@ -0,0 +1,231 @@
+package de.danoeh.antennapod.core.storage;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteException;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
+
+import org.apache.commons.io.FileUtils;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import de.danoeh.antennapod.core.preferences.UserPreferences;
+
+/**
+ * Records how often the queries of {@link PodDBAdapter} are executed and how long they take, grouped by
+ * the adapter method that executes them. The query plans of slow queries are written to a log file.
+ * Profiling is disabled by default because it runs the queries eagerly and walks the stack to find the caller.
+ */
+public class QueryProfiler {
+    private static final String TAG = "QueryProfiler";
+    private static final String DIRECTORY = "query_profiler";
+    private static final String SLOW_QUERY_LOG = "slow_queries.log";
+    private static final String SLOW_QUERY_LOG_OLD = "slow_queries.log.1";
+    private static final long MAX_LOG_SIZE = 256 * 1024;
+
+    /**
+     * Upper bounds of the latency histogram buckets in milliseconds. The last bucket contains everything above.
+     */
+    private static final long[] BUCKET_LIMITS_MS = {1, 4, 16, 64, 256, 1024};
+
+    @VisibleForTesting
+    static long slowQueryThresholdMs = 50;
+
+    private static final Map<String, Stats> stats = new HashMap<>();
+    private static volatile boolean enabled = false;
+    private static File directory;
+
+    private QueryProfiler() {
+    }
+
+    public static void init(@NonNull Context context) {
+        directory = new File(context.getFilesDir(), DIRECTORY);
+        enabled = UserPreferences.isDatabaseProfilingEnabled();
+    }
+
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Starts or stops profiling. Stopping deletes everything that was recorded.
+     */
+    public static synchronized void setEnabled(boolean enabled) {
+        QueryProfiler.enabled = enabled;
+        if (!enabled) {
+            synchronized (stats) {
+                stats.clear();
+            }
+            if (directory != null) {
+                FileUtils.deleteQuietly(directory);
+            }
+        }
+    }
+
+    /**
+     * Records an executed query.
+     *
+     * @param site     The adapter method that executed the query
+     * @param sql      The query, used to get the query plan if the query is slow. Null for writes without SQL.
+     * @param args     The arguments of the query
+     * @param duration Duration in nanoseconds
+     * @param rows     Number of rows returned or changed
+     */
+    static void record(@NonNull SQLiteDatabase db, @NonNull String site, @Nullable String sql,
+                       @Nullable String[] args, long duration, int rows) {
+        long durationMs = duration / 1000000;
+        synchronized (stats) {
+            Stats siteStats = stats.get(site);
+            if (siteStats == null) {
+                siteStats = new Stats(site);
+                stats.put(site, siteStats);
+            }
+            siteStats.add(duration, rows);
+        }
+        if (durationMs >= slowQueryThresholdMs) {
+            List<String> plan = sql != null ? explain(db, sql, args) : Collections.emptyList();
+            logSlowQuery(site, sql, durationMs, rows, plan);
+        }
+    }
+
+    @NonNull
+    private static List<String> explain(SQLiteDatabase db, String sql, String[] args) {
+        List<String> plan = new ArrayList<>();
+        try (Cursor cursor = db.rawQuery("EXPLAIN QUERY PLAN " + sql, args)) {
+            int detailIndex = cursor.getColumnIndex("detail");
+            while (cursor.moveToNext()) {
+                plan.add(cursor.getString(detailIndex));
+            }
+        } catch (SQLiteException e) {
+            plan.add("Unable to explain query: " + e.getMessage());
+        }
+        return plan;
+    }
+
+    private static synchronized void logSlowQuery(String site, String sql, long durationMs, int rows,
+                                                  List<String> plan) {
+        if (directory == null || (!directory.exists() && !directory.mkdirs())) {
+            return;
+        }
+        File log = new File(directory, SLOW_QUERY_LOG);
+        if (log.length() > MAX_LOG_SIZE) {
+            File oldLog = new File(directory, SLOW_QUERY_LOG_OLD);
+            FileUtils.deleteQuietly(oldLog);
+            if (!log.renameTo(oldLog)) {
+                Log.e(TAG, "Unable to rotate slow query log");
+                return;
+            }
+        }
+        String date = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss", Locale.US).format(new Date());
+        try (Writer writer = new FileWriter(log, true)) {
+            writer.write(date + " " + site + ": " + durationMs + " ms, " + rows + " rows\n");
+            if (sql != null) {
+                writer.write("  " + sql + "\n");
+            }
+            for (String step : plan) {
+                writer.write("    " + step + "\n");
+            }
+        } catch (IOException e) {
+            Log.e(TAG, "Unable to write slow query log: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Writes the statistics of all queries, sorted by their total duration, followed by the slow query log.
+     */
+    public static void writeReport(@NonNull Writer writer) throws IOException {
+        List<Stats> sortedStats;
+        synchronized (stats) {
+            sortedStats = new ArrayList<>();
+            for (Stats siteStats : stats.values()) {
+                sortedStats.add(siteStats.copy());
+            }
+        }
+        Collections.sort(sortedStats, (s1, s2) -> Long.compare(s2.totalDuration, s1.totalDuration));
+
+        writer.write("site;calls;total ms;average ms;max ms;rows");
+        long lowerLimit = 0;
+        for (long limit : BUCKET_LIMITS_MS) {
+            writer.write(";" + lowerLimit + "-" + limit + " ms");
+            lowerLimit = limit;
+        }
+        writer.write(";>" + lowerLimit + " ms\n");
+        for (Stats siteStats : sortedStats) {
+            writer.write(siteStats.site + ";" + siteStats.calls
+                    + ";" + siteStats.totalDuration / 1000000
+                    + ";" + String.format(Locale.US, "%.2f", siteStats.totalDuration / 1e6 / siteStats.calls)
+                    + ";" + siteStats.maxDuration / 1000000
+                    + ";" + siteStats.rows);
+            for (int count : siteStats.histogram) {
+                writer.write(";" + count);
+            }
+            writer.write("\n");
+        }
+
+        writer.write("\nSlow queries (at least " + slowQueryThresholdMs + " ms):\n");
+        synchronized (QueryProfiler.class) {
+            if (directory == null) {
+                return;
+            }
+            for (String name : new String[] {SLOW_QUERY_LOG_OLD, SLOW_QUERY_LOG}) {
+                File log = new File(directory, name);
+                if (log.exists()) {
+                    writer.write(FileUtils.readFileToString(log, Charset.forName("UTF-8")));
+                }
+            }
+        }
+    }
+
+    private static class Stats {
+        final String site;
+        final int[] histogram = new int[BUCKET_LIMITS_MS.length + 1];
+        int calls = 0;
+        long totalDuration = 0;
+        long maxDuration = 0;
+        long rows = 0;
+
+        Stats(String site) {
+            this.site = site;
+        }
+
+        void add(long duration, int rows) {
+            calls++;
+            totalDuration += duration;
+            maxDuration = Math.max(maxDuration, duration);
+            this.rows += Math.max(rows, 0);
+            long durationMs = duration / 1000000;
+            int bucket = 0;
+            while (bucket < BUCKET_LIMITS_MS.length && durationMs >= BUCKET_LIMITS_MS[bucket]) {
+                bucket++;
+            }
+            histogram[bucket]++;
+        }
+
+        Stats copy() {
+            Stats copy = new Stats(site);
+            System.arraycopy(histogram, 0, copy.histogram, 0, histogram.length);
+            copy.calls = calls;
+            copy.totalDuration = totalDuration;
+            copy.maxDuration = maxDuration;
+            copy.rows = rows;
+            return copy;
+        }
+    }
+}
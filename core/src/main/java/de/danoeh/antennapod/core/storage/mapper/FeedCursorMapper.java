@@ -39,6 +39,8 @@ public abstract class FeedCursorMapper {
         int indexSortOrder = cursor.getColumnIndex(PodDBAdapter.KEY_SORT_ORDER);
         int indexLastUpdateFailed = cursor.getColumnIndex(PodDBAdapter.KEY_LAST_UPDATE_FAILED);
         int indexImageUrl = cursor.getColumnIndex(PodDBAdapter.KEY_IMAGE_URL);
+        int indexEtag = cursor.getColumnIndex(PodDBAdapter.KEY_ETAG);
+        int indexContentDigest = cursor.getColumnIndex(PodDBAdapter.KEY_CONTENT_DIGEST);
 
         Feed feed = new Feed(
                 cursor.getLong(indexId),
@@ -63,6 +65,13 @@ public abstract class FeedCursorMapper {
                 cursor.getInt(indexLastUpdateFailed) > 0
         );
 
+        if (indexEtag >= 0) {
+            feed.setEtag(cursor.getString(indexEtag));
+        }
+        if (indexContentDigest >= 0) {
+            feed.setContentDigest(cursor.getString(indexContentDigest));
+        }
+
         FeedPreferences preferences = FeedPreferencesCursorMapper.convert(cursor);
         feed.setPreferences(preferences);
         return feed;
@@ -40,7 +40,9 @@ public abstract class FeedItemCursorMapper {
         long autoDownload = cursor.getLong(indexAutoDownload);
         String imageUrl = cursor.getString(indexImageUrl);
 
-        return new FeedItem(id, title, link, pubDate, paymentLink, feedId,
+        FeedItem item = new FeedItem(id, title, link, pubDate, paymentLink, feedId,
                 hasChapters, imageUrl, state, itemIdentifier, autoDownload);
+        item.clearDirtyFields();
+        return item;
     }
 }
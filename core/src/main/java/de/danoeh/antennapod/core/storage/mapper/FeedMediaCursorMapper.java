@@ -48,7 +48,7 @@ public abstract class FeedMediaCursorMapper {
                 break;
         }
 
-        return new FeedMedia(
+        FeedMedia media = new FeedMedia(
                 mediaId,
                 null,
                 cursor.getInt(indexDuration),
@@ -63,5 +63,7 @@ public abstract class FeedMediaCursorMapper {
                 hasEmbeddedPicture,
                 cursor.getLong(indexLastPlayedTime)
         );
+        media.clearDirtyFields();
+        return media;
     }
 }
@@ -0,0 +1,165 @@
+package de.danoeh.antennapod.core.sync;
+
+import android.database.Cursor;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import de.danoeh.antennapod.core.storage.PodDBAdapter;
+import de.danoeh.antennapod.core.util.LongList;
+import de.danoeh.antennapod.net.sync.model.EpisodeAction;
+
+/**
+ * Local changes that still need to be uploaded to the sync service. Entries are appended to a
+ * database table and are only removed after the server has acknowledged them, so nothing is lost
+ * when the upload fails or the app is killed in between.
+ *
+ * <p>Entries that only describe the latest state of something supersede older entries:
+ * a play action replaces older play actions of the same episode, and subscribing to a feed
+ * replaces an earlier unsubscription of the same feed (and the other way round).</p>
+ */
+class SyncOutbox {
+    private static final String TAG = "SyncOutbox";
+    static final int TYPE_EPISODE_ACTION = 0;
+    static final int TYPE_FEED_ADDED = 1;
+    static final int TYPE_FEED_REMOVED = 2;
+
+    private SyncOutbox() {
+    }
+
+    static void enqueueEpisodeAction(EpisodeAction action) {
+        JSONObject json = action.writeToJsonObject();
+        if (json == null) {
+            return;
+        }
+        String key = null;
+        if (action.getAction() == EpisodeAction.PLAY) {
+            key = "play " + action.getPodcast() + " " + action.getEpisode();
+        }
+        insert(TYPE_EPISODE_ACTION, key, json.toString());
+    }
+
+    static void enqueueFeedAdded(String downloadUrl) {
+        insert(TYPE_FEED_ADDED, "feed " + downloadUrl, downloadUrl);
+    }
+
+    static void enqueueFeedRemoved(String downloadUrl) {
+        insert(TYPE_FEED_REMOVED, "feed " + downloadUrl, downloadUrl);
+    }
+
+    private static void insert(int type, String key, String payload) {
+        PodDBAdapter adapter = PodDBAdapter.getInstance();
+        adapter.open();
+        adapter.insertSyncOutboxEntry(type, key, payload);
+        adapter.close();
+    }
+
+    /**
+     * Returns the oldest episode actions. They stay in the outbox until they are acknowledged.
+     *
+     * @param afterId Id of the last entry of the previous batch, or 0
+     */
+    @NonNull
+    static Batch<EpisodeAction> getEpisodeActions(long afterId, int limit) {
+        Batch<EpisodeAction> batch = new Batch<>();
+        PodDBAdapter adapter = PodDBAdapter.getInstance();
+        adapter.open();
+        try (Cursor cursor = adapter.getSyncOutboxCursor(TYPE_EPISODE_ACTION, afterId, limit)) {
+            while (cursor.moveToNext()) {
+                long id = cursor.getLong(0);
+                EpisodeAction action = null;
+                try {
+                    action = EpisodeAction.readFromJsonObject(new JSONObject(cursor.getString(1)));
+                } catch (JSONException e) {
+                    e.printStackTrace();
+                }
+                if (action == null) {
+                    // Can never be uploaded, so drop it together with the batch
+                    Log.d(TAG, "Dropping invalid episode action " + id);
+                    batch.ids.add(id);
+                    continue;
+                }
+                batch.add(id, action);
+            }
+        } finally {
+            adapter.close();
+        }
+        return batch;
+    }
+
+    @NonNull
+    static Batch<String> getAddedFeeds() {
+        return getFeeds(TYPE_FEED_ADDED);
+    }
+
+    @NonNull
+    static Batch<String> getRemovedFeeds() {
+        return getFeeds(TYPE_FEED_REMOVED);
+    }
+
+    private static Batch<String> getFeeds(int type) {
+        Batch<String> batch = new Batch<>();
+        PodDBAdapter adapter = PodDBAdapter.getInstance();
+        adapter.open();
+        try (Cursor cursor = adapter.getSyncOutboxCursor(type, 0, Integer.MAX_VALUE)) {
+            while (cursor.moveToNext()) {
+                batch.add(cursor.getLong(0), cursor.getString(1));
+            }
+        } finally {
+            adapter.close();
+        }
+        return batch;
+    }
+
+    /**
+     * Removes the entries of a batch after the server has accepted them.
+     */
+    static void acknowledge(Batch<?> batch) {
+        if (batch.ids.size() == 0) {
+            return;
+        }
+        PodDBAdapter adapter = PodDBAdapter.getInstance();
+        adapter.open();
+        adapter.removeSyncOutboxEntries(batch.ids.toArray());
+        adapter.close();
+    }
+
+    static void clear() {
+        PodDBAdapter adapter = PodDBAdapter.getInstance();
+        adapter.open();
+        adapter.clearSyncOutbox();
+        adapter.close();
+    }
+
+    /**
+     * Entries read from the outbox, together with their ids.
+     */
+    static class Batch<T> {
+        private final LongList ids = new LongList();
+        private final List<T> items = new ArrayList<>();
+
+        private void add(long id, T item) {
+            ids.add(id);
+            items.add(item);
+        }
+
+        @NonNull
+        List<T> getItems() {
+            return items;
+        }
+
+        boolean isEmpty() {
+            return ids.size() == 0;
+        }
+
+        long getLastId() {
+            return isEmpty() ? 0 : ids.get(ids.size() - 1);
+        }
+    }
+}
@@ -6,9 +6,9 @@ import android.app.PendingIntent;
 import android.content.Context;
 import android.content.Intent;
 import android.content.SharedPreferences;
+import android.text.format.Formatter;
 import android.util.Log;
 import androidx.annotation.NonNull;
-import androidx.collection.ArrayMap;
 import androidx.core.app.NotificationCompat;
 import androidx.core.util.Pair;
 import androidx.work.BackoffPolicy;
@@ -21,6 +21,7 @@ import androidx.work.Worker;
 import androidx.work.WorkerParameters;
 import de.danoeh.antennapod.core.R;
 import de.danoeh.antennapod.core.event.SyncServiceEvent;
+import de.danoeh.antennapod.core.event.UnreadItemsUpdateEvent;
 import de.danoeh.antennapod.model.feed.Feed;
 import de.danoeh.antennapod.model.feed.FeedItem;
 import de.danoeh.antennapod.model.feed.FeedMedia;
@@ -38,7 +39,6 @@ import de.danoeh.antennapod.core.util.URLChecker;
 import de.danoeh.antennapod.core.util.gui.NotificationUtils;
 import de.danoeh.antennapod.net.sync.gpoddernet.GpodnetService;
 import de.danoeh.antennapod.net.sync.model.EpisodeAction;
-import de.danoeh.antennapod.net.sync.model.EpisodeActionChanges;
 import de.danoeh.antennapod.net.sync.model.ISyncService;
 import de.danoeh.antennapod.net.sync.model.SubscriptionChanges;
 import de.danoeh.antennapod.net.sync.model.SyncServiceException;
@@ -51,9 +51,16 @@ import org.json.JSONArray;
 import org.json.JSONException;
 
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.locks.ReentrantLock;
 
 public class SyncService extends Worker {
@@ -67,9 +74,15 @@ public class SyncService extends Worker {
     private static final String PREF_LAST_SYNC_ATTEMPT_SUCCESS = "last_sync_attempt_success";
     private static final String TAG = "SyncService";
     private static final String WORK_ID_SYNC = "SyncServiceWorkId";
+    // Several requests of GpodnetService, so that they can be uploaded in parallel
+    private static final int EPISODE_ACTIONS_UPLOAD_BATCH_SIZE = 240;
     private static final ReentrantLock lock = new ReentrantLock();
+    private static boolean queuedChangesMoved = false; // guarded by lock
 
     private ISyncService syncServiceImpl;
+    private long uploadStartTime;
+    private final AtomicInteger uploadedActions = new AtomicInteger();
+    private final AtomicLong uploadedBytes = new AtomicLong();
 
     public SyncService(@NonNull Context context, @NonNull WorkerParameters params) {
         super(context, params);
@@ -81,12 +94,15 @@ public class SyncService extends Worker {
         if (!GpodnetPreferences.loggedIn()) {
             return Result.success();
         }
-        syncServiceImpl = new GpodnetService(AntennapodHttpClient.getHttpClient(),
+        GpodnetService gpodnetService = new GpodnetService(AntennapodHttpClient.getHttpClient(),
                 GpodnetPreferences.getHosturl(), GpodnetPreferences.getDeviceID(),
                 GpodnetPreferences.getUsername(), GpodnetPreferences.getPassword());
+        gpodnetService.setUploadProgressListener(this::onEpisodeActionsUploaded);
+        syncServiceImpl = gpodnetService;
         SharedPreferences.Editor prefs = getApplicationContext().getSharedPreferences(PREF_NAME, Context.MODE_PRIVATE)
                 .edit();
         prefs.putLong(PREF_LAST_SYNC_ATTEMPT_TIMESTAMP, System.currentTimeMillis()).apply();
+        executeLocked(() -> moveQueuedChangesToOutbox(getApplicationContext()));
         try {
             syncServiceImpl.login();
             EventBus.getDefault().postSticky(new SyncServiceEvent(R.string.sync_status_subscriptions));
@@ -110,15 +126,17 @@ public class SyncService extends Worker {
     }
 
     public static void clearQueue(Context context) {
-        executeLockedAsync(() ->
-                context.getSharedPreferences(PREF_NAME, Context.MODE_PRIVATE).edit()
+        executeLockedAsync(() -> {
+            context.getSharedPreferences(PREF_NAME, Context.MODE_PRIVATE).edit()
                     .putLong(PREF_LAST_SUBSCRIPTION_SYNC_TIMESTAMP, 0)
                     .putLong(PREF_LAST_EPISODE_ACTIONS_SYNC_TIMESTAMP, 0)
                     .putLong(PREF_LAST_SYNC_ATTEMPT_TIMESTAMP, 0)
-                    .putString(PREF_QUEUED_EPISODE_ACTIONS, "[]")
-                    .putString(PREF_QUEUED_FEEDS_ADDED, "[]")
-                    .putString(PREF_QUEUED_FEEDS_REMOVED, "[]")
-                    .apply());
+                    .remove(PREF_QUEUED_EPISODE_ACTIONS)
+                    .remove(PREF_QUEUED_FEEDS_ADDED)
+                    .remove(PREF_QUEUED_FEEDS_REMOVED)
+                    .apply();
+            SyncOutbox.clear();
+        });
     }
 
     public static void enqueueFeedAdded(Context context, String downloadUrl) {
@@ -126,15 +144,8 @@ public class SyncService extends Worker {
             return;
         }
         executeLockedAsync(() -> {
-            try {
-                SharedPreferences prefs = context.getSharedPreferences(PREF_NAME, Context.MODE_PRIVATE);
-                String json = prefs.getString(PREF_QUEUED_FEEDS_ADDED, "[]");
-                JSONArray queue = new JSONArray(json);
-                queue.put(downloadUrl);
-                prefs.edit().putString(PREF_QUEUED_FEEDS_ADDED, queue.toString()).apply();
-            } catch (JSONException e) {
-                e.printStackTrace();
-            }
+            moveQueuedChangesToOutbox(context);
+            SyncOutbox.enqueueFeedAdded(downloadUrl);
             sync(context);
         });
     }
@@ -144,15 +155,8 @@ public class SyncService extends Worker {
             return;
         }
         executeLockedAsync(() -> {
-            try {
-                SharedPreferences prefs = context.getSharedPreferences(PREF_NAME, Context.MODE_PRIVATE);
-                String json = prefs.getString(PREF_QUEUED_FEEDS_REMOVED, "[]");
-                JSONArray queue = new JSONArray(json);
-                queue.put(downloadUrl);
-                prefs.edit().putString(PREF_QUEUED_FEEDS_REMOVED, queue.toString()).apply();
-            } catch (JSONException e) {
-                e.printStackTrace();
-            }
+            moveQueuedChangesToOutbox(context);
+            SyncOutbox.enqueueFeedRemoved(downloadUrl);
             sync(context);
         });
     }
@@ -162,15 +166,8 @@ public class SyncService extends Worker {
             return;
         }
         executeLockedAsync(() -> {
-            try {
-                SharedPreferences prefs = context.getSharedPreferences(PREF_NAME, Context.MODE_PRIVATE);
-                String json = prefs.getString(PREF_QUEUED_EPISODE_ACTIONS, "[]");
-                JSONArray queue = new JSONArray(json);
-                queue.put(action.writeToJsonObject());
-                prefs.edit().putString(PREF_QUEUED_EPISODE_ACTIONS, queue.toString()).apply();
-            } catch (JSONException e) {
-                e.printStackTrace();
-            }
+            moveQueuedChangesToOutbox(context);
+            SyncOutbox.enqueueEpisodeAction(action);
             sync(context);
         });
     }
@@ -239,8 +236,9 @@ public class SyncService extends Worker {
     }
 
     /**
-     * Take the lock and execute runnable (to prevent changes to preferences being lost when enqueueing while sync is
-     * in progress). If the lock is free, the runnable is directly executed in the calling thread to prevent overhead.
+     * Take the lock and execute runnable (to prevent changes being lost when enqueueing while the queue is cleared
+     * or moved to the outbox). If the lock is free, the runnable is directly executed in the calling thread to
+     * prevent overhead.
      */
     private static void executeLockedAsync(Runnable runnable) {
         if (lock.tryLock()) {
@@ -262,6 +260,15 @@ public class SyncService extends Worker {
         }
     }
 
+    private static void executeLocked(Runnable runnable) {
+        lock.lock();
+        try {
+            runnable.run();
+        } finally {
+            lock.unlock();
+        }
+    }
+
     public static boolean isLastSyncSuccessful(Context context) {
         return context.getSharedPreferences(PREF_NAME, Context.MODE_PRIVATE)
                 .getBoolean(PREF_LAST_SYNC_ATTEMPT_SUCCESS, false);
@@ -272,49 +279,46 @@ public class SyncService extends Worker {
                 .getLong(PREF_LAST_SYNC_ATTEMPT_TIMESTAMP, 0);
     }
 
-    private List<EpisodeAction> getQueuedEpisodeActions() {
-        ArrayList<EpisodeAction> actions = new ArrayList<>();
-        try {
-            SharedPreferences prefs = getApplicationContext().getSharedPreferences(PREF_NAME, Context.MODE_PRIVATE);
-            String json = prefs.getString(PREF_QUEUED_EPISODE_ACTIONS, "[]");
-            JSONArray queue = new JSONArray(json);
-            for (int i = 0; i < queue.length(); i++) {
-                actions.add(EpisodeAction.readFromJsonObject(queue.getJSONObject(i)));
-            }
-        } catch (JSONException e) {
-            e.printStackTrace();
+    /**
+     * Older versions stored the queued changes as JSON in the preferences.
+     * Moves them to the outbox, so that they are not lost on upgrade. Needs to be called with the lock
+     * held before anything is enqueued, because the old changes would otherwise supersede newer ones.
+     */
+    private static void moveQueuedChangesToOutbox(Context context) {
+        if (queuedChangesMoved) {
+            return;
         }
-        return actions;
-    }
-
-    private List<String> getQueuedRemovedFeeds() {
-        ArrayList<String> actions = new ArrayList<>();
-        try {
-            SharedPreferences prefs = getApplicationContext().getSharedPreferences(PREF_NAME, Context.MODE_PRIVATE);
-            String json = prefs.getString(PREF_QUEUED_FEEDS_REMOVED, "[]");
-            JSONArray queue = new JSONArray(json);
-            for (int i = 0; i < queue.length(); i++) {
-                actions.add(queue.getString(i));
-            }
-        } catch (JSONException e) {
-            e.printStackTrace();
+        SharedPreferences prefs = context.getSharedPreferences(PREF_NAME, Context.MODE_PRIVATE);
+        if (!prefs.contains(PREF_QUEUED_EPISODE_ACTIONS) && !prefs.contains(PREF_QUEUED_FEEDS_ADDED)
+                && !prefs.contains(PREF_QUEUED_FEEDS_REMOVED)) {
+            queuedChangesMoved = true;
+            return;
         }
-        return actions;
-    }
-
-    private List<String> getQueuedAddedFeeds() {
-        ArrayList<String> actions = new ArrayList<>();
         try {
-            SharedPreferences prefs = getApplicationContext().getSharedPreferences(PREF_NAME, Context.MODE_PRIVATE);
-            String json = prefs.getString(PREF_QUEUED_FEEDS_ADDED, "[]");
-            JSONArray queue = new JSONArray(json);
-            for (int i = 0; i < queue.length(); i++) {
-                actions.add(queue.getString(i));
+            JSONArray added = new JSONArray(prefs.getString(PREF_QUEUED_FEEDS_ADDED, "[]"));
+            for (int i = 0; i < added.length(); i++) {
+                SyncOutbox.enqueueFeedAdded(added.getString(i));
+            }
+            JSONArray removed = new JSONArray(prefs.getString(PREF_QUEUED_FEEDS_REMOVED, "[]"));
+            for (int i = 0; i < removed.length(); i++) {
+                SyncOutbox.enqueueFeedRemoved(removed.getString(i));
+            }
+            JSONArray actions = new JSONArray(prefs.getString(PREF_QUEUED_EPISODE_ACTIONS, "[]"));
+            for (int i = 0; i < actions.length(); i++) {
+                EpisodeAction action = EpisodeAction.readFromJsonObject(actions.getJSONObject(i));
+                if (action != null) {
+                    SyncOutbox.enqueueEpisodeAction(action);
+                }
             }
         } catch (JSONException e) {
             e.printStackTrace();
         }
-        return actions;
+        prefs.edit()
+                .remove(PREF_QUEUED_EPISODE_ACTIONS)
+                .remove(PREF_QUEUED_FEEDS_ADDED)
+                .remove(PREF_QUEUED_FEEDS_REMOVED)
+                .apply();
+        queuedChangesMoved = true;
     }
 
     private void syncSubscriptions() throws SyncServiceException {
@@ -324,8 +328,10 @@ public class SyncService extends Worker {
         SubscriptionChanges subscriptionChanges = syncServiceImpl.getSubscriptionChanges(lastSync);
         long newTimeStamp = subscriptionChanges.getTimestamp();
 
-        List<String> queuedRemovedFeeds = getQueuedRemovedFeeds();
-        List<String> queuedAddedFeeds = getQueuedAddedFeeds();
+        SyncOutbox.Batch<String> removedBatch = SyncOutbox.getRemovedFeeds();
+        SyncOutbox.Batch<String> addedBatch = SyncOutbox.getAddedFeeds();
+        List<String> queuedRemovedFeeds = removedBatch.getItems();
+        List<String> queuedAddedFeeds = addedBatch.getItems();
 
         Log.d(TAG, "Downloaded subscription changes: " + subscriptionChanges);
         for (String downloadUrl : subscriptionChanges.getAdded()) {
@@ -357,18 +363,11 @@ public class SyncService extends Worker {
             Log.d(TAG, "Added: " + StringUtils.join(queuedAddedFeeds, ", "));
             Log.d(TAG, "Removed: " + StringUtils.join(queuedRemovedFeeds, ", "));
 
-            lock.lock();
-            try {
-                UploadChangesResponse uploadResponse = syncServiceImpl
-                        .uploadSubscriptionChanges(queuedAddedFeeds, queuedRemovedFeeds);
-                getApplicationContext().getSharedPreferences(PREF_NAME, Context.MODE_PRIVATE).edit()
-                        .putString(PREF_QUEUED_FEEDS_ADDED, "[]").apply();
-                getApplicationContext().getSharedPreferences(PREF_NAME, Context.MODE_PRIVATE).edit()
-                        .putString(PREF_QUEUED_FEEDS_REMOVED, "[]").apply();
-                newTimeStamp = uploadResponse.timestamp;
-            } finally {
-                lock.unlock();
-            }
+            UploadChangesResponse uploadResponse = syncServiceImpl
+                    .uploadSubscriptionChanges(queuedAddedFeeds, queuedRemovedFeeds);
+            SyncOutbox.acknowledge(addedBatch);
+            SyncOutbox.acknowledge(removedBatch);
+            newTimeStamp = uploadResponse.timestamp;
         }
         getApplicationContext().getSharedPreferences(PREF_NAME, Context.MODE_PRIVATE).edit()
                 .putLong(PREF_LAST_SUBSCRIPTION_SYNC_TIMESTAMP, newTimeStamp).apply();
@@ -378,14 +377,17 @@ public class SyncService extends Worker {
         final long lastSync = getApplicationContext().getSharedPreferences(PREF_NAME, Context.MODE_PRIVATE)
                 .getLong(PREF_LAST_EPISODE_ACTIONS_SYNC_TIMESTAMP, 0);
         EventBus.getDefault().postSticky(new SyncServiceEvent(R.string.sync_status_episodes_download));
-        EpisodeActionChanges getResponse = syncServiceImpl.getEpisodeActionChanges(lastSync);
-        long newTimeStamp = getResponse.getTimestamp();
-        List<EpisodeAction> remoteActions = getResponse.getEpisodeActions();
-        processEpisodeActions(remoteActions);
+        Map<Pair<String, String>, EpisodeAction> localMostRecentPlayAction = getLocalMostRecentPlayActions();
+        Map<Pair<String, String>, EpisodeAction> mostRecentPlayAction = new HashMap<>();
+        Set<Pair<String, String>> newItems = new LinkedHashSet<>();
+        // Remote actions are collected while the response is read,
+        // so the complete history never needs to be kept in memory
+        long newTimeStamp = syncServiceImpl.getEpisodeActionChanges(lastSync, action ->
+                collectEpisodeAction(action, localMostRecentPlayAction, mostRecentPlayAction, newItems));
+        processEpisodeActions(newItems, mostRecentPlayAction);
 
         // upload local actions
         EventBus.getDefault().postSticky(new SyncServiceEvent(R.string.sync_status_episodes_upload));
-        List<EpisodeAction> queuedEpisodeActions = getQueuedEpisodeActions();
         if (lastSync == 0) {
             EventBus.getDefault().postSticky(new SyncServiceEvent(R.string.sync_status_upload_played));
             List<FeedItem> readItems = DBReader.getPlayedItems();
@@ -401,36 +403,45 @@ public class SyncService extends Worker {
                         .position(media.getDuration() / 1000)
                         .total(media.getDuration() / 1000)
                         .build();
-                queuedEpisodeActions.add(played);
+                SyncOutbox.enqueueEpisodeAction(played);
             }
         }
-        if (queuedEpisodeActions.size() > 0) {
-            lock.lock();
-            try {
+        // Each batch is removed from the outbox as soon as it was accepted,
+        // so a failing upload only repeats the batches that were not accepted yet.
+        uploadStartTime = System.currentTimeMillis();
+        uploadedActions.set(0);
+        uploadedBytes.set(0);
+        SyncOutbox.Batch<EpisodeAction> batch = SyncOutbox.getEpisodeActions(0, EPISODE_ACTIONS_UPLOAD_BATCH_SIZE);
+        while (!batch.isEmpty()) {
+            List<EpisodeAction> queuedEpisodeActions = batch.getItems();
+            if (queuedEpisodeActions.size() > 0) {
                 Log.d(TAG, "Uploading " + queuedEpisodeActions.size() + " actions: "
                         + StringUtils.join(queuedEpisodeActions, ", "));
                 UploadChangesResponse postResponse = syncServiceImpl.uploadEpisodeActions(queuedEpisodeActions);
                 newTimeStamp = postResponse.timestamp;
                 Log.d(TAG, "Upload episode response: " + postResponse);
-                getApplicationContext().getSharedPreferences(PREF_NAME, Context.MODE_PRIVATE).edit()
-                        .putString(PREF_QUEUED_EPISODE_ACTIONS, "[]").apply();
-            } finally {
-                lock.unlock();
             }
+            SyncOutbox.acknowledge(batch);
+            batch = SyncOutbox.getEpisodeActions(batch.getLastId(), EPISODE_ACTIONS_UPLOAD_BATCH_SIZE);
         }
         getApplicationContext().getSharedPreferences(PREF_NAME, Context.MODE_PRIVATE).edit()
                 .putLong(PREF_LAST_EPISODE_ACTIONS_SYNC_TIMESTAMP, newTimeStamp).apply();
     }
 
 
-    private synchronized void processEpisodeActions(List<EpisodeAction> remoteActions) {
-        Log.d(TAG, "Processing " + remoteActions.size() + " actions");
-        if (remoteActions.size() == 0) {
-            return;
-        }
+    private void onEpisodeActionsUploaded(int numActions, long numBytes) {
+        int actions = uploadedActions.addAndGet(numActions);
+        long bytes = uploadedBytes.addAndGet(numBytes);
+        long millis = Math.max(1, System.currentTimeMillis() - uploadStartTime);
+        String bytesPerSecond = Formatter.formatShortFileSize(getApplicationContext(), bytes * 1000 / millis);
+        Log.d(TAG, "Uploaded " + actions + " actions, " + bytes + " bytes in " + millis + " ms");
+        EventBus.getDefault().postSticky(new SyncServiceEvent(R.string.sync_status_episodes_upload_progress,
+                (int) (actions * 1000L / millis), bytesPerSecond));
+    }
 
-        Map<Pair<String, String>, EpisodeAction> localMostRecentPlayAction = new ArrayMap<>();
-        for (EpisodeAction action : getQueuedEpisodeActions()) {
+    private Map<Pair<String, String>, EpisodeAction> getLocalMostRecentPlayActions() {
+        Map<Pair<String, String>, EpisodeAction> localMostRecentPlayAction = new HashMap<>();
+        for (EpisodeAction action : SyncOutbox.getEpisodeActions(0, Integer.MAX_VALUE).getItems()) {
             Pair<String, String> key = new Pair<>(action.getPodcast(), action.getEpisode());
             EpisodeAction mostRecent = localMostRecentPlayAction.get(key);
             if (mostRecent == null || mostRecent.getTimestamp() == null) {
@@ -439,50 +450,79 @@ public class SyncService extends Worker {
                 localMostRecentPlayAction.put(key, action);
             }
         }
+        return localMostRecentPlayAction;
+    }
 
-        // make sure more recent local actions are not overwritten by older remote actions
-        Map<Pair<String, String>, EpisodeAction> mostRecentPlayAction = new ArrayMap<>();
-        for (EpisodeAction action : remoteActions) {
-            Log.d(TAG, "Processing action: " + action.toString());
-            switch (action.getAction()) {
-                case NEW:
-                    FeedItem newItem = DBReader.getFeedItemByUrl(action.getPodcast(), action.getEpisode());
-                    if (newItem != null) {
-                        DBWriter.markItemPlayed(newItem, FeedItem.UNPLAYED, true);
+    /**
+     * Remembers a remote action if it needs to be applied. Only the most recent play action of
+     * each episode is kept, and only if it is more recent than the local actions of the episode.
+     */
+    private static void collectEpisodeAction(EpisodeAction action,
+                                             Map<Pair<String, String>, EpisodeAction> localMostRecentPlayAction,
+                                             Map<Pair<String, String>, EpisodeAction> mostRecentPlayAction,
+                                             Set<Pair<String, String>> newItems) {
+        Log.d(TAG, "Processing action: " + action.toString());
+        switch (action.getAction()) {
+            case NEW:
+                newItems.add(new Pair<>(action.getPodcast(), action.getEpisode()));
+                break;
+            case DOWNLOAD:
+                break;
+            case PLAY:
+                // make sure more recent local actions are not overwritten by older remote actions
+                Pair<String, String> key = new Pair<>(action.getPodcast(), action.getEpisode());
+                EpisodeAction localMostRecent = localMostRecentPlayAction.get(key);
+                if (localMostRecent == null || localMostRecent.getTimestamp() == null
+                        || localMostRecent.getTimestamp().before(action.getTimestamp())) {
+                    EpisodeAction mostRecent = mostRecentPlayAction.get(key);
+                    if (mostRecent == null || mostRecent.getTimestamp() == null) {
+                        mostRecentPlayAction.put(key, action);
+                    } else if (action.getTimestamp() != null
+                            && mostRecent.getTimestamp().before(action.getTimestamp())) {
+                        mostRecentPlayAction.put(key, action);
                     } else {
-                        Log.i(TAG, "Unknown feed item: " + action);
-                    }
-                    break;
-                case DOWNLOAD:
-                    break;
-                case PLAY:
-                    Pair<String, String> key = new Pair<>(action.getPodcast(), action.getEpisode());
-                    EpisodeAction localMostRecent = localMostRecentPlayAction.get(key);
-                    if (localMostRecent == null || localMostRecent.getTimestamp() == null
-                            || localMostRecent.getTimestamp().before(action.getTimestamp())) {
-                        EpisodeAction mostRecent = mostRecentPlayAction.get(key);
-                        if (mostRecent == null || mostRecent.getTimestamp() == null) {
-                            mostRecentPlayAction.put(key, action);
-                        } else if (action.getTimestamp() != null
-                                && mostRecent.getTimestamp().before(action.getTimestamp())) {
-                            mostRecentPlayAction.put(key, action);
-                        } else {
-                            Log.d(TAG, "No date information in action, skipping it");
-                        }
+                        Log.d(TAG, "No date information in action, skipping it");
                     }
-                    break;
-                case DELETE:
-                    // NEVER EVER call DBWriter.deleteFeedMediaOfItem() here, leads to an infinite loop
-                    break;
-                default:
-                    Log.e(TAG, "Unknown action: " + action);
-                    break;
+                }
+                break;
+            case DELETE:
+                // NEVER EVER call DBWriter.deleteFeedMediaOfItem() here, leads to an infinite loop
+                break;
+            default:
+                Log.e(TAG, "Unknown action: " + action);
+                break;
+        }
+    }
+
+    private synchronized void processEpisodeActions(Set<Pair<String, String>> newItems,
+                                                    Map<Pair<String, String>, EpisodeAction> mostRecentPlayAction) {
+        Log.d(TAG, "Processing " + newItems.size() + " new and " + mostRecentPlayAction.size() + " played episodes");
+        if (newItems.isEmpty() && mostRecentPlayAction.isEmpty()) {
+            return;
+        }
+
+        // Look up all items at once, a full sync can contain thousands of actions
+        List<Pair<String, String>> urls = new ArrayList<>(newItems);
+        urls.addAll(mostRecentPlayAction.keySet());
+        Map<Pair<String, String>, FeedItem> items = DBReader.getFeedItemsByUrl(urls);
+
+        Map<Pair<String, String>, FeedItem> updatedItems = new LinkedHashMap<>();
+        for (Pair<String, String> key : newItems) {
+            FeedItem newItem = items.get(key);
+            if (newItem != null) {
+                newItem.setPlayed(false);
+                newItem.getMedia().setPosition(0);
+                updatedItems.put(key, newItem);
+            } else {
+                Log.i(TAG, "Unknown feed item: " + key.first + " " + key.second);
             }
         }
+        boolean unreadItemsChanged = !updatedItems.isEmpty();
+
         LongList queueToBeRemoved = new LongList();
-        List<FeedItem> updatedItems = new ArrayList<>();
-        for (EpisodeAction action : mostRecentPlayAction.values()) {
-            FeedItem playItem = DBReader.getFeedItemByUrl(action.getPodcast(), action.getEpisode());
+        for (Map.Entry<Pair<String, String>, EpisodeAction> entry : mostRecentPlayAction.entrySet()) {
+            EpisodeAction action = entry.getValue();
+            FeedItem playItem = items.get(entry.getKey());
             Log.d(TAG, "Most recent play action: " + action.toString());
             if (playItem != null) {
                 FeedMedia media = playItem.getMedia();
@@ -492,12 +532,20 @@ public class SyncService extends Worker {
                     playItem.setPlayed(true);
                     queueToBeRemoved.add(playItem.getId());
                 }
-                updatedItems.add(playItem);
+                updatedItems.put(entry.getKey(), playItem);
             }
         }
         DBWriter.removeQueueItem(getApplicationContext(), false, queueToBeRemoved.toArray());
-        DBReader.loadAdditionalFeedItemListData(updatedItems);
-        DBWriter.setItemList(updatedItems);
+        List<FeedItem> itemsToWrite = new ArrayList<>(updatedItems.values());
+        DBReader.loadAdditionalFeedItemListData(itemsToWrite);
+        try {
+            DBWriter.setItemList(itemsToWrite).get();
+        } catch (InterruptedException | ExecutionException e) {
+            Log.e(TAG, Log.getStackTraceString(e));
+        }
+        if (unreadItemsChanged) {
+            EventBus.getDefault().post(new UnreadItemsUpdateEvent());
+        }
     }
 
     private void clearErrorNotifications() {
@@ -3,13 +3,21 @@ package de.danoeh.antennapod.core.syndication.handler;
 import android.text.TextUtils;
 import android.util.Log;
 
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.input.TeeInputStream;
 import org.apache.commons.io.input.XmlStreamReader;
 import org.xml.sax.InputSource;
 import org.xml.sax.SAXException;
+import org.xmlpull.v1.XmlPullParserException;
 
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.Reader;
+import java.io.SequenceInputStream;
 import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.Iterator;
@@ -45,6 +53,40 @@ public class FeedHandler {
         return new FeedHandlerResult(handler.state.feed, handler.state.alternateUrls);
     }
 
+    /**
+     * Parses the feed while it is read from the stream, without storing it in a file first.
+     * The type is detected from the first bytes of the stream. The readers used for the detection
+     * read ahead, so all bytes they read are kept and put in front of the rest of the stream again.
+     * If the stream does not contain XML, it is written to the feed's file so that it can be checked
+     * like a downloaded file. The stream is not closed.
+     */
+    public FeedHandlerResult parseFeed(Feed feed, InputStream stream) throws SAXException, IOException,
+            ParserConfigurationException, UnsupportedFeedtypeException {
+        BufferedInputStream in = new BufferedInputStream(stream);
+        ByteArrayOutputStream detectionBytes = new ByteArrayOutputStream();
+        TypeGetter.Type type;
+        try {
+            type = new TypeGetter().getType(feed, new XmlStreamReader(new TeeInputStream(in, detectionBytes)));
+        } catch (XmlPullParserException e) {
+            Log.d(TAG, "Stream is not a XML document: " + e.getMessage());
+            if (feed.getFile_url() == null) {
+                throw new UnsupportedFeedtypeException(TypeGetter.Type.INVALID);
+            }
+            FileUtils.copyToFile(new SequenceInputStream(
+                    new ByteArrayInputStream(detectionBytes.toByteArray()), in), new File(feed.getFile_url()));
+            return parseFeed(feed);
+        }
+        InputStream document = new SequenceInputStream(new ByteArrayInputStream(detectionBytes.toByteArray()), in);
+        SyndHandler handler = new SyndHandler(feed, type);
+
+        SAXParserFactory factory = SAXParserFactory.newInstance();
+        factory.setNamespaceAware(true);
+        SAXParser saxParser = factory.newSAXParser();
+        saxParser.parse(new InputSource(new XmlStreamReader(document)), handler);
+        feed.setItems(dedupItems(feed.getItems()));
+        return new FeedHandlerResult(handler.state.feed, handler.state.alternateUrls);
+    }
+
     /**
      * For updating items that are stored in the database, see also: DBTasks.searchFeedItemByIdentifyingValue
      */
@@ -10,16 +10,21 @@ import de.danoeh.antennapod.core.feed.ChapterMerger;
 import de.danoeh.antennapod.model.feed.FeedMedia;
 import de.danoeh.antennapod.core.service.download.AntennapodHttpClient;
 import de.danoeh.antennapod.core.storage.DBReader;
+import de.danoeh.antennapod.core.storage.DBWriter;
 import de.danoeh.antennapod.core.util.comparator.ChapterStartTimeComparator;
 import de.danoeh.antennapod.core.util.id3reader.ChapterReader;
+import de.danoeh.antennapod.core.util.id3reader.ID3Reader;
 import de.danoeh.antennapod.core.util.id3reader.ID3ReaderException;
 import de.danoeh.antennapod.model.playback.Playable;
 import de.danoeh.antennapod.core.util.vorbiscommentreader.VorbisCommentChapterReader;
 import de.danoeh.antennapod.core.util.vorbiscommentreader.VorbisCommentReaderException;
+import okhttp3.OkHttpClient;
 import okhttp3.Request;
 import okhttp3.Response;
+import org.apache.commons.io.IOUtils;
 import org.apache.commons.io.input.CountingInputStream;
 
+import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
@@ -57,6 +62,7 @@ public class ChapterUtils {
         }
 
         List<Chapter> chaptersFromDatabase = null;
+        List<Chapter> chaptersFromMediaFile;
         if (playable instanceof FeedMedia) {
             FeedMedia feedMedia = (FeedMedia) playable;
             if (feedMedia.getItem() == null) {
@@ -65,9 +71,10 @@ public class ChapterUtils {
             if (feedMedia.getItem().hasChapters()) {
                 chaptersFromDatabase = DBReader.loadChaptersOfFeedItem(feedMedia.getItem());
             }
+            chaptersFromMediaFile = loadCachedChaptersFromMediaFile(feedMedia, context);
+        } else {
+            chaptersFromMediaFile = ChapterUtils.loadChaptersFromMediaFile(playable, context);
         }
-
-        List<Chapter> chaptersFromMediaFile = ChapterUtils.loadChaptersFromMediaFile(playable, context);
         List<Chapter> chapters = ChapterMerger.merge(chaptersFromDatabase, chaptersFromMediaFile);
         if (chapters == null) {
             // Do not try loading again. There are no chapters.
@@ -77,14 +84,70 @@ public class ChapterUtils {
         }
     }
 
+    /**
+     * Reads the chapters from the media file, unless they were already read from the same file before.
+     * Files without chapters are remembered as well, so they are not downloaded again when streaming.
+     */
+    private static List<Chapter> loadCachedChaptersFromMediaFile(FeedMedia media, Context context) {
+        if (media.getId() == 0) {
+            return loadChaptersFromMediaFile(media, context);
+        }
+        String fingerprint = getMediaFileFingerprint(media);
+        List<Chapter> chapters = DBReader.loadChaptersOfMediaFile(media.getId(), fingerprint);
+        if (chapters != null) {
+            Log.d(TAG, "Chapters loaded from cache");
+            return chapters.isEmpty() ? null : chapters;
+        }
+        try {
+            chapters = readChaptersFromMediaFile(media, context);
+        } catch (IOException e) {
+            // Might be a temporary problem, so nothing is cached
+            Log.e(TAG, "Unable to load chapters: " + e.getMessage());
+            return null;
+        }
+        DBWriter.setChaptersOfMediaFile(media.getId(), fingerprint,
+                chapters != null ? chapters : Collections.emptyList());
+        return chapters;
+    }
+
+    /**
+     * Describes the file or URL that the chapters of the media are read from. The fingerprint changes
+     * when the episode is downloaded or deleted, the downloaded file changes or the feed
+     * publishes a different enclosure.
+     */
+    @NonNull
+    private static String getMediaFileFingerprint(FeedMedia media) {
+        if (media.localFileAvailable() && media.getLocalMediaUrl() != null) {
+            File file = new File(media.getLocalMediaUrl());
+            return "file " + file.length() + " " + file.lastModified() + " " + file.getAbsolutePath();
+        }
+        return "stream " + media.getSize() + " " + media.getStreamUrl();
+    }
+
     public static List<Chapter> loadChaptersFromMediaFile(Playable playable, Context context) {
-        try (CountingInputStream in = openStream(playable, context)) {
+        try {
+            return readChaptersFromMediaFile(playable, context);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /**
+     * @return the chapters, or null if the media file does not contain any
+     * @throws IOException if the media file could not be read, so it is unknown whether it contains chapters
+     */
+    private static List<Chapter> readChaptersFromMediaFile(Playable playable, Context context) throws IOException {
+        IOException readError = null;
+        try (CountingInputStream in = openId3TagStream(playable, context)) {
             List<Chapter> chapters = readId3ChaptersFrom(in);
             if (!chapters.isEmpty()) {
                 Log.i(TAG, "Chapters loaded");
                 return chapters;
             }
-        } catch (IOException | ID3ReaderException e) {
+        } catch (IOException e) {
+            Log.e(TAG, "Unable to load ID3 chapters: " + e.getMessage());
+            readError = e;
+        } catch (ID3ReaderException e) {
             Log.e(TAG, "Unable to load ID3 chapters: " + e.getMessage());
         }
 
@@ -94,9 +157,15 @@ public class ChapterUtils {
                 Log.i(TAG, "Chapters loaded");
                 return chapters;
             }
-        } catch (IOException | VorbisCommentReaderException e) {
+        } catch (IOException e) {
+            Log.e(TAG, "Unable to load vorbis chapters: " + e.getMessage());
+            readError = e;
+        } catch (VorbisCommentReaderException e) {
             Log.e(TAG, "Unable to load vorbis chapters: " + e.getMessage());
         }
+        if (readError != null) {
+            throw readError;
+        }
         return null;
     }
 
@@ -123,6 +192,28 @@ public class ChapterUtils {
         }
     }
 
+    /**
+     * Opens a stream that contains the ID3 tag of the media file. When streaming, only the tag is requested
+     * from the server, and frames that are not needed (like embedded pictures) are skipped without
+     * downloading them. Chapter images keep pointing to their offset in the file and are loaded lazily.
+     */
+    private static CountingInputStream openId3TagStream(Playable playable, Context context) throws IOException {
+        if (playable.localFileAvailable() || playable.getStreamUrl().startsWith(ContentResolver.SCHEME_CONTENT)) {
+            return openStream(playable, context);
+        }
+        OkHttpClient client = AntennapodHttpClient.getHttpClient();
+        byte[] header = new byte[ID3Reader.TAG_HEADER_LENGTH];
+        try (InputStream in = new RangeRequestInputStream(client, playable.getStreamUrl(), 0, header.length)) {
+            IOUtils.readFully(in, header);
+        }
+        int tagLength = ID3Reader.getTagLength(header);
+        if (tagLength < 0) {
+            // Not an ID3 tag, let the reader report that
+            return new CountingInputStream(new ByteArrayInputStream(header));
+        }
+        return new CountingInputStream(new RangeRequestInputStream(client, playable.getStreamUrl(), 0, tagLength));
+    }
+
     @NonNull
     private static List<Chapter> readId3ChaptersFrom(CountingInputStream in) throws IOException, ID3ReaderException {
         ChapterReader reader = new ChapterReader(in);
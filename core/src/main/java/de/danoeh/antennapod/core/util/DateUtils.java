@@ -14,6 +14,7 @@ import java.util.Date;
 import java.util.GregorianCalendar;
 import java.util.Locale;
 import java.util.TimeZone;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Parses several date formats.
@@ -25,10 +26,97 @@ public class DateUtils {
     private static final String TAG = "DateUtils";
     private static final TimeZone defaultTimezone = TimeZone.getTimeZone("GMT");
 
+    private static final String[] PATTERNS = {
+            "dd MMM yy HH:mm:ss Z",
+            "dd MMM yy HH:mm Z",
+            "EEE, dd MMM yyyy HH:mm:ss Z",
+            "EEE, dd MMM yyyy HH:mm:ss",
+            "EEE, dd MMMM yyyy HH:mm:ss Z",
+            "EEE, dd MMMM yyyy HH:mm:ss",
+            "EEEE, dd MMM yyyy HH:mm:ss Z",
+            "EEEE, dd MMM yy HH:mm:ss Z",
+            "EEEE, dd MMM yyyy HH:mm:ss",
+            "EEEE, dd MMM yy HH:mm:ss",
+            "EEE MMM d HH:mm:ss yyyy",
+            "EEE, dd MMM yyyy HH:mm Z",
+            "EEE, dd MMM yyyy HH:mm",
+            "EEE, dd MMMM yyyy HH:mm Z",
+            "EEE, dd MMMM yyyy HH:mm",
+            "EEEE, dd MMM yyyy HH:mm Z",
+            "EEEE, dd MMM yy HH:mm Z",
+            "EEEE, dd MMM yyyy HH:mm",
+            "EEEE, dd MMM yy HH:mm",
+            "EEE MMM d HH:mm yyyy",
+            "yyyy-MM-dd'T'HH:mm:ss",
+            "yyyy-MM-dd'T'HH:mm:ss.SSS Z",
+            "yyyy-MM-dd'T'HH:mm:ss.SSS",
+            "yyyy-MM-dd'T'HH:mm:ssZ",
+            "yyyy-MM-dd'T'HH:mm:ss'Z'",
+            "yyyy-MM-dd'T'HH:mm:ss.SSSZ",
+            "yyyy-MM-ddZ",
+            "yyyy-MM-dd",
+            "EEE d MMM yyyy HH:mm:ss 'GMT'Z (z)"
+    };
+
+    /**
+     * Formats of the pattern list, created when first needed. Feeds usually use the same format for
+     * all dates, so the pattern that matched last is tried first. Both are kept per thread for the
+     * lifetime of the thread. Parser threads are pooled and parse many feeds one after another, so the
+     * formats are reused across feeds, and the last matching pattern is carried over from the previous feed.
+     */
+    private static final ThreadLocal<PatternCache> patternCache = new ThreadLocal<PatternCache>() {
+        @Override
+        protected PatternCache initialValue() {
+            return new PatternCache();
+        }
+    };
+
+    /**
+     * The ways in which {@link #parse(String)} can find the date.
+     */
+    public enum ParsePath {
+        RFC822, RFC3339, PATTERN, FAILED;
+
+        private final AtomicLong count = new AtomicLong();
+
+        /**
+         * Number of dates that were parsed this way since the app was started.
+         */
+        public long getCount() {
+            return count.get();
+        }
+    }
+
     public static Date parse(final String input) {
         if (input == null) {
             throw new IllegalArgumentException("Date must not be null");
         }
+        String trimmed = input.trim();
+        if (trimmed.length() >= 10 && trimmed.charAt(4) == '-') {
+            long millis = RfcDateParser.parseRfc3339(trimmed);
+            if (millis != RfcDateParser.INVALID) {
+                ParsePath.RFC3339.count.incrementAndGet();
+                return new Date(millis);
+            }
+        } else {
+            long millis = RfcDateParser.parseRfc822(trimmed);
+            if (millis != RfcDateParser.INVALID) {
+                ParsePath.RFC822.count.incrementAndGet();
+                return new Date(millis);
+            }
+        }
+
+        Date result = parseWithPatterns(trimmed);
+        if (result != null) {
+            ParsePath.PATTERN.count.incrementAndGet();
+        } else {
+            ParsePath.FAILED.count.incrementAndGet();
+            Log.d(TAG, "Could not parse date string \"" + input + "\"");
+        }
+        return result;
+    }
+
+    private static Date parseWithPatterns(final String input) {
         String date = input.trim().replace('/', '-').replaceAll("( ){2,}+", " ");
 
         // remove colon from timezone to avoid differences between Android and Java SimpleDateFormat
@@ -64,63 +152,54 @@ public class DateUtils {
                 }
             }
         }
-        final String[] patterns = {
-                "dd MMM yy HH:mm:ss Z",
-                "dd MMM yy HH:mm Z",
-                "EEE, dd MMM yyyy HH:mm:ss Z",
-                "EEE, dd MMM yyyy HH:mm:ss",
-                "EEE, dd MMMM yyyy HH:mm:ss Z",
-                "EEE, dd MMMM yyyy HH:mm:ss",
-                "EEEE, dd MMM yyyy HH:mm:ss Z",
-                "EEEE, dd MMM yy HH:mm:ss Z",
-                "EEEE, dd MMM yyyy HH:mm:ss",
-                "EEEE, dd MMM yy HH:mm:ss",
-                "EEE MMM d HH:mm:ss yyyy",
-                "EEE, dd MMM yyyy HH:mm Z",
-                "EEE, dd MMM yyyy HH:mm",
-                "EEE, dd MMMM yyyy HH:mm Z",
-                "EEE, dd MMMM yyyy HH:mm",
-                "EEEE, dd MMM yyyy HH:mm Z",
-                "EEEE, dd MMM yy HH:mm Z",
-                "EEEE, dd MMM yyyy HH:mm",
-                "EEEE, dd MMM yy HH:mm",
-                "EEE MMM d HH:mm yyyy",
-                "yyyy-MM-dd'T'HH:mm:ss",
-                "yyyy-MM-dd'T'HH:mm:ss.SSS Z",
-                "yyyy-MM-dd'T'HH:mm:ss.SSS",
-                "yyyy-MM-dd'T'HH:mm:ssZ",
-                "yyyy-MM-dd'T'HH:mm:ss'Z'",
-                "yyyy-MM-dd'T'HH:mm:ss.SSSZ",
-                "yyyy-MM-ddZ",
-                "yyyy-MM-dd",
-                "EEE d MMM yyyy HH:mm:ss 'GMT'Z (z)"
-        };
-
-        SimpleDateFormat parser = new SimpleDateFormat("", Locale.US);
-        parser.setLenient(false);
-        parser.setTimeZone(defaultTimezone);
-
-        ParsePosition pos = new ParsePosition(0);
-        for (String pattern : patterns) {
-            parser.applyPattern(pattern);
+        PatternCache cache = patternCache.get();
+        Date result = cache.tryPattern(cache.lastMatch, date);
+        if (result != null) {
+            return result;
+        }
+        for (int i = 0; i < PATTERNS.length; i++) {
+            if (i == cache.lastMatch) {
+                continue;
+            }
+            result = cache.tryPattern(i, date);
+            if (result != null) {
+                cache.lastMatch = i;
+                return result;
+            }
+        }
+
+        // if date string starts with a weekday, try parsing date string without it
+        if (date.matches("^\\w+, .*$")) {
+            return parseWithPatterns(date.substring(date.indexOf(',') + 1));
+        }
+        return null;
+    }
+
+    private static class PatternCache {
+        private final SimpleDateFormat[] formats = new SimpleDateFormat[PATTERNS.length];
+        private final ParsePosition pos = new ParsePosition(0);
+        private int lastMatch = 0;
+
+        @Nullable
+        Date tryPattern(int index, String date) {
+            if (formats[index] == null) {
+                formats[index] = new SimpleDateFormat(PATTERNS[index], Locale.US);
+                formats[index].setLenient(false);
+            }
+            // Parsing a time zone name changes the time zone of the format
+            formats[index].setTimeZone(defaultTimezone);
             pos.setIndex(0);
+            pos.setErrorIndex(-1);
             try {
-                Date result = parser.parse(date, pos);
+                Date result = formats[index].parse(date, pos);
                 if (result != null && pos.getIndex() == date.length()) {
                     return result;
                 }
             } catch (Exception e) {
                 Log.e(TAG, Log.getStackTraceString(e));
             }
+            return null;
         }
-
-        // if date string starts with a weekday, try parsing date string without it
-        if (date.matches("^\\w+, .*$")) {
-            return parse(date.substring(date.indexOf(',') + 1));
-        }
-
-        Log.d(TAG, "Could not parse date string \"" + input + "\" [" + date + "]");
-        return null;
     }
 
     /**
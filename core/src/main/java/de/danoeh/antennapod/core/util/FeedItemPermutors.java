@@ -10,6 +10,7 @@ import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.PriorityQueue;
 
 import de.danoeh.antennapod.model.feed.FeedItem;
 import de.danoeh.antennapod.model.feed.SortOrder;
@@ -107,9 +108,10 @@ public class FeedItemPermutors {
      * episodes from the same feed. This is what "Smart Shuffle" tries to accomplish.
      *
      * The Smart Shuffle algorithm involves spreading episodes from each feed out over the whole
-     * queue. To do this, we calculate the number of episodes in each feed, then a common multiple
-     * (not the smallest); each episode is then spread out, and we sort the resulting list of
-     * episodes by "spread out factor" and feed name.
+     * queue. The i-th episode of a feed with n episodes in the queue is placed at the relative
+     * position i/n. Episodes at the same position are sorted by feed title. The episodes are merged
+     * with a priority queue that compares the positions as fractions, so this takes O(n log f)
+     * for n episodes from f feeds and does not overflow for any number of feeds.
      *
      * For example, given a queue containing three episodes each from three different feeds
      * (A, B, and C), a simple pubdate sort might result in a queue that looks like the following:
@@ -135,66 +137,67 @@ public class FeedItemPermutors {
         // Divide FeedItems into lists by feed
 
         Map<Long, List<FeedItem>> map = new HashMap<>();
-
-        while (!queue.isEmpty()) {
-            FeedItem item = queue.remove(0);
-            Long id = item.getFeedId();
-            if (!map.containsKey(id)) {
-                map.put(id, new ArrayList<>());
+        for (FeedItem item : queue) {
+            List<FeedItem> feedItems = map.get(item.getFeedId());
+            if (feedItems == null) {
+                feedItems = new ArrayList<>();
+                map.put(item.getFeedId(), feedItems);
             }
-            map.get(id).add(item);
+            feedItems.add(item);
         }
 
         // Sort each individual list by PubDate (ascending/descending)
 
         Comparator<FeedItem> itemComparator = ascending
-            ? (f1, f2) -> f1.getPubDate().compareTo(f2.getPubDate())
-            : (f1, f2) -> f2.getPubDate().compareTo(f1.getPubDate());
-
-        // Calculate the spread
-
-        long spread = 0;
-        for (Map.Entry<Long, List<FeedItem>> mapEntry : map.entrySet()) {
-            List<FeedItem> feedItems = mapEntry.getValue();
-            Collections.sort(feedItems, itemComparator);
-            if (spread == 0) {
-                spread = feedItems.size();
-            } else if (spread % feedItems.size() != 0){
-                spread *= feedItems.size();
-            }
-        }
+            ? (f1, f2) -> pubDate(f1).compareTo(pubDate(f2))
+            : (f1, f2) -> pubDate(f2).compareTo(pubDate(f1));
 
         // Create a list of the individual FeedItems lists, and sort it by feed title (ascending).
         // Doing this ensures that the feed order we use is predictable/deterministic.
 
         List<List<FeedItem>> feeds = new ArrayList<>(map.values());
-        Collections.sort(feeds,
-                (f1, f2) -> f1.get(0).getFeed().getTitle().compareTo(f2.get(0).getFeed().getTitle()));
-
-        // Spread each episode out
-        Map<Long, List<FeedItem>> spreadItems = new HashMap<>();
         for (List<FeedItem> feedItems : feeds) {
-            long thisSpread = spread / feedItems.size();
-            if (thisSpread == 0) {
-                thisSpread = 1;
-            }
-            // Starting from 0 ensures we front-load, so the queue starts with one episode from
-            // each feed in the queue
-            long itemSpread = 0;
-            for (FeedItem feedItem : feedItems) {
-                if (!spreadItems.containsKey(itemSpread)) {
-                    spreadItems.put(itemSpread, new ArrayList<>());
-                }
-                spreadItems.get(itemSpread).add(feedItem);
-                itemSpread += thisSpread;
+            Collections.sort(feedItems, itemComparator);
+        }
+        Collections.sort(feeds, (f1, f2) -> {
+            int result = feedTitle(f1.get(0)).compareTo(feedTitle(f2.get(0)));
+            return result != 0 ? result : Long.compare(f1.get(0).getFeedId(), f2.get(0).getFeedId());
+        });
+
+        // Take the episode with the smallest position i/n until all episodes are back in the queue.
+        // Comparing i1 * n2 with i2 * n1 is exact and cannot overflow, because both are smaller than
+        // the square of the queue size.
+
+        PriorityQueue<SpreadFeed> spreadFeeds = new PriorityQueue<>(Math.max(feeds.size(), 1),
+                (f1, f2) -> {
+                    int result = Long.compare((long) f1.next * f2.items.size(), (long) f2.next * f1.items.size());
+                    return result != 0 ? result : Integer.compare(f1.order, f2.order);
+                });
+        for (int i = 0; i < feeds.size(); i++) {
+            spreadFeeds.add(new SpreadFeed(feeds.get(i), i));
+        }
+        queue.clear();
+        while (!spreadFeeds.isEmpty()) {
+            SpreadFeed feed = spreadFeeds.poll();
+            queue.add(feed.items.get(feed.next));
+            feed.next++;
+            if (feed.next < feed.items.size()) {
+                spreadFeeds.add(feed);
             }
         }
+    }
 
-        // Go through the spread items and add them to the queue
-        List<Long> spreads = new ArrayList<>(spreadItems.keySet());
-        Collections.sort(spreads);
-        for (long itemSpread : spreads) {
-            queue.addAll(spreadItems.get(itemSpread));
+    /**
+     * Episodes of a feed that are not yet added back to the queue by {@link #smartShuffle}.
+     */
+    private static class SpreadFeed {
+        final List<FeedItem> items;
+        final int order;
+        int next = 0;
+
+        SpreadFeed(List<FeedItem> items, int order) {
+            this.items = items;
+            this.order = order;
         }
     }
 }
@@ -0,0 +1,259 @@
+package de.danoeh.antennapod.core.util;
+
+import java.util.Arrays;
+
+/**
+ * Fast and memory efficient long set. Uses open addressing with linear probing,
+ * so lookups take constant time on average and no value is boxed.
+ */
+public final class LongHashSet {
+
+    private static final float LOAD_FACTOR = 0.5f;
+
+    /**
+     * Marks empty slots. The value itself is tracked by {@link #containsFree}.
+     */
+    private static final long FREE = 0;
+
+    private long[] values;
+    private int size;
+    private boolean containsFree;
+    private int mask;
+    private int resizeThreshold;
+
+    /**
+     * Constructs an empty instance with a default initial capacity.
+     */
+    public LongHashSet() {
+        this(8);
+    }
+
+    /**
+     * Constructs an empty instance.
+     *
+     * @param expectedSize {@code >= 0;} number of values the set can hold without resizing
+     */
+    public LongHashSet(int expectedSize) {
+        if (expectedSize < 0) {
+            throw new IllegalArgumentException("expected size must be 0 or higher");
+        }
+        allocate(capacityFor(expectedSize));
+    }
+
+    public static LongHashSet of(long... values) {
+        LongHashSet result = new LongHashSet(values.length);
+        for (long value : values) {
+            result.add(value);
+        }
+        return result;
+    }
+
+    public static LongHashSet of(LongList list) {
+        LongHashSet result = new LongHashSet(list.size());
+        for (int i = 0; i < list.size(); i++) {
+            result.add(list.get(i));
+        }
+        return result;
+    }
+
+    /**
+     * Gets the number of elements in this set.
+     */
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Returns true if the given value is contained in the set
+     *
+     * @param value value to look for
+     * @return {@code true} if this set contains {@code value}, {@code false} otherwise
+     */
+    public boolean contains(long value) {
+        if (value == FREE) {
+            return containsFree;
+        }
+        int index = indexOf(value);
+        return values[index] == value;
+    }
+
+    /**
+     * Adds a value to the set. This will increase the set's capacity if necessary.
+     *
+     * @param value the value to add
+     * @return {@code true} if the value was added, {@code false} if it was already contained
+     */
+    public boolean add(long value) {
+        if (value == FREE) {
+            if (containsFree) {
+                return false;
+            }
+            containsFree = true;
+            size++;
+            return true;
+        }
+        int index = indexOf(value);
+        if (values[index] == value) {
+            return false;
+        }
+        values[index] = value;
+        size++;
+        if (size > resizeThreshold) {
+            rehash(values.length * 2);
+        }
+        return true;
+    }
+
+    /**
+     * Removes a value from this set.
+     *
+     * @param value value to remove
+     * @return {@code true} if the value was removed, {@code false} otherwise
+     */
+    public boolean remove(long value) {
+        if (value == FREE) {
+            if (!containsFree) {
+                return false;
+            }
+            containsFree = false;
+            size--;
+            return true;
+        }
+        int index = indexOf(value);
+        if (values[index] != value) {
+            return false;
+        }
+        size--;
+        // Shift following values of the probe sequence back, so that lookups still find them
+        int gap = index;
+        int next = (gap + 1) & mask;
+        while (values[next] != FREE) {
+            int home = slotOf(values[next]);
+            if (((next - home) & mask) >= ((next - gap) & mask)) {
+                values[gap] = values[next];
+                gap = next;
+            }
+            next = (next + 1) & mask;
+        }
+        values[gap] = FREE;
+        return true;
+    }
+
+    /**
+     * Removes all values from this set.
+     */
+    public void clear() {
+        Arrays.fill(values, FREE);
+        containsFree = false;
+        size = 0;
+    }
+
+    /**
+     * Returns an array with a copy of this set's values in no particular order
+     *
+     * @return array with a copy of this set's values
+     */
+    public long[] toArray() {
+        long[] result = new long[size];
+        int n = 0;
+        if (containsFree) {
+            result[n++] = FREE;
+        }
+        for (long value : values) {
+            if (value != FREE) {
+                result[n++] = value;
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public int hashCode() {
+        int hashCode = 0;
+        for (long value : toArray()) {
+            hashCode += (int) (value ^ (value >>> 32));
+        }
+        return hashCode;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        if (other == this) {
+            return true;
+        }
+        if (!(other instanceof LongHashSet)) {
+            return false;
+        }
+        LongHashSet otherSet = (LongHashSet) other;
+        if (size != otherSet.size) {
+            return false;
+        }
+        for (long value : toArray()) {
+            if (!otherSet.contains(value)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public String toString() {
+        long[] sorted = toArray();
+        Arrays.sort(sorted);
+        StringBuilder sb = new StringBuilder(size * 5 + 15);
+        sb.append("LongHashSet{");
+        for (int i = 0; i < sorted.length; i++) {
+            if (i != 0) {
+                sb.append(", ");
+            }
+            sb.append(sorted[i]);
+        }
+        sb.append("}");
+        return sb.toString();
+    }
+
+    /**
+     * Returns the slot that contains the value, or the free slot where it would be inserted.
+     */
+    private int indexOf(long value) {
+        int index = slotOf(value);
+        while (values[index] != FREE && values[index] != value) {
+            index = (index + 1) & mask;
+        }
+        return index;
+    }
+
+    private int slotOf(long value) {
+        // Spread the bits, database IDs are sequential
+        long hash = value * 0x9E3779B97F4A7C15L;
+        return (int) (hash ^ (hash >>> 32)) & mask;
+    }
+
+    private static int capacityFor(int expectedSize) {
+        int capacity = 8;
+        while (capacity * LOAD_FACTOR < expectedSize + 1) {
+            capacity <<= 1;
+        }
+        return capacity;
+    }
+
+    private void allocate(int capacity) {
+        values = new long[capacity];
+        mask = capacity - 1;
+        resizeThreshold = (int) (capacity * LOAD_FACTOR);
+    }
+
+    private void rehash(int newCapacity) {
+        long[] oldValues = values;
+        allocate(newCapacity);
+        for (long value : oldValues) {
+            if (value != FREE) {
+                values[indexOf(value)] = value;
+            }
+        }
+    }
+}
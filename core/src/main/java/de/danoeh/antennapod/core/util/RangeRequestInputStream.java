@@ -0,0 +1,164 @@
+package de.danoeh.antennapod.core.util;
+
+import android.os.SystemClock;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import org.apache.commons.io.IOUtils;
+
+/**
+ * Reads a byte range of a remote file using HTTP range requests. Skipping a large number of bytes
+ * starts a new request at the target offset instead of downloading the skipped bytes.
+ * If the server does not support range requests, the skipped bytes are downloaded and discarded.
+ */
+public class RangeRequestInputStream extends InputStream {
+    private static final String TAG = "RangeRequestStream";
+
+    /**
+     * Downloading fewer bytes than this is usually faster than starting a new request.
+     */
+    static final long MIN_SKIP_FOR_NEW_REQUEST = 64 * 1024;
+
+    private final OkHttpClient client;
+    private final String url;
+    private final long end;
+    private long position;
+    private Response response;
+    private InputStream body;
+    private boolean rangeSupported = true;
+
+    private final long startTime = SystemClock.elapsedRealtime();
+    private long bytesDownloaded = 0;
+    private long bytesSkipped = 0;
+    private int numRequests = 0;
+
+    /**
+     * @param start Offset of the first byte to read
+     * @param end   Offset after the last byte to read
+     */
+    public RangeRequestInputStream(@NonNull OkHttpClient client, @NonNull String url, long start, long end) {
+        this.client = client;
+        this.url = url;
+        this.position = start;
+        this.end = end;
+    }
+
+    private InputStream body() throws IOException {
+        if (body != null) {
+            return body;
+        }
+        Request request = new Request.Builder()
+                .url(url)
+                .header("Range", "bytes=" + position + "-" + (end - 1))
+                .build();
+        response = client.newCall(request).execute();
+        numRequests++;
+        if (!response.isSuccessful() || response.body() == null) {
+            int code = response.code();
+            closeResponse();
+            throw new IOException("Invalid response: " + code);
+        }
+        body = response.body().byteStream();
+        if (response.code() != 206) {
+            Log.d(TAG, "Server does not support range requests");
+            rangeSupported = false;
+            IOUtils.skipFully(body, position);
+            bytesDownloaded += position;
+        }
+        return body;
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (position >= end) {
+            return -1;
+        }
+        int b = body().read();
+        if (b >= 0) {
+            position++;
+            bytesDownloaded++;
+        }
+        return b;
+    }
+
+    @Override
+    public int read(@NonNull byte[] buffer, int offset, int length) throws IOException {
+        if (length == 0) {
+            return 0;
+        } else if (position >= end) {
+            return -1;
+        }
+        int numRead = body().read(buffer, offset, (int) Math.min(length, end - position));
+        if (numRead > 0) {
+            position += numRead;
+            bytesDownloaded += numRead;
+        }
+        return numRead;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        n = Math.min(n, end - position);
+        if (n <= 0) {
+            return 0;
+        }
+        if (rangeSupported && n >= MIN_SKIP_FOR_NEW_REQUEST) {
+            // The next read starts a new request at the new position
+            closeResponse();
+            position += n;
+            bytesSkipped += n;
+            return n;
+        }
+        long skipped = body().skip(n);
+        if (skipped <= 0) {
+            if (body().read() < 0) {
+                throw new EOFException("Unexpected end of stream");
+            }
+            skipped = 1;
+        }
+        position += skipped;
+        bytesDownloaded += skipped;
+        return skipped;
+    }
+
+    @Override
+    public int available() throws IOException {
+        return body != null ? (int) Math.min(body.available(), end - position) : 0;
+    }
+
+    @Override
+    public void close() {
+        closeResponse();
+        long duration = Math.max(SystemClock.elapsedRealtime() - startTime, 1);
+        Log.d(TAG, "Downloaded " + bytesDownloaded + " bytes with " + numRequests + " requests in " + duration
+                + " ms (" + (bytesDownloaded * 1000 / duration) + " bytes/s), did not download "
+                + bytesSkipped + " skipped bytes");
+    }
+
+    private void closeResponse() {
+        if (response != null) {
+            response.close();
+        }
+        response = null;
+        body = null;
+    }
+
+    public long getBytesDownloaded() {
+        return bytesDownloaded;
+    }
+
+    /**
+     * Number of bytes that were skipped without downloading them.
+     */
+    public long getBytesSkipped() {
+        return bytesSkipped;
+    }
+}
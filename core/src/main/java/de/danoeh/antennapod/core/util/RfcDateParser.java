@@ -0,0 +1,328 @@
+package de.danoeh.antennapod.core.util;
+
+/**
+ * Hand-written parser for the date formats that almost all feeds use: RFC 822 (RSS) and RFC 3339 (Atom).
+ * It does not allocate and does not use regular expressions. Strings that differ from the common shapes
+ * are rejected and need to be parsed by {@link DateUtils}' pattern list instead.
+ */
+final class RfcDateParser {
+    static final long INVALID = Long.MIN_VALUE;
+
+    private static final String[] MONTHS = {
+        "jan", "feb", "mar", "apr", "may", "jun", "jul", "aug", "sep", "oct", "nov", "dec"
+    };
+    private static final String[] FULL_MONTHS = {
+        "january", "february", "march", "april", "may", "june",
+        "july", "august", "september", "october", "november", "december"
+    };
+
+    private final String input;
+    private int pos;
+
+    private RfcDateParser(String input) {
+        this.input = input;
+        this.pos = 0;
+    }
+
+    /**
+     * Parses dates like {@code Sat, 28 Mar 2015 01:31:04 -0400}. The weekday and seconds are optional,
+     * the month can be written out and the time zone can be an offset, GMT/UT/UTC/Z,
+     * a North American zone abbreviation or CET/CEST. Without time zone, GMT is used.
+     *
+     * @return milliseconds since the epoch, or {@link #INVALID}
+     */
+    static long parseRfc822(String input) {
+        return new RfcDateParser(input).rfc822();
+    }
+
+    /**
+     * Parses dates like {@code 2015-03-28T13:31:04.963+07:00}. The time, seconds, fraction and
+     * offset are optional. Without offset, UTC is used.
+     *
+     * @return milliseconds since the epoch, or {@link #INVALID}
+     */
+    static long parseRfc3339(String input) {
+        return new RfcDateParser(input).rfc3339();
+    }
+
+    private long rfc822() {
+        skipSpaces();
+        if (pos < input.length() && isLetter(input.charAt(pos))) {
+            // The weekday is not checked, some feeds get it wrong
+            while (pos < input.length() && isLetter(input.charAt(pos))) {
+                pos++;
+            }
+            if (!consume(',')) {
+                return INVALID;
+            }
+            skipSpaces();
+        }
+        int day = number(1, 2);
+        if (day < 0 || !skipSpaces()) {
+            return INVALID;
+        }
+        int month = month();
+        if (month < 0 || !skipSpaces()) {
+            return INVALID;
+        }
+        int year = number(4, 4);
+        if (year < 0 || !skipSpaces()) {
+            return INVALID;
+        }
+        int hour = number(1, 2);
+        if (hour < 0 || !consume(':')) {
+            return INVALID;
+        }
+        int minute = number(2, 2);
+        int second = 0;
+        if (consume(':')) {
+            second = number(2, 2);
+        }
+        if (minute < 0 || second < 0) {
+            return INVALID;
+        }
+        int offsetMinutes = 0;
+        if (skipSpaces()) {
+            offsetMinutes = zone();
+        }
+        if (offsetMinutes == Integer.MIN_VALUE || pos != input.length()) {
+            return INVALID;
+        }
+        return toMillis(year, month, day, hour, minute, second, 0, offsetMinutes);
+    }
+
+    private long rfc3339() {
+        int year = number(4, 4);
+        if (year < 0 || !consume('-')) {
+            return INVALID;
+        }
+        int month = number(2, 2);
+        if (month < 0 || !consume('-')) {
+            return INVALID;
+        }
+        int day = number(2, 2);
+        if (day < 0) {
+            return INVALID;
+        }
+        if (pos == input.length()) {
+            return toMillis(year, month, day, 0, 0, 0, 0, 0);
+        }
+        if (!consume('T')) {
+            return INVALID;
+        }
+        int hour = number(2, 2);
+        if (hour < 0 || !consume(':')) {
+            return INVALID;
+        }
+        int minute = number(2, 2);
+        int second = 0;
+        int millis = 0;
+        if (consume(':')) {
+            second = number(2, 2);
+            if (consume('.')) {
+                millis = fraction();
+            }
+        }
+        if (minute < 0 || second < 0 || millis < 0) {
+            return INVALID;
+        }
+        int offsetMinutes = 0;
+        if (pos < input.length()) {
+            consume(' ');
+            if (consume('Z')) {
+                offsetMinutes = 0;
+            } else {
+                offsetMinutes = offset(true);
+            }
+        }
+        if (offsetMinutes == Integer.MIN_VALUE || pos != input.length()) {
+            return INVALID;
+        }
+        return toMillis(year, month, day, hour, minute, second, millis, offsetMinutes);
+    }
+
+    /**
+     * @return the month from 1 to 12, or -1
+     */
+    private int month() {
+        int start = pos;
+        while (pos < input.length() && isLetter(input.charAt(pos))) {
+            pos++;
+        }
+        int length = pos - start;
+        for (int i = 0; i < MONTHS.length; i++) {
+            if ((length == 3 && input.regionMatches(true, start, MONTHS[i], 0, 3))
+                    || (length == FULL_MONTHS[i].length()
+                        && input.regionMatches(true, start, FULL_MONTHS[i], 0, length))) {
+                return i + 1;
+            }
+        }
+        if (length == 4 && input.regionMatches(true, start, "sept", 0, 4)) {
+            return 9;
+        }
+        return -1;
+    }
+
+    /**
+     * @return the offset from UTC in minutes, or Integer.MIN_VALUE
+     */
+    private int zone() {
+        if (pos < input.length() && (input.charAt(pos) == '+' || input.charAt(pos) == '-')) {
+            return offset(false);
+        }
+        int start = pos;
+        while (pos < input.length() && isLetter(input.charAt(pos))) {
+            pos++;
+        }
+        switch (input.substring(start, pos)) {
+            case "GMT":
+            case "UT":
+            case "UTC":
+            case "Z":
+                return 0;
+            case "EST":
+                return -5 * 60;
+            case "EDT":
+                return -4 * 60;
+            case "CST":
+                return -6 * 60;
+            case "CDT":
+                return -5 * 60;
+            case "MST":
+                return -7 * 60;
+            case "MDT":
+                return -6 * 60;
+            case "PST":
+                return -8 * 60;
+            case "PDT":
+                return -7 * 60;
+            case "CET":
+                return 60;
+            case "CEST":
+                return 2 * 60;
+            default:
+                return Integer.MIN_VALUE;
+        }
+    }
+
+    /**
+     * Parses {@code +hhmm}, or {@code +hh:mm} if allowed.
+     */
+    private int offset(boolean allowColon) {
+        if (pos >= input.length()) {
+            return Integer.MIN_VALUE;
+        }
+        char sign = input.charAt(pos);
+        if (sign != '+' && sign != '-') {
+            return Integer.MIN_VALUE;
+        }
+        pos++;
+        int hours = number(2, 2);
+        if (allowColon) {
+            consume(':');
+        }
+        int minutes = number(2, 2);
+        if (hours < 0 || minutes < 0 || hours > 23 || minutes > 59) {
+            return Integer.MIN_VALUE;
+        }
+        int offset = hours * 60 + minutes;
+        return sign == '-' ? -offset : offset;
+    }
+
+    /**
+     * Reads the decimal places of the seconds. Only milliseconds are used.
+     */
+    private int fraction() {
+        int start = pos;
+        int millis = 0;
+        while (pos < input.length() && isDigit(input.charAt(pos))) {
+            if (pos - start < 3) {
+                millis = millis * 10 + (input.charAt(pos) - '0');
+            }
+            pos++;
+        }
+        int digits = pos - start;
+        if (digits == 0) {
+            return -1;
+        }
+        for (int i = digits; i < 3; i++) {
+            millis *= 10;
+        }
+        return millis;
+    }
+
+    /**
+     * @return the number, or -1 if there are not enough digits
+     */
+    private int number(int minDigits, int maxDigits) {
+        int start = pos;
+        int value = 0;
+        while (pos < input.length() && pos - start < maxDigits && isDigit(input.charAt(pos))) {
+            value = value * 10 + (input.charAt(pos) - '0');
+            pos++;
+        }
+        return pos - start >= minDigits ? value : -1;
+    }
+
+    private boolean consume(char c) {
+        if (pos < input.length() && input.charAt(pos) == c) {
+            pos++;
+            return true;
+        }
+        return false;
+    }
+
+    private boolean skipSpaces() {
+        int start = pos;
+        while (pos < input.length() && input.charAt(pos) == ' ') {
+            pos++;
+        }
+        return pos > start;
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private static boolean isLetter(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z');
+    }
+
+    private static long toMillis(int year, int month, int day, int hour, int minute, int second,
+                                 int millis, int offsetMinutes) {
+        if (month < 1 || month > 12 || day < 1 || day > daysInMonth(year, month)
+                || hour > 23 || minute > 59 || second > 59) {
+            return INVALID;
+        }
+        long days = daysFromCivil(year, month, day);
+        long seconds = days * 86400 + hour * 3600 + minute * 60 + second - offsetMinutes * 60L;
+        return seconds * 1000 + millis;
+    }
+
+    private static int daysInMonth(int year, int month) {
+        switch (month) {
+            case 2:
+                boolean leapYear = (year % 4 == 0 && year % 100 != 0) || year % 400 == 0;
+                return leapYear ? 29 : 28;
+            case 4:
+            case 6:
+            case 9:
+            case 11:
+                return 30;
+            default:
+                return 31;
+        }
+    }
+
+    /**
+     * Number of days since 1970-01-01 in the proleptic Gregorian calendar.
+     */
+    private static long daysFromCivil(int year, int month, int day) {
+        long y = month <= 2 ? year - 1 : year;
+        long era = (y >= 0 ? y : y - 399) / 400;
+        long yearOfEra = y - era * 400;
+        long dayOfYear = (153 * (month + (month > 2 ? -3 : 9)) + 2) / 5 + day - 1;
+        long dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+        return era * 146097 + dayOfEra - 719468;
+    }
+}
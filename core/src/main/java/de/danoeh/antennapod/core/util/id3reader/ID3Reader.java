@@ -4,10 +4,11 @@ import android.util.Log;
 import androidx.annotation.NonNull;
 import de.danoeh.antennapod.core.util.id3reader.model.FrameHeader;
 import de.danoeh.antennapod.core.util.id3reader.model.TagHeader;
-import org.apache.commons.io.IOUtils;
 import org.apache.commons.io.input.CountingInputStream;
 
+import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
 import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.nio.charset.Charset;
@@ -19,6 +20,7 @@ import java.nio.charset.Charset;
 public class ID3Reader {
     private static final String TAG = "ID3Reader";
     private static final int FRAME_ID_LENGTH = 4;
+    public static final int TAG_HEADER_LENGTH = 10;
     public static final byte ENCODING_ISO = 0;
     public static final byte ENCODING_UTF16_WITH_BOM = 1;
     public static final byte ENCODING_UTF16_WITHOUT_BOM = 2;
@@ -54,13 +56,39 @@ public class ID3Reader {
     }
 
     /**
-     * Skip a certain number of bytes on the given input stream.
+     * Returns the length of the tag, including its header.
+     *
+     * @param header The first {@link #TAG_HEADER_LENGTH} bytes of the file
+     * @return the length, or -1 if the file does not start with an ID3 tag
+     */
+    public static int getTagLength(byte[] header) throws IOException {
+        ID3Reader reader = new ID3Reader(new CountingInputStream(new ByteArrayInputStream(header)));
+        try {
+            return TAG_HEADER_LENGTH + reader.readTagHeader().getSize();
+        } catch (ID3ReaderException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * Skip a certain number of bytes on the given input stream. Uses {@link java.io.InputStream#skip(long)}
+     * instead of reading the bytes, so that streams can skip large frames like embedded pictures efficiently.
      */
     void skipBytes(int number) throws IOException, ID3ReaderException {
         if (number < 0) {
             throw new ID3ReaderException("Trying to read a negative number of bytes");
         }
-        IOUtils.skipFully(inputStream, number);
+        long remaining = number;
+        while (remaining > 0) {
+            long skipped = inputStream.skip(remaining);
+            if (skipped <= 0) {
+                if (inputStream.read() < 0) {
+                    throw new EOFException("Unexpected end of stream while skipping " + remaining + " bytes");
+                }
+                skipped = 1;
+            }
+            remaining -= skipped;
+        }
     }
 
     byte readByte() throws IOException {
@@ -15,6 +15,11 @@ import de.danoeh.antennapod.core.storage.DBReader;
 import de.danoeh.antennapod.core.storage.DBWriter;
 import de.danoeh.antennapod.model.playback.Playable;
 
+import io.reactivex.Completable;
+import io.reactivex.schedulers.Schedulers;
+
+import java.util.concurrent.ExecutionException;
+
 /**
  * Provides utility methods for Playable objects.
  */
@@ -75,12 +80,37 @@ public abstract class PlayableUtils {
     }
 
     /**
-     * Saves the current position of this object.
+     * Saves the current position of this object. When it was written to the database, the records of the
+     * media are discarded from the journal.
      *
      * @param newPosition  new playback position in ms
      * @param timestamp  current time in ms
      */
-    public static void saveCurrentPosition(Playable playable, int newPosition, long timestamp) {
+    public static void saveCurrentPosition(PlaybackPositionJournal journal, Playable playable,
+                                           int newPosition, long timestamp) {
+        FeedMedia media = updateCurrentPosition(playable, newPosition, timestamp);
+        if (media != null) {
+            long mediaId = media.getId();
+            Completable.fromFuture(DBWriter.setFeedMediaPlaybackInformation(media))
+                    .subscribeOn(Schedulers.io())
+                    .subscribe(() -> journal.discard(mediaId, timestamp),
+                            error -> Log.e(TAG, Log.getStackTraceString(error)));
+        }
+    }
+
+    /**
+     * Like {@link #saveCurrentPosition(PlaybackPositionJournal, Playable, int, long)}, but only records the position in the journal
+     * instead of writing it to the database.
+     */
+    public static void journalCurrentPosition(PlaybackPositionJournal journal, Playable playable,
+                                              int newPosition, long timestamp) {
+        FeedMedia media = updateCurrentPosition(playable, newPosition, timestamp);
+        if (media != null) {
+            journal.append(media.getId(), media.getPosition(), media.getPlayedDuration(), timestamp);
+        }
+    }
+
+    private static FeedMedia updateCurrentPosition(Playable playable, int newPosition, long timestamp) {
         playable.setPosition(newPosition);
         playable.setLastPlayedTime(timestamp);
 
@@ -94,7 +124,33 @@ public abstract class PlayableUtils {
                 media.setPlayedDuration(media.getPlayedDurationWhenStarted()
                         + playable.getPosition() - media.getStartPosition());
             }
-            DBWriter.setFeedMediaPlaybackInformation(media);
+            return media;
+        }
+        return null;
+    }
+
+    /**
+     * Writes the positions to the database that were recorded in the journal after they were last saved,
+     * for example because the app was killed during playback.
+     */
+    public static void recoverJournalledPositions(PlaybackPositionJournal journal) {
+        for (PlaybackPositionJournal.Entry entry : journal.read()) {
+            FeedMedia media = DBReader.getFeedMedia(entry.mediaId);
+            if (media == null || media.getLastPlayedTime() >= entry.timestamp) {
+                continue;
+            }
+            Log.d(TAG, "Recovering position " + entry.position + " of media " + entry.mediaId);
+            media.setPosition(entry.position);
+            media.setPlayedDuration(entry.playedDuration);
+            media.setLastPlayedTime(entry.timestamp);
+            try {
+                // Wait, so that the media is not loaded with the old position afterwards
+                DBWriter.setFeedMediaPlaybackInformation(media).get();
+            } catch (InterruptedException | ExecutionException e) {
+                Log.e(TAG, Log.getStackTraceString(e));
+                return;
+            }
         }
+        journal.clear();
     }
 }
@@ -0,0 +1,155 @@
+package de.danoeh.antennapod.core.util.playback;
+
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * Small append-only file that records the playback position while media is playing. Appending a
+ * few bytes is much cheaper than writing the FeedMedia row to the database every few seconds.
+ * The positions are written to the database when playback is paused or stopped. If the app is
+ * killed before that, the last recorded positions can be read from the journal on the next start.
+ * Records that were written to the database are discarded, and the journal is compacted to the
+ * last record of every media file when it gets large.
+ */
+public class PlaybackPositionJournal {
+    private static final String TAG = "PlaybackPositionJournal";
+    private static final int RECORD_SIZE = 8 + 4 + 4 + 8 + 8;
+    private static final int COMPACT_SIZE = 1024 * RECORD_SIZE;
+
+    private final File file;
+
+    public PlaybackPositionJournal(@NonNull File file) {
+        this.file = file;
+    }
+
+    public synchronized void append(long mediaId, int position, int playedDuration, long timestamp) {
+        if (file.length() >= COMPACT_SIZE) {
+            rewrite(read());
+        }
+        try (FileOutputStream out = new FileOutputStream(file, true)) {
+            out.write(encode(new Entry(mediaId, position, playedDuration, timestamp)));
+        } catch (IOException e) {
+            Log.e(TAG, "Could not write position: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Removes the records of the media file up to the given time, after its position was written to
+     * the database. Records of other media files and newer records are kept.
+     */
+    public synchronized void discard(long mediaId, long timestamp) {
+        List<Entry> entries = read();
+        Iterator<Entry> it = entries.iterator();
+        while (it.hasNext()) {
+            Entry entry = it.next();
+            if (entry.mediaId == mediaId && entry.timestamp <= timestamp) {
+                it.remove();
+            }
+        }
+        if (entries.isEmpty()) {
+            clear();
+        } else {
+            rewrite(entries);
+        }
+    }
+
+    /**
+     * Replaces the journal with the given records. They are written to a temporary file first,
+     * so that the journal is never left half written.
+     */
+    private void rewrite(List<Entry> entries) {
+        File tempFile = new File(file.getPath() + ".tmp");
+        try (FileOutputStream out = new FileOutputStream(tempFile)) {
+            for (Entry entry : entries) {
+                out.write(encode(entry));
+            }
+        } catch (IOException e) {
+            Log.e(TAG, "Could not compact journal: " + e.getMessage());
+            return;
+        }
+        if (!tempFile.renameTo(file)) {
+            Log.e(TAG, "Could not replace journal");
+        }
+    }
+
+    private static byte[] encode(Entry entry) {
+        ByteBuffer record = ByteBuffer.allocate(RECORD_SIZE);
+        record.putLong(entry.mediaId);
+        record.putInt(entry.position);
+        record.putInt(entry.playedDuration);
+        record.putLong(entry.timestamp);
+        CRC32 crc = new CRC32();
+        crc.update(record.array(), 0, RECORD_SIZE - 8);
+        record.putLong(crc.getValue());
+        return record.array();
+    }
+
+    /**
+     * Returns the last recorded position of every media file, in the order in which they were played.
+     * A record that was only partly written when the app was killed is ignored.
+     */
+    @NonNull
+    public synchronized List<Entry> read() {
+        Map<Long, Entry> entries = new LinkedHashMap<>();
+        if (!file.exists()) {
+            return new ArrayList<>();
+        }
+        byte[] record = new byte[RECORD_SIZE];
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            while (true) {
+                in.readFully(record);
+                ByteBuffer buffer = ByteBuffer.wrap(record);
+                CRC32 crc = new CRC32();
+                crc.update(record, 0, RECORD_SIZE - 8);
+                Entry entry = new Entry(buffer.getLong(), buffer.getInt(), buffer.getInt(), buffer.getLong());
+                if (buffer.getLong() != crc.getValue()) {
+                    Log.d(TAG, "Ignoring broken record");
+                    break;
+                }
+                entries.remove(entry.mediaId);
+                entries.put(entry.mediaId, entry);
+            }
+        } catch (EOFException e) {
+            // End of the journal, or an incomplete last record
+        } catch (IOException e) {
+            Log.e(TAG, "Could not read journal: " + e.getMessage());
+        }
+        return new ArrayList<>(entries.values());
+    }
+
+    public synchronized void clear() {
+        if (file.exists() && !file.delete()) {
+            Log.e(TAG, "Could not delete journal");
+        }
+    }
+
+    public static class Entry {
+        public final long mediaId;
+        public final int position;
+        public final int playedDuration;
+        public final long timestamp;
+
+        Entry(long mediaId, int position, int playedDuration, long timestamp) {
+            this.mediaId = mediaId;
+            this.position = position;
+            this.playedDuration = playedDuration;
+            this.timestamp = timestamp;
+        }
+    }
+}
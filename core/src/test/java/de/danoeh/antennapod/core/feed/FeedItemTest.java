@@ -10,6 +10,7 @@ import java.util.Date;
 import static de.danoeh.antennapod.core.feed.FeedItemMother.anyFeedItemWithImage;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
 
 public class FeedItemTest {
 
@@ -90,6 +91,31 @@ public class FeedItemTest {
         assertFalse(original.isNew());
     }
 
+    @Test
+    public void testDirtyFields() {
+        original.clearDirtyFields();
+        original.setTitle(original.getTitle());
+        original.setPubDate(original.getPubDate());
+        assertEquals(0, original.getDirtyFields());
+
+        original.setTitle("changed title");
+        original.setPlayed(!original.isPlayed());
+        assertEquals(FeedItem.FIELD_TITLE | FeedItem.FIELD_STATE, original.getDirtyFields());
+    }
+
+    @Test
+    public void testUpdateFromOther_unchangedItemNotDirty() {
+        changedFeedItem.setPubDate(original.getPubDate());
+        original.clearDirtyFields();
+        original.updateFromOther(changedFeedItem);
+        assertEquals(0, original.getDirtyFields());
+
+        setNewFeedItemImageDownloadUrl();
+        original.updateFromOther(changedFeedItem);
+        assertTrue(original.isDirty(FeedItem.FIELD_IMAGE_URL));
+        assertFalse(original.isDirty(FeedItem.FIELD_TITLE));
+    }
+
     private void setNewFeedItemImageDownloadUrl() {
         changedFeedItem.setImageUrl("http://example.com/new_picture");
     }
@@ -139,6 +139,23 @@ public class LocalFeedUpdaterTest {
         verifySingleFeedInDatabaseAndItemCount(1);
     }
 
+    /**
+     * Test that the metadata of files that did not change is not read again.
+     */
+    @Test
+    public void testUpdateFeed_UnchangedFilesAreNotRead() {
+        callUpdateFeed(LOCAL_FEED_DIR1);
+        ShadowMediaMetadataRetriever.addMetadata(LOCAL_FEED_DIR1 + "/track1.mp3",
+                MediaMetadataRetriever.METADATA_KEY_TITLE, "changed title");
+
+        callUpdateFeed(LOCAL_FEED_DIR1);
+
+        Feed feed = verifySingleFeedInDatabase();
+        List<FeedItem> feedItems = DBReader.getFeedItemList(feed);
+        assertEquals(1, feedItems.size());
+        assertEquals("track1.mp3", feedItems.get(0).getTitle());
+    }
+
     /**
      * Test feed icon defined in the local feed media folder.
      */
@@ -0,0 +1,86 @@
+package de.danoeh.antennapod.core.service.download;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class DownloadChunkMapTest {
+
+    @Test
+    public void testChunkRanges() {
+        DownloadChunkMap chunkMap = new DownloadChunkMap(2500, 1000);
+        assertEquals(3, chunkMap.getChunkCount());
+        assertEquals(0, chunkMap.getChunkStart(0));
+        assertEquals(999, chunkMap.getChunkEnd(0));
+        assertEquals(2000, chunkMap.getChunkStart(2));
+        assertEquals(2499, chunkMap.getChunkEnd(2));
+    }
+
+    @Test
+    public void testDoneChunks() {
+        DownloadChunkMap chunkMap = new DownloadChunkMap(20500, 1000);
+        assertFalse(chunkMap.isComplete());
+        assertEquals(0, chunkMap.getBytesDone());
+
+        chunkMap.setDone(9);
+        chunkMap.setDone(20);
+        assertTrue(chunkMap.isDone(9));
+        assertTrue(chunkMap.isDone(20));
+        assertFalse(chunkMap.isDone(8));
+        assertFalse(chunkMap.isDone(10));
+        assertEquals(1500, chunkMap.getBytesDone());
+
+        for (int i = 0; i < chunkMap.getChunkCount(); i++) {
+            chunkMap.setDone(i);
+        }
+        assertTrue(chunkMap.isComplete());
+        assertEquals(20500, chunkMap.getBytesDone());
+    }
+
+    @Test
+    public void testByteArray() {
+        DownloadChunkMap chunkMap = new DownloadChunkMap(20500, 1000);
+        chunkMap.setDone(3);
+        chunkMap.setDone(17);
+
+        DownloadChunkMap restored = DownloadChunkMap.fromByteArray(chunkMap.toByteArray());
+        assertNotNull(restored);
+        assertEquals(20500, restored.getLength());
+        assertEquals(21, restored.getChunkCount());
+        for (int i = 0; i < restored.getChunkCount(); i++) {
+            assertEquals(i == 3 || i == 17, restored.isDone(i));
+        }
+        assertNull(restored.getValidator());
+    }
+
+    @Test
+    public void testByteArrayWithValidator() {
+        DownloadChunkMap chunkMap = new DownloadChunkMap(20500, 1000, "\"abc\"");
+        chunkMap.setDone(20);
+
+        DownloadChunkMap restored = DownloadChunkMap.fromByteArray(chunkMap.toByteArray());
+        assertNotNull(restored);
+        assertEquals("\"abc\"", restored.getValidator());
+        assertTrue(restored.isDone(20));
+        assertFalse(restored.isDone(19));
+
+        byte[] data = chunkMap.toByteArray();
+        byte[] truncated = new byte[data.length - 1];
+        System.arraycopy(data, 0, truncated, 0, truncated.length);
+        assertNull(DownloadChunkMap.fromByteArray(truncated));
+    }
+
+    @Test
+    public void testInvalidByteArray() {
+        assertNull(DownloadChunkMap.fromByteArray(null));
+        assertNull(DownloadChunkMap.fromByteArray(new byte[3]));
+        byte[] data = new DownloadChunkMap(20500, 1000).toByteArray();
+        byte[] truncated = new byte[data.length - 1];
+        System.arraycopy(data, 0, truncated, 0, truncated.length);
+        assertNull(DownloadChunkMap.fromByteArray(truncated));
+    }
+}
@@ -13,6 +13,7 @@ import de.danoeh.antennapod.model.feed.FeedFile;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
 
 @RunWith(RobolectricTestRunner.class)
 public class DownloadRequestTest {
@@ -80,6 +81,9 @@ public class DownloadRequestTest {
                     .withAuthentication(username1, password1)
                     .withArguments(arg1)
                     .build();
+            DownloadChunkMap chunkMap = new DownloadChunkMap(5000, 1000);
+            chunkMap.setDone(2);
+            request1.setChunkMap(chunkMap);
 
             FeedFile item2 = createFeedItem(2);
             DownloadRequest request2 = new DownloadRequest.Builder(destStr, item2, true)
@@ -113,6 +117,8 @@ public class DownloadRequestTest {
         assertEquals(message + " - password", toParcel.get(0).getPassword(), fromParcel.get(0).getPassword());
         assertEquals(message + " - argument", toString(toParcel.get(0).getArguments()),
                 toString(fromParcel.get(0).getArguments()));
+        assertEquals(message + " - chunk map", 1000, fromParcel.get(0).getChunkMap().getBytesDone());
+        assertNull(message + " - no chunk map", fromParcel.get(1).getChunkMap());
     }
 
     private static String toString(Bundle b) {
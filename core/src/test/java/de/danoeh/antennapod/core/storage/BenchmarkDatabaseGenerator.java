@@ -0,0 +1,137 @@
+package de.danoeh.antennapod.core.storage;
+
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
+
+import java.util.Random;
+
+import de.danoeh.antennapod.model.feed.FeedItem;
+
+import static de.danoeh.antennapod.core.storage.PodDBAdapter.KEY_DESCRIPTION;
+import static de.danoeh.antennapod.core.storage.PodDBAdapter.KEY_DOWNLOADED;
+import static de.danoeh.antennapod.core.storage.PodDBAdapter.KEY_DOWNLOAD_URL;
+import static de.danoeh.antennapod.core.storage.PodDBAdapter.KEY_DURATION;
+import static de.danoeh.antennapod.core.storage.PodDBAdapter.KEY_FEED;
+import static de.danoeh.antennapod.core.storage.PodDBAdapter.KEY_FEEDITEM;
+import static de.danoeh.antennapod.core.storage.PodDBAdapter.KEY_FEED_IDENTIFIER;
+import static de.danoeh.antennapod.core.storage.PodDBAdapter.KEY_FILE_URL;
+import static de.danoeh.antennapod.core.storage.PodDBAdapter.KEY_ID;
+import static de.danoeh.antennapod.core.storage.PodDBAdapter.KEY_ITEM_IDENTIFIER;
+import static de.danoeh.antennapod.core.storage.PodDBAdapter.KEY_LAST_PLAYED_TIME;
+import static de.danoeh.antennapod.core.storage.PodDBAdapter.KEY_LINK;
+import static de.danoeh.antennapod.core.storage.PodDBAdapter.KEY_MIME_TYPE;
+import static de.danoeh.antennapod.core.storage.PodDBAdapter.KEY_PLAYBACK_COMPLETION_DATE;
+import static de.danoeh.antennapod.core.storage.PodDBAdapter.KEY_PLAYED_DURATION;
+import static de.danoeh.antennapod.core.storage.PodDBAdapter.KEY_POSITION;
+import static de.danoeh.antennapod.core.storage.PodDBAdapter.KEY_PUBDATE;
+import static de.danoeh.antennapod.core.storage.PodDBAdapter.KEY_READ;
+import static de.danoeh.antennapod.core.storage.PodDBAdapter.KEY_SIZE;
+import static de.danoeh.antennapod.core.storage.PodDBAdapter.KEY_TITLE;
+import static de.danoeh.antennapod.core.storage.PodDBAdapter.KEY_TYPE;
+import static de.danoeh.antennapod.core.storage.PodDBAdapter.TABLE_NAME_FAVORITES;
+import static de.danoeh.antennapod.core.storage.PodDBAdapter.TABLE_NAME_FEEDS;
+import static de.danoeh.antennapod.core.storage.PodDBAdapter.TABLE_NAME_FEED_ITEMS;
+import static de.danoeh.antennapod.core.storage.PodDBAdapter.TABLE_NAME_FEED_MEDIA;
+import static de.danoeh.antennapod.core.storage.PodDBAdapter.TABLE_NAME_QUEUE;
+
+/**
+ * Fills a database with a large number of feeds and episodes for benchmarks. The content only depends
+ * on the parameters, so the same database can be generated again to compare timings.
+ * A few percent of the episodes are downloaded, completed, favorites or in the queue, like in a real
+ * library with many subscriptions.
+ */
+class BenchmarkDatabaseGenerator {
+    private static final long PUBDATE_START = 1262304000000L; // 2010-01-01
+    private static final long DAY = 24 * 60 * 60 * 1000L;
+
+    private BenchmarkDatabaseGenerator() {
+    }
+
+    static String getFeedUrl(int feed) {
+        return "https://example.com/feed" + feed + ".xml";
+    }
+
+    static String getEpisodeUrl(int feed, int episode) {
+        return "https://example.com/feed" + feed + "/episode" + episode + ".mp3";
+    }
+
+    static void generate(SQLiteDatabase db, int numFeeds, int numEpisodesPerFeed, long seed) {
+        Random random = new Random(seed);
+        db.beginTransaction();
+        try {
+            SQLiteStatement insertFeed = db.compileStatement("INSERT INTO " + TABLE_NAME_FEEDS + " ("
+                    + KEY_TITLE + ", " + KEY_DOWNLOAD_URL + ", " + KEY_FEED_IDENTIFIER + ", " + KEY_LINK + ", "
+                    + KEY_TYPE + ", " + KEY_DOWNLOADED + ") VALUES (?, ?, ?, ?, 'rss', 1)");
+            SQLiteStatement insertItem = db.compileStatement("INSERT INTO " + TABLE_NAME_FEED_ITEMS + " ("
+                    + KEY_TITLE + ", " + KEY_PUBDATE + ", " + KEY_READ + ", " + KEY_LINK + ", "
+                    + KEY_DESCRIPTION + ", " + KEY_FEED + ", " + KEY_ITEM_IDENTIFIER
+                    + ") VALUES (?, ?, ?, ?, ?, ?, ?)");
+            SQLiteStatement insertMedia = db.compileStatement("INSERT INTO " + TABLE_NAME_FEED_MEDIA + " ("
+                    + KEY_DURATION + ", " + KEY_FILE_URL + ", " + KEY_DOWNLOAD_URL + ", " + KEY_DOWNLOADED + ", "
+                    + KEY_POSITION + ", " + KEY_SIZE + ", " + KEY_MIME_TYPE + ", " + KEY_PLAYBACK_COMPLETION_DATE
+                    + ", " + KEY_FEEDITEM + ", " + KEY_PLAYED_DURATION + ", " + KEY_LAST_PLAYED_TIME
+                    + ") VALUES (?, ?, ?, ?, ?, ?, 'audio/mpeg', ?, ?, ?, ?)");
+            SQLiteStatement insertFavorite = db.compileStatement("INSERT INTO " + TABLE_NAME_FAVORITES
+                    + " (" + KEY_FEEDITEM + ", " + KEY_FEED + ") VALUES (?, ?)");
+            SQLiteStatement insertQueue = db.compileStatement("INSERT INTO " + TABLE_NAME_QUEUE
+                    + " (" + KEY_ID + ", " + KEY_FEEDITEM + ", " + KEY_FEED + ") VALUES (?, ?, ?)");
+            int queuePosition = 0;
+
+            for (int f = 0; f < numFeeds; f++) {
+                insertFeed.bindString(1, "Feed " + f);
+                insertFeed.bindString(2, getFeedUrl(f));
+                insertFeed.bindString(3, getFeedUrl(f));
+                insertFeed.bindString(4, "https://example.com/" + f);
+                long feedId = insertFeed.executeInsert();
+
+                for (int e = 0; e < numEpisodesPerFeed; e++) {
+                    // Older episodes are more likely to be played
+                    boolean played = random.nextInt(numEpisodesPerFeed) > e;
+                    boolean isNew = !played && e >= numEpisodesPerFeed - 3;
+                    insertItem.bindString(1, "Episode " + e + " of feed " + f);
+                    insertItem.bindLong(2, PUBDATE_START + e * 7 * DAY + random.nextInt((int) DAY));
+                    insertItem.bindLong(3, played ? FeedItem.PLAYED : (isNew ? FeedItem.NEW : FeedItem.UNPLAYED));
+                    insertItem.bindString(4, "https://example.com/" + f + "/" + e);
+                    insertItem.bindString(5, "Description of episode " + e);
+                    insertItem.bindLong(6, feedId);
+                    insertItem.bindString(7, "guid-" + f + "-" + e);
+                    long itemId = insertItem.executeInsert();
+
+                    boolean downloaded = random.nextInt(100) < 2;
+                    boolean completed = played && random.nextInt(100) < 30;
+                    long duration = 600000 + random.nextInt(3600000);
+                    insertMedia.bindLong(1, duration);
+                    if (downloaded) {
+                        insertMedia.bindString(2, "/storage/media/" + f + "/" + e + ".mp3");
+                    } else {
+                        insertMedia.bindNull(2);
+                    }
+                    insertMedia.bindString(3, getEpisodeUrl(f, e));
+                    insertMedia.bindLong(4, downloaded ? 1 : 0);
+                    insertMedia.bindLong(5, played || random.nextInt(100) >= 5 ? 0 : random.nextInt((int) duration));
+                    insertMedia.bindLong(6, 20000000 + random.nextInt(60000000));
+                    insertMedia.bindLong(7, completed ? PUBDATE_START + e * 7 * DAY + 2 * DAY : 0);
+                    insertMedia.bindLong(8, itemId);
+                    insertMedia.bindLong(9, completed ? duration : 0);
+                    insertMedia.bindLong(10, completed ? PUBDATE_START + e * 7 * DAY + 2 * DAY : 0);
+                    insertMedia.executeInsert();
+
+                    if (random.nextInt(100) < 1) {
+                        insertFavorite.bindLong(1, itemId);
+                        insertFavorite.bindLong(2, feedId);
+                        insertFavorite.executeInsert();
+                    }
+                    if (!played && random.nextInt(100) < 2) {
+                        insertQueue.bindLong(1, queuePosition++);
+                        insertQueue.bindLong(2, itemId);
+                        insertQueue.bindLong(3, feedId);
+                        insertQueue.executeInsert();
+                    }
+                }
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+    }
+}
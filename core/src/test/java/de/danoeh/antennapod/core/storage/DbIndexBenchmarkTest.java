@@ -0,0 +1,169 @@
+package de.danoeh.antennapod.core.storage;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+
+import androidx.test.platform.app.InstrumentationRegistry;
+import de.danoeh.antennapod.core.preferences.UserPreferences;
+import de.danoeh.antennapod.model.feed.FeedItemFilter;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Ignore;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks that the lookups of the synchronization and the lists of downloaded and completed episodes use
+ * indexes, and compares the query times with and without the indexes of database version 2040006.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class DbIndexBenchmarkTest {
+    private static final long SEED = 2040006;
+    private static final int REPETITIONS = 5;
+
+    private SQLiteDatabase db;
+    private long slowQueryThresholdMs;
+
+    @Before
+    public void setUp() {
+        Context context = InstrumentationRegistry.getInstrumentation().getContext();
+        UserPreferences.init(context);
+        QueryProfiler.init(context);
+        slowQueryThresholdMs = QueryProfiler.slowQueryThresholdMs;
+
+        PodDBAdapter.init(context);
+        PodDBAdapter.deleteDatabase();
+        db = SQLiteDatabase.openDatabase(context.getDatabasePath(PodDBAdapter.DATABASE_NAME).getPath(),
+                null, SQLiteDatabase.OPEN_READWRITE);
+    }
+
+    @After
+    public void tearDown() {
+        db.close();
+        QueryProfiler.setEnabled(false);
+        QueryProfiler.slowQueryThresholdMs = slowQueryThresholdMs;
+        PodDBAdapter.tearDownTests();
+        DBWriter.tearDownTests();
+    }
+
+    @Test
+    public void testLookupsUseIndexes() throws IOException {
+        BenchmarkDatabaseGenerator.generate(db, 10, 20, SEED);
+        QueryProfiler.setEnabled(true);
+        QueryProfiler.slowQueryThresholdMs = 0;
+        for (Runnable query : getQueries().values()) {
+            query.run();
+        }
+
+        StringWriter report = new StringWriter();
+        QueryProfiler.writeReport(report);
+        assertTrue(report.toString().contains("USING INDEX " + PodDBAdapter.TABLE_NAME_FEED_MEDIA + "_"
+                + PodDBAdapter.KEY_DOWNLOAD_URL));
+        assertTrue(report.toString().contains("USING INDEX " + PodDBAdapter.TABLE_NAME_FEED_MEDIA + "_"
+                + PodDBAdapter.KEY_PLAYBACK_COMPLETION_DATE));
+    }
+
+    @Test
+    public void testNoPartialIndexes() {
+        // Partial indexes need SQLite 3.8.0, which older supported Android versions do not have
+        try (Cursor cursor = db.rawQuery("SELECT name FROM sqlite_master WHERE type = 'index'"
+                + " AND sql LIKE '% WHERE %'", null)) {
+            assertFalse(cursor.moveToFirst());
+        }
+    }
+
+    /**
+     * Generates a large database and prints the query times before and after the upgrade to version 2040006.
+     * Takes a few minutes, so it is not run with the other tests. Remove the annotation to run it.
+     */
+    @Ignore("Benchmark")
+    @Test
+    public void benchmarkIndexes() {
+        BenchmarkDatabaseGenerator.generate(db, 300, 300, SEED);
+        Map<String, Runnable> queries = getQueries();
+
+        dropIndexesOfVersion2040006();
+        Map<String, Double> before = measure(queries);
+        DBUpgrader.upgrade(db, 2040005, 2040006);
+        Map<String, Double> after = measure(queries);
+
+        System.out.println(String.format(Locale.US, "%-28s %12s %12s", "query", "before ms", "after ms"));
+        for (String name : queries.keySet()) {
+            System.out.println(String.format(Locale.US, "%-28s %12.2f %12.2f",
+                    name, before.get(name), after.get(name)));
+        }
+    }
+
+    private Map<String, Runnable> getQueries() {
+        PodDBAdapter adapter = PodDBAdapter.getInstance();
+        Map<String, Runnable> queries = new LinkedHashMap<>();
+        queries.put("getFeedItemCursor", () -> readAll(adapter.getFeedItemCursor(
+                BenchmarkDatabaseGenerator.getFeedUrl(3), BenchmarkDatabaseGenerator.getEpisodeUrl(3, 7))));
+        queries.put("getDownloadedItemsCursor", () -> readAll(adapter.getDownloadedItemsCursor()));
+        queries.put("getCompletedMediaCursor", () -> readAll(adapter.getCompletedMediaCursor(50)));
+        queries.put("favoriteEpisodes", () -> readAll(adapter.getRecentlyPublishedItemsCursor(0, 150,
+                new FeedItemFilter(FeedItemFilter.IS_FAVORITE))));
+        queries.put("downloadedEpisodes", () -> readAll(adapter.getRecentlyPublishedItemsCursor(0, 150,
+                new FeedItemFilter(FeedItemFilter.DOWNLOADED))));
+        queries.put("unplayedCounters", () -> adapter.getFeedCounters(UserPreferences.FEED_COUNTER_SHOW_UNPLAYED));
+        queries.put("downloadedCounters", () -> adapter.getFeedCounters(UserPreferences.FEED_COUNTER_SHOW_DOWNLOADED));
+        queries.put("getNumberOfDownloadedEpisodes", adapter::getNumberOfDownloadedEpisodes);
+        return queries;
+    }
+
+    private static void readAll(Cursor cursor) {
+        try (Cursor c = cursor) {
+            while (c.moveToNext()) {
+                c.getLong(0);
+            }
+        }
+    }
+
+    /**
+     * Returns the median duration of each query in milliseconds, including reading all rows.
+     */
+    private static Map<String, Double> measure(Map<String, Runnable> queries) {
+        Map<String, Double> result = new LinkedHashMap<>();
+        for (Map.Entry<String, Runnable> query : queries.entrySet()) {
+            long[] durations = new long[REPETITIONS];
+            for (int i = 0; i < REPETITIONS; i++) {
+                long start = System.nanoTime();
+                query.getValue().run();
+                durations[i] = System.nanoTime() - start;
+            }
+            Arrays.sort(durations);
+            result.put(query.getKey(), durations[REPETITIONS / 2] / 1e6);
+        }
+        return result;
+    }
+
+    /**
+     * Restores the indexes of database version 2040005.
+     */
+    private void dropIndexesOfVersion2040006() {
+        String[] indexes = {
+                PodDBAdapter.TABLE_NAME_FEED_ITEMS + "_" + PodDBAdapter.KEY_FEED + "_" + PodDBAdapter.KEY_READ,
+                PodDBAdapter.TABLE_NAME_FEEDS + "_" + PodDBAdapter.KEY_DOWNLOAD_URL,
+                PodDBAdapter.TABLE_NAME_FEED_MEDIA + "_" + PodDBAdapter.KEY_DOWNLOAD_URL,
+                PodDBAdapter.TABLE_NAME_FEED_MEDIA + "_" + PodDBAdapter.KEY_DOWNLOADED,
+                PodDBAdapter.TABLE_NAME_FEED_MEDIA + "_" + PodDBAdapter.KEY_PLAYBACK_COMPLETION_DATE,
+                PodDBAdapter.TABLE_NAME_FAVORITES + "_" + PodDBAdapter.KEY_FEEDITEM
+        };
+        for (String index : indexes) {
+            db.execSQL("DROP INDEX " + index);
+        }
+        db.execSQL(PodDBAdapter.CREATE_INDEX_FEEDITEMS_FEED);
+    }
+}
@@ -3,13 +3,20 @@ package de.danoeh.antennapod.core.storage;
 import android.content.Context;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.Date;
 import java.util.List;
+import java.util.Map;
 import java.util.Random;
 
+import androidx.core.util.Pair;
 import androidx.test.platform.app.InstrumentationRegistry;
+import de.danoeh.antennapod.core.feed.ID3Chapter;
+import de.danoeh.antennapod.model.feed.Chapter;
 import de.danoeh.antennapod.model.feed.Feed;
 import de.danoeh.antennapod.model.feed.FeedItem;
+import de.danoeh.antennapod.model.feed.FeedItemFilter;
 import de.danoeh.antennapod.model.feed.FeedMedia;
 import de.danoeh.antennapod.core.preferences.UserPreferences;
 import de.danoeh.antennapod.core.util.LongList;
@@ -407,6 +414,43 @@ public class DbReaderTest {
         }
     }
 
+    @Test
+    public void testGetStatistics() {
+        List<Feed> feeds = saveFeedlist(2, 3, true);
+        Feed feed = feeds.get(0);
+        PodDBAdapter adapter = PodDBAdapter.getInstance();
+        adapter.open();
+        for (int i = 0; i < feed.getItems().size(); i++) {
+            FeedMedia media = feed.getItems().get(i).getMedia();
+            media.setDuration(60000);
+            media.setPosition(i * 10000);
+            media.setPlayedDuration(i * 20000);
+            adapter.setMedia(media);
+        }
+        FeedMedia downloaded = feed.getItems().get(0).getMedia();
+        downloaded.setFile_url("file");
+        downloaded.setDownloaded(true);
+        downloaded.setSize(1234);
+        adapter.setMedia(downloaded);
+        adapter.close();
+
+        List<StatisticsItem> statistics = DBReader.getStatistics();
+        assertEquals(2, statistics.size());
+        StatisticsItem item = statistics.get(0);
+        assertEquals(feed.getId(), item.feed.getId());
+        assertEquals(3, item.episodes);
+        assertEquals(180, item.time);
+        assertEquals(60, item.timePlayed); // 0 + 20 + 40
+        assertEquals(180, item.timePlayedCountAll); // all items are marked as played
+        assertEquals(2, item.episodesStarted);
+        assertEquals(3, item.episodesStartedIncludingMarked);
+        assertEquals(1234, item.totalDownloadSize);
+        assertEquals(1, item.episodesDownloadCount);
+
+        assertEquals(feeds.get(1).getId(), statistics.get(1).feed.getId());
+        assertEquals(0, statistics.get(1).totalDownloadSize);
+    }
+
     @Test
     public void testGetItemWithChapters() {
         final int numChapters = 3;
@@ -417,4 +461,85 @@ public class DbReaderTest {
         assertTrue(item2.hasChapters());
         assertEquals(item1.getChapters(), item2.getChapters());
     }
+
+    @Test
+    public void testGetFeedItemsByUrl() {
+        List<Feed> feeds = saveFeedlist(2, 3, true);
+        Pair<String, String> firstFeedItem = new Pair<>("url0", "url1");
+        Pair<String, String> secondFeedItem = new Pair<>("url1", "url2");
+        Map<Pair<String, String>, FeedItem> items = DBReader.getFeedItemsByUrl(Arrays.asList(
+                firstFeedItem, secondFeedItem, new Pair<>("url0", "url9"), new Pair<>("url5", "url0")));
+
+        assertEquals(2, items.size());
+        assertEquals(feeds.get(0).getId(), items.get(firstFeedItem).getFeedId());
+        assertEquals("url1", items.get(firstFeedItem).getMedia().getDownload_url());
+        assertEquals(feeds.get(1).getId(), items.get(secondFeedItem).getFeedId());
+        assertEquals("url2", items.get(secondFeedItem).getMedia().getDownload_url());
+    }
+
+    @Test
+    public void testGetFeedItemsByUrlManyPodcasts() {
+        saveFeedlist(2, 3, true);
+        List<Pair<String, String>> urls = new ArrayList<>();
+        for (int i = 0; i < 2 * PodDBAdapter.IN_OPERATOR_MAXIMUM; i++) {
+            urls.add(new Pair<>("unknown-podcast" + i, "url1"));
+        }
+        Pair<String, String> feedItem = new Pair<>("url1", "url2");
+        urls.add(feedItem);
+        Map<Pair<String, String>, FeedItem> items = DBReader.getFeedItemsByUrl(urls);
+
+        assertEquals(1, items.size());
+        assertEquals("url2", items.get(feedItem).getMedia().getDownload_url());
+    }
+
+    @Test
+    public void testLoadChaptersOfMediaFile() {
+        List<Feed> feeds = saveFeedlist(1, 2, true);
+        long mediaId = feeds.get(0).getItems().get(0).getMedia().getId();
+        long otherMediaId = feeds.get(0).getItems().get(1).getMedia().getId();
+        assertNull(DBReader.loadChaptersOfMediaFile(mediaId, "file1"));
+
+        PodDBAdapter adapter = PodDBAdapter.getInstance();
+        adapter.open();
+        adapter.setMediaChapters(mediaId, "file1", Arrays.asList(
+                new ID3Chapter(2000, "second", null, null), new ID3Chapter(0, "first", null, null)));
+        adapter.setMediaChapters(otherMediaId, "file2", Collections.emptyList());
+        adapter.close();
+
+        List<Chapter> chapters = DBReader.loadChaptersOfMediaFile(mediaId, "file1");
+        assertEquals(2, chapters.size());
+        assertEquals("first", chapters.get(0).getTitle());
+        assertEquals(ID3Chapter.CHAPTERTYPE_ID3CHAPTER, chapters.get(1).getChapterType());
+        assertEquals(0, chapters.get(1).getId());
+        assertNull(DBReader.loadChaptersOfMediaFile(mediaId, "file1-changed"));
+        assertTrue(DBReader.loadChaptersOfMediaFile(otherMediaId, "file2").isEmpty());
+    }
+
+    @Test
+    public void testGetRecentlyPublishedEpisodesWithPageToken() {
+        Feed feed = saveFeedlist(1, 10, true).get(0);
+        for (int i = 0; i < feed.getItems().size(); i++) {
+            // Two episodes each are published at the same time
+            feed.getItems().get(i).setPubDate(new Date((i / 2) * 1000L));
+        }
+        PodDBAdapter adapter = PodDBAdapter.getInstance();
+        adapter.open();
+        adapter.setFeedItemlist(feed.getItems());
+        adapter.close();
+
+        List<FeedItem> expected = DBReader.getRecentlyPublishedEpisodes(0, Integer.MAX_VALUE,
+                FeedItemFilter.unfiltered());
+        List<FeedItem> items = new ArrayList<>();
+        List<FeedItem> page;
+        do {
+            page = DBReader.getRecentlyPublishedEpisodes(FeedItemPageToken.after(items), 3,
+                    FeedItemFilter.unfiltered());
+            items.addAll(page);
+        } while (page.size() == 3);
+
+        assertEquals(10, items.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i).getId(), items.get(i).getId());
+        }
+    }
 }
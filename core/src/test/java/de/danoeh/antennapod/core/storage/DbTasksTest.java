@@ -16,6 +16,7 @@ import java.util.Arrays;
 import java.util.Collections;
 import java.util.Date;
 import java.util.List;
+import java.util.concurrent.FutureTask;
 
 import de.danoeh.antennapod.core.ApplicationCallbacks;
 import de.danoeh.antennapod.core.ClientConfig;
@@ -229,6 +230,114 @@ public class DbTasksTest {
     }
 
 
+    @Test
+    public void testSearchFeedItems() throws Exception {
+        final Feed feed = new Feed("url", null, "title");
+        feed.setItems(new ArrayList<>());
+        FeedItem descriptionMatch = new FeedItem(0, "first episode", "id 0", "link 0",
+                new Date(2), FeedItem.UNPLAYED, feed);
+        descriptionMatch.setDescriptionIfLonger("<p>We talk about podcasting</p>");
+        feed.getItems().add(descriptionMatch);
+        FeedItem titleMatch = new FeedItem(0, "Podcasting basics", "id 1", "link 1",
+                new Date(1), FeedItem.UNPLAYED, feed);
+        feed.getItems().add(titleMatch);
+        feed.getItems().add(new FeedItem(0, "unrelated", "id 2", "link 2",
+                new Date(3), FeedItem.UNPLAYED, feed));
+        PodDBAdapter adapter = PodDBAdapter.getInstance();
+        adapter.open();
+        adapter.setCompleteFeed(feed);
+        adapter.close();
+
+        List<FeedItem> result = runSearch(DBTasks.searchFeedItems(context, 0, "podcast"));
+        assertEquals(2, result.size());
+        assertEquals(titleMatch.getId(), result.get(0).getId()); // title matches first
+        assertEquals(descriptionMatch.getId(), result.get(1).getId());
+
+        assertEquals(0, runSearch(DBTasks.searchFeedItems(context, 0, "cast")).size()); // only word beginnings
+        assertEquals(1, runSearch(DBTasks.searchFeedItems(context, 0, "FIRST epi")).size());
+        assertEquals(0, runSearch(DBTasks.searchFeedItems(context, 0, "\"*:-")).size());
+        assertEquals(0, runSearch(DBTasks.searchFeedItems(context, 0, "   ")).size());
+    }
+
+    @Test
+    public void testSearchFeedItemsSubstring() throws Exception {
+        final Feed feed = new Feed("url", null, "title");
+        feed.setItems(new ArrayList<>());
+        FeedItem cjk = new FeedItem(0, "\u4eca\u65e5\u306e\u30cb\u30e5\u30fc\u30b9", "id 0", "link 0",
+                new Date(2), FeedItem.UNPLAYED, feed);
+        feed.getItems().add(cjk);
+        FeedItem punctuation = new FeedItem(0, "What's new in 100% C++", "id 1", "link 1",
+                new Date(1), FeedItem.UNPLAYED, feed);
+        feed.getItems().add(punctuation);
+        FeedItem nonAscii = new FeedItem(0, "\u00dcber B\u00fccher", "id 2", "link 2",
+                new Date(0), FeedItem.UNPLAYED, feed);
+        feed.getItems().add(nonAscii);
+        PodDBAdapter adapter = PodDBAdapter.getInstance();
+        adapter.open();
+        adapter.setCompleteFeed(feed);
+        adapter.close();
+
+        List<FeedItem> result = runSearch(DBTasks.searchFeedItems(context, 0, "\u30cb\u30e5\u30fc\u30b9"));
+        assertEquals(1, result.size());
+        assertEquals(cjk.getId(), result.get(0).getId());
+        result = runSearch(DBTasks.searchFeedItems(context, 0, "100% c++"));
+        assertEquals(1, result.size());
+        assertEquals(punctuation.getId(), result.get(0).getId());
+        assertEquals(0, runSearch(DBTasks.searchFeedItems(context, 0, "\u30cb%")).size());
+        result = runSearch(DBTasks.searchFeedItems(context, 0, "b\u00fcch"));
+        assertEquals(1, result.size());
+        assertEquals(nonAscii.getId(), result.get(0).getId());
+        assertEquals(0, runSearch(DBTasks.searchFeedItems(context, 0, "new OR b\u00fcch")).size());
+    }
+
+    @Test
+    public void testSearchFeedItemsIndexUpdated() throws Exception {
+        final Feed feed = new Feed("url", null, "title");
+        feed.setItems(new ArrayList<>());
+        FeedItem item = new FeedItem(0, "old title", "id 0", "link 0", new Date(), FeedItem.UNPLAYED, feed);
+        feed.getItems().add(item);
+        PodDBAdapter adapter = PodDBAdapter.getInstance();
+        adapter.open();
+        adapter.setCompleteFeed(feed);
+        item.setTitle("new title");
+        adapter.setSingleFeedItem(item);
+        adapter.close();
+
+        assertEquals(0, runSearch(DBTasks.searchFeedItems(context, 0, "old")).size());
+        assertEquals(1, runSearch(DBTasks.searchFeedItems(context, 0, "new")).size());
+
+        DBWriter.deleteFeedItems(context, feed.getItems()).get();
+        assertEquals(0, runSearch(DBTasks.searchFeedItems(context, 0, "new")).size());
+    }
+
+    @Test
+    public void testSearchFeeds() throws Exception {
+        Feed feed = new Feed("url", null, "Linux weekly");
+        feed.setItems(new ArrayList<>());
+        Feed authorMatch = new Feed("url2", null, "Tech news");
+        authorMatch.setAuthor("Linux foundation");
+        authorMatch.setItems(new ArrayList<>());
+        PodDBAdapter adapter = PodDBAdapter.getInstance();
+        adapter.open();
+        adapter.setCompleteFeed(feed, authorMatch);
+        adapter.close();
+
+        List<Feed> result = runSearch(DBTasks.searchFeeds(context, "linux"));
+        assertEquals(2, result.size());
+        assertEquals(feed.getId(), result.get(0).getId());
+        assertEquals(authorMatch.getId(), result.get(1).getId());
+
+        result = runSearch(DBTasks.searchFeeds(context, "lin"));
+        assertEquals(2, result.size());
+        assertEquals(feed.getId(), result.get(0).getId());
+        assertEquals(0, runSearch(DBTasks.searchFeeds(context, "inux")).size());
+    }
+
+    private static <T> T runSearch(FutureTask<T> task) throws Exception {
+        task.run();
+        return task.get();
+    }
+
     @SuppressWarnings("SameParameterValue")
     private void updatedFeedTest(final Feed newFeed, long feedID, List<Long> itemIDs,
                                  int numItemsOld, int numItemsNew) {
@@ -123,6 +123,31 @@ public class DbWriterTest {
         assertEquals(duration, mediaFromDb.getDuration());
     }
 
+    @Test
+    public void testBatchedWritesKeepOrder() throws Exception {
+        Feed feed = new Feed("url", null, "title");
+        List<FeedItem> items = new ArrayList<>();
+        feed.setItems(items);
+        FeedItem item = new FeedItem(0, "Item", "Item", "url", new Date(), FeedItem.UNPLAYED, feed);
+        items.add(item);
+        FeedMedia media = new FeedMedia(0, item, 100, 1, 1, "mime_type",
+                "dummy path", "download_url", true, null, 0, 0);
+        item.setMedia(media);
+        DBWriter.setFeedItem(item).get(TIMEOUT, TimeUnit.SECONDS);
+
+        media.setPosition(50);
+        DBWriter.setFeedMediaPlaybackInformation(media);
+        DBWriter.markItemPlayed(FeedItem.PLAYED, false, item.getId());
+        DBWriter.markItemPlayed(FeedItem.UNPLAYED, false, item.getId());
+        DBWriter.markItemPlayed(item, FeedItem.PLAYED, true).get(TIMEOUT, TimeUnit.SECONDS);
+
+        FeedItem itemFromDb = DBReader.getFeedItem(item.getId());
+        assertTrue(itemFromDb.isPlayed());
+        assertEquals(0, itemFromDb.getMedia().getPosition());
+        assertTrue(DBWriter.getLastWriteBatchSize() > 0);
+        assertEquals(0, DBWriter.getWriteQueueDepth());
+    }
+
     @Test
     public void testDeleteFeedMediaOfItemFileExists() throws Exception {
         File dest = new File(context.getExternalFilesDir(TEST_FOLDER), "testFile");
@@ -751,6 +776,30 @@ public class DbWriterTest {
         }
     }
 
+    @Test
+    public void testMoveQueueItemUntilKeysAreRebalanced() throws Exception {
+        final int numItems = 4;
+        Feed feed = new Feed("url", null, "title");
+        feed.setItems(new ArrayList<>());
+        for (int i = 0; i < numItems; i++) {
+            FeedItem item = new FeedItem(0, "title " + i, "id " + i, "link " + i,
+                    new Date(), FeedItem.PLAYED, feed);
+            feed.getItems().add(item);
+        }
+        withPodDB(adapter -> {
+            adapter.setCompleteFeed(feed);
+            adapter.setQueue(feed.getItems());
+        });
+
+        // Every move takes a key between the first two items, so their distance shrinks until it is used up
+        List<FeedItem> expected = new ArrayList<>(feed.getItems());
+        for (int i = 0; i < 40; i++) {
+            DBWriter.moveQueueItem(2, 1, false).get(TIMEOUT, TimeUnit.SECONDS);
+            expected.add(1, expected.remove(2));
+            assertQueueByItemIds("Move " + i, FeedItemUtil.getIds(expected));
+        }
+    }
+
     @Test
     public void testMarkFeedRead() throws Exception {
         final int numItems = 10;
@@ -835,6 +884,28 @@ public class DbWriterTest {
         }
     }
 
+    @Test
+    public void testSetCompleteFeedOnlyWritesChangedItems() throws Exception {
+        Feed feed = createTestFeed(2);
+        Feed loadedFeed = DBReader.getFeed(feed.getId());
+        assertNotNull(loadedFeed);
+        FeedItem changedItem = loadedFeed.getItems().get(0);
+        FeedItem unchangedItem = loadedFeed.getItems().get(1);
+        changedItem.setTitle("new title");
+
+        // Changed in the database after the feed was loaded, must not be overwritten
+        withPodDB(adapter -> adapter.setFeedItemRead(FeedItem.UNPLAYED, changedItem.getId(), unchangedItem.getId()));
+        DBWriter.setCompleteFeed(loadedFeed).get(TIMEOUT, TimeUnit.SECONDS);
+
+        FeedItem changedItemFromDb = DBReader.getFeedItem(changedItem.getId());
+        FeedItem unchangedItemFromDb = DBReader.getFeedItem(unchangedItem.getId());
+        assertEquals("new title", changedItemFromDb.getTitle());
+        assertFalse(changedItemFromDb.isPlayed());
+        assertEquals(unchangedItem.getTitle(), unchangedItemFromDb.getTitle());
+        assertFalse(unchangedItemFromDb.isPlayed());
+        assertEquals(0, changedItem.getDirtyFields());
+    }
+
     private static Feed createTestFeed(int numItems) {
         Feed feed = new Feed("url", null, "title");
         feed.setItems(new ArrayList<>());
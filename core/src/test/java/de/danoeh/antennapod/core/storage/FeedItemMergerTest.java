@@ -0,0 +1,171 @@
+package de.danoeh.antennapod.core.storage;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import de.danoeh.antennapod.model.feed.Feed;
+import de.danoeh.antennapod.model.feed.FeedItem;
+import de.danoeh.antennapod.model.feed.FeedMedia;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Test class for {@link FeedItemMerger}.
+ */
+public class FeedItemMergerTest {
+
+    @Test
+    public void testMergeNewItems() {
+        Feed savedFeed = createFeed(0, 5);
+        Feed newFeed = createFeed(0, 7);
+
+        FeedItemMerger.Diff diff = FeedItemMerger.merge(savedFeed, newFeed, false);
+        assertEquals(2, diff.inserted.size());
+        assertEquals(5, diff.updated.size());
+        assertEquals(0, diff.removed.size());
+        assertEquals(7, savedFeed.getItems().size());
+        for (FeedItem item : diff.inserted) {
+            assertSame(savedFeed, item.getFeed());
+            assertTrue(item.isNew());
+        }
+    }
+
+    @Test
+    public void testMergeRemoveUnlistedItems() {
+        Feed savedFeed = createFeed(0, 10);
+        Feed newFeed = createFeed(2, 10);
+
+        FeedItemMerger.Diff diff = FeedItemMerger.merge(savedFeed, newFeed, true);
+        assertEquals(0, diff.inserted.size());
+        assertEquals(8, diff.updated.size());
+        assertEquals(2, diff.removed.size());
+        assertEquals(8, savedFeed.getItems().size());
+        for (FeedItem item : savedFeed.getItems()) {
+            // The items are not saved yet, so they all have id 0 and equals() can not tell them apart
+            assertNotSame(diff.removed.get(0), item);
+        }
+    }
+
+    @Test
+    public void testMergeDuplicateByStreamUrl() {
+        Feed savedFeed = createFeed(0, 3);
+        Feed newFeed = createFeed(0, 3);
+        FeedItem changed = newFeed.getItems().get(0);
+        changed.setItemIdentifier("changed id");
+        changed.setTitle("changed title");
+
+        FeedItemMerger.Diff diff = FeedItemMerger.merge(savedFeed, newFeed, false);
+        assertEquals(0, diff.inserted.size());
+        assertEquals(1, diff.repairedDuplicates.size());
+        assertEquals(3, savedFeed.getItems().size());
+        FeedItem repaired = savedFeed.getItems().get(0);
+        assertEquals("changed id", repaired.getItemIdentifier());
+        assertEquals("changed title", repaired.getTitle());
+    }
+
+    @Test
+    public void testMergeDuplicateByTitleAndPubDate() {
+        Feed savedFeed = createFeed(0, 3);
+        Feed newFeed = createFeed(0, 3);
+        FeedItem changed = newFeed.getItems().get(1);
+        changed.setItemIdentifier("changed id");
+        changed.getMedia().setDownload_url("changed url");
+
+        FeedItemMerger.Diff diff = FeedItemMerger.merge(savedFeed, newFeed, false);
+        assertEquals(0, diff.inserted.size());
+        assertEquals(1, diff.repairedDuplicates.size());
+        assertEquals("changed id", savedFeed.getItems().get(1).getItemIdentifier());
+    }
+
+    @Test
+    public void testMergeItemWithoutMedia() {
+        Feed savedFeed = createFeed(0, 3);
+        Feed newFeed = createFeed(0, 3);
+        FeedItem item = new FeedItem(0, "no media", "no media id", "link", new Date(100), FeedItem.UNPLAYED, newFeed);
+        newFeed.getItems().add(0, item);
+
+        FeedItemMerger.Diff diff = FeedItemMerger.merge(savedFeed, newFeed, true);
+        assertEquals(1, diff.inserted.size());
+        assertSame(item, diff.inserted.get(0));
+        assertEquals(0, diff.removed.size());
+    }
+
+    @Test
+    public void testMergeInsertsAtIndexOfNewFeed() {
+        Feed savedFeed = createFeed(0, 3);
+        Feed newFeed = createFeed(0, 3);
+        FeedItem first = new FeedItem(0, "first", "first id", "link", new Date(10000), FeedItem.UNPLAYED, newFeed);
+        FeedItem middle = new FeedItem(0, "middle", "middle id", "link", new Date(1500), FeedItem.UNPLAYED, newFeed);
+        FeedItem last = new FeedItem(0, "last", "last id", "link", new Date(0), FeedItem.UNPLAYED, newFeed);
+        newFeed.getItems().add(0, first);
+        newFeed.getItems().add(2, middle);
+        newFeed.getItems().add(last);
+
+        FeedItemMerger.merge(savedFeed, newFeed, false);
+        List<FeedItem> items = savedFeed.getItems();
+        assertEquals(6, items.size());
+        assertSame(first, items.get(0));
+        assertEquals("id 2", items.get(1).getItemIdentifier());
+        assertSame(middle, items.get(2));
+        assertEquals("id 1", items.get(3).getItemIdentifier());
+        assertEquals("id 0", items.get(4).getItemIdentifier());
+        assertSame(last, items.get(5));
+    }
+
+    @Test
+    public void testMergeRepairedIdentifierIsReindexed() {
+        Feed savedFeed = createFeed(0, 2);
+        Feed newFeed = createFeed(0, 2);
+        newFeed.getItems().get(0).setItemIdentifier("changed id");
+        // Reuses the identifier that the saved item had before it was repaired
+        FeedItem reused = new FeedItem(0, "other", "id 1", "link", new Date(5000), FeedItem.UNPLAYED, newFeed);
+        newFeed.getItems().add(1, reused);
+
+        FeedItemMerger.Diff diff = FeedItemMerger.merge(savedFeed, newFeed, true);
+        assertEquals(1, diff.repairedDuplicates.size());
+        assertEquals(1, diff.inserted.size());
+        assertSame(reused, diff.inserted.get(0));
+        assertEquals(0, diff.removed.size());
+        assertEquals(3, savedFeed.getItems().size());
+        assertEquals("changed id", savedFeed.getItems().get(0).getItemIdentifier());
+    }
+
+    /**
+     * Not a strict performance test, but makes regressions to quadratic behavior obvious.
+     */
+    @Test
+    public void testMergeLargeFeeds() {
+        final int numItems = 10000;
+        Feed savedFeed = createFeed(0, numItems);
+        Feed newFeed = createFeed(numItems / 10, numItems + numItems / 10);
+
+        FeedItemMerger.Diff diff = FeedItemMerger.merge(savedFeed, newFeed, true);
+
+        assertEquals(numItems / 10, diff.inserted.size());
+        assertEquals(numItems - numItems / 10, diff.updated.size());
+        assertEquals(numItems / 10, diff.removed.size());
+        assertEquals(numItems, savedFeed.getItems().size());
+    }
+
+    /**
+     * Creates a feed with items sorted by pubDate, most recent first.
+     */
+    private static Feed createFeed(int from, int to) {
+        Feed feed = new Feed("url", null, "title");
+        List<FeedItem> items = new ArrayList<>();
+        for (int i = to - 1; i >= from; i--) {
+            FeedItem item = new FeedItem(0, "item " + i, "id " + i, "link " + i,
+                    new Date(i * 1000L), FeedItem.PLAYED, feed);
+            item.setMedia(new FeedMedia(item, "download url " + i, 123, "audio/mp3"));
+            items.add(item);
+        }
+        feed.setItems(items);
+        return feed;
+    }
+}
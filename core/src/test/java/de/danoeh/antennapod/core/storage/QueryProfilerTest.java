@@ -0,0 +1,96 @@
+package de.danoeh.antennapod.core.storage;
+
+import android.content.Context;
+
+import androidx.test.platform.app.InstrumentationRegistry;
+import de.danoeh.antennapod.core.preferences.UserPreferences;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.io.IOException;
+import java.io.StringWriter;
+
+import static de.danoeh.antennapod.core.storage.DbTestUtils.saveFeedlist;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Test class for {@link QueryProfiler}.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class QueryProfilerTest {
+    private long slowQueryThresholdMs;
+
+    @Before
+    public void setUp() {
+        Context context = InstrumentationRegistry.getInstrumentation().getContext();
+        UserPreferences.init(context);
+        QueryProfiler.init(context);
+        slowQueryThresholdMs = QueryProfiler.slowQueryThresholdMs;
+
+        PodDBAdapter.init(context);
+        PodDBAdapter.deleteDatabase();
+        saveFeedlist(3, 5, true);
+    }
+
+    @After
+    public void tearDown() {
+        QueryProfiler.setEnabled(false);
+        QueryProfiler.slowQueryThresholdMs = slowQueryThresholdMs;
+        PodDBAdapter.tearDownTests();
+        DBWriter.tearDownTests();
+    }
+
+    @Test
+    public void testDisabledByDefault() throws IOException {
+        assertFalse(QueryProfiler.isEnabled());
+        DBReader.getFeedList();
+        assertFalse(getReport().contains("getAllFeedsCursor"));
+    }
+
+    @Test
+    public void testRecordsCallSite() throws IOException {
+        QueryProfiler.setEnabled(true);
+        DBReader.getFeedList();
+        DBReader.getFeedList();
+        assertTrue(getReport().contains("\ngetAllFeedsCursor;2;"));
+    }
+
+    @Test
+    public void testLogsPlanOfSlowQueries() throws IOException {
+        QueryProfiler.setEnabled(true);
+        QueryProfiler.slowQueryThresholdMs = 0;
+        DBReader.getFeedList();
+        String report = getReport();
+        assertTrue(report.contains(" getAllFeedsCursor: "));
+        assertTrue(report.contains("SCAN"));
+    }
+
+    @Test
+    public void testRecordsCompiledStatements() throws IOException {
+        QueryProfiler.setEnabled(true);
+        saveFeedlist(1, 2, true);
+        String report = getReport();
+        assertTrue(report.contains("\ninsertFeedItem;2;"));
+        assertTrue(report.contains("\ninsertFeedMedia;2;"));
+    }
+
+    @Test
+    public void testDisablingClearsReport() throws IOException {
+        QueryProfiler.setEnabled(true);
+        QueryProfiler.slowQueryThresholdMs = 0;
+        DBReader.getFeedList();
+        QueryProfiler.setEnabled(false);
+        String report = getReport();
+        assertFalse(report.contains("getAllFeedsCursor"));
+    }
+
+    private static String getReport() throws IOException {
+        StringWriter writer = new StringWriter();
+        QueryProfiler.writeReport(writer);
+        return writer.toString();
+    }
+}
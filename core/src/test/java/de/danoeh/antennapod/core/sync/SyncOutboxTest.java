@@ -0,0 +1,100 @@
+package de.danoeh.antennapod.core.sync;
+
+import android.content.Context;
+
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import de.danoeh.antennapod.core.storage.PodDBAdapter;
+import de.danoeh.antennapod.net.sync.model.EpisodeAction;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Test class for {@link SyncOutbox}.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class SyncOutboxTest {
+
+    @Before
+    public void setUp() {
+        Context context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        PodDBAdapter.init(context);
+        PodDBAdapter.deleteDatabase();
+    }
+
+    @After
+    public void tearDown() {
+        PodDBAdapter.tearDownTests();
+    }
+
+    @Test
+    public void testPlayActionsAreCompacted() {
+        SyncOutbox.enqueueEpisodeAction(playAction("episode1", 10));
+        SyncOutbox.enqueueEpisodeAction(playAction("episode2", 20));
+        SyncOutbox.enqueueEpisodeAction(new EpisodeAction.Builder("podcast", "episode1", EpisodeAction.DOWNLOAD)
+                .currentTimestamp().build());
+        SyncOutbox.enqueueEpisodeAction(playAction("episode1", 30));
+
+        List<EpisodeAction> actions = SyncOutbox.getEpisodeActions(0, 10).getItems();
+        assertEquals(3, actions.size());
+        assertEquals("episode2", actions.get(0).getEpisode());
+        assertEquals(EpisodeAction.DOWNLOAD, actions.get(1).getAction());
+        assertEquals("episode1", actions.get(2).getEpisode());
+        assertEquals(30, actions.get(2).getPosition());
+    }
+
+    @Test
+    public void testBatchesAndAcknowledge() {
+        for (int i = 0; i < 5; i++) {
+            SyncOutbox.enqueueEpisodeAction(playAction("episode" + i, i));
+        }
+        SyncOutbox.Batch<EpisodeAction> first = SyncOutbox.getEpisodeActions(0, 2);
+        SyncOutbox.Batch<EpisodeAction> second = SyncOutbox.getEpisodeActions(first.getLastId(), 2);
+        assertEquals("episode0", first.getItems().get(0).getEpisode());
+        assertEquals("episode2", second.getItems().get(0).getEpisode());
+
+        SyncOutbox.acknowledge(first);
+        SyncOutbox.enqueueEpisodeAction(playAction("episode5", 5));
+
+        List<EpisodeAction> remaining = SyncOutbox.getEpisodeActions(0, 10).getItems();
+        assertEquals(4, remaining.size());
+        assertEquals("episode2", remaining.get(0).getEpisode());
+        assertEquals("episode5", remaining.get(3).getEpisode());
+    }
+
+    @Test
+    public void testFeedChangesSupersedeEachOther() {
+        SyncOutbox.enqueueFeedAdded("url1");
+        SyncOutbox.enqueueFeedAdded("url2");
+        SyncOutbox.enqueueFeedRemoved("url1");
+        SyncOutbox.enqueueFeedRemoved("url3");
+        SyncOutbox.enqueueFeedAdded("url3");
+
+        assertEquals(Arrays.asList("url2", "url3"), SyncOutbox.getAddedFeeds().getItems());
+        assertEquals(Collections.singletonList("url1"), SyncOutbox.getRemovedFeeds().getItems());
+
+        SyncOutbox.clear();
+        assertTrue(SyncOutbox.getAddedFeeds().isEmpty());
+        assertTrue(SyncOutbox.getRemovedFeeds().isEmpty());
+    }
+
+    private static EpisodeAction playAction(String episode, int position) {
+        return new EpisodeAction.Builder("podcast", episode, EpisodeAction.PLAY)
+                .currentTimestamp()
+                .started(0)
+                .position(position)
+                .total(100)
+                .build();
+    }
+}
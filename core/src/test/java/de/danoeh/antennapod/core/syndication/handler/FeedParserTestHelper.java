@@ -3,6 +3,8 @@ package de.danoeh.antennapod.core.syndication.handler;
 import androidx.annotation.NonNull;
 
 import java.io.File;
+import java.io.FileInputStream;
+import java.io.InputStream;
 
 import de.danoeh.antennapod.model.feed.Feed;
 
@@ -32,4 +34,18 @@ public abstract class FeedParserTestHelper {
         handler.parseFeed(parsedFeed);
         return parsedFeed;
     }
+
+    /**
+     * Runs the feed parser on the content of the given file, like for a feed that is parsed while downloading.
+     */
+    @NonNull
+    static Feed runFeedParserOnStream(@NonNull File feedFile) throws Exception {
+        FeedHandler handler = new FeedHandler();
+        Feed parsedFeed = new Feed("http://example.com/feed", null);
+        parsedFeed.setDownloaded(true);
+        try (InputStream in = new FileInputStream(feedFile)) {
+            handler.parseFeed(parsedFeed, in);
+        }
+        return parsedFeed;
+    }
 }
@@ -5,6 +5,7 @@ import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.robolectric.RobolectricTestRunner;
 
+import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.util.Date;
 
@@ -56,6 +57,38 @@ public class RssParserTest {
         }
     }
 
+    @Test
+    public void testRss2BasicFromStream() throws Exception {
+        File feedFile = FeedParserTestHelper.getFeedFile("feed-rss-testRss2Basic.xml");
+        Feed feed = FeedParserTestHelper.runFeedParserOnStream(feedFile);
+        assertEquals(Feed.TYPE_RSS2, feed.getType());
+        assertEquals("title", feed.getTitle());
+        assertEquals("en", feed.getLanguage());
+        assertEquals(10, feed.getItems().size());
+        for (int i = 0; i < feed.getItems().size(); i++) {
+            FeedItem item = feed.getItems().get(i);
+            assertEquals("http://example.com/item-" + i, item.getItemIdentifier());
+            assertEquals("http://example.com/media-" + i, item.getMedia().getDownload_url());
+        }
+    }
+
+    @Test
+    public void testLongPrologFromStream() throws Exception {
+        // Comments before the root element are read during type detection
+        StringBuilder xml = new StringBuilder("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n<!--");
+        for (int i = 0; i < 200 * 1024; i++) {
+            xml.append('x');
+        }
+        xml.append("-->\n<rss version=\"2.0\"><channel><title>title</title>"
+                + "<item><title>item</title><guid>http://example.com/item-0</guid></item></channel></rss>");
+        Feed feed = new Feed("http://example.com/feed", null);
+        new FeedHandler().parseFeed(feed, new ByteArrayInputStream(xml.toString().getBytes("UTF-8")));
+        assertEquals(Feed.TYPE_RSS2, feed.getType());
+        assertEquals("title", feed.getTitle());
+        assertEquals(1, feed.getItems().size());
+        assertEquals("http://example.com/item-0", feed.getItems().get(0).getItemIdentifier());
+    }
+
     @Test
     public void testImageWithWhitespace() throws Exception {
         File feedFile = FeedParserTestHelper.getFeedFile("feed-rss-testImageWithWhitespace.xml");
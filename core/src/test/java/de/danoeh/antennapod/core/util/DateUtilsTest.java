@@ -8,6 +8,7 @@ import java.util.GregorianCalendar;
 import java.util.TimeZone;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
 
 /**
  * Unit test for {@link DateUtils}.
@@ -171,4 +172,35 @@ public class DateUtilsTest {
         final Date actual = DateUtils.parse("Sun 01 Mar 2015 01:00:00 GMT-0400 (EDT)");
         assertEquals(expected, actual);
     }
+
+    @Test
+    public void testParseDateOnly() {
+        GregorianCalendar exp = new GregorianCalendar(2015, 2, 28, 0, 0, 0);
+        exp.setTimeZone(TimeZone.getTimeZone("UTC"));
+        assertEquals(new Date(exp.getTimeInMillis()), DateUtils.parse("2015-03-28"));
+    }
+
+    @Test
+    public void testParseInvalidDay() {
+        assertNull(DateUtils.parse("Sat, 31 Feb 2015 01:31:04 +0000"));
+        assertNull(DateUtils.parse("2015-02-31T01:31:04Z"));
+    }
+
+    @Test
+    public void testParsePaths() {
+        long rfc822 = DateUtils.ParsePath.RFC822.getCount();
+        long rfc3339 = DateUtils.ParsePath.RFC3339.getCount();
+        long pattern = DateUtils.ParsePath.PATTERN.getCount();
+        long failed = DateUtils.ParsePath.FAILED.getCount();
+
+        DateUtils.parse("Sat, 28 Mar 2015 01:31:04 GMT");
+        DateUtils.parse("2015-03-28T13:31:04+07:00");
+        DateUtils.parse("Sun 01 Mar 2015 01:00:00 GMT-0400 (EDT)");
+        DateUtils.parse("yesterday");
+
+        assertEquals(rfc822 + 1, DateUtils.ParsePath.RFC822.getCount());
+        assertEquals(rfc3339 + 1, DateUtils.ParsePath.RFC3339.getCount());
+        assertEquals(pattern + 1, DateUtils.ParsePath.PATTERN.getCount());
+        assertEquals(failed + 1, DateUtils.ParsePath.FAILED.getCount());
+    }
 }
@@ -5,12 +5,19 @@ import org.junit.Test;
 
 import java.util.ArrayList;
 import java.util.Calendar;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Random;
 
 import de.danoeh.antennapod.model.feed.Feed;
 import de.danoeh.antennapod.model.feed.FeedItem;
 import de.danoeh.antennapod.model.feed.FeedMedia;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertTrue;
 
@@ -156,6 +163,148 @@ public class FeedItemPermutorsTest {
         assertTrue(checkIdOrder(itemList, 2, 1, 3)); // after sorting
     }
 
+    @Test
+    public void testPermutorForRule_SMART_SHUFFLE_ASC() {
+        Permutor<FeedItem> permutor = FeedItemPermutors.getPermutor(SortOrder.SMART_SHUFFLE_OLD_NEW);
+
+        List<FeedItem> itemList = new ArrayList<>();
+        Feed feedA = createFeed(1, "A");
+        Feed feedB = createFeed(2, "B");
+        Feed feedC = createFeed(3, "C");
+        // B1, B2, B3, A1, A2, C1, C2, C3, A3 when sorted by date
+        itemList.add(createItem(23, feedB, 3));
+        itemList.add(createItem(13, feedA, 9));
+        itemList.add(createItem(11, feedA, 4));
+        itemList.add(createItem(31, feedC, 6));
+        itemList.add(createItem(21, feedB, 1));
+        itemList.add(createItem(33, feedC, 8));
+        itemList.add(createItem(12, feedA, 5));
+        itemList.add(createItem(32, feedC, 7));
+        itemList.add(createItem(22, feedB, 2));
+        permutor.reorder(itemList);
+        assertTrue(checkIdOrder(itemList, 11, 21, 31, 12, 22, 32, 13, 23, 33));
+    }
+
+    @Test
+    public void testPermutorForRule_SMART_SHUFFLE_DESC() {
+        Permutor<FeedItem> permutor = FeedItemPermutors.getPermutor(SortOrder.SMART_SHUFFLE_NEW_OLD);
+
+        List<FeedItem> itemList = new ArrayList<>();
+        Feed feedA = createFeed(1, "A");
+        Feed feedB = createFeed(2, "B");
+        itemList.add(createItem(11, feedA, 1));
+        itemList.add(createItem(12, feedA, 2));
+        itemList.add(createItem(13, feedA, 3));
+        itemList.add(createItem(14, feedA, 4));
+        itemList.add(createItem(21, feedB, 1));
+        itemList.add(createItem(22, feedB, 2));
+        permutor.reorder(itemList);
+        // Positions: A 0, 1/4, 2/4, 3/4 and B 0, 1/2
+        assertTrue(checkIdOrder(itemList, 14, 22, 13, 12, 21, 11));
+    }
+
+    @Test
+    public void testSmartShuffleProperties() {
+        Random random = new Random(42);
+        for (int i = 0; i < 200; i++) {
+            int[] feedSizes = new int[1 + random.nextInt(30)];
+            for (int j = 0; j < feedSizes.length; j++) {
+                feedSizes[j] = 1 + random.nextInt(40);
+            }
+            boolean ascending = random.nextBoolean();
+            List<FeedItem> itemList = createRandomQueue(random, feedSizes);
+            List<FeedItem> shuffled = new ArrayList<>(itemList);
+            FeedItemPermutors.getPermutor(ascending ? SortOrder.SMART_SHUFFLE_OLD_NEW
+                    : SortOrder.SMART_SHUFFLE_NEW_OLD).reorder(shuffled);
+            assertSmartShuffled(itemList, shuffled, ascending);
+        }
+    }
+
+    @Test
+    public void testSmartShuffleCoprimeFeedSizes() {
+        // The product of the sizes does not fit into a long
+        int[] feedSizes = {2, 3, 5, 7, 11, 13, 17, 19, 23, 29, 31, 37, 41, 43, 47, 53, 59, 61, 67, 71, 73};
+        List<FeedItem> itemList = createRandomQueue(new Random(1), feedSizes);
+        List<FeedItem> shuffled = new ArrayList<>(itemList);
+        FeedItemPermutors.getPermutor(SortOrder.SMART_SHUFFLE_OLD_NEW).reorder(shuffled);
+        assertSmartShuffled(itemList, shuffled, true);
+    }
+
+    @Test
+    public void testSmartShuffleLargeQueue() {
+        int[] feedSizes = new int[500];
+        int numItems = 0;
+        for (int i = 0; i < feedSizes.length; i++) {
+            feedSizes[i] = 1 + (i * 7919) % 39;
+            numItems += feedSizes[i];
+        }
+        feedSizes[0] += 10000 - numItems;
+        List<FeedItem> itemList = createRandomQueue(new Random(2), feedSizes);
+        assertEquals(10000, itemList.size());
+        List<FeedItem> shuffled = new ArrayList<>(itemList);
+        FeedItemPermutors.getPermutor(SortOrder.SMART_SHUFFLE_OLD_NEW).reorder(shuffled);
+        assertSmartShuffled(itemList, shuffled, true);
+    }
+
+    /**
+     * Checks that the shuffled list contains the same items, that the items of each feed are sorted
+     * by date and that the k-th of n items of a feed is placed at about k/n of the list.
+     */
+    private void assertSmartShuffled(List<FeedItem> itemList, List<FeedItem> shuffled, boolean ascending) {
+        assertEquals(itemList.size(), shuffled.size());
+        assertEquals(new HashSet<>(itemList), new HashSet<>(shuffled));
+
+        Map<Long, Integer> feedSizes = new HashMap<>();
+        for (FeedItem item : itemList) {
+            Integer size = feedSizes.get(item.getFeedId());
+            feedSizes.put(item.getFeedId(), size == null ? 1 : size + 1);
+        }
+        Map<Long, Integer> seen = new HashMap<>();
+        Map<Long, FeedItem> previous = new HashMap<>();
+        for (int i = 0; i < shuffled.size(); i++) {
+            FeedItem item = shuffled.get(i);
+            long feedId = item.getFeedId();
+            FeedItem previousItem = previous.get(feedId);
+            if (previousItem != null) {
+                int order = item.getPubDate().compareTo(previousItem.getPubDate());
+                assertTrue("Items of feed " + feedId + " are not sorted by date", ascending ? order >= 0 : order <= 0);
+            }
+            previous.put(feedId, item);
+
+            int k = seen.containsKey(feedId) ? seen.get(feedId) : 0;
+            seen.put(feedId, k + 1);
+            // Each other feed contributes its items before position k/n, plus at most one at the same position
+            double expected = (double) k * shuffled.size() / feedSizes.get(feedId);
+            assertTrue("Item " + k + " of feed " + feedId + " at " + i + ", expected about " + expected,
+                    i >= expected - 1e-9 && i <= expected + feedSizes.size());
+        }
+    }
+
+    private List<FeedItem> createRandomQueue(Random random, int[] feedSizes) {
+        List<FeedItem> itemList = new ArrayList<>();
+        long id = 1;
+        for (int i = 0; i < feedSizes.length; i++) {
+            Feed feed = createFeed(i + 1, "Feed " + random.nextInt(10));
+            for (int j = 0; j < feedSizes[i]; j++) {
+                itemList.add(createItem(id++, feed, random.nextInt(1000)));
+            }
+        }
+        Collections.shuffle(itemList, random);
+        return itemList;
+    }
+
+    private Feed createFeed(long id, String title) {
+        Feed feed = new Feed(null, null, title);
+        feed.setId(id);
+        return feed;
+    }
+
+    private FeedItem createItem(long id, Feed feed, int day) {
+        FeedItem item = new FeedItem(id, "Title " + id, null, null, new Date(day * 86400000L), 0, feed);
+        item.setFeedId(feed.getId());
+        return item;
+    }
+
     /**
      * Generates a list with test data.
      */
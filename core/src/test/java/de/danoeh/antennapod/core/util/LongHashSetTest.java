@@ -0,0 +1,68 @@
+package de.danoeh.antennapod.core.util;
+
+import org.junit.Test;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class LongHashSetTest {
+
+    @Test
+    public void testEmptySet() {
+        LongHashSet set = new LongHashSet();
+        assertEquals(0, set.size());
+        assertTrue(set.isEmpty());
+        assertEquals("LongHashSet{}", set.toString());
+        assertFalse(set.contains(0));
+        assertFalse(set.contains(42));
+        assertFalse(set.remove(42));
+    }
+
+    @Test
+    public void testAddContainsRemove() {
+        LongHashSet set = LongHashSet.of(17, 0, -3, Long.MAX_VALUE);
+        assertEquals(4, set.size());
+        assertEquals("LongHashSet{-3, 0, 17, " + Long.MAX_VALUE + "}", set.toString());
+        assertTrue(set.contains(0));
+        assertTrue(set.contains(17));
+        assertFalse(set.add(17));
+        assertTrue(set.remove(0));
+        assertFalse(set.contains(0));
+        assertTrue(set.remove(17));
+        assertFalse(set.contains(17));
+        assertEquals(2, set.size());
+    }
+
+    @Test
+    public void testOfLongList() {
+        LongHashSet set = LongHashSet.of(LongList.of(1, 2, 3, 2));
+        assertEquals(3, set.size());
+        assertEquals(LongHashSet.of(3, 2, 1), set);
+        assertEquals(LongHashSet.of(3, 2, 1).hashCode(), set.hashCode());
+    }
+
+    @Test
+    public void testAgainstHashSet() {
+        Random random = new Random(42);
+        LongHashSet set = new LongHashSet(0);
+        Set<Long> expected = new HashSet<>();
+        for (int i = 0; i < 100000; i++) {
+            // Small range to get many collisions and removals of present values
+            long value = random.nextInt(2000);
+            if (random.nextBoolean()) {
+                assertEquals(expected.add(value), set.add(value));
+            } else {
+                assertEquals(expected.remove(value), set.remove(value));
+            }
+        }
+        assertEquals(expected.size(), set.size());
+        for (long value = 0; value < 2000; value++) {
+            assertEquals(expected.contains(value), set.contains(value));
+        }
+    }
+}
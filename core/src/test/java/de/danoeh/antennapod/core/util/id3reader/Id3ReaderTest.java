@@ -117,6 +117,38 @@ public class Id3ReaderTest {
         assertEquals(42, header.getSize());
     }
 
+    @Test
+    public void testGetTagLength() throws IOException {
+        assertEquals(ID3Reader.TAG_HEADER_LENGTH + 23, ID3Reader.getTagLength(generateId3Header(23)));
+        assertEquals(-1, ID3Reader.getTagLength(new byte[] {'f', 'L', 'a', 'C', 0, 0, 0, 0, 0, 0}));
+    }
+
+    @Test
+    public void testSkippedFramesAreNotRead() throws IOException, ID3ReaderException {
+        byte[] frameContent = new byte[100];
+        byte[] frame = concat(generateFrameHeader("APIC", frameContent.length), frameContent);
+        byte[] data = concat(generateId3Header(frame.length), frame);
+        final int[] bytesRead = {0};
+        ByteArrayInputStream source = new ByteArrayInputStream(data) {
+            @Override
+            public synchronized int read() {
+                bytesRead[0]++;
+                return super.read();
+            }
+
+            @Override
+            public synchronized int read(byte[] b, int off, int len) {
+                int numRead = super.read(b, off, len);
+                bytesRead[0] += Math.max(numRead, 0);
+                return numRead;
+            }
+        };
+        CountingInputStream inputStream = new CountingInputStream(source);
+        new ID3Reader(inputStream).readInputStream();
+        assertEquals(data.length, inputStream.getCount());
+        assertEquals(ID3Reader.TAG_HEADER_LENGTH + 10, bytesRead[0]); // Tag header and frame header
+    }
+
     public static byte[] generateFrameHeader(String id, int size) {
         return concat(
             id.getBytes(StandardCharsets.ISO_8859_1), // Frame ID
@@ -0,0 +1,102 @@
+package de.danoeh.antennapod.core.util.playback;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Test class for {@link PlaybackPositionJournal}.
+ */
+public class PlaybackPositionJournalTest {
+    private File file;
+    private PlaybackPositionJournal journal;
+
+    @Before
+    public void setUp() throws IOException {
+        file = File.createTempFile("journal", null);
+        journal = new PlaybackPositionJournal(file);
+    }
+
+    @After
+    public void tearDown() {
+        file.delete();
+    }
+
+    @Test
+    public void testReadReturnsLastEntryOfEveryMedia() {
+        journal.append(1, 1000, 1000, 10);
+        journal.append(2, 2000, 2000, 20);
+        journal.append(1, 3000, 3000, 30);
+
+        List<PlaybackPositionJournal.Entry> entries = journal.read();
+        assertEquals(2, entries.size());
+        assertEquals(2, entries.get(0).mediaId);
+        assertEquals(1, entries.get(1).mediaId);
+        assertEquals(3000, entries.get(1).position);
+        assertEquals(30, entries.get(1).timestamp);
+    }
+
+    @Test
+    public void testIncompleteRecordIsIgnored() throws IOException {
+        journal.append(1, 1000, 500, 10);
+        try (FileOutputStream out = new FileOutputStream(file, true)) {
+            out.write(new byte[] {0, 0, 0, 0, 0, 0, 0, 1, 0, 0});
+        }
+
+        List<PlaybackPositionJournal.Entry> entries = journal.read();
+        assertEquals(1, entries.size());
+        assertEquals(1000, entries.get(0).position);
+        assertEquals(500, entries.get(0).playedDuration);
+    }
+
+    @Test
+    public void testClear() {
+        journal.append(1, 1000, 1000, 10);
+        assertFalse(journal.read().isEmpty());
+
+        journal.clear();
+        assertTrue(journal.read().isEmpty());
+    }
+
+    @Test
+    public void testDiscard() {
+        journal.append(1, 1000, 1000, 10);
+        journal.append(2, 2000, 2000, 20);
+        journal.append(1, 3000, 3000, 30);
+        journal.append(2, 4000, 4000, 40);
+
+        journal.discard(2, 40);
+        List<PlaybackPositionJournal.Entry> entries = journal.read();
+        assertEquals(1, entries.size());
+        assertEquals(1, entries.get(0).mediaId);
+        assertEquals(3000, entries.get(0).position);
+
+        journal.discard(1, 20);
+        assertEquals(1, journal.read().size());
+        journal.discard(1, 30);
+        assertTrue(journal.read().isEmpty());
+        assertFalse(file.exists());
+    }
+
+    @Test
+    public void testCompactedWhenLarge() {
+        for (int i = 0; i < 5000; i++) {
+            journal.append(i % 2, i, i, i);
+        }
+        assertTrue(file.length() < 5000 * 32);
+
+        List<PlaybackPositionJournal.Entry> entries = journal.read();
+        assertEquals(2, entries.size());
+        assertEquals(4998, entries.get(0).position);
+        assertEquals(4999, entries.get(1).position);
+    }
+}
@@ -48,10 +48,21 @@ public class Feed extends FeedFile {
     private List<FeedItem> items;
 
     /**
-     * String that identifies the last update (adopted from Last-Modified or ETag header).
+     * String that identifies the last update (adopted from Last-Modified header).
+     * Might contain an ETag if the feed was last updated by an older version.
      */
     private String lastUpdate;
 
+    /**
+     * ETag header of the last update.
+     */
+    private String etag;
+
+    /**
+     * Digest of the feed document that was parsed in the last update.
+     */
+    private String contentDigest;
+
     private ArrayList<FeedFunding> fundingList;
     /**
      * Feed type, for example RSS 2 or Atom.
@@ -381,6 +392,22 @@ public class Feed extends FeedFile {
         this.lastUpdate = lastModified;
     }
 
+    public String getEtag() {
+        return etag;
+    }
+
+    public void setEtag(String etag) {
+        this.etag = etag;
+    }
+
+    public String getContentDigest() {
+        return contentDigest;
+    }
+
+    public void setContentDigest(String contentDigest) {
+        this.contentDigest = contentDigest;
+    }
+
     public String getFeedIdentifier() {
         return feedIdentifier;
     }
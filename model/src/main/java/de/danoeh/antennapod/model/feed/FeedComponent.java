@@ -7,8 +7,19 @@ package de.danoeh.antennapod.model.feed;
  */
 public abstract class FeedComponent {
 
+    /**
+     * Value of {@link #getDirtyFields()} for components that were not loaded from the database.
+     */
+    public static final int ALL_FIELDS = ~0;
+
     long id;
 
+    /**
+     * Bit set of the database columns that were changed since this component
+     * was loaded from or written to the database.
+     */
+    private int dirtyFields = ALL_FIELDS;
+
     FeedComponent() {
         super();
     }
@@ -21,6 +32,34 @@ public abstract class FeedComponent {
         this.id = id;
     }
 
+    /**
+     * Returns the database columns that were changed since this component was loaded from or
+     * written to the database, as a combination of the FIELD_ constants of the subclass.
+     */
+    public int getDirtyFields() {
+        return dirtyFields;
+    }
+
+    public boolean isDirty(int field) {
+        return (dirtyFields & field) != 0;
+    }
+
+    /**
+     * Marks all attributes as stored. Should only be called after loading this component from
+     * the database or writing it to the database.
+     */
+    public void clearDirtyFields() {
+        dirtyFields = 0;
+    }
+
+    void setDirty(int field) {
+        dirtyFields |= field;
+    }
+
+    static boolean changed(Object oldValue, Object newValue) {
+        return oldValue == null ? newValue != null : !oldValue.equals(newValue);
+    }
+
     /**
      * Update this FeedComponent's attributes with the attributes from another
      * FeedComponent. This method should only update attributes which where read from
@@ -9,6 +9,10 @@ import java.io.File;
  */
 public abstract class FeedFile extends FeedComponent {
 
+    public static final int FIELD_FILE_URL = 1;
+    public static final int FIELD_DOWNLOAD_URL = 1 << 1;
+    public static final int FIELD_DOWNLOADED = 1 << 2;
+
     String file_url;
     protected String download_url;
     boolean downloaded;
@@ -42,7 +46,7 @@ public abstract class FeedFile extends FeedComponent {
      */
     void updateFromOther(FeedFile other) {
         super.updateFromOther(other);
-        this.download_url = other.download_url;
+        setDownload_url(other.download_url);
     }
 
     /**
@@ -83,9 +87,13 @@ public abstract class FeedFile extends FeedComponent {
      * null will also set the downloaded-attribute to false.
      */
     public void setFile_url(String file_url) {
+        if (changed(this.file_url, file_url)) {
+            setDirty(FIELD_FILE_URL);
+        }
         this.file_url = file_url;
-        if (file_url == null) {
+        if (file_url == null && downloaded) {
             downloaded = false;
+            setDirty(FIELD_DOWNLOADED);
         }
     }
 
@@ -94,6 +102,9 @@ public abstract class FeedFile extends FeedComponent {
     }
 
     public void setDownload_url(String download_url) {
+        if (changed(this.download_url, download_url)) {
+            setDirty(FIELD_DOWNLOAD_URL);
+        }
         this.download_url = download_url;
     }
 
@@ -102,6 +113,9 @@ public abstract class FeedFile extends FeedComponent {
     }
 
     public void setDownloaded(boolean downloaded) {
+        if (this.downloaded != downloaded) {
+            setDirty(FIELD_DOWNLOADED);
+        }
         this.downloaded = downloaded;
     }
 }
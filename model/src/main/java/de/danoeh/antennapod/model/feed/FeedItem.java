@@ -25,6 +25,18 @@ public class FeedItem extends FeedComponent implements Serializable {
     /** tag that indicates this item is in favorites */
     public static final String TAG_FAVORITE = "Favorite";
 
+    public static final int FIELD_TITLE = 1;
+    public static final int FIELD_DESCRIPTION = 1 << 1;
+    public static final int FIELD_LINK = 1 << 2;
+    public static final int FIELD_PUB_DATE = 1 << 3;
+    public static final int FIELD_FEED = 1 << 4;
+    public static final int FIELD_STATE = 1 << 5;
+    public static final int FIELD_PAYMENT_LINK = 1 << 6;
+    public static final int FIELD_CHAPTERS = 1 << 7;
+    public static final int FIELD_IMAGE_URL = 1 << 8;
+    public static final int FIELD_ITEM_IDENTIFIER = 1 << 9;
+    public static final int FIELD_AUTO_DOWNLOAD = 1 << 10;
+
     /**
      * The id/guid that can be found in the rss/atom feed. Might not be set.
      */
@@ -132,19 +144,19 @@ public class FeedItem extends FeedComponent implements Serializable {
     public void updateFromOther(FeedItem other) {
         super.updateFromOther(other);
         if (other.imageUrl != null) {
-            this.imageUrl = other.imageUrl;
+            setImageUrl(other.imageUrl);
         }
         if (other.title != null) {
-            title = other.title;
+            setTitle(other.title);
         }
         if (other.getDescription() != null) {
-            description = other.getDescription();
+            setDescription(other.getDescription());
         }
         if (other.link != null) {
-            link = other.link;
+            setLink(other.link);
         }
         if (other.pubDate != null && !other.pubDate.equals(pubDate)) {
-            pubDate = other.pubDate;
+            setPubDate(other.pubDate);
         }
         if (other.media != null) {
             if (media == null) {
@@ -156,11 +168,11 @@ public class FeedItem extends FeedComponent implements Serializable {
             }
         }
         if (other.paymentLink != null) {
-            paymentLink = other.paymentLink;
+            setPaymentLink(other.paymentLink);
         }
         if (other.chapters != null) {
             if (!hasChapters) {
-                chapters = other.chapters;
+                setChapters(other.chapters);
             }
         }
     }
@@ -188,6 +200,9 @@ public class FeedItem extends FeedComponent implements Serializable {
     }
 
     public void setTitle(String title) {
+        if (changed(this.title, title)) {
+            setDirty(FIELD_TITLE);
+        }
         this.title = title;
     }
 
@@ -195,11 +210,21 @@ public class FeedItem extends FeedComponent implements Serializable {
         return description;
     }
 
+    private void setDescription(String description) {
+        if (changed(this.description, description)) {
+            setDirty(FIELD_DESCRIPTION);
+        }
+        this.description = description;
+    }
+
     public String getLink() {
         return link;
     }
 
     public void setLink(String link) {
+        if (changed(this.link, link)) {
+            setDirty(FIELD_LINK);
+        }
         this.link = link;
     }
 
@@ -212,6 +237,9 @@ public class FeedItem extends FeedComponent implements Serializable {
     }
 
     public void setPubDate(Date pubDate) {
+        if (changed(this.pubDate, pubDate)) {
+            setDirty(FIELD_PUB_DATE);
+        }
         if (pubDate != null) {
             this.pubDate = (Date) pubDate.clone();
         } else {
@@ -241,6 +269,9 @@ public class FeedItem extends FeedComponent implements Serializable {
     }
 
     public void setFeed(Feed feed) {
+        if (feed == null || feed.getId() != feedId) {
+            setDirty(FIELD_FEED);
+        }
         this.feed = feed;
     }
 
@@ -253,7 +284,7 @@ public class FeedItem extends FeedComponent implements Serializable {
     }
 
     public void setNew() {
-        state = NEW;
+        setState(NEW);
     }
 
     public boolean isPlayed() {
@@ -262,12 +293,19 @@ public class FeedItem extends FeedComponent implements Serializable {
 
     public void setPlayed(boolean played) {
         if (played) {
-            state = PLAYED;
+            setState(PLAYED);
         } else {
-            state = UNPLAYED;
+            setState(UNPLAYED);
         }
     }
 
+    private void setState(int state) {
+        if (this.state != state) {
+            setDirty(FIELD_STATE);
+        }
+        this.state = state;
+    }
+
     public boolean isInProgress() {
         return (media != null && media.isInProgress());
     }
@@ -281,9 +319,9 @@ public class FeedItem extends FeedComponent implements Serializable {
             return;
         }
         if (this.description == null) {
-            this.description = newDescription;
+            setDescription(newDescription);
         } else if (this.description.length() < newDescription.length()) {
-            this.description = newDescription;
+            setDescription(newDescription);
         }
     }
 
@@ -292,6 +330,9 @@ public class FeedItem extends FeedComponent implements Serializable {
     }
 
     public void setPaymentLink(String paymentLink) {
+        if (changed(this.paymentLink, paymentLink)) {
+            setDirty(FIELD_PAYMENT_LINK);
+        }
         this.paymentLink = paymentLink;
     }
 
@@ -300,6 +341,9 @@ public class FeedItem extends FeedComponent implements Serializable {
     }
 
     public void setChapters(List<Chapter> chapters) {
+        if (chapters != null) {
+            setDirty(FIELD_CHAPTERS);
+        }
         this.chapters = chapters;
     }
 
@@ -308,6 +352,9 @@ public class FeedItem extends FeedComponent implements Serializable {
     }
 
     public void setItemIdentifier(String itemIdentifier) {
+        if (changed(this.itemIdentifier, itemIdentifier)) {
+            setDirty(FIELD_ITEM_IDENTIFIER);
+        }
         this.itemIdentifier = itemIdentifier;
     }
 
@@ -349,6 +396,9 @@ public class FeedItem extends FeedComponent implements Serializable {
     }
 
     public void setImageUrl(String imageUrl) {
+        if (changed(this.imageUrl, imageUrl)) {
+            setDirty(FIELD_IMAGE_URL);
+        }
         this.imageUrl = imageUrl;
     }
 
@@ -362,7 +412,11 @@ public class FeedItem extends FeedComponent implements Serializable {
     }
 
     public void setAutoDownload(boolean autoDownload) {
-        this.autoDownload = autoDownload ? 1 : 0;
+        long value = autoDownload ? 1 : 0;
+        if (this.autoDownload != value) {
+            setDirty(FIELD_AUTO_DOWNLOAD);
+        }
+        this.autoDownload = value;
     }
 
     public boolean getAutoDownload() {
@@ -33,6 +33,14 @@ public class FeedMedia extends FeedFile implements Playable {
      */
     private static final int CHECKED_ON_SIZE_BUT_UNKNOWN = Integer.MIN_VALUE;
 
+    public static final int FIELD_DURATION = 1 << 3;
+    public static final int FIELD_POSITION = 1 << 4;
+    public static final int FIELD_SIZE = 1 << 5;
+    public static final int FIELD_MIME_TYPE = 1 << 6;
+    public static final int FIELD_HAS_EMBEDDED_PICTURE = 1 << 7;
+    public static final int FIELD_LAST_PLAYED_TIME = 1 << 8;
+    public static final int FIELD_PLAYBACK_COMPLETION_DATE = 1 << 9;
+
     private int duration;
     private int position; // Current position in file
     private long lastPlayedTime; // Last time this media was played (in ms)
@@ -125,11 +133,12 @@ public class FeedMedia extends FeedFile implements Playable {
 
     public void updateFromOther(FeedMedia other) {
         super.updateFromOther(other);
-        if (other.size > 0) {
-            size = other.size;
+        // The size of a downloaded file is the actual file size, not the one reported by the feed
+        if (other.size > 0 && !downloaded) {
+            setSize(other.size);
         }
         if (other.mime_type != null) {
-            mime_type = other.mime_type;
+            setMime_type(other.mime_type);
         }
     }
 
@@ -142,7 +151,7 @@ public class FeedMedia extends FeedFile implements Playable {
                 return true;
             }
         }
-        if (other.size > 0 && other.size != size) {
+        if (other.size > 0 && other.size != size && !downloaded) {
             return true;
         }
         return false;
@@ -158,11 +167,17 @@ public class FeedMedia extends FeedFile implements Playable {
     }
 
     public void setDuration(int duration) {
+        if (this.duration != duration) {
+            setDirty(FIELD_DURATION);
+        }
         this.duration = duration;
     }
 
     @Override
     public void setLastPlayedTime(long lastPlayedTime) {
+        if (this.lastPlayedTime != lastPlayedTime) {
+            setDirty(FIELD_LAST_PLAYED_TIME);
+        }
         this.lastPlayedTime = lastPlayedTime;
     }
 
@@ -188,6 +203,9 @@ public class FeedMedia extends FeedFile implements Playable {
     }
 
     public void setPosition(int position) {
+        if (this.position != position) {
+            setDirty(FIELD_POSITION);
+        }
         this.position = position;
         if(position > 0 && item != null && item.isNew()) {
             this.item.setPlayed(false);
@@ -199,6 +217,9 @@ public class FeedMedia extends FeedFile implements Playable {
     }
 
     public void setSize(long size) {
+        if (this.size != size) {
+            setDirty(FIELD_SIZE);
+        }
         this.size = size;
     }
 
@@ -215,7 +236,7 @@ public class FeedMedia extends FeedFile implements Playable {
      * get a valid answer and we shoudln't check using the network again.
      */
     public void setCheckedOnSizeButUnknown() {
-        this.size = CHECKED_ON_SIZE_BUT_UNKNOWN;
+        setSize(CHECKED_ON_SIZE_BUT_UNKNOWN);
     }
 
     public boolean checkedOnSizeButUnknown() {
@@ -227,6 +248,9 @@ public class FeedMedia extends FeedFile implements Playable {
     }
 
     public void setMime_type(String mime_type) {
+        if (changed(this.mime_type, mime_type)) {
+            setDirty(FIELD_MIME_TYPE);
+        }
         this.mime_type = mime_type;
     }
 
@@ -253,6 +277,9 @@ public class FeedMedia extends FeedFile implements Playable {
     }
 
     public void setPlaybackCompletionDate(Date playbackCompletionDate) {
+        if (changed(this.playbackCompletionDate, playbackCompletionDate)) {
+            setDirty(FIELD_PLAYBACK_COMPLETION_DATE);
+        }
         this.playbackCompletionDate = playbackCompletionDate == null
                 ? null : (Date) playbackCompletionDate.clone();
     }
@@ -435,6 +462,9 @@ public class FeedMedia extends FeedFile implements Playable {
     }
 
     public void setHasEmbeddedPicture(Boolean hasEmbeddedPicture) {
+        if (changed(this.hasEmbeddedPicture, hasEmbeddedPicture)) {
+            setDirty(FIELD_HAS_EMBEDDED_PICTURE);
+        }
         this.hasEmbeddedPicture = hasEmbeddedPicture;
     }
 
@@ -453,7 +483,7 @@ public class FeedMedia extends FeedFile implements Playable {
 
     public void checkEmbeddedPicture() {
         if (!localFileAvailable()) {
-            hasEmbeddedPicture = Boolean.FALSE;
+            setHasEmbeddedPicture(Boolean.FALSE);
             return;
         }
         MediaMetadataRetriever mmr = new MediaMetadataRetriever();
@@ -461,13 +491,13 @@ public class FeedMedia extends FeedFile implements Playable {
             mmr.setDataSource(getLocalMediaUrl());
             byte[] image = mmr.getEmbeddedPicture();
             if(image != null) {
-                hasEmbeddedPicture = Boolean.TRUE;
+                setHasEmbeddedPicture(Boolean.TRUE);
             } else {
-                hasEmbeddedPicture = Boolean.FALSE;
+                setHasEmbeddedPicture(Boolean.FALSE);
             }
         } catch (Exception e) {
             e.printStackTrace();
-            hasEmbeddedPicture = Boolean.FALSE;
+            setHasEmbeddedPicture(Boolean.FALSE);
         }
     }
 
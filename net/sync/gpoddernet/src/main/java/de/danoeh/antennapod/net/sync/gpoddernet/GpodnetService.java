@@ -1,7 +1,10 @@
 package de.danoeh.antennapod.net.sync.gpoddernet;
 
+import android.util.JsonReader;
 import android.util.Log;
 import androidx.annotation.NonNull;
+import androidx.annotation.VisibleForTesting;
+import androidx.core.util.Consumer;
 import de.danoeh.antennapod.net.sync.gpoddernet.model.GpodnetDevice;
 import de.danoeh.antennapod.net.sync.model.EpisodeAction;
 import de.danoeh.antennapod.net.sync.model.EpisodeActionChanges;
@@ -27,6 +30,7 @@ import org.json.JSONObject;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InputStreamReader;
 import java.net.HttpURLConnection;
 import java.net.MalformedURLException;
 import java.net.URI;
@@ -38,9 +42,14 @@ import java.util.Collections;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Locale;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
+import java.util.zip.GZIPInputStream;
 
 /**
  * Communicates with the gpodder.net service.
@@ -49,6 +58,9 @@ public class GpodnetService implements ISyncService {
     public static final String TAG = "GpodnetService";
     public static final String DEFAULT_BASE_HOST = "gpodder.net";
     private static final int UPLOAD_BULK_SIZE = 30;
+    private static final int UPLOAD_MAX_IN_FLIGHT = 4;
+    private static final int UPLOAD_MAX_ATTEMPTS = 3;
+    private static final long UPLOAD_RETRY_DELAY_MILLIS = 2000;
     private static final MediaType TEXT = MediaType.parse("plain/text; charset=utf-8");
     private static final MediaType JSON = MediaType.parse("application/json; charset=utf-8");
     private String baseScheme;
@@ -58,6 +70,8 @@ public class GpodnetService implements ISyncService {
     private String username;
     private String password;
     private boolean loggedIn = false;
+    private volatile UploadProgressListener uploadProgressListener;
+    private long uploadRetryDelayMillis = UPLOAD_RETRY_DELAY_MILLIS;
 
     private final OkHttpClient httpClient;
 
@@ -534,12 +548,72 @@ public class GpodnetService implements ISyncService {
     @Override
     public UploadChangesResponse uploadEpisodeActions(List<EpisodeAction> episodeActions) throws SyncServiceException {
         requireLoggedIn();
-        UploadChangesResponse response = null;
-        for (int i = 0; i < episodeActions.size(); i += UPLOAD_BULK_SIZE) {
-            response = uploadEpisodeActionsPartial(episodeActions,
-                    i, Math.min(episodeActions.size(), i + UPLOAD_BULK_SIZE));
+        if (episodeActions.size() <= UPLOAD_BULK_SIZE) {
+            return episodeActions.isEmpty() ? null
+                    : uploadEpisodeActionsPartialWithRetry(episodeActions, 0, episodeActions.size());
+        }
+        // Upload several chunks at the same time, so that the round trips overlap
+        int numChunks = (episodeActions.size() + UPLOAD_BULK_SIZE - 1) / UPLOAD_BULK_SIZE;
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(numChunks, UPLOAD_MAX_IN_FLIGHT));
+        try {
+            List<Future<UploadChangesResponse>> chunks = new ArrayList<>(numChunks);
+            for (int i = 0; i < episodeActions.size(); i += UPLOAD_BULK_SIZE) {
+                final int from = i;
+                final int to = Math.min(episodeActions.size(), i + UPLOAD_BULK_SIZE);
+                chunks.add(executor.submit(() -> uploadEpisodeActionsPartialWithRetry(episodeActions, from, to)));
+            }
+            // The chunks can be processed by the server in any order. Use the most recent timestamp,
+            // which is what uploading the chunks one after another would have returned.
+            // If a chunk fails, the others are still completed and the first error is thrown.
+            UploadChangesResponse response = null;
+            ExecutionException error = null;
+            for (Future<UploadChangesResponse> chunk : chunks) {
+                try {
+                    UploadChangesResponse chunkResponse = chunk.get();
+                    if (response == null || chunkResponse.timestamp > response.timestamp) {
+                        response = chunkResponse;
+                    }
+                } catch (ExecutionException e) {
+                    if (error == null) {
+                        error = e;
+                    }
+                }
+            }
+            if (error == null) {
+                return response;
+            } else if (error.getCause() instanceof SyncServiceException) {
+                throw (SyncServiceException) error.getCause();
+            }
+            throw new SyncServiceException(error.getCause());
+        } catch (InterruptedException e) {
+            throw new SyncServiceException(e);
+        } finally {
+            executor.shutdownNow();
         }
-        return response;
+    }
+
+    private UploadChangesResponse uploadEpisodeActionsPartialWithRetry(List<EpisodeAction> episodeActions,
+                                                                       int from, int to)
+            throws SyncServiceException, InterruptedException {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return uploadEpisodeActionsPartial(episodeActions, from, to);
+            } catch (SyncServiceException e) {
+                if (attempt >= UPLOAD_MAX_ATTEMPTS || !isTemporaryError(e)) {
+                    throw e;
+                }
+                long delay = uploadRetryDelayMillis << (attempt - 1);
+                Log.d(TAG, "Uploading actions " + from + " to " + to + " failed, retrying in " + delay + " ms");
+                Thread.sleep(delay);
+            }
+        }
+    }
+
+    private static boolean isTemporaryError(SyncServiceException e) {
+        if (e instanceof GpodnetServiceBadStatusCodeException) {
+            return ((GpodnetServiceBadStatusCodeException) e).getStatusCode() >= 500;
+        }
+        return e.getCause() instanceof IOException;
     }
 
     private UploadChangesResponse uploadEpisodeActionsPartial(List<EpisodeAction> episodeActions, int from, int to)
@@ -559,10 +633,15 @@ public class GpodnetService implements ISyncService {
                 }
             }
 
-            RequestBody body = RequestBody.create(JSON, list.toString());
+            byte[] content = list.toString().getBytes(Charset.forName("UTF-8"));
+            RequestBody body = RequestBody.create(JSON, content);
             Request.Builder request = new Request.Builder().post(body).url(url);
 
             final String response = executeRequest(request);
+            UploadProgressListener listener = uploadProgressListener;
+            if (listener != null) {
+                listener.onActionsUploaded(to - from, content.length);
+            }
             return GpodnetEpisodeActionPostResponse.fromJSONObject(response);
         } catch (JSONException | MalformedURLException | URISyntaxException e) {
             e.printStackTrace();
@@ -581,24 +660,55 @@ public class GpodnetService implements ISyncService {
      */
     @Override
     public EpisodeActionChanges getEpisodeActionChanges(long timestamp) throws SyncServiceException {
+        List<EpisodeAction> episodeActions = new ArrayList<>();
+        long newTimestamp = getEpisodeActionChanges(timestamp, episodeActions::add);
+        return new EpisodeActionChanges(episodeActions, newTimestamp);
+    }
+
+    /**
+     * The response can contain the complete history of the user, so it is decoded while it is
+     * downloaded. Only one action is in memory at a time.
+     */
+    @Override
+    public long getEpisodeActionChanges(long timestamp, @NonNull Consumer<EpisodeAction> consumer)
+            throws SyncServiceException {
         requireLoggedIn();
         String params = String.format(Locale.US, "since=%d", timestamp);
         String path = String.format("/api/2/episodes/%s.json", username);
+        URL url;
         try {
-            URL url = new URI(baseScheme, null, baseHost, basePort, path, params, null).toURL();
-            Request.Builder request = new Request.Builder().url(url);
-
-            String response = executeRequest(request);
-            JSONObject json = new JSONObject(response);
-            return readEpisodeActionsFromJsonObject(json);
+            url = new URI(baseScheme, null, baseHost, basePort, path, params, null).toURL();
         } catch (URISyntaxException e) {
             e.printStackTrace();
             throw new IllegalStateException(e);
-        } catch (JSONException | MalformedURLException e) {
+        } catch (MalformedURLException e) {
             e.printStackTrace();
             throw new SyncServiceException(e);
         }
-
+        // Setting the header explicitly disables the transparent gzip of okhttp,
+        // so the body needs to be decompressed here
+        Request request = new Request.Builder().url(url)
+                .header("Accept-Encoding", "gzip")
+                .build();
+        ResponseBody body = null;
+        try {
+            Response response = httpClient.newCall(request).execute();
+            body = response.body();
+            checkStatusCode(response);
+            InputStream in = body.byteStream();
+            if ("gzip".equalsIgnoreCase(response.header("Content-Encoding"))) {
+                in = new GZIPInputStream(in);
+            }
+            JsonReader reader = new JsonReader(new InputStreamReader(in, "UTF-8"));
+            return readEpisodeActions(reader, consumer);
+        } catch (IOException | IllegalStateException | NumberFormatException | JSONException e) {
+            e.printStackTrace();
+            throw new GpodnetServiceException(e);
+        } finally {
+            if (body != null) {
+                body.close();
+            }
+        }
     }
 
 
@@ -789,21 +899,62 @@ public class GpodnetService implements ISyncService {
         return new SubscriptionChanges(added, removed, timestamp);
     }
 
-    private EpisodeActionChanges readEpisodeActionsFromJsonObject(@NonNull JSONObject object)
-            throws JSONException {
-
-        List<EpisodeAction> episodeActions = new ArrayList<>();
+    /**
+     * Reads a response of the form <code>{"actions": [...], "timestamp": 123}</code>.
+     *
+     * @return the timestamp of the response
+     */
+    private static long readEpisodeActions(@NonNull JsonReader reader, @NonNull Consumer<EpisodeAction> consumer)
+            throws IOException, JSONException {
+        long timestamp = -1;
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String name = reader.nextName();
+            if ("timestamp".equals(name)) {
+                timestamp = reader.nextLong();
+            } else if ("actions".equals(name)) {
+                reader.beginArray();
+                while (reader.hasNext()) {
+                    EpisodeAction episodeAction = EpisodeAction.readFromJsonObject(readFlatJsonObject(reader));
+                    if (episodeAction != null) {
+                        consumer.accept(episodeAction);
+                    }
+                }
+                reader.endArray();
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+        if (timestamp < 0) {
+            throw new JSONException("No timestamp in response");
+        }
+        return timestamp;
+    }
 
-        long timestamp = object.getLong("timestamp");
-        JSONArray jsonActions = object.getJSONArray("actions");
-        for (int i = 0; i < jsonActions.length(); i++) {
-            JSONObject jsonAction = jsonActions.getJSONObject(i);
-            EpisodeAction episodeAction = EpisodeAction.readFromJsonObject(jsonAction);
-            if (episodeAction != null) {
-                episodeActions.add(episodeAction);
+    /**
+     * Reads an object with simple values. Nested objects and arrays are skipped.
+     */
+    private static JSONObject readFlatJsonObject(@NonNull JsonReader reader) throws IOException, JSONException {
+        JSONObject object = new JSONObject();
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String name = reader.nextName();
+            switch (reader.peek()) {
+                case STRING:
+                case NUMBER:
+                    object.put(name, reader.nextString());
+                    break;
+                case BOOLEAN:
+                    object.put(name, reader.nextBoolean());
+                    break;
+                default:
+                    reader.skipValue();
+                    break;
             }
         }
-        return new EpisodeActionChanges(episodeActions, timestamp);
+        reader.endObject();
+        return object;
     }
 
     @Override
@@ -811,8 +962,30 @@ public class GpodnetService implements ISyncService {
 
     }
 
+    /**
+     * Sets a listener that is notified whenever a chunk of episode actions was uploaded.
+     */
+    public void setUploadProgressListener(UploadProgressListener listener) {
+        this.uploadProgressListener = listener;
+    }
+
+    /**
+     * Sets the delay before the first retry of a failed upload. Every further retry waits twice as long.
+     */
+    @VisibleForTesting
+    void setUploadRetryDelay(long millis) {
+        this.uploadRetryDelayMillis = millis;
+    }
+
     public void setCredentials(String username, String password) {
         this.username = username;
         this.password = password;
     }
+
+    /**
+     * Can be called from several threads at the same time.
+     */
+    public interface UploadProgressListener {
+        void onActionsUploaded(int numActions, long numBytes);
+    }
 }
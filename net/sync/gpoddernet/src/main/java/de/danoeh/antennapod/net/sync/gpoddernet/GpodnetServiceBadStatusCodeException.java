@@ -9,4 +9,8 @@ class GpodnetServiceBadStatusCodeException extends GpodnetServiceException {
         super(message);
         this.statusCode = statusCode;
     }
+
+    public int getStatusCode() {
+        return statusCode;
+    }
 }
@@ -0,0 +1,273 @@
+package de.danoeh.antennapod.net.sync.gpoddernet;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPOutputStream;
+
+import de.danoeh.antennapod.net.sync.model.EpisodeAction;
+import de.danoeh.antennapod.net.sync.model.UploadChangesResponse;
+import okhttp3.OkHttpClient;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import okio.Buffer;
+import org.json.JSONArray;
+import org.json.JSONException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Test class for {@link GpodnetService}.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class GpodnetServiceTest {
+    private static final String PODCAST = "http://example.com/feed.xml";
+    private static final int BATCH_SIZE = 30;
+    private static final String EPISODE_ACTIONS = "{\"actions\": ["
+            + "{\"podcast\": \"" + PODCAST + "\", \"episode\": \"http://example.com/1.mp3\", \"action\": \"play\","
+            + " \"timestamp\": \"2021-01-02T03:04:05\", \"started\": 10, \"position\": 20, \"total\": 30,"
+            + " \"device\": {\"nested\": [1, 2]}, \"tags\": [\"a\", {\"b\": 3}]},"
+            + "{\"podcast\": \"" + PODCAST + "\", \"episode\": \"http://example.com/2.mp3\", \"action\": \"DOWNLOAD\"},"
+            + "{\"podcast\": \"" + PODCAST + "\", \"action\": \"play\"},"
+            + "{\"podcast\": \"" + PODCAST + "\", \"episode\": \"http://example.com/3.mp3\", \"action\": \"flattr\"},"
+            + "{\"podcast\": \"" + PODCAST + "\", \"episode\": \"http://example.com/4.mp3\", \"action\": null}"
+            + "], \"update_urls\": [[\"a\", \"b\"]], \"timestamp\": 12345}";
+
+    private MockWebServer server;
+    private GpodnetService service;
+
+    @Before
+    public void setUp() throws Exception {
+        server = new MockWebServer();
+        server.start();
+        service = new GpodnetService(new OkHttpClient(), "http://" + server.getHostName() + ":" + server.getPort(),
+                "device", "user", "password");
+        server.enqueue(new MockResponse());
+        service.login();
+        server.takeRequest();
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        server.shutdown();
+    }
+
+    @Test
+    public void testGetEpisodeActionChanges() throws Exception {
+        server.enqueue(new MockResponse().setBody(EPISODE_ACTIONS));
+        List<EpisodeAction> actions = new ArrayList<>();
+        long timestamp = service.getEpisodeActionChanges(1000, actions::add);
+
+        assertEquals(12345, timestamp);
+        assertActions(actions);
+        RecordedRequest request = server.takeRequest();
+        assertEquals("/api/2/episodes/user.json?since=1000", request.getPath());
+        assertEquals("gzip", request.getHeader("Accept-Encoding"));
+    }
+
+    @Test
+    public void testGetEpisodeActionChangesGzipped() throws Exception {
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        try (GZIPOutputStream out = new GZIPOutputStream(compressed)) {
+            out.write(EPISODE_ACTIONS.getBytes("UTF-8"));
+        }
+        server.enqueue(new MockResponse()
+                .setHeader("Content-Encoding", "gzip")
+                .setBody(new Buffer().write(compressed.toByteArray())));
+        List<EpisodeAction> actions = new ArrayList<>();
+        long timestamp = service.getEpisodeActionChanges(0, actions::add);
+
+        assertEquals(12345, timestamp);
+        assertActions(actions);
+    }
+
+    @Test
+    public void testGetEpisodeActionChangesKeepsActionsBeforeError() throws Exception {
+        String truncated = EPISODE_ACTIONS.substring(0, EPISODE_ACTIONS.indexOf("{\"podcast\": \"" + PODCAST
+                + "\", \"action\""));
+        server.enqueue(new MockResponse().setBody(truncated));
+        List<EpisodeAction> actions = new ArrayList<>();
+        try {
+            service.getEpisodeActionChanges(0, actions::add);
+            throw new AssertionError("Truncated response was accepted");
+        } catch (GpodnetServiceException expected) {
+            // The caller does not store a new timestamp, so the actions are downloaded again
+        }
+        assertEquals(2, actions.size());
+    }
+
+    @Test(expected = GpodnetServiceException.class)
+    public void testGetEpisodeActionChangesWithoutTimestamp() throws Exception {
+        server.enqueue(new MockResponse().setBody("{\"actions\": []}"));
+        service.getEpisodeActionChanges(0, action -> { });
+    }
+
+    @Test(expected = GpodnetServiceException.class)
+    public void testGetEpisodeActionChangesNoObject() throws Exception {
+        server.enqueue(new MockResponse().setBody("[]"));
+        service.getEpisodeActionChanges(0, action -> { });
+    }
+
+    @Test(expected = GpodnetServiceBadStatusCodeException.class)
+    public void testGetEpisodeActionChangesBadStatusCode() throws Exception {
+        server.enqueue(new MockResponse().setResponseCode(500).setBody(EPISODE_ACTIONS));
+        service.getEpisodeActionChanges(0, action -> { });
+    }
+
+    @Test
+    public void testUploadRetriesTemporaryErrors() throws Exception {
+        service.setUploadRetryDelay(100);
+        List<Long> requestTimes = Collections.synchronizedList(new ArrayList<>());
+        server.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) {
+                requestTimes.add(System.nanoTime());
+                return requestTimes.size() <= 2 ? new MockResponse().setResponseCode(503) : createUploadResponse(7);
+            }
+        });
+        UploadChangesResponse response = service.uploadEpisodeActions(createActions(10));
+
+        assertEquals(7, response.timestamp);
+        assertEquals(3, requestTimes.size());
+        // The delay doubles after every attempt
+        assertTrue(requestTimes.get(1) - requestTimes.get(0) >= TimeUnit.MILLISECONDS.toNanos(100));
+        assertTrue(requestTimes.get(2) - requestTimes.get(1) >= TimeUnit.MILLISECONDS.toNanos(200));
+    }
+
+    @Test
+    public void testUploadGivesUpAfterThreeAttempts() throws Exception {
+        service.setUploadRetryDelay(10);
+        server.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) {
+                return new MockResponse().setResponseCode(503);
+            }
+        });
+        try {
+            service.uploadEpisodeActions(createActions(10));
+            fail("Upload did not fail");
+        } catch (GpodnetServiceBadStatusCodeException e) {
+            assertEquals(503, e.getStatusCode());
+        }
+        assertEquals(1 + 3, server.getRequestCount());
+    }
+
+    @Test
+    public void testUploadDoesNotRetryClientErrors() throws Exception {
+        service.setUploadRetryDelay(10);
+        server.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) {
+                return new MockResponse().setResponseCode(400);
+            }
+        });
+        try {
+            service.uploadEpisodeActions(createActions(10));
+            fail("Upload did not fail");
+        } catch (GpodnetServiceBadStatusCodeException e) {
+            assertEquals(400, e.getStatusCode());
+        }
+        assertEquals(1 + 1, server.getRequestCount());
+    }
+
+    @Test
+    public void testUploadOneBatchFails() throws Exception {
+        service.setUploadRetryDelay(10);
+        AtomicInteger uploadedActions = new AtomicInteger();
+        service.setUploadProgressListener((numActions, numBytes) -> uploadedActions.addAndGet(numActions));
+        server.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) {
+                int batch = getBatch(request);
+                return batch == 1 ? new MockResponse().setResponseCode(400) : createUploadResponse(batch);
+            }
+        });
+        try {
+            service.uploadEpisodeActions(createActions(100));
+            fail("Upload did not fail");
+        } catch (GpodnetServiceBadStatusCodeException e) {
+            assertEquals(400, e.getStatusCode());
+        }
+        // The other batches are still uploaded
+        assertEquals(1 + 4, server.getRequestCount());
+        assertEquals(100 - BATCH_SIZE, uploadedActions.get());
+    }
+
+    @Test
+    public void testUploadReturnsMaximumTimestamp() throws Exception {
+        long[] timestamps = {300, 100, 400, 200};
+        AtomicInteger uploadedActions = new AtomicInteger();
+        service.setUploadProgressListener((numActions, numBytes) -> uploadedActions.addAndGet(numActions));
+        server.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) {
+                return createUploadResponse(timestamps[getBatch(request)]);
+            }
+        });
+        UploadChangesResponse response = service.uploadEpisodeActions(createActions(100));
+
+        assertEquals(400, response.timestamp);
+        assertEquals(1 + 4, server.getRequestCount());
+        assertEquals(100, uploadedActions.get());
+    }
+
+    private static List<EpisodeAction> createActions(int count) {
+        List<EpisodeAction> actions = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            actions.add(new EpisodeAction.Builder(PODCAST, "http://example.com/episode-" + i, EpisodeAction.PLAY)
+                    .currentTimestamp()
+                    .started(0)
+                    .position(10)
+                    .total(20)
+                    .build());
+        }
+        return actions;
+    }
+
+    private static MockResponse createUploadResponse(long timestamp) {
+        return new MockResponse().setBody("{\"timestamp\": " + timestamp + ", \"update_urls\": []}");
+    }
+
+    /**
+     * Returns the index of the batch that was uploaded with the request, based on the first episode.
+     */
+    private static int getBatch(RecordedRequest request) {
+        try {
+            JSONArray actions = new JSONArray(request.getBody().readUtf8());
+            String episode = actions.getJSONObject(0).getString("episode");
+            return Integer.parseInt(episode.substring(episode.lastIndexOf('-') + 1)) / BATCH_SIZE;
+        } catch (JSONException e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    /**
+     * Only the valid play and download actions of {@link #EPISODE_ACTIONS} are returned.
+     */
+    private static void assertActions(List<EpisodeAction> actions) {
+        assertEquals(2, actions.size());
+        EpisodeAction play = actions.get(0);
+        assertEquals(PODCAST, play.getPodcast());
+        assertEquals("http://example.com/1.mp3", play.getEpisode());
+        assertEquals(EpisodeAction.PLAY, play.getAction());
+        assertEquals(10, play.getStarted());
+        assertEquals(20, play.getPosition());
+        assertEquals(30, play.getTotal());
+        assertEquals(EpisodeAction.DOWNLOAD, actions.get(1).getAction());
+        assertEquals("http://example.com/2.mp3", actions.get(1).getEpisode());
+    }
+}
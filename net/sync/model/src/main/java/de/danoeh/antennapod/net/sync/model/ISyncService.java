@@ -1,5 +1,7 @@
 package de.danoeh.antennapod.net.sync.model;
 
+import androidx.core.util.Consumer;
+
 import java.util.List;
 
 public interface ISyncService {
@@ -13,6 +15,14 @@ public interface ISyncService {
 
     EpisodeActionChanges getEpisodeActionChanges(long lastSync) throws SyncServiceException;
 
+    /**
+     * Passes the episode actions to the consumer while they are downloaded,
+     * instead of keeping all of them in memory.
+     *
+     * @return the timestamp of the changes
+     */
+    long getEpisodeActionChanges(long lastSync, Consumer<EpisodeAction> consumer) throws SyncServiceException;
+
     UploadChangesResponse uploadEpisodeActions(List<EpisodeAction> queuedEpisodeActions)
             throws SyncServiceException;
 